@@ -0,0 +1,83 @@
+package de.bcxp.challenge.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.util.CsvDataGenerator;
+
+/**
+ * Creates the data used by the benchmarks. The data is random, but the same for every run (fixed seed).
+ * @author catherine heyart
+ *
+ */
+final class BenchmarkData {
+
+	static final long SEED = 42;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Writes a weather file with the columns of weather.csv (see {@link CsvDataGenerator}).
+	 * @param rows number of rows (without the header)
+	 * @return path of the temporary file, which needs to be deleted after use
+	 */
+	static Path writeWeatherFile(int rows) {
+		Path path = createTempFile("weather");
+		new CsvDataGenerator(SEED).writeWeatherFile(path, rows);
+		return path;
+	}
+
+	/**
+	 * Writes a country file with the columns of countries.csv (separated by ';', see {@link CsvDataGenerator}).
+	 * @param rows number of rows (without the header)
+	 * @return path of the temporary file, which needs to be deleted after use
+	 */
+	static Path writeCountryFile(int rows) {
+		Path path = createTempFile("countries");
+		new CsvDataGenerator(SEED).writeCountryFile(path, rows);
+		return path;
+	}
+
+	static List<DailyWeather> weatherList(int rows) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<DailyWeather> data = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			int min = random.nextInt(40, 70);
+			data.add(new DailyWeather(i % 31 + 1, min, min + random.nextInt(0, 30)));
+		}
+		return data;
+	}
+
+	static List<Country> countryList(int rows) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<Country> data = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			data.add(new Country("Country " + i, random.nextInt(100_000, 90_000_000), random.nextInt(300, 600_000)));
+		}
+		return data;
+	}
+
+	private static Path createTempFile(String prefix) {
+		try {
+			return Files.createTempFile(prefix, ".csv");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static void delete(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
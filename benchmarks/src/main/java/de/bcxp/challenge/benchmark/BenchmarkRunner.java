@@ -0,0 +1,37 @@
+package de.bcxp.challenge.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmark jar. Runs the JMH benchmarks with the given JMH command line options, and always enables the GC profiler,
+ * so the allocation rate (gc.alloc.rate.norm) is reported next to the throughput and the average time.
+ * @author catherine heyart
+ *
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String... args) throws Exception {
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		if(!containsGcProfiler(arguments)) {
+			arguments.add("-prof");
+			arguments.add("gc");
+		}
+		Main.main(arguments.toArray(new String[0]));
+	}
+
+	private static boolean containsGcProfiler(List<String> arguments) {
+		for(int i = 0; i + 1 < arguments.size(); i++) {
+			if(arguments.get(i).equals("-prof") && arguments.get(i + 1).startsWith("gc")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
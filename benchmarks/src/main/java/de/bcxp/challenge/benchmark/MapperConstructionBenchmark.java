@@ -0,0 +1,39 @@
+package de.bcxp.challenge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Measures the creation of mappers. The bean schema is shared by all mappers of a bean class, so creating a mapper should be cheap.
+ * @author catherine heyart
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperConstructionBenchmark {
+
+	@Benchmark
+	public CsvToObjectMapper<DailyWeather> createCsvToObjectMapper() {
+		return new CsvToObjectMapper<>(DailyWeather.class);
+	}
+
+	@Benchmark
+	public CsvToObjectMapper<Country> createFastCsvToObjectMapper() {
+		return new FastCsvToObjectMapper<>(Country.class, ';');
+	}
+}
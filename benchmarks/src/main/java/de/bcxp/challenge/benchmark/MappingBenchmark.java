@@ -0,0 +1,92 @@
+package de.bcxp.challenge.benchmark;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.mapper.ParallelCsvToObjectMapper;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Measures the mapping of csv files to object lists with the different mappers.
+ * @author catherine heyart
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+	@Param({"30", "10000", "1000000", "10000000"})
+	private int rows;
+
+	/**
+	 * opencsv: {@link CsvToObjectMapper}, fast: {@link FastCsvToObjectMapper}, parallel: {@link ParallelCsvToObjectMapper}
+	 */
+	@Param({"opencsv", "fast", "parallel"})
+	private String mapper;
+
+	private Path weatherFile;
+
+	private Path countryFile;
+
+	private CsvToObjectMapper<DailyWeather> weatherMapper;
+
+	private CsvToObjectMapper<Country> countryMapper;
+
+	@Setup
+	public void setUp() {
+		weatherFile = BenchmarkData.writeWeatherFile(rows);
+		countryFile = BenchmarkData.writeCountryFile(rows);
+		weatherMapper = createMapper(DailyWeather.class, ',');
+		countryMapper = createMapper(Country.class, ';');
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkData.delete(weatherFile);
+		BenchmarkData.delete(countryFile);
+	}
+
+	@Benchmark
+	public List<DailyWeather> mapWeatherFile() throws FileNotFoundException, InvalidFileFormatException {
+		return weatherMapper.mapFileToObjectList(weatherFile);
+	}
+
+	@Benchmark
+	public List<Country> mapCountryFile() throws FileNotFoundException, InvalidFileFormatException {
+		return countryMapper.mapFileToObjectList(countryFile);
+	}
+
+	private <T> CsvToObjectMapper<T> createMapper(Class<T> clazz, char separator) {
+		switch(mapper) {
+			case "fast":
+				return new FastCsvToObjectMapper<>(clazz, separator);
+			case "parallel":
+				return new ParallelCsvToObjectMapper<>(clazz, separator);
+			default:
+				return new CsvToObjectMapper<>(clazz, separator);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package de.bcxp.challenge.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.ColumnarDailyWeatherRepository;
+import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.service.DailyWeatherService;
+
+/**
+ * Compares sequential and parallel scans of the service queries, to find the number of rows from which on the parallel execution pays off
+ * (see {@link DailyWeatherService#setParallelThreshold(int)}). The views of the service are not enabled and the query cache is disabled, so every query scans all rows.
+ * @author catherine heyart
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelQueryBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	private int rows;
+
+	/**
+	 * list: objects in a {@link Repository}, columnar: primitive columns
+	 */
+	@Param({"list", "columnar"})
+	private String repository;
+
+	@Param({"sequential", "parallel"})
+	private String execution;
+
+	private DailyWeatherService service;
+
+	@Setup
+	public void setUp() {
+		Repository<DailyWeather> repo = "columnar".equals(repository) ? new ColumnarDailyWeatherRepository() : new Repository<>();
+		service = new DailyWeatherService(repo, new CsvToObjectMapper<>(DailyWeather.class));
+		repo.addData(BenchmarkData.weatherList(rows));
+		service.setQueryCacheSize(0);
+		service.setParallelThreshold("parallel".equals(execution) ? 0 : Integer.MAX_VALUE);
+	}
+
+	@Benchmark
+	public int getDayWithSmallestTempSpread() {
+		return service.getDayWithSmallestTempSpread();
+	}
+
+	@Benchmark
+	public List<Integer> getDaysWithTempSpreadBetween() {
+		return service.getDaysWithTempSpreadBetween(0, 2);
+	}
+}
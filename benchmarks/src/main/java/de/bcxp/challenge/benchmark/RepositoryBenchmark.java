@@ -0,0 +1,80 @@
+package de.bcxp.challenge.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.ColumnarDailyWeatherRepository;
+import de.bcxp.challenge.repository.ConcurrentRepository;
+import de.bcxp.challenge.repository.OffHeapDailyWeatherRepository;
+import de.bcxp.challenge.repository.Repository;
+
+/**
+ * Measures adding data to an empty repository, as a list and as a stream.
+ * @author catherine heyart
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+	@Param({"30", "10000", "1000000", "10000000"})
+	private int rows;
+
+	/**
+	 * list: {@link Repository}, columnar: {@link ColumnarDailyWeatherRepository}, concurrent: {@link ConcurrentRepository},
+	 * offheap: {@link OffHeapDailyWeatherRepository}
+	 */
+	@Param({"list", "columnar", "concurrent", "offheap"})
+	private String repository;
+
+	private List<DailyWeather> data;
+
+	@Setup
+	public void setUp() {
+		data = BenchmarkData.weatherList(rows);
+	}
+
+	@Benchmark
+	public Repository<DailyWeather> addDataList() {
+		Repository<DailyWeather> repo = createRepository();
+		repo.addData(data);
+		return repo;
+	}
+
+	@Benchmark
+	public Repository<DailyWeather> addDataStream() {
+		Repository<DailyWeather> repo = createRepository();
+		repo.addData(data.stream());
+		return repo;
+	}
+
+	private Repository<DailyWeather> createRepository() {
+		switch(repository) {
+			case "columnar":
+				return new ColumnarDailyWeatherRepository();
+			case "concurrent":
+				return new ConcurrentRepository<>();
+			case "offheap":
+				return new OffHeapDailyWeatherRepository();
+			default:
+				return new Repository<>();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package de.bcxp.challenge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.service.CountryService;
+import de.bcxp.challenge.service.DailyWeatherService;
+
+/**
+ * Measures the queries of the services on a filled repository.
+ * With views=true, the views of the services are enabled (see {@link DailyWeatherService#enableViews()}), so the queries read the maintained results.
+ * With views=false, the services have to scan all the data on every query. The query cache is disabled, so repeated queries are not answered from it.
+ * @author catherine heyart
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+	@Param({"30", "10000", "1000000", "10000000"})
+	private int rows;
+
+	@Param({"true", "false"})
+	private boolean views;
+
+	private DailyWeatherService weatherService;
+
+	private CountryService countryService;
+
+	@Setup
+	public void setUp() {
+		Repository<DailyWeather> weatherRepo = new Repository<>();
+		weatherService = new DailyWeatherService(weatherRepo, new CsvToObjectMapper<>(DailyWeather.class));
+		Repository<Country> countryRepo = new Repository<>();
+		countryService = new CountryService(countryRepo, new CsvToObjectMapper<>(Country.class, ';'));
+		weatherService.setQueryCacheSize(0);
+		countryService.setQueryCacheSize(0);
+		if(views) {
+			weatherService.enableViews();
+			countryService.enableViews();
+		}
+		weatherRepo.addData(BenchmarkData.weatherList(rows));
+		countryRepo.addData(BenchmarkData.countryList(rows));
+	}
+
+	@Benchmark
+	public int getDayWithSmallestTempSpread() {
+		return weatherService.getDayWithSmallestTempSpread();
+	}
+
+	@Benchmark
+	public String getCountryNameWithHighestPopulationDensity() {
+		return countryService.getCountryNameWithHighestPopulationDensity();
+	}
+}
@@ -1,12 +1,17 @@
 package de.bcxp.challenge;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.RollingFileRejectedRowSink;
+import de.bcxp.challenge.metrics.MetricsRegistry;
 import de.bcxp.challenge.model.Country;
 import de.bcxp.challenge.model.DailyWeather;
 import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.repository.RepositorySnapshot;
 import de.bcxp.challenge.service.CountryService;
 import de.bcxp.challenge.service.DailyWeatherService;
 import de.bcxp.challengeExceptions.InvalidFileFormatException;
@@ -17,6 +22,22 @@ import de.bcxp.challengeExceptions.InvalidFileFormatException;
  */
 public final class App {
 
+	/**
+	 * System property holding the directory of the repository snapshots (see {@link RepositorySnapshot}). Snapshots are not used if it is not set.
+	 */
+	public static final String SNAPSHOT_DIRECTORY_PROPERTY = "challenge.snapshotDir";
+
+	/**
+	 * System property which, if set to true, prints the metrics of the run (see {@link MetricsRegistry#dump()}) after the results.
+	 */
+	public static final String PRINT_METRICS_PROPERTY = "challenge.printMetrics";
+
+	/**
+	 * System property holding the path of the log file for rows which cannot be mapped (see {@link RollingFileRejectedRowSink}). 
+	 * If it is not set, the rows are printed to the console.
+	 */
+	public static final String REJECTED_ROW_LOG_PROPERTY = "challenge.rejectedRowLog";
+
     /**
      * This is the main entry method of your program.
      * @param args The CLI arguments passed
@@ -25,31 +46,83 @@ public final class App {
     	
     	final Path WEATHER_FILE_PATH = Path.of("src/main/resources/de/bcxp/challenge/weather.csv");
     	final Path COUNTRY_FILE_PATH = Path.of("src/main/resources/de/bcxp/challenge/countries.csv");
+    	//if set, the repositories are loaded from binary snapshots in this directory, as long as the csv files have not changed
+    	//a loaded snapshot is only read as far as the queries need it, since no views are registered on it (see DailyWeatherService#enableViews)
+    	final String SNAPSHOT_DIRECTORY = System.getProperty(SNAPSHOT_DIRECTORY_PROPERTY);
+    	
+    	final String REJECTED_ROW_LOG = System.getProperty(REJECTED_ROW_LOG_PROPERTY);
+    	RollingFileRejectedRowSink rejectedRowSink = REJECTED_ROW_LOG == null ? null : new RollingFileRejectedRowSink(Path.of(REJECTED_ROW_LOG));
+    	
+    	//the metrics can be watched with a JMX client (e.g. jconsole) while the application is running
+    	MetricsRegistry.getDefault().registerMBean();
 
     	
         //WEATHER
-    	Repository<DailyWeather> weatherRepo = new Repository<>();
+    	Path weatherSnapshot = SNAPSHOT_DIRECTORY == null ? null : Path.of(SNAPSHOT_DIRECTORY, "weather.snapshot");
+    	Repository<DailyWeather> weatherRepo = weatherSnapshot == null ? null : RepositorySnapshot.loadWeather(weatherSnapshot, WEATHER_FILE_PATH);
+    	boolean parseWeather = weatherRepo == null;
+    	if(parseWeather) {
+    		weatherRepo = new Repository<>();
+    	}
     	CsvToObjectMapper<DailyWeather> weatherMapper = new CsvToObjectMapper<>(DailyWeather.class);
+    	weatherMapper.setRejectedRowSink(rejectedRowSink);
     	DailyWeatherService weatherService = new DailyWeatherService(weatherRepo, weatherMapper);
-    	try {
-			weatherService.addDataFromCsvFile(WEATHER_FILE_PATH, ',');
-		} catch (FileNotFoundException | InvalidFileFormatException e) {
-			e.printStackTrace();
-		}
+    	if(parseWeather) {
+    		try {
+    			weatherService.addDataFromCsvFile(WEATHER_FILE_PATH, ',');
+    			if(weatherSnapshot != null) {
+    				try {
+    					RepositorySnapshot.writeWeather(weatherRepo, WEATHER_FILE_PATH, weatherSnapshot);
+    				} catch (UncheckedIOException e) {
+    					//the parsed data is used anyway, the snapshot is only a cache for the next run
+    					e.printStackTrace();
+    				}
+    			}
+    		} catch (FileNotFoundException | InvalidFileFormatException e) {
+    			e.printStackTrace();
+    		}
+    	}
         int dayWithSmallestTempSpread = weatherService.getDayWithSmallestTempSpread();     // Your day analysis function call …
         System.out.printf("Day with smallest temperature spread: %d%n", dayWithSmallestTempSpread);
 
         
         //COUNTRY
-        Repository<Country> countryRepo = new Repository();
+    	Path countrySnapshot = SNAPSHOT_DIRECTORY == null ? null : Path.of(SNAPSHOT_DIRECTORY, "countries.snapshot");
+    	Repository<Country> countryRepo = countrySnapshot == null ? null : RepositorySnapshot.loadCountries(countrySnapshot, COUNTRY_FILE_PATH);
+    	boolean parseCountries = countryRepo == null;
+    	if(parseCountries) {
+    		countryRepo = new Repository<>();
+    	}
     	CsvToObjectMapper<Country> countryMapper = new CsvToObjectMapper<>(Country.class, ';');
+    	countryMapper.setRejectedRowSink(rejectedRowSink);
     	CountryService countryService = new CountryService(countryRepo, countryMapper);
-    	try {
-			countryService.addDataFromCsvFile(COUNTRY_FILE_PATH, ';');
-		} catch (FileNotFoundException | InvalidFileFormatException e) {
-			e.printStackTrace();
-		}
+    	if(parseCountries) {
+    		try {
+    			countryService.addDataFromCsvFile(COUNTRY_FILE_PATH, ';');
+    			if(countrySnapshot != null) {
+    				try {
+    					RepositorySnapshot.writeCountries(countryRepo, COUNTRY_FILE_PATH, countrySnapshot);
+    				} catch (UncheckedIOException e) {
+    					//the parsed data is used anyway, the snapshot is only a cache for the next run
+    					e.printStackTrace();
+    				}
+    			}
+    		} catch (FileNotFoundException | InvalidFileFormatException e) {
+    			e.printStackTrace();
+    		}
+    	}
         String countryWithHighestPopulationDensity = countryService.getCountryNameWithHighestPopulationDensity(); // Your population density analysis function call …
         System.out.printf("Country with highest population density: %s%n", countryWithHighestPopulationDensity);
+        
+        if(rejectedRowSink != null) {
+        	try {
+        		rejectedRowSink.close();
+        	} catch (IOException e) {
+        		e.printStackTrace();
+        	}
+        }
+        if(Boolean.getBoolean(PRINT_METRICS_PROPERTY)) {
+        	System.out.print(MetricsRegistry.getDefault().dump());
+        }
     }
 }
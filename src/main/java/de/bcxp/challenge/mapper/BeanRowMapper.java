@@ -0,0 +1,73 @@
+package de.bcxp.challenge.mapper;
+
+import java.util.Arrays;
+
+import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+
+/**
+ * Maps the records of a csv file to beans, using the column order resolved from the header of the file.
+ * The values are read through the same {@link RecordRow} which is passed to a {@link RowVisitor}.
+ * @author catherine heyart
+ *
+ * @param <T> class of the beans
+ */
+final class BeanRowMapper <T>{
+
+	private final BeanSchema<T> schema;
+
+	/**
+	 * Binder for each column index of the file. Null for columns which are not bound to a field.
+	 */
+	private final FieldBinder[] binders;
+
+	/**
+	 * Indexes of the columns which are bound to a field. The fields of the other columns are only counted by the reader and never looked at.
+	 */
+	private final int[] boundColumns;
+
+	/**
+	 * @param schema schema of the bean class
+	 * @param header column names of the file
+	 */
+	BeanRowMapper(BeanSchema<T> schema, String[] header) {
+		this.schema = schema;
+		this.binders = schema.resolve(header);
+		long[] projection = schema.projection(header);
+		int[] columns = new int[header.length];
+		int count = 0;
+		for(int i = 0; i < header.length; i++) {
+			if((projection[i >>> 6] & (1L << i)) != 0) {
+				columns[count++] = i;
+			}
+		}
+		this.boundColumns = Arrays.copyOf(columns, count);
+	}
+
+	/**
+	 * Maps the current record of a reader to a bean.
+	 * @param row view of the record which will be mapped
+	 * @return mapped bean. Null if the record is an empty line
+	 * @throws CsvException if the number of fields does not match the header or if a value does not match the type of its field.
+	 * The line number of the exception is set.
+	 */
+	T mapRow(RecordRow row) throws CsvException {
+		if(row.isEmpty()) {
+			return null;
+		}
+		try {
+			if(row.getFieldCount() != binders.length) {
+				throw new CsvRequiredFieldEmptyException(schema.getBeanClass(), "Number of data fields does not match number of headers.");
+			}
+
+			T bean = schema.newInstance();
+			for(int i : boundColumns) {
+				row.bind(i, binders[i], bean);
+			}
+			return bean;
+		} catch (CsvException e) {
+			e.setLineNumber(row.getLineNumber());
+			throw e;
+		}
+	}
+}
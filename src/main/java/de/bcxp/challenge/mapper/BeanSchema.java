@@ -0,0 +1,218 @@
+package de.bcxp.challenge.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.opencsv.bean.CsvBindAndSplitByName;
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvCustomBindByName;
+
+/**
+ * Describes how the columns of a csv file are bound to a bean class. The annotations ({@link CsvBindByName}) of the bean class are read once,
+ * when the schema is created. Afterwards, beans can be created and filled without reflection.
+ * <p>
+ * Schemas are immutable and are shared by all mappers of a bean class (see {@link #of(Class)}), independent of the separator of the mapper.
+ * @author catherine heyart
+ *
+ * @param <T> bean class described by the schema
+ */
+final class BeanSchema <T>{
+
+	/**
+	 * Schemas which have already been created, by bean class.
+	 */
+	private static final ConcurrentMap<Class<?>, BeanSchema<?>> SCHEMAS = new ConcurrentHashMap<>();
+
+	private final Class<T> beanClass;
+
+	/**
+	 * Handle of the parameterless constructor of the bean class. Null if the class has no accessible parameterless constructor.
+	 */
+	private final MethodHandle constructor;
+
+	/**
+	 * Binders of all annotated fields with a supported type. The key is the column name in upper case (the column names are not case sensitive, like in OpenCSV).
+	 */
+	private final Map<String, FieldBinder> binders;
+
+	/**
+	 * Names (in upper case) of all columns which are bound to a field by a name-based OpenCSV annotation, including the fields that cannot be bound by a {@link FieldBinder}.
+	 */
+	private final Set<String> columnNames;
+
+	/**
+	 * Reasons why beans cannot be filled by this schema (missing constructor, unsupported field types). Empty if all bound fields are supported.
+	 */
+	private final List<String> problems;
+
+	/**
+	 * Returns the schema of a bean class. The schema is created on the first call and reused afterwards. This method is thread-safe.
+	 * @param beanClass class following JavaBeans conventions
+	 * @return shared schema of the bean class
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> BeanSchema<T> of(Class<T> beanClass) {
+		if(beanClass == null) {
+			throw new IllegalArgumentException("The bean class cannot be null.");
+		}
+		return (BeanSchema<T>) SCHEMAS.computeIfAbsent(beanClass, BeanSchema::new);
+	}
+
+	/**
+	 * Creates the schema of a bean class by reading the OpenCSV annotations of its fields (including the fields of its superclasses).
+	 * A missing constructor or an unsupported field type does not prevent the creation of the schema; it is reported by {@link #checkBindable()}.
+	 * @param beanClass class following JavaBeans conventions
+	 */
+	private BeanSchema(Class<T> beanClass) {
+		this.beanClass = beanClass;
+		List<String> schemaProblems = new ArrayList<>();
+
+		MethodHandle handle = null;
+		try {
+			handle = MethodHandles.privateLookupIn(beanClass, MethodHandles.lookup())
+					.findConstructor(beanClass, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			schemaProblems.add(beanClass.getName() + " needs a parameterless constructor.");
+		}
+		constructor = handle;
+
+		Map<String, FieldBinder> fieldBinders = new LinkedHashMap<>();
+		Set<String> names = new LinkedHashSet<>();
+		for(Class<?> c = beanClass; c != null && c != Object.class; c = c.getSuperclass()) {
+			for(Field field : c.getDeclaredFields()) {
+				CsvBindByName annotation = field.getAnnotation(CsvBindByName.class);
+				if(annotation == null) {
+					//fields bound by other name-based annotations are mapped by OpenCSV only
+					String otherColumn = getOtherColumnName(field);
+					if(otherColumn != null) {
+						names.add(otherColumn.toUpperCase());
+						schemaProblems.add("The annotation of the field " + field.getName() + " is not supported.");
+					}
+					continue;
+				}
+				String columnName = annotation.column().isEmpty() ? field.getName() : annotation.column();
+				if(!names.add(columnName.toUpperCase())) {
+					continue;
+				}
+				try {
+					fieldBinders.put(columnName.toUpperCase(), FieldBinder.of(field, columnName));
+				} catch (IllegalArgumentException e) {
+					schemaProblems.add(e.getMessage());
+				}
+			}
+		}
+		binders = Collections.unmodifiableMap(fieldBinders);
+		columnNames = Collections.unmodifiableSet(names);
+		problems = Collections.unmodifiableList(schemaProblems);
+	}
+
+	/**
+	 * Checks if beans can be created and filled by this schema.
+	 * @throws IllegalArgumentException if the bean class has no accessible parameterless constructor or a bound field is not supported
+	 */
+	void checkBindable() {
+		if(!problems.isEmpty()) {
+			throw new IllegalArgumentException(String.join(" ", problems));
+		}
+	}
+
+	Class<T> getBeanClass() {
+		return beanClass;
+	}
+
+	/**
+	 * @return names (in upper case) of all columns which are bound to a field
+	 */
+	Set<String> getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * @param columnName name of the column (not case sensitive)
+	 * @return binder of the field bound to the column. Null if no field is bound to the column
+	 */
+	FieldBinder getBinder(String columnName) {
+		return binders.get(columnName.toUpperCase());
+	}
+
+	/**
+	 * Resolves the binders for the columns of a header.
+	 * @param header column names in the order they appear in the csv file
+	 * @return array containing the binder for each column index. The entry is null if no field is bound to the column
+	 */
+	FieldBinder[] resolve(String[] header) {
+		FieldBinder[] result = new FieldBinder[header.length];
+		for(int i = 0; i < header.length; i++) {
+			result[i] = getBinder(header[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Determines which columns of a header are bound to a field, so the other columns do not need to be converted when a row is mapped.
+	 * All columns bound by an OpenCSV annotation are included (see {@link #getColumnNames()}), also if their field has no {@link FieldBinder}, 
+	 * since OpenCSV still binds them.
+	 * @param header column names in the order they appear in the csv file
+	 * @return bitmask with one bit per column index (bit i % 64 of word i / 64), which is set if a field is bound to the column
+	 */
+	long[] projection(String[] header) {
+		long[] mask = new long[(header.length + 63) >>> 6];
+		for(int i = 0; i < header.length; i++) {
+			if(columnNames.contains(header[i].toUpperCase())) {
+				mask[i >>> 6] |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Creates a new bean by invoking the parameterless constructor.
+	 * @return new bean holding default values
+	 */
+	T newInstance() {
+		if(constructor == null) {
+			throw new IllegalStateException(beanClass.getName() + " needs a parameterless constructor.");
+		}
+		try {
+			return beanClass.cast(constructor.invokeExact());
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException("An instance of " + beanClass.getName() + " could not be created.", t);
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which reads the column name of a field bound by {@link CsvCustomBindByName} or {@link CsvBindAndSplitByName}.
+	 * @return column name. Null if the field is not bound by one of these annotations
+	 */
+	private static String getOtherColumnName(Field field) {
+		String column;
+		CsvCustomBindByName custom = field.getAnnotation(CsvCustomBindByName.class);
+		CsvBindAndSplitByName split = field.getAnnotation(CsvBindAndSplitByName.class);
+		if(custom != null) {
+			column = custom.column();
+		} else if(split != null) {
+			column = split.column();
+		} else {
+			return null;
+		}
+		return column.isEmpty() ? field.getName() : column;
+	}
+}
@@ -0,0 +1,339 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Maps the rows which are appended to a csv file over time (see {@link FastCsvToObjectMapper#openTail(Path, char)}).
+ * The header is read and validated once, when the tail is opened. Afterwards, every call of {@link #poll()} maps only the
+ * complete rows which were appended since the previous call, starting at the remembered byte offset. A row which is still being written
+ * (i.e. not yet terminated by a line break) is left in the file until it is complete.
+ * <p>
+ * If the file gets shorter than the remembered offset (because it was truncated), it is read again from the beginning, including the header.
+ * If the path refers to another file than the opened one (because the file was replaced, e.g. renamed and created again when it is rotated),
+ * the rows remaining in the replaced file are mapped first, then the new file is opened and read from the beginning. Files are distinguished by their
+ * {@link BasicFileAttributes#fileKey() file key}; on file systems without file keys, only a truncation is noticed. A truncated or new file is only read once its
+ * header is complete.
+ * @author catherine heyart
+ *
+ * @param <T> Class of the object that the rows will be mapped to.
+ */
+public final class CsvFileTail <T> implements Closeable{
+
+	/**
+	 * Maximum number of bytes which are read and mapped at once.
+	 */
+	private static final int WINDOW_SIZE = 8 << 20;
+
+	private static final byte QUOTE = '"';
+
+	private static final byte LINE_FEED = '\n';
+
+	private final FastCsvToObjectMapper<T> mapper;
+
+	private final Path filePath;
+
+	private final char separator;
+
+	private FileChannel channel;
+
+	/**
+	 * Key of the opened file. Null if the file system does not provide file keys.
+	 */
+	private Object fileKey;
+
+	private BeanRowMapper<T> rowMapper;
+
+	/**
+	 * Column names of the file.
+	 */
+	private String[] header;
+
+	/**
+	 * Position after the last row which has been mapped.
+	 */
+	private long offset;
+
+	/**
+	 * Number of lines before the offset (used for the line numbers of the captured exceptions).
+	 */
+	private long linesBefore;
+
+	CsvFileTail(FastCsvToObjectMapper<T> mapper, Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		this.mapper = mapper;
+		this.filePath = filePath;
+		this.separator = separator;
+		try {
+			channel = FileChannel.open(filePath, StandardOpenOption.READ);
+			fileKey = readFileKey();
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("The file could not be found: " + filePath.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException("The file could not be opened: " + filePath.toString(), e);
+		}
+		try {
+			readHeader();
+		} catch (InvalidFileFormatException | RuntimeException e) {
+			mapper.closeReader(channel);
+			throw e;
+		}
+	}
+
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * @return position after the last row which has been mapped
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Maps the complete rows which were appended since the last call. Rows that are not valid get skipped, and their exceptions
+	 * are logged like in {@link CsvToObjectMapper#mapFileToObjectList(Path)}.
+	 * @return the mapped objects, in the order of the rows. Empty list if no complete row was appended
+	 * @throws InvalidFileFormatException if the file was truncated or replaced and its new header is not valid. The exception is logged
+	 * like the exceptions of skipped rows, and the tail should not be polled anymore
+	 * @throws UncheckedIOException if the file could not be read, e.g. because a row is larger than {@value #WINDOW_SIZE} bytes.
+	 * The exception is logged like the exceptions of skipped rows, and the rows appended since the last successful call are not returned
+	 */
+	public synchronized List<T> poll() throws InvalidFileFormatException {
+		List<T> result = new ArrayList<>();
+		MappingMetrics metrics = MappingMetrics.startParsing();
+		RejectedRows rejectedRows = new RejectedRows(mapper, filePath, metrics);
+		long polledBytes = 0;
+		try {
+			if(channel.size() < offset) {
+				if(!startsWithCompleteRow(channel)) {
+					//the header of the truncated file is not written yet
+					return result;
+				}
+				readHeader(rejectedRows);
+			}
+			polledBytes += mapAppendedRows(result, rejectedRows);
+			FileChannel replacement = openReplacement();
+			if(replacement != null) {
+				mapper.closeReader(channel);
+				channel = replacement;
+				fileKey = readFileKey();
+				readHeader(rejectedRows);
+				polledBytes += mapAppendedRows(result, rejectedRows);
+			}
+		} catch (IOException e) {
+			throw readFailure(rejectedRows, e);
+		} catch (UncheckedIOException e) {
+			throw readFailure(rejectedRows, e.getCause());
+		}
+		metrics.rowsMapped(result.size());
+		metrics.polled(polledBytes);
+		rejectedRows.flush();
+		return result;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which reads the header of a truncated or replaced file. If it is not valid, this is logged like a skipped row before the exception is thrown,
+	 * since the rows following it are not mapped anymore.
+	 */
+	private void readHeader(RejectedRows rejectedRows) throws InvalidFileFormatException {
+		try {
+			readHeader();
+		} catch (InvalidFileFormatException e) {
+			rejectedRows.add(new CsvException("The file is not read anymore, since its new header is not valid: " + e.getMessage()));
+			rejectedRows.flush();
+			throw e;
+		}
+	}
+
+	/**
+	 * Helper method which logs that the file could not be read like a skipped row, since the rows after the offset are not mapped.
+	 * @return exception to be thrown
+	 */
+	private UncheckedIOException readFailure(RejectedRows rejectedRows, IOException e) {
+		rejectedRows.add(new CsvException("The file could not be read: " + e.getMessage()));
+		rejectedRows.flush();
+		return new UncheckedIOException("The file could not be read: " + filePath.toString(), e);
+	}
+
+	/**
+	 * Helper method which maps all complete rows after the offset.
+	 * @return number of bytes which were mapped
+	 */
+	private long mapAppendedRows(List<T> result, RejectedRows rejectedRows) throws IOException {
+		long startOffset = offset;
+		while(true) {
+			ByteBuffer bytes = readCompleteRows();
+			if(bytes == null) {
+				return offset - startOffset;
+			}
+			mapRows(bytes, result, rejectedRows);
+		}
+	}
+
+	/**
+	 * Helper method which opens the file the path refers to, if it is not the opened file anymore.
+	 * @return channel of the new file. Null if the file was not replaced, if the path does not exist (e.g. while the file is rotated),
+	 * or if the header of the new file is not complete yet
+	 */
+	private FileChannel openReplacement() throws IOException {
+		if(fileKey == null) {
+			return null;
+		}
+		try {
+			if(fileKey.equals(readFileKey())) {
+				return null;
+			}
+			FileChannel replacement = FileChannel.open(filePath, StandardOpenOption.READ);
+			if(!startsWithCompleteRow(replacement)) {
+				replacement.close();
+				return null;
+			}
+			return replacement;
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Helper method which reads the key of the file the path currently refers to.
+	 * @return file key. Null if the file system does not provide file keys
+	 */
+	private Object readFileKey() throws IOException {
+		return Files.readAttributes(filePath, BasicFileAttributes.class).fileKey();
+	}
+
+	/**
+	 * Helper method which checks whether the first row of a file (i.e. the header) is complete.
+	 */
+	private static boolean startsWithCompleteRow(FileChannel channel) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(WINDOW_SIZE, channel.size()));
+		channel.read(bytes, 0);
+		bytes.flip();
+		return rowEnd(bytes, true) != -1;
+	}
+
+	/**
+	 * Helper method which reads and validates the header from the beginning of the file.
+	 * The header needs to be complete (terminated by a line break), since its columns decide how the rows are mapped.
+	 */
+	private void readHeader() throws InvalidFileFormatException {
+		offset = 0;
+		linesBefore = 0;
+		try {
+			ByteBuffer bytes = readCompleteRows();
+			if(bytes != null) {
+				CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+				CsvRecordReader reader = new CsvRecordReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), separator, 0);
+				if(reader.next()) {
+					String[] header = reader.getFields();
+					if(mapper.headerIsValid(header)) {
+						rowMapper = new BeanRowMapper<>(mapper.schema, header);
+						this.header = header;
+						//only the header is consumed, the rest of the window is mapped by the next poll
+						offset = rowEnd(bytes, true);
+						linesBefore = reader.getLineNumber();
+						return;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		throw mapper.invalidHeaderException();
+	}
+
+	/**
+	 * Helper method which reads the bytes after the offset up to the last line break which is not located within a quoted field.
+	 * @return bytes of complete rows (at most about {@value #WINDOW_SIZE} bytes). Null if there is no complete row after the offset
+	 */
+	private ByteBuffer readCompleteRows() throws IOException {
+		long available = channel.size() - offset;
+		if(available <= 0) {
+			return null;
+		}
+		ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(WINDOW_SIZE, available));
+		channel.read(bytes, offset);
+		bytes.flip();
+
+		int end = rowEnd(bytes, false);
+		if(end == -1) {
+			if(bytes.limit() == WINDOW_SIZE) {
+				throw new IOException("A row of " + filePath.toString() + " is larger than " + WINDOW_SIZE + " bytes.");
+			}
+			return null;
+		}
+		bytes.limit(end);
+		return bytes;
+	}
+
+	/**
+	 * Helper method which searches for line breaks which are not located within a quoted field.
+	 * The buffer needs to start at the beginning of a row (i.e. outside of a quoted field).
+	 * @param first true to search for the first, false to search for the last such line break
+	 * @return position after the line break. -1 if there is no such line break
+	 */
+	private static int rowEnd(ByteBuffer bytes, boolean first) {
+		boolean inQuotes = false;
+		int end = -1;
+		for(int i = 0, length = bytes.limit(); i < length; i++) {
+			byte b = bytes.get(i);
+			if(b == QUOTE) {
+				inQuotes = !inQuotes;
+			} else if(b == LINE_FEED && !inQuotes) {
+				end = i + 1;
+				if(first) {
+					break;
+				}
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Helper method which maps complete rows and moves the offset behind them.
+	 */
+	private void mapRows(ByteBuffer bytes, List<T> result, RejectedRows rejectedRows) throws IOException {
+		CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+		CsvRecordReader records = new CsvRecordReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), separator, linesBefore);
+		RecordRow row = new RecordRow(records, header);
+		while(records.next()) {
+			try {
+				T bean = rowMapper.mapRow(row);
+				if(bean != null) {
+					result.add(bean);
+				}
+			} catch (CsvException e) {
+				rejectedRows.add(e);
+			}
+		}
+		offset += bytes.limit();
+		linesBefore = records.getLineNumber();
+	}
+}
@@ -0,0 +1,348 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads csv records from a character source and exposes the boundaries of their fields without creating a String per field.
+ * The fields of the current record are located in the character buffer returned by {@link #getBuffer()}.
+ * Quoted fields (using '"') may contain separators, line breaks and escaped (doubled) quotes.
+ * @author catherine heyart
+ *
+ */
+final class CsvRecordReader implements Closeable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final char QUOTE = '"';
+
+	/**
+	 * Source of the characters. Null if all characters were handed over at construction.
+	 */
+	private final Reader reader;
+
+	private final char separator;
+
+	private char[] buffer;
+
+	/**
+	 * Index after the last valid character in the buffer.
+	 */
+	private int limit;
+
+	/**
+	 * Index of the first character of the next record.
+	 */
+	private int position;
+
+	private boolean endOfInput;
+
+	private int[] fieldStarts = new int[16];
+
+	private int[] fieldEnds = new int[16];
+
+	/**
+	 * Marks fields which still contain quotes and therefore need to be unescaped before their value can be used.
+	 */
+	private boolean[] fieldEscaped = new boolean[16];
+
+	private int fieldCount;
+
+	/**
+	 * Number of physical lines read so far (including the lines of the current record).
+	 */
+	private long lineNumber;
+
+	/**
+	 * Creates a reader which reads the records from a character stream.
+	 * @param reader source of the characters
+	 * @param separator separator between the fields of a record
+	 */
+	CsvRecordReader(Reader reader, char separator) {
+		this.reader = reader;
+		this.separator = separator;
+		this.buffer = new char[DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates a reader which reads the records from a part of a character array. The array is not copied.
+	 * @param chars characters containing the records
+	 * @param offset index of the first character
+	 * @param length number of characters
+	 * @param separator separator between the fields of a record
+	 * @param linesBefore number of physical lines preceding the characters (used to number the lines)
+	 */
+	CsvRecordReader(char[] chars, int offset, int length, char separator, long linesBefore) {
+		this.reader = null;
+		this.separator = separator;
+		this.buffer = chars;
+		this.position = offset;
+		this.limit = offset + length;
+		this.endOfInput = true;
+		this.lineNumber = linesBefore;
+	}
+
+	/**
+	 * Advances to the next record.
+	 * @return true, if a record was read. False if the end of the input has been reached
+	 * @throws IOException if the characters could not be read
+	 */
+	boolean next() throws IOException {
+		while(true) {
+			if(position >= limit && !fill()) {
+				return false;
+			}
+			int lines = tokenizeRecord();
+			if(lines >= 0) {
+				lineNumber += lines;
+				return true;
+			}
+			//record is not completely in the buffer
+			if(!fill()) {
+				endOfInput = true;
+			}
+		}
+	}
+
+	/**
+	 * @return number of fields in the current record
+	 */
+	int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @return buffer containing the characters of the current record
+	 */
+	char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @param index index of the field in the current record
+	 * @return index of the first character of the field in the buffer
+	 */
+	int getFieldStart(int index) {
+		return fieldStarts[index];
+	}
+
+	/**
+	 * @param index index of the field in the current record
+	 * @return index after the last character of the field in the buffer
+	 */
+	int getFieldEnd(int index) {
+		return fieldEnds[index];
+	}
+
+	/**
+	 * @return line number of the last physical line of the current record (the first line of the input has the number 1)
+	 */
+	long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Checks if the current record is an empty line.
+	 * @return true, if the record consists of a single empty field
+	 */
+	boolean isEmptyRecord() {
+		return fieldCount == 1 && fieldStarts[0] == fieldEnds[0];
+	}
+
+	/**
+	 * Returns the value of a field as String. Quotes are removed and escaped quotes are unescaped.
+	 * @param index index of the field in the current record
+	 * @return value of the field
+	 */
+	String getField(int index) {
+		int start = fieldStarts[index];
+		int end = fieldEnds[index];
+		if(!fieldEscaped[index]) {
+			return new String(buffer, start, end - start);
+		}
+
+		StringBuilder builder = new StringBuilder(end - start);
+		boolean inQuotes = false;
+		for(int i = start; i < end; i++) {
+			char c = buffer[i];
+			if(c != QUOTE) {
+				builder.append(c);
+			} else if(inQuotes && i + 1 < end && buffer[i + 1] == QUOTE) {
+				builder.append(QUOTE);
+				i++;
+			} else {
+				inQuotes = !inQuotes;
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Checks if a field needs to be unescaped (with {@link #getField(int)}) before its characters can be interpreted.
+	 * @param index index of the field in the current record
+	 * @return true, if the characters of the field still contain quotes
+	 */
+	boolean isEscaped(int index) {
+		return fieldEscaped[index];
+	}
+
+	/**
+	 * @return all fields of the current record as Strings
+	 */
+	String[] getFields() {
+		String[] fields = new String[fieldCount];
+		for(int i = 0; i < fieldCount; i++) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(reader != null) {
+			reader.close();
+		}
+	}
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which determines the fields of the record starting at the current position.
+	 * The buffer is not modified, so the record can be tokenized again after more characters have been read.
+	 * @return number of physical lines of the record. -1 if the record is not completely contained in the buffer
+	 */
+	private int tokenizeRecord() {
+		int i = position;
+		int lines = 0;
+		fieldCount = 0;
+
+		while(true) {
+			int start = i;
+			int end;
+			boolean escaped = false;
+
+			if(i < limit && buffer[i] == QUOTE) {
+				//quoted field: separators and line breaks are part of the value until the closing quote
+				i++;
+				while(true) {
+					if(i >= limit) {
+						if(!endOfInput) {
+							return -1;
+						}
+						//quote is never closed: the rest of the input belongs to the field
+						addField(start, limit, true);
+						position = limit;
+						return lines + 1;
+					}
+					char c = buffer[i];
+					if(c == QUOTE) {
+						if(i + 1 >= limit && !endOfInput) {
+							return -1;
+						}
+						if(i + 1 < limit && buffer[i + 1] == QUOTE) {
+							escaped = true;
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					if(c == '\n') {
+						lines++;
+					}
+					i++;
+				}
+				i++; //closing quote
+
+				if(escaped || (i < limit && !isEndOfField(buffer[i]))) {
+					//characters after the closing quote belong to the field as well
+					while(i < limit && !isEndOfField(buffer[i])) {
+						i++;
+					}
+					escaped = true;
+					end = i;
+				} else {
+					start++;
+					end = i - 1;
+				}
+			} else {
+				while(i < limit && !isEndOfField(buffer[i])) {
+					i++;
+				}
+				end = i;
+			}
+
+			if(i >= limit && !endOfInput) {
+				return -1;
+			}
+			addField(start, end, escaped);
+
+			if(i >= limit) {
+				position = i;
+				return lines + 1;
+			}
+			char c = buffer[i];
+			if(c == separator) {
+				i++;
+				continue;
+			}
+
+			//line break
+			if(c == '\r') {
+				if(i + 1 >= limit && !endOfInput) {
+					return -1;
+				}
+				if(i + 1 < limit && buffer[i + 1] == '\n') {
+					i++;
+				}
+			}
+			position = i + 1;
+			return lines + 1;
+		}
+	}
+
+	private boolean isEndOfField(char c) {
+		return c == separator || c == '\n' || c == '\r';
+	}
+
+	private void addField(int start, int end, boolean escaped) {
+		if(fieldCount == fieldStarts.length) {
+			int newLength = fieldCount * 2;
+			fieldStarts = Arrays.copyOf(fieldStarts, newLength);
+			fieldEnds = Arrays.copyOf(fieldEnds, newLength);
+			fieldEscaped = Arrays.copyOf(fieldEscaped, newLength);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldEscaped[fieldCount] = escaped;
+		fieldCount++;
+	}
+
+	/**
+	 * Helper method which reads more characters into the buffer. The characters which have not been consumed yet are moved to the beginning of the buffer.
+	 * @return true, if more characters have been read
+	 * @throws IOException if the characters could not be read
+	 */
+	private boolean fill() throws IOException {
+		if(reader == null || endOfInput) {
+			return false;
+		}
+		if(position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		if(limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if(read < 0) {
+			endOfInput = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+}
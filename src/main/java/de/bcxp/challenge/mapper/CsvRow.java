@@ -0,0 +1,76 @@
+package de.bcxp.challenge.mapper;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+
+/**
+ * Row of a csv file which is passed to a {@link RowVisitor} (see {@link FastCsvToObjectMapper#visitFile(java.nio.file.Path, char, RowVisitor)}).
+ * The same instance is reused for all rows of a file: it is a view of the row which is currently read, so it is only valid during
+ * {@link RowVisitor#visit(CsvRow)} and must not be stored. The primitive accessors parse the values directly from the read characters,
+ * so reading a row does not create any objects (except for {@link #getString(int)} and for values containing escaped quotes).
+ * <p>
+ * Columns are addressed by their index. The index of a column can be resolved once per file with {@link #getColumnIndex(String)}.
+ * Rows whose number of fields does not match the header are never passed to a visitor, so every column of the header can be read.
+ * <p>
+ * The beans of {@link FastCsvToObjectMapper} (including its streams, parallel mapping and tails) are mapped from this view as well.
+ * {@link CsvToObjectMapper}, which binds the rows with OpenCSV, does not use it.
+ * @author catherine heyart
+ *
+ */
+public interface CsvRow {
+
+	/**
+	 * @return number of fields of the row, which is the number of columns of the header
+	 */
+	int getFieldCount();
+
+	/**
+	 * @return line number of the last physical line of the row (the header is in line 1)
+	 */
+	long getLineNumber();
+
+	/**
+	 * Returns the index of a column of the header. The name is not case sensitive, like the names of {@link com.opencsv.bean.CsvBindByName}.
+	 * @param columnName name of the column
+	 * @return index of the column. -1 if the header does not contain the column
+	 */
+	int getColumnIndex(String columnName);
+
+	/**
+	 * @param column index of the column
+	 * @return true, if the value only consists of whitespace
+	 * @throws IndexOutOfBoundsException if the row does not have the column
+	 */
+	boolean isBlank(int column);
+
+	/**
+	 * @param column index of the column
+	 * @return value of the column as int. Leading and trailing whitespace is ignored
+	 * @throws CsvDataTypeMismatchException if the value is not an int (also if it is blank)
+	 * @throws IndexOutOfBoundsException if the row does not have the column
+	 */
+	int getInt(int column) throws CsvDataTypeMismatchException;
+
+	/**
+	 * @param column index of the column
+	 * @return value of the column as long. Leading and trailing whitespace is ignored
+	 * @throws CsvDataTypeMismatchException if the value is not a long (also if it is blank)
+	 * @throws IndexOutOfBoundsException if the row does not have the column
+	 */
+	long getLong(int column) throws CsvDataTypeMismatchException;
+
+	/**
+	 * @param column index of the column
+	 * @return value of the column as double, parsed like {@link Double#parseDouble(String)}
+	 * @throws CsvDataTypeMismatchException if the value is not a number (also if it is blank)
+	 * @throws IndexOutOfBoundsException if the row does not have the column
+	 */
+	double getDouble(int column) throws CsvDataTypeMismatchException;
+
+	/**
+	 * Returns the value of a column as String. In contrast to the other accessors, a String is created for each call.
+	 * @param column index of the column
+	 * @return value of the column. Quotes are removed and escaped quotes are unescaped
+	 * @throws IndexOutOfBoundsException if the row does not have the column
+	 */
+	String getString(int column);
+}
@@ -1,25 +1,23 @@
 package de.bcxp.challenge.mapper;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
 import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import com.opencsv.bean.HeaderColumnNameMappingStrategy;
+import com.opencsv.exceptions.CsvException;
 
 import de.bcxp.challenge.util.FileReaderHelper;
 import de.bcxp.challenge.util.FileTypeChecker;
@@ -27,6 +25,8 @@ import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
 /**
  * This class is responsible for mapping a csv file to an object list.
+ * The rows are bound to the beans by OpenCSV, so all its annotations and converters are supported. They are not read through the row view
+ * which is passed to {@link RowVisitor}s ({@link CsvRow}); only {@link FastCsvToObjectMapper} maps its beans from that view.
  * @author catherine heyart
  *
  * @param <T> Class of the object that the csv file will be mapped to. 
@@ -37,7 +37,7 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	/**
 	 * Class of Type T.
 	 */
-	private Class<T> clazz;
+	protected Class<T> clazz;
 	
 	/**
 	 * Separator that is used in the CSV file which will be parsed. Default is set to ','
@@ -45,9 +45,14 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	private char separator;
 	
 	/**
-	 * HashSet containing all the fields of T that will be mapped.  
+	 * Schema of T, containing all the fields of T that will be mapped. The schema is shared by all mappers of T.
 	 */
-	private HashSet<String> beanFields;
+	protected final BeanSchema<T> schema;
+	
+	/**
+	 * Sink which receives the exceptions of the skipped rows. If null, the exceptions are printed to the console.
+	 */
+	private volatile RejectedRowSink rejectedRowSink;
 	
 	/**
 	 * Name of this class.
@@ -58,13 +63,13 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	public CsvToObjectMapper(Class<T> clazz){
 		separator = ',';
 		this.clazz = clazz;
-		beanFields = retrieveBeanFields();
+		schema = BeanSchema.of(clazz);
 	}
 	
 	public CsvToObjectMapper(Class<T> clazz, char separator) {
 		this.separator = separator;
 		this.clazz = clazz;
-		beanFields = retrieveBeanFields();
+		schema = BeanSchema.of(clazz);
 	}
 	
 	public char getSeparator() {
@@ -74,6 +79,18 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	public void setSeparator(char separator) {
 		this.separator = separator;
 	}
+	
+	public RejectedRowSink getRejectedRowSink() {
+		return rejectedRowSink;
+	}
+
+	/**
+	 * Sets the sink which receives the exceptions of the rows that are skipped while files are mapped (see {@link RollingFileRejectedRowSink}).
+	 * @param rejectedRowSink sink for the skipped rows. If null, the exceptions are printed to the console
+	 */
+	public void setRejectedRowSink(RejectedRowSink rejectedRowSink) {
+		this.rejectedRowSink = rejectedRowSink;
+	}
 
 	
 	/**
@@ -85,40 +102,90 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	 */
 	@Override
 	public List<T> mapFileToObjectList(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
-		
-		if(filePath == null) {
-			throw new IllegalArgumentException("The file path cannot be null.");
-		}
-		
-		if(!FileTypeChecker.isCsvFile(filePath)) {
-			throw new InvalidFileFormatException("File " + filePath.toString() + " is invalid. The file must be a .csv file.");
+		return mapFileToObjectList(filePath, separator);
+	}
+	
+	/**
+	 * Maps Csv File to object list, using the given separator instead of the separator of this mapper. The same conditions as in {@link #mapFileToObjectList(Path)} apply.
+	 * The mapper is not modified, so several files with different separators can be mapped by the same mapper at the same time.
+	 * @param filePath path to the file that will be mapped
+	 * @param separator Separator used in the csv file
+	 * @return List of mapped objects
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid
+	 */
+	public List<T> mapFileToObjectList(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		try (Stream<T> stream = mapFileToStream(filePath, separator)) {
+			return stream.collect(Collectors.toList());
 		}
+	}
+	
+	/**
+	 * Maps Csv File to a stream of objects. The same conditions as in {@link #mapFileToObjectList(Path)} apply. 
+	 * The file is opened once: the header is read and validated from the same reader which is afterwards used to map the rows, 
+	 * and the column mapping resolved from the header is reused for all rows. Fields of columns which are not bound to a field of T
+	 * are not converted to Strings (see ProjectingCsvParser); they appear as empty values in the captured exceptions.
+	 * The file is read row by row while the stream is consumed. The captured exceptions get logged when the stream is closed.
+	 */
+	@Override
+	public Stream<T> mapFileToStream(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
+		return mapFileToStream(filePath, separator);
+	}
+	
+	/**
+	 * Maps Csv File to a stream of objects, using the given separator instead of the separator of this mapper. The same conditions as in {@link #mapFileToStream(Path)} apply.
+	 * The mapper is not modified, so several files with different separators can be mapped by the same mapper at the same time.
+	 * @param filePath path to the file that will be mapped
+	 * @param separator Separator used in the csv file
+	 * @return Stream of mapped objects
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid
+	 */
+	public Stream<T> mapFileToStream(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
 		
-		if(!headerIsValid(filePath)) {
-			throw new InvalidFileFormatException("The header is not valid. \n"
-					+ "The header needs to have at least one column which matches an annotated field of the bean to be mapped. \n"
-					+ "It also needs to contain the same separator as the one defined in " + THIS_CLASS_NAME);
-		}
+		checkFilePath(filePath);
 		
-		List<T> list = null; 
+		MappingMetrics metrics = MappingMetrics.start();
+		RejectedRows rejectedRows = new RejectedRows(this, filePath, metrics);
+		ProjectingCsvParser parser = new ProjectingCsvParser(separator);
+		CSVReader csvReader = new CSVReaderBuilder(FileReaderHelper.openReader(filePath))
+				.withCSVParser(parser)
+				.build();
 		try {
-			CsvToBean<T> beans = new CsvToBeanBuilder<T>(new FileReader(filePath.toString()))
-					 .withType(clazz)
-		             .withSeparator(separator)
+			String[] header = csvReader.readNextSilently();
+			if(!headerIsValid(header)) {
+				throw invalidHeaderException();
+			}
+			metrics.headerValidated();
+			//only the columns which are bound to a field are converted to Strings from now on
+			parser.setProjection(schema.projection(header));
+			
+			CsvToBean<T> beans = new CsvToBeanBuilder<T>(csvReader)
+					 .withMappingStrategy(new ReadHeaderMappingStrategy<>(clazz, header))
 		            // .withVerifier(BeanVerifier)  -> could be used to filter out beans that have invalid values
 		             .withIgnoreEmptyLine(true)
-		             .withThrowExceptions(false)
+		             //the exceptions are passed on while the file is read instead of being queued until the end
+		             .withExceptionHandler(e -> {
+		            	 rejectedRows.add(e);
+		            	 return null;
+		             })
 					 .build();
 			
-			list = beans.parse();
+			//the iterator maps one row at a time (in contrast to parse(), which maps the whole file at once)
+			Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(metrics.counting(beans.iterator()), Spliterator.ORDERED | Spliterator.NONNULL);
 			
-			if(!beans.getCapturedExceptions().isEmpty()) {
-				logCapturedExceptions(beans, filePath); 
-			}
-		} catch (IllegalStateException e) {
-			e.printStackTrace();
+			return StreamSupport.stream(spliterator, false).onClose(() -> {
+				closeReader(csvReader);
+				metrics.finished(filePath);
+				rejectedRows.flush();
+			});
+		} catch (IOException e) {
+			closeReader(csvReader);
+			throw new UncheckedIOException(e);
+		} catch (InvalidFileFormatException | RuntimeException e) {
+			closeReader(csvReader);
+			throw e;
 		}
-		return list;
 	}
 	
 	
@@ -126,102 +193,103 @@ public class CsvToObjectMapper <T> implements FileToObjectMapper <T>{
 	///////////HELPER METHODS//////////////////////////////////////////////////
 	
 	/**
-	 * This method checks if the first line in a given file is a valid csv header. 	 
-	 * The header is considered valid if 1) at least one of its columns corresponds to an annotated field of T,
-	 * and 2) the separator used in the header is the same separator that is defined in this class. 
-	 * @param filePath path to the file which contains the header
-	 * @return true, if the header is considered valid (matches the above mentioned criteria)
-	 * @throws FileNotFoundException if the file could not be found
+	 * Checks if the file path is not null and if the file has a .csv extension.
+	 * @param filePath path of the file which will be mapped
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension
 	 */
-	private boolean headerIsValid(Path filePath) throws FileNotFoundException{
-		String header = FileReaderHelper.readFirstLineOfFile(filePath);
-		
-		if(header == null || header.isBlank()) {
-			return false;
+	protected void checkFilePath(Path filePath) throws InvalidFileFormatException {
+		if(filePath == null) {
+			throw new IllegalArgumentException("The file path cannot be null.");
 		}
 		
-		String[] columns = header.split("" + separator);
-		
-		for(String c : columns){
-        	if(beanFields.contains(c.toUpperCase())) {
-        		return true;
-        	}
-        }
-		return false;
+		if(!FileTypeChecker.isCsvFile(filePath)) {
+			MappingMetrics.INVALID_FILES.increment();
+			throw new InvalidFileFormatException("File " + filePath.toString() + " is invalid. The file must be a .csv file.");
+		}
 	}
 	
-	
-	
 	/**
-	 * This method detects all the annotated fields of T and returns in a HashSet in form of strings.
-	 * @return Hashset containing all the bean fields that will be mapped.
+	 * Creates the exception which is thrown if the header of a file is not valid. The file is counted as invalid in the metrics of the mappers.
+	 * @return exception explaining the requirements for a valid header
 	 */
-	private HashSet<String> retrieveBeanFields(){
-		String fieldString = getFieldsAsString();
-		HashSet<String> hashSet = new HashSet<>();
-		
-		String[] fields = fieldString.split("" + separator);
-		for(String s : fields){
-        	s = s.replace("\"", "");
-        	hashSet.add(s);
-        }
-		return hashSet;	
+	protected InvalidFileFormatException invalidHeaderException() {
+		MappingMetrics.INVALID_FILES.increment();
+		return new InvalidFileFormatException("The header is not valid. \n"
+				+ "The header needs to have at least one column which matches an annotated field of the bean to be mapped. \n"
+				+ "It also needs to contain the same separator as the one defined in " + THIS_CLASS_NAME);
 	}
 	
-	
 	/**
-	 * Helper method which detects all the annotated fields of T and returns them as a single String. 
-	 * The fields are separated by the separator defined in this class.
-	 * @return String containint all the bean fields that will be mapped
+	 * Helper method which closes the reader of a mapped file.
+	 * @param reader reader which will be closed
 	 */
-	//there is likely to be a better (less elaborate) way to get this information, but I didn't manage to find it.
-	private String getFieldsAsString()  {
-		
-	    T defaultBean = null;
-	    
+	protected void closeReader(Closeable reader) {
 		try {
-			//initialize bean with default values (by invoking parameterless constructor)
-			defaultBean = clazz.getDeclaredConstructor().newInstance();
-		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
+			reader.close();
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-	    
-	    try (Writer writer  = new StringWriter()) {
-	    	
-	    	//map bean object to Stringwriter -> will contain:
-	    	//1) column/field names in first line
-	    	//2) default values in second line
-	        StatefulBeanToCsv<T> sbc = new StatefulBeanToCsvBuilder<T>(writer)
-	          .withQuotechar('\"')
-	          .withSeparator(separator)
-	          .build();
-			 sbc.write(defaultBean);
-			
-			 //retrieve first line (line containing the column names)
-		    Scanner scanner = new Scanner(writer.toString());
-		    return scanner.nextLine();
-
-	    } catch (IOException | CsvDataTypeMismatchException | CsvRequiredFieldEmptyException e) {
-			e.printStackTrace();
+	}
+	
+	/**
+	 * This method checks if the columns of a header are valid. 	 
+	 * The header is considered valid if 1) at least one of its columns corresponds to an annotated field of T,
+	 * and 2) the separator used in the header is the same separator that is defined in this class (otherwise the header is read as a single column
+	 * which does not match any field).
+	 * @param columns columns of the header. Null if the file is empty
+	 * @return true, if at least one column corresponds to an annotated field of T
+	 */
+	protected boolean headerIsValid(String[] columns) {
+		if(columns == null) {
+			return false;
 		}
-	    return "";    
+		for(String c : columns){
+        	if(schema.getColumnNames().contains(c.toUpperCase())) {
+        		return true;
+        	}
+        }
+		return false;
 	}
 	
+	
+	
 	/**
-	 * Helper method which logs the exceptions caught while the csv file got mapped to beans.
-	 * @param beans Beans containing the caputred expressions
+	 * Helper method which logs the exceptions caught while the csv file got mapped to beans. The exceptions are passed to the 
+	 * {@link RejectedRowSink} of this mapper, or printed to the console if no sink is set.
+	 * The method is called while the file is read, with at most 1024 exceptions at a time, so it may be called several times for the same file.
+	 * @param capturedExceptions exceptions captured while mapping the file
 	 * @param filePath path of the file which got mapped and which the exceptions refer to
 	 */
-	//TO DO: instead of logging the exceptions to the console, it is better to log them into a file 
-	private void logCapturedExceptions(CsvToBean<T> beans, Path filePath) {
+	protected void logCapturedExceptions(List<CsvException> capturedExceptions, Path filePath) {
+		RejectedRowSink sink = rejectedRowSink;
+		if(sink != null) {
+			sink.accept(filePath, capturedExceptions);
+			return;
+		}
 		System.err.println("Captured Exceptions from " + THIS_CLASS_NAME + " while parsing " + filePath.toString() + ":" );
 		System.err.println("The listed row(s) will not be mapped to objects.");
-		beans.getCapturedExceptions().forEach(e -> {
+		capturedExceptions.forEach(e -> {
 			System.err.println(e.getLineNumber() + ":" + e);
 		});
 	}
 	
 	
+	/**
+	 * Mapping strategy which resolves the column mapping from a header that has already been read (and validated), instead of reading it from the file.
+	 */
+	private static final class ReadHeaderMappingStrategy <T> extends HeaderColumnNameMappingStrategy<T>{
+		
+		private final String[] header;
+		
+		private ReadHeaderMappingStrategy(Class<T> clazz, String[] header) {
+			this.header = header;
+			setType(clazz);
+		}
+		
+		@Override
+		public void captureHeader(CSVReader reader) {
+			headerIndex.initializeHeaderIndex(header);
+		}
+	}
 
 }
@@ -0,0 +1,242 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+
+import de.bcxp.challenge.util.Compression;
+import de.bcxp.challenge.util.FileReaderHelper;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * This class is responsible for mapping a csv file to an object list.
+ * In contrast to {@link CsvToObjectMapper}, the rows are not mapped by OpenCSV: the annotations of T are read once per bean class (the schema is shared by all mappers of T)
+ * and the beans are filled through precompiled method handles, without reflection. Numbers are parsed directly from the read characters.
+ * The beans are filled from the same reused row view that {@link #visitFile(Path, char, RowVisitor)} passes to visitors (see {@link CsvRow}).
+ * Valid and invalid files and rows are handled the same way as in {@link CsvToObjectMapper}.
+ * @author catherine heyart
+ *
+ * @param <T> Class of the object that the csv file will be mapped to.
+ * The class needs to follow JavaBeans conventions and the fields that should be mapped need to be marked with {@link com.opencsv.bean.CsvBindByName}.
+ * Supported field types are String, int, long, float, double, boolean and their wrapper classes.
+ */
+public class FastCsvToObjectMapper <T> extends CsvToObjectMapper<T>{
+
+	public FastCsvToObjectMapper(Class<T> clazz) {
+		super(clazz);
+		schema.checkBindable();
+	}
+
+	public FastCsvToObjectMapper(Class<T> clazz, char separator) {
+		super(clazz, separator);
+		schema.checkBindable();
+	}
+
+	/**
+	 * Maps Csv File to a stream of objects. The same conditions as in {@link #mapFileToObjectList(Path)} apply.
+	 * The file is read row by row while the stream is consumed. The captured exceptions get logged when the stream is closed.
+	 */
+	@Override
+	public Stream<T> mapFileToStream(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		checkFilePath(filePath);
+
+		MappingMetrics metrics = MappingMetrics.start();
+		CsvRecordReader records = new CsvRecordReader(FileReaderHelper.openReader(filePath), separator);
+		try {
+			String[] header = readHeader(records);
+			metrics.headerValidated();
+
+			BeanIterator iterator = new BeanIterator(records, new RecordRow(records, header), new BeanRowMapper<>(schema, header), metrics,
+					new RejectedRows(this, filePath, metrics));
+			Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+
+			return StreamSupport.stream(spliterator, false).onClose(() -> {
+				closeReader(records);
+				metrics.finished(filePath);
+				iterator.rejectedRows.flush();
+			});
+		} catch (IOException e) {
+			closeReader(records);
+			throw new UncheckedIOException(e);
+		} catch (InvalidFileFormatException | RuntimeException e) {
+			closeReader(records);
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Passes the rows of a csv file to a visitor, using the separator of this mapper. See {@link #visitFile(Path, char, RowVisitor)}.
+	 */
+	public long visitFile(Path filePath, RowVisitor visitor) throws FileNotFoundException, InvalidFileFormatException {
+		return visitFile(filePath, getSeparator(), visitor);
+	}
+
+	/**
+	 * Passes the rows of a csv file to a visitor instead of mapping them to beans. The file is read row by row, and all rows are passed as the same
+	 * {@link CsvRow}, which reads the values directly from the read characters. This way, results can be computed from files of any size
+	 * without creating objects per row. The same conditions as in {@link #mapFileToObjectList(Path)} apply to the file,
+	 * so the header needs to contain the columns of T. Empty lines are skipped. Rows whose number of fields does not match the header,
+	 * as well as rows for which the visitor throws a {@link CsvException}, are skipped and logged like the skipped rows of a mapped file.
+	 * The rows are visited sequentially by the calling thread.
+	 * @param filePath path to the file that will be read
+	 * @param separator Separator used in the csv file
+	 * @param visitor receives the rows of the file
+	 * @return number of rows which have been visited without an exception
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid
+	 */
+	public long visitFile(Path filePath, char separator, RowVisitor visitor) throws FileNotFoundException, InvalidFileFormatException {
+		if(visitor == null) {
+			throw new IllegalArgumentException("The visitor cannot be null.");
+		}
+		checkFilePath(filePath);
+
+		MappingMetrics metrics = MappingMetrics.start();
+		CsvRecordReader records = new CsvRecordReader(FileReaderHelper.openReader(filePath), separator);
+		try (records) {
+			String[] header = readHeader(records);
+			metrics.headerValidated();
+
+			RejectedRows rejectedRows = new RejectedRows(this, filePath, metrics);
+			RecordRow row = new RecordRow(records, header);
+			long visited = 0;
+			while(records.next()) {
+				if(row.isEmpty()) {
+					continue;
+				}
+				try {
+					if(row.getFieldCount() != header.length) {
+						throw new CsvRequiredFieldEmptyException(schema.getBeanClass(), "Number of data fields does not match number of headers.");
+					}
+					visitor.visit(row);
+					metrics.rowMapped();
+					visited++;
+				} catch (CsvException e) {
+					e.setLineNumber(row.getLineNumber());
+					rejectedRows.add(e);
+				}
+			}
+			metrics.finished(filePath);
+			rejectedRows.flush();
+			return visited;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Opens a csv file to map the rows which are appended to it over time (see {@link CsvFileTail}). 
+	 * The header is read and validated immediately, the rows are mapped by {@link CsvFileTail#poll()}.
+	 * @param filePath path to the file that will be followed
+	 * @param separator Separator used in the csv file
+	 * @return tail of the file, which needs to be closed after use
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension, if it is compressed or if the header is invalid (or not yet complete)
+	 */
+	public CsvFileTail<T> openTail(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		checkFilePath(filePath);
+		if(Compression.detect(filePath) != Compression.NONE) {
+			MappingMetrics.INVALID_FILES.increment();
+			throw new InvalidFileFormatException("File " + filePath.toString() + " is compressed. Compressed files cannot be followed.");
+		}
+		return new CsvFileTail<>(this, filePath, separator);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which reads and validates the header of the file.
+	 * @return column names of the file
+	 * @throws InvalidFileFormatException if the file is empty or if the header is invalid
+	 */
+	private String[] readHeader(CsvRecordReader records) throws IOException, InvalidFileFormatException {
+		String[] header = records.next() ? records.getFields() : null;
+		if(header == null || !headerIsValid(header)) {
+			throw invalidHeaderException();
+		}
+		return header;
+	}
+
+
+	/**
+	 * Iterator which maps one record at a time. Records which cannot be mapped are skipped and their exceptions are captured.
+	 */
+	private class BeanIterator implements Iterator<T> {
+
+		private final CsvRecordReader records;
+
+		/**
+		 * View of the current record, which is mapped by the row mapper.
+		 */
+		private final RecordRow row;
+
+		private final BeanRowMapper<T> rowMapper;
+
+		private final MappingMetrics metrics;
+
+		private final RejectedRows rejectedRows;
+
+		/**
+		 * Next bean which will be returned. Null if the end of the file has been reached.
+		 */
+		private T next;
+
+		private BeanIterator(CsvRecordReader records, RecordRow row, BeanRowMapper<T> rowMapper, MappingMetrics metrics, RejectedRows rejectedRows) {
+			this.records = records;
+			this.row = row;
+			this.rowMapper = rowMapper;
+			this.metrics = metrics;
+			this.rejectedRows = rejectedRows;
+			next = readNext();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if(next == null) {
+				throw new NoSuchElementException();
+			}
+			T result = next;
+			next = readNext();
+			return result;
+		}
+
+		private T readNext() {
+			try {
+				while(records.next()) {
+					try {
+						T bean = rowMapper.mapRow(row);
+						if(bean != null) {
+							metrics.rowMapped();
+							return bean;
+						}
+					} catch (CsvException e) {
+						rejectedRows.add(e);
+					}
+				}
+				return null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,476 @@
+package de.bcxp.challenge.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+
+/**
+ * Assigns the value of a csv field to the corresponding field of a bean.
+ * The setter (or the field itself, if no public setter exists) is resolved once as MethodHandle, so no reflection is needed when a value is bound.
+ * Numbers are parsed directly from the character buffer of the csv record.
+ * Like in OpenCSV, blank values are not assigned to fields which are not of type String, so these fields keep their default values.
+ * @author catherine heyart
+ *
+ */
+abstract class FieldBinder {
+
+	/**
+	 * Maximum number of significant digits of a number parsed by {@link #parseDouble(char[], int, int)} without {@link Double#parseDouble(String)}.
+	 * Numbers with up to 15 digits are smaller than 2^53 and therefore exactly representable as double.
+	 */
+	private static final int MAX_EXACT_DIGITS = 15;
+
+	/**
+	 * Powers of ten which are exactly representable as double.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * Name of the csv column as declared in the annotation.
+	 */
+	private final String columnName;
+
+	/**
+	 * Type of the bean field.
+	 */
+	private final Class<?> type;
+
+	private FieldBinder(String columnName, Class<?> type) {
+		this.columnName = columnName;
+		this.type = type;
+	}
+
+	String getColumnName() {
+		return columnName;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Assigns a value, given as a range of characters, to the field of the bean.
+	 * @param bean bean whose field will be set
+	 * @param chars buffer containing the value
+	 * @param start index of the first character of the value
+	 * @param end index after the last character of the value
+	 * @throws CsvDataTypeMismatchException if the value cannot be converted to the type of the field
+	 */
+	abstract void bind(Object bean, char[] chars, int start, int end) throws CsvDataTypeMismatchException;
+
+	/**
+	 * Assigns a value to the field of the bean.
+	 * @param bean bean whose field will be set
+	 * @param value value that will be converted to the type of the field
+	 * @throws CsvDataTypeMismatchException if the value cannot be converted to the type of the field
+	 */
+	void bind(Object bean, String value) throws CsvDataTypeMismatchException {
+		char[] chars = value.toCharArray();
+		bind(bean, chars, 0, chars.length);
+	}
+
+	/**
+	 * Creates a binder for a bean field.
+	 * @param field field the values will be assigned to
+	 * @param columnName name of the csv column which is bound to the field
+	 * @return binder for the field
+	 * @throws IllegalArgumentException if the type of the field is not supported or if the field cannot be accessed
+	 */
+	static FieldBinder of(Field field, String columnName) {
+		Class<?> type = field.getType();
+		MethodHandle setter = findSetter(field);
+
+		if(type == int.class) {
+			return new IntBinder(columnName, setter);
+		}
+		if(type == long.class) {
+			return new LongBinder(columnName, setter);
+		}
+		if(type == double.class) {
+			return new DoubleBinder(columnName, setter);
+		}
+		if(type == String.class) {
+			return new StringBinder(columnName, setter);
+		}
+		if(type == float.class || type == Float.class || type == Double.class
+				|| type == Integer.class || type == Long.class || type == boolean.class || type == Boolean.class) {
+			return new ConvertingBinder(columnName, type, setter);
+		}
+		throw new IllegalArgumentException("The type " + type.getName() + " of the field " + field.getName() + " is not supported.");
+	}
+
+	/**
+	 * Parses an int directly from a range of characters. Leading and trailing whitespace is ignored.
+	 * @param chars buffer containing the number
+	 * @param start index of the first character
+	 * @param end index after the last character
+	 * @return parsed number
+	 * @throws NumberFormatException if the characters do not represent an int
+	 */
+	static int parseInt(char[] chars, int start, int end) {
+		long value = parseLong(chars, start, end);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException();
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses a long directly from a range of characters. Leading and trailing whitespace is ignored.
+	 * @param chars buffer containing the number
+	 * @param start index of the first character
+	 * @param end index after the last character
+	 * @return parsed number
+	 * @throws NumberFormatException if the characters do not represent a long
+	 */
+	static long parseLong(char[] chars, int start, int end) {
+		while(start < end && Character.isWhitespace(chars[start])) {
+			start++;
+		}
+		while(end > start && Character.isWhitespace(chars[end - 1])) {
+			end--;
+		}
+		if(start == end) {
+			throw new NumberFormatException();
+		}
+
+		boolean negative = chars[start] == '-';
+		if(negative || chars[start] == '+') {
+			start++;
+			if(start == end) {
+				throw new NumberFormatException();
+			}
+		}
+
+		//accumulate negatively, so Long.MIN_VALUE can be represented
+		long result = 0;
+		for(int i = start; i < end; i++) {
+			int digit = chars[i] - '0';
+			if(digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException();
+			}
+			result = result * 10 - digit;
+		}
+		if(!negative) {
+			if(result == Long.MIN_VALUE) {
+				throw new NumberFormatException();
+			}
+			result = -result;
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a double directly from a range of characters, with the same result as {@link Double#parseDouble(String)}.
+	 * Plain decimal numbers with at most 15 significant digits are computed exactly from their digits, without creating a String:
+	 * their digits and the power of ten they are divided by are both exactly representable, so the division is rounded correctly.
+	 * Other numbers (e.g. with an exponent) are parsed by {@link Double#parseDouble(String)}.
+	 * @param chars buffer containing the number
+	 * @param start index of the first character
+	 * @param end index after the last character
+	 * @return parsed number
+	 * @throws NumberFormatException if the characters do not represent a double
+	 */
+	static double parseDouble(char[] chars, int start, int end) {
+		while(start < end && Character.isWhitespace(chars[start])) {
+			start++;
+		}
+		while(end > start && Character.isWhitespace(chars[end - 1])) {
+			end--;
+		}
+
+		int i = start;
+		boolean negative = i < end && chars[i] == '-';
+		if(negative || (i < end && chars[i] == '+')) {
+			i++;
+		}
+		long digits = 0;
+		int significantDigits = 0;
+		int fractionDigits = 0;
+		boolean point = false;
+		boolean anyDigit = false;
+		for(; i < end; i++) {
+			char c = chars[i];
+			if(c >= '0' && c <= '9') {
+				if(digits != 0 || c != '0') {
+					significantDigits++;
+				}
+				digits = digits * 10 + (c - '0');
+				anyDigit = true;
+				if(point) {
+					fractionDigits++;
+				}
+				if(significantDigits > MAX_EXACT_DIGITS || fractionDigits >= POWERS_OF_TEN.length) {
+					return Double.parseDouble(new String(chars, start, end - start));
+				}
+			} else if(c == '.' && !point) {
+				point = true;
+			} else {
+				return Double.parseDouble(new String(chars, start, end - start));
+			}
+		}
+		if(!anyDigit) {
+			throw new NumberFormatException();
+		}
+		double value = (double) digits / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Checks if a range of characters only consists of whitespace.
+	 */
+	static boolean isBlank(char[] chars, int start, int end) {
+		for(int i = start; i < end; i++) {
+			if(!Character.isWhitespace(chars[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which creates the exception thrown if a value cannot be converted. The message corresponds to the one OpenCSV uses.
+	 */
+	CsvDataTypeMismatchException conversionFailed(char[] chars, int start, int end) {
+		String value = new String(chars, start, end - start);
+		return new CsvDataTypeMismatchException(value, type, "Conversion of " + value + " to " + type.getCanonicalName() + " failed.");
+	}
+
+	/**
+	 * Helper method which resolves the public setter of a field. If there is none, a handle which sets the field directly is created.
+	 * The resulting handle accepts the bean as Object and the value as the type of the field.
+	 */
+	private static MethodHandle findSetter(Field field) {
+		Class<?> declaringClass = field.getDeclaringClass();
+		String setterName = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+		try {
+			MethodHandle setter;
+			Method method = findPublicMethod(declaringClass, setterName, field.getType());
+			if(method != null) {
+				setter = MethodHandles.publicLookup().unreflect(method);
+			} else {
+				setter = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup()).unreflectSetter(field);
+			}
+			return setter.asType(MethodType.methodType(void.class, Object.class, field.getType()));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("The field " + field.getName() + " of " + declaringClass.getName() + " cannot be accessed.", e);
+		}
+	}
+
+	private static Method findPublicMethod(Class<?> clazz, String name, Class<?> parameterType) {
+		try {
+			Method method = clazz.getMethod(name, parameterType);
+			return Modifier.isPublic(method.getDeclaringClass().getModifiers()) ? method : null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Helper method which rethrows errors thrown by an invoked setter.
+	 */
+	private static RuntimeException setterFailed(Throwable t) {
+		if(t instanceof RuntimeException) {
+			return (RuntimeException) t;
+		}
+		if(t instanceof Error) {
+			throw (Error) t;
+		}
+		return new IllegalStateException("The value could not be assigned.", t);
+	}
+
+
+	///////////BINDERS//////////////////////////////////////////////////
+
+	private static final class IntBinder extends FieldBinder {
+
+		private final MethodHandle setter;
+
+		private IntBinder(String columnName, MethodHandle setter) {
+			super(columnName, int.class);
+			this.setter = setter;
+		}
+
+		@Override
+		void bind(Object bean, char[] chars, int start, int end) throws CsvDataTypeMismatchException {
+			if(isBlank(chars, start, end)) {
+				return;
+			}
+			int value;
+			try {
+				value = parseInt(chars, start, end);
+			} catch (NumberFormatException e) {
+				throw conversionFailed(chars, start, end);
+			}
+			try {
+				setter.invokeExact(bean, value);
+			} catch (Throwable t) {
+				throw setterFailed(t);
+			}
+		}
+	}
+
+	private static final class LongBinder extends FieldBinder {
+
+		private final MethodHandle setter;
+
+		private LongBinder(String columnName, MethodHandle setter) {
+			super(columnName, long.class);
+			this.setter = setter;
+		}
+
+		@Override
+		void bind(Object bean, char[] chars, int start, int end) throws CsvDataTypeMismatchException {
+			if(isBlank(chars, start, end)) {
+				return;
+			}
+			long value;
+			try {
+				value = parseLong(chars, start, end);
+			} catch (NumberFormatException e) {
+				throw conversionFailed(chars, start, end);
+			}
+			try {
+				setter.invokeExact(bean, value);
+			} catch (Throwable t) {
+				throw setterFailed(t);
+			}
+		}
+	}
+
+	private static final class DoubleBinder extends FieldBinder {
+
+		private final MethodHandle setter;
+
+		private DoubleBinder(String columnName, MethodHandle setter) {
+			super(columnName, double.class);
+			this.setter = setter;
+		}
+
+		@Override
+		void bind(Object bean, char[] chars, int start, int end) throws CsvDataTypeMismatchException {
+			if(isBlank(chars, start, end)) {
+				return;
+			}
+			double value;
+			try {
+				value = parseDouble(chars, start, end);
+			} catch (NumberFormatException e) {
+				throw conversionFailed(chars, start, end);
+			}
+			try {
+				setter.invokeExact(bean, value);
+			} catch (Throwable t) {
+				throw setterFailed(t);
+			}
+		}
+	}
+
+	private static final class StringBinder extends FieldBinder {
+
+		private final MethodHandle setter;
+
+		private StringBinder(String columnName, MethodHandle setter) {
+			super(columnName, String.class);
+			this.setter = setter;
+		}
+
+		@Override
+		void bind(Object bean, char[] chars, int start, int end) {
+			bind(bean, new String(chars, start, end - start));
+		}
+
+		@Override
+		void bind(Object bean, String value) {
+			try {
+				setter.invokeExact(bean, value);
+			} catch (Throwable t) {
+				throw setterFailed(t);
+			}
+		}
+	}
+
+	/**
+	 * Binder for the less frequently used types, which are converted from a String.
+	 */
+	private static final class ConvertingBinder extends FieldBinder {
+
+		private final MethodHandle setter;
+
+		private ConvertingBinder(String columnName, Class<?> type, MethodHandle setter) {
+			super(columnName, type);
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		}
+
+		@Override
+		void bind(Object bean, char[] chars, int start, int end) throws CsvDataTypeMismatchException {
+			if(isBlank(chars, start, end)) {
+				return;
+			}
+			Object value;
+			try {
+				value = convert(new String(chars, start, end - start).trim());
+			} catch (NumberFormatException e) {
+				throw conversionFailed(chars, start, end);
+			}
+			if(value == null) {
+				throw conversionFailed(chars, start, end);
+			}
+			try {
+				setter.invokeExact(bean, value);
+			} catch (Throwable t) {
+				throw setterFailed(t);
+			}
+		}
+
+		private Object convert(String value) {
+			Class<?> type = getType();
+			if(type == float.class || type == Float.class) {
+				return Float.valueOf(value);
+			}
+			if(type == double.class || type == Double.class) {
+				return Double.valueOf(value);
+			}
+			if(type == Integer.class) {
+				return Integer.valueOf(value);
+			}
+			if(type == Long.class) {
+				return Long.valueOf(value);
+			}
+			return convertBoolean(value);
+		}
+
+		/**
+		 * Converts the same values to a boolean as OpenCSV does.
+		 * @return converted value. Null if the value does not represent a boolean
+		 */
+		private static Boolean convertBoolean(String value) {
+			switch(value.toLowerCase()) {
+			case "true":
+			case "yes":
+			case "y":
+			case "on":
+			case "1":
+				return Boolean.TRUE;
+			case "false":
+			case "no":
+			case "n":
+			case "off":
+			case "0":
+				return Boolean.FALSE;
+			default:
+				return null;
+			}
+		}
+	}
+}
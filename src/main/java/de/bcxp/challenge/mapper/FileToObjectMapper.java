@@ -3,6 +3,8 @@ package de.bcxp.challenge.mapper;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
@@ -24,6 +26,36 @@ public interface FileToObjectMapper <T>{
 	 */
 	
 	public List<T> mapFileToObjectList(Path filePath) throws FileNotFoundException, InvalidFileFormatException;
+	
+	/**
+	 * Parses a file and maps it to a stream of objects. The objects are mapped while the stream is consumed, 
+	 * so the file does not need to be held in memory as a whole. 
+	 * The stream holds the file open and therefore needs to be closed after use (e.g. with a try-with-resources statement).
+	 * Implementations which cannot map a file lazily fall back to the mapped object list.
+	 * @param filePath path to the file that will be mapped
+	 * @return Stream of mapped objects
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the provided file does not have the correct format
+	 */
+	public default Stream<T> mapFileToStream(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
+		return mapFileToObjectList(filePath).stream();
+	}
+	
+	/**
+	 * Parses a file and passes every mapped object to the consumer as soon as it is mapped.
+	 * @param filePath path to the file that will be mapped
+	 * @param consumer consumer receiving the mapped objects in the order they appear in the file
+	 * @throws FileNotFoundException if file could not be found
+	 * @throws InvalidFileFormatException if the provided file does not have the correct format
+	 */
+	public default void mapFile(Path filePath, Consumer<? super T> consumer) throws FileNotFoundException, InvalidFileFormatException {
+		if(consumer == null) {
+			throw new IllegalArgumentException("The consumer cannot be null.");
+		}
+		try (Stream<T> stream = mapFileToStream(filePath)) {
+			stream.forEachOrdered(consumer);
+		}
+	}
 
 
 }
@@ -0,0 +1,311 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.JsonTokenReader.Token;
+import de.bcxp.challenge.util.FileReaderHelper;
+import de.bcxp.challenge.util.FileTypeChecker;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * This class is responsible for mapping a json file to an object list. The file needs to contain an array of objects, each of which is mapped to one bean.
+ * The names of the object members correspond to the column names of a csv file (see {@link com.opencsv.bean.CsvBindByName}); they are not case sensitive.
+ * <p>
+ * The file is read incrementally by a pull parser, without building a tree of the document, so only one record is held in memory at a time.
+ * The beans are filled through the same schema as in {@link FastCsvToObjectMapper}, which is read once per bean class.
+ * Members which are not bound to a field are skipped, as well as null values (the field keeps its default value).
+ * An object gets skipped if one of its values does not match the type of the corresponding field or is an array or object.
+ * The exceptions of the skipped objects are logged like the skipped rows of a csv file.
+ * @author catherine heyart
+ *
+ * @param <T> Class of the object that the json file will be mapped to.
+ * The class needs to follow JavaBeans conventions and the fields that should be mapped need to be marked with {@link com.opencsv.bean.CsvBindByName}.
+ * Supported field types are String, int, long, float, double, boolean and their wrapper classes.
+ */
+public class JsonToObjectMapper <T> implements FileToObjectMapper <T>{
+
+	/**
+	 * Class of Type T.
+	 */
+	protected final Class<T> clazz;
+
+	/**
+	 * Schema of T, containing all the fields of T that will be mapped. The schema is shared by all mappers of T.
+	 */
+	protected final BeanSchema<T> schema;
+
+	/**
+	 * Sink which receives the exceptions of the skipped objects. If null, the exceptions are printed to the console.
+	 */
+	private volatile RejectedRowSink rejectedRowSink;
+
+	/**
+	 * Name of this class.
+	 */
+	private final String THIS_CLASS_NAME =  this.getClass().getName();
+
+	public JsonToObjectMapper(Class<T> clazz) {
+		this.clazz = clazz;
+		schema = BeanSchema.of(clazz);
+		schema.checkBindable();
+	}
+
+	public RejectedRowSink getRejectedRowSink() {
+		return rejectedRowSink;
+	}
+
+	/**
+	 * Sets the sink which receives the exceptions of the objects that are skipped while files are mapped (see {@link RollingFileRejectedRowSink}).
+	 * @param rejectedRowSink sink for the skipped objects. If null, the exceptions are printed to the console
+	 */
+	public void setRejectedRowSink(RejectedRowSink rejectedRowSink) {
+		this.rejectedRowSink = rejectedRowSink;
+	}
+
+	/**
+	 * Maps Json File to object list. Only maps a file if the file extension is .json (optionally followed by the extension of a compressed file, e.g. .json.gz)
+	 * and if it contains an array. Objects that are not valid get skipped and thus not mapped. If none of the objects are valid, an empty list will be returned.
+	 * @throws InvalidFileFormatException if the file does not have a .json extension or does not start with an array
+	 * @throws UncheckedIOException if the file is not valid JSON after the start of the array
+	 */
+	@Override
+	public List<T> mapFileToObjectList(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
+		try (Stream<T> stream = mapFileToStream(filePath)) {
+			return stream.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Maps Json File to a stream of objects. The same conditions as in {@link #mapFileToObjectList(Path)} apply.
+	 * The file is read object by object while the stream is consumed. The captured exceptions get logged when the stream is closed.
+	 */
+	@Override
+	public Stream<T> mapFileToStream(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
+		checkFilePath(filePath);
+
+		MappingMetrics metrics = MappingMetrics.start();
+		JsonTokenReader tokens = new JsonTokenReader(FileReaderHelper.openReader(filePath));
+		try {
+			Token first;
+			try {
+				first = tokens.next();
+			} catch (JsonTokenReader.MalformedJsonException e) {
+				first = null;
+			}
+			if(first != Token.START_ARRAY) {
+				MappingMetrics.INVALID_FILES.increment();
+				throw new InvalidFileFormatException("File " + filePath.toString() + " is invalid. The file must contain a json array of objects.");
+			}
+			metrics.headerValidated();
+
+			ObjectIterator iterator = new ObjectIterator(tokens, metrics, new RejectedRows(this, filePath, metrics));
+			Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+
+			return StreamSupport.stream(spliterator, false).onClose(() -> {
+				closeReader(tokens);
+				metrics.finished(filePath);
+				iterator.rejectedRows.flush();
+			});
+		} catch (IOException e) {
+			closeReader(tokens);
+			throw new UncheckedIOException(e);
+		} catch (InvalidFileFormatException | RuntimeException e) {
+			closeReader(tokens);
+			throw e;
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Checks if the file path is not null and has a .json extension.
+	 * @param filePath path of the file which will be mapped
+	 * @throws InvalidFileFormatException if the file does not have a .json extension
+	 */
+	protected void checkFilePath(Path filePath) throws InvalidFileFormatException {
+		if(filePath == null) {
+			throw new IllegalArgumentException("The file path cannot be null.");
+		}
+
+		if(!FileTypeChecker.isJsonFile(filePath)) {
+			MappingMetrics.INVALID_FILES.increment();
+			throw new InvalidFileFormatException("File " + filePath.toString() + " is invalid. The file must be a .json file.");
+		}
+	}
+
+	/**
+	 * Helper method which logs the exceptions caught while the json file got mapped to beans. The exceptions are passed to the
+	 * {@link RejectedRowSink} of this mapper, or printed to the console if no sink is set.
+	 * @param capturedExceptions exceptions captured while mapping the file. The line number is the line in which the skipped object starts
+	 * @param filePath path of the file which got mapped and which the exceptions refer to
+	 */
+	protected void logCapturedExceptions(List<CsvException> capturedExceptions, Path filePath) {
+		RejectedRowSink sink = rejectedRowSink;
+		if(sink != null) {
+			sink.accept(filePath, capturedExceptions);
+			return;
+		}
+		System.err.println("Captured Exceptions from " + THIS_CLASS_NAME + " while parsing " + filePath.toString() + ":" );
+		System.err.println("The listed object(s) will not be mapped.");
+		capturedExceptions.forEach(e -> {
+			System.err.println(e.getLineNumber() + ":" + e);
+		});
+	}
+
+	private void closeReader(JsonTokenReader tokens) {
+		try {
+			tokens.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Iterator which maps one object of the array at a time. Objects which cannot be mapped are skipped and their exceptions are captured.
+	 */
+	private class ObjectIterator implements Iterator<T> {
+
+		private final JsonTokenReader tokens;
+
+		private final MappingMetrics metrics;
+
+		private final RejectedRows rejectedRows;
+
+		/**
+		 * Member names of the previous objects by position, with their binders. The members of consecutive objects usually have the same order,
+		 * so the binder of a member is found by comparing its name with the cached name, without creating a String.
+		 */
+		private char[][] cachedNames = new char[8][];
+
+		private FieldBinder[] cachedBinders = new FieldBinder[8];
+
+		private T next;
+
+		private boolean endOfArray;
+
+		private ObjectIterator(JsonTokenReader tokens, MappingMetrics metrics, RejectedRows rejectedRows) {
+			this.tokens = tokens;
+			this.metrics = metrics;
+			this.rejectedRows = rejectedRows;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while(next == null && !endOfArray) {
+					Token token = tokens.next();
+					if(token == Token.END_ARRAY) {
+						endOfArray = true;
+						if(tokens.next() != Token.END) {
+							throw new JsonTokenReader.MalformedJsonException("End of document expected in line " + tokens.getLineNumber() + ".");
+						}
+					} else if(token == Token.START_OBJECT) {
+						next = mapObject();
+					} else {
+						long line = tokens.getLineNumber();
+						tokens.skipValue(token);
+						CsvException e = new CsvDataTypeMismatchException(null, clazz, "The element of the array is not an object.");
+						e.setLineNumber(line);
+						rejectedRows.add(e);
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			T result = next;
+			next = null;
+			metrics.rowMapped();
+			return result;
+		}
+
+		/**
+		 * Maps the members of the object whose start has just been read.
+		 * @return mapped bean. Null if the object has been skipped
+		 */
+		private T mapObject() throws IOException {
+			long line = tokens.getLineNumber();
+			T bean = schema.newInstance();
+			CsvException error = null;
+			int member = 0;
+			//within an object, the reader only returns names (followed by their values) and the end of the object
+			while(tokens.next() == Token.NAME) {
+				FieldBinder binder = binderOf(member++);
+				Token value = tokens.next();
+				if(binder == null || error != null) {
+					tokens.skipValue(value);
+					continue;
+				}
+				switch(value) {
+				case STRING:
+				case NUMBER:
+				case TRUE:
+				case FALSE:
+					try {
+						binder.bind(bean, tokens.getText(), 0, tokens.getTextLength());
+					} catch (CsvDataTypeMismatchException e) {
+						error = e;
+					}
+					break;
+				case NULL:
+					break;
+				default:
+					tokens.skipValue(value);
+					error = new CsvDataTypeMismatchException(null, binder.getType(), "The value of " + binder.getColumnName() + " is not a single value.");
+				}
+			}
+
+			if(error != null) {
+				error.setLineNumber(line);
+				rejectedRows.add(error);
+				return null;
+			}
+			return bean;
+		}
+
+		/**
+		 * Returns the binder of the member name which has just been read, using the name cached for the position of the member if it is equal.
+		 * @param member position of the member within the object
+		 * @return binder of the field bound to the member. Null if no field is bound to it
+		 */
+		private FieldBinder binderOf(int member) {
+			char[] name = tokens.getText();
+			int length = tokens.getTextLength();
+			if(member == cachedNames.length) {
+				cachedNames = Arrays.copyOf(cachedNames, member * 2);
+				cachedBinders = Arrays.copyOf(cachedBinders, member * 2);
+			}
+			char[] cached = cachedNames[member];
+			if(cached == null || !Arrays.equals(cached, 0, cached.length, name, 0, length)) {
+				cachedNames[member] = Arrays.copyOf(name, length);
+				cachedBinders[member] = schema.getBinder(new String(name, 0, length));
+			}
+			return cachedBinders[member];
+		}
+	}
+}
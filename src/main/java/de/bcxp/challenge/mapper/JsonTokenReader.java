@@ -0,0 +1,416 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Pull parser which reads a JSON document token by token, without building a tree of the document.
+ * The text of the current name or value is copied into a reused character array (see {@link #getText()}), so reading a token does not create any objects.
+ * Only one token is held in memory at a time, regardless of the size of the document.
+ * <p>
+ * The structure of the document (brackets, braces, colons and commas) is validated. Numbers are not validated; their text is passed on as it is.
+ * A trailing comma before a closing bracket or brace is tolerated.
+ * @author catherine heyart
+ *
+ */
+final class JsonTokenReader implements Closeable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	enum Token {
+		START_ARRAY, END_ARRAY, START_OBJECT, END_OBJECT, NAME, STRING, NUMBER, TRUE, FALSE, NULL,
+		/**
+		 * End of the document.
+		 */
+		END
+	}
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+
+	/**
+	 * Index after the last valid character in the buffer.
+	 */
+	private int limit;
+
+	/**
+	 * Index of the next character to read.
+	 */
+	private int position;
+
+	/**
+	 * Text of the current name or value.
+	 */
+	private char[] text = new char[64];
+
+	private int textLength;
+
+	/**
+	 * Open arrays (false) and objects (true), from the outermost to the innermost.
+	 */
+	private boolean[] containers = new boolean[16];
+
+	private int depth;
+
+	/**
+	 * True if a value has been read in the current container (or at the top level) and no comma has followed yet.
+	 */
+	private boolean afterValue;
+
+	/**
+	 * True if a name has been read and its value has not been read yet.
+	 */
+	private boolean afterName;
+
+	/**
+	 * Number of the line containing the start of the current token (the first line has the number 1).
+	 */
+	private long tokenLine = 1;
+
+	private long line = 1;
+
+	/**
+	 * True until the first character of the document has been read.
+	 */
+	private boolean atStart = true;
+
+	/**
+	 * @param reader source of the characters. It is closed when this reader is closed
+	 */
+	JsonTokenReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next token.
+	 * @return next token. {@link Token#END} if the end of the document has been reached
+	 * @throws MalformedJsonException if the document is not valid JSON
+	 * @throws IOException if the characters could not be read
+	 */
+	Token next() throws IOException {
+		int c = skipWhitespace();
+		if(c == ',') {
+			if(!afterValue || depth == 0) {
+				throw malformed("Unexpected ','");
+			}
+			afterValue = false;
+			c = skipWhitespace();
+		} else if(afterValue && c != ']' && c != '}' && c >= 0) {
+			throw malformed(depth == 0 ? "End of document expected" : "',' expected");
+		}
+		tokenLine = line;
+
+		if(c < 0) {
+			if(depth > 0) {
+				throw malformed("Unexpected end of document");
+			}
+			return Token.END;
+		}
+		if(isInObject() && !afterName && !afterValue && c != '"' && c != '}') {
+			throw malformed("Name expected");
+		}
+		switch(c) {
+		case '[':
+			push(false);
+			return Token.START_ARRAY;
+		case '{':
+			push(true);
+			return Token.START_OBJECT;
+		case ']':
+			pop(false);
+			return Token.END_ARRAY;
+		case '}':
+			pop(true);
+			return Token.END_OBJECT;
+		case '"':
+			readString();
+			if(isInObject() && !afterName) {
+				if(skipWhitespace() != ':') {
+					throw malformed("':' expected");
+				}
+				afterName = true;
+				return Token.NAME;
+			}
+			valueRead();
+			return Token.STRING;
+		default:
+			if(c == '-' || (c >= '0' && c <= '9')) {
+				readWhile(c, "0123456789+-.eE");
+				valueRead();
+				return Token.NUMBER;
+			}
+			if(c >= 'a' && c <= 'z') {
+				readWhile(c, "abcdefghijklmnopqrstuvwxyz");
+				Token literal = literal();
+				valueRead();
+				return literal;
+			}
+			throw malformed("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	/**
+	 * Skips a value whose first token has just been read by {@link #next()}, including all nested values.
+	 * @param first first token of the value
+	 * @throws IOException if the document is not valid JSON or the characters could not be read
+	 */
+	void skipValue(Token first) throws IOException {
+		if(first != Token.START_ARRAY && first != Token.START_OBJECT) {
+			return;
+		}
+		int open = 1;
+		while(open > 0) {
+			Token token = next();
+			if(token == Token.START_ARRAY || token == Token.START_OBJECT) {
+				open++;
+			} else if(token == Token.END_ARRAY || token == Token.END_OBJECT) {
+				open--;
+			}
+		}
+	}
+
+	/**
+	 * @return buffer containing the text of the current name or value (unescaped) from index 0 to {@link #getTextLength()}.
+	 * The buffer is overwritten by the next token
+	 */
+	char[] getText() {
+		return text;
+	}
+
+	int getTextLength() {
+		return textLength;
+	}
+
+	/**
+	 * @return number of the line in which the current token starts (the first line of the document has the number 1)
+	 */
+	long getLineNumber() {
+		return tokenLine;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private boolean isInObject() {
+		return depth > 0 && containers[depth - 1];
+	}
+
+	private void push(boolean object) {
+		if(depth == containers.length) {
+			containers = Arrays.copyOf(containers, depth * 2);
+		}
+		containers[depth++] = object;
+		afterValue = false;
+		afterName = false;
+	}
+
+	private void pop(boolean object) throws MalformedJsonException {
+		if(depth == 0 || containers[depth - 1] != object || afterName) {
+			throw malformed("Unexpected '" + (object ? '}' : ']') + "'");
+		}
+		depth--;
+		valueRead();
+	}
+
+	private void valueRead() {
+		afterValue = true;
+		afterName = false;
+	}
+
+	/**
+	 * Helper method which reads the characters of a string (after the opening quote) into the text buffer and resolves escape sequences.
+	 */
+	private void readString() throws IOException {
+		textLength = 0;
+		while(true) {
+			//copy unescaped characters in runs
+			int start = position;
+			while(position < limit) {
+				char c = buffer[position];
+				if(c == '"' || c == '\\' || c < ' ') {
+					break;
+				}
+				position++;
+			}
+			append(buffer, start, position - start);
+			if(position == limit) {
+				if(!fill()) {
+					throw malformed("Unterminated string");
+				}
+				continue;
+			}
+
+			char c = buffer[position++];
+			if(c == '"') {
+				return;
+			}
+			if(c != '\\') {
+				throw malformed("Unescaped control character in string");
+			}
+			int escaped = read();
+			switch(escaped) {
+			case '"':
+			case '\\':
+			case '/':
+				append((char) escaped);
+				break;
+			case 'b':
+				append('\b');
+				break;
+			case 'f':
+				append('\f');
+				break;
+			case 'n':
+				append('\n');
+				break;
+			case 'r':
+				append('\r');
+				break;
+			case 't':
+				append('\t');
+				break;
+			case 'u':
+				int code = 0;
+				for(int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+					if(digit < 0) {
+						throw malformed("Invalid unicode escape sequence");
+					}
+					code = code * 16 + digit;
+				}
+				append((char) code);
+				break;
+			default:
+				throw malformed("Invalid escape sequence");
+			}
+		}
+	}
+
+	/**
+	 * Helper method which reads a number or literal: the given first character and all following characters contained in the allowed characters.
+	 */
+	private void readWhile(int first, String allowed) throws IOException {
+		textLength = 0;
+		append((char) first);
+		while(true) {
+			int start = position;
+			while(position < limit && allowed.indexOf(buffer[position]) >= 0) {
+				position++;
+			}
+			append(buffer, start, position - start);
+			if(position < limit || !fill()) {
+				return;
+			}
+		}
+	}
+
+	private Token literal() throws MalformedJsonException {
+		if(textEquals("true")) {
+			return Token.TRUE;
+		}
+		if(textEquals("false")) {
+			return Token.FALSE;
+		}
+		if(textEquals("null")) {
+			return Token.NULL;
+		}
+		throw malformed("Unexpected literal '" + new String(text, 0, textLength) + "'");
+	}
+
+	private boolean textEquals(String value) {
+		if(textLength != value.length()) {
+			return false;
+		}
+		for(int i = 0; i < textLength; i++) {
+			if(text[i] != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Helper method which skips whitespace (and a byte order mark at the start of the document) and counts the line breaks.
+	 * @return next character after the whitespace, which is consumed. -1 if the end of the document has been reached
+	 */
+	private int skipWhitespace() throws IOException {
+		while(true) {
+			int c = read();
+			if(c == '\n') {
+				line++;
+			} else if(c == BYTE_ORDER_MARK && atStart) {
+				atStart = false;
+			} else if(c != ' ' && c != '\t' && c != '\r') {
+				atStart = false;
+				return c;
+			}
+		}
+	}
+
+	private int read() throws IOException {
+		if(position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	/**
+	 * Helper method which reads the next characters into the buffer. The characters in the buffer have all been consumed.
+	 * @return false if the end of the input has been reached
+	 */
+	private boolean fill() throws IOException {
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while(read == 0);
+		if(read < 0) {
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+
+	private void append(char c) {
+		if(textLength == text.length) {
+			text = Arrays.copyOf(text, textLength * 2);
+		}
+		text[textLength++] = c;
+	}
+
+	private void append(char[] chars, int offset, int length) {
+		if(textLength + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+		}
+		System.arraycopy(chars, offset, text, textLength, length);
+		textLength += length;
+	}
+
+	private MalformedJsonException malformed(String message) {
+		return new MalformedJsonException(message + " in line " + line + ".");
+	}
+
+
+	/**
+	 * Thrown if a document is not valid JSON.
+	 */
+	static final class MalformedJsonException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		MalformedJsonException(String message) {
+			super(message);
+		}
+	}
+}
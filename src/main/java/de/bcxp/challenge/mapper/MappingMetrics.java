@@ -0,0 +1,178 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.LatencyHistogram;
+import de.bcxp.challenge.metrics.MetricsRegistry;
+
+/**
+ * Records the metrics of mapping a single file in the default {@link MetricsRegistry}.
+ * The rows are counted in a plain field while the file is mapped and are only added to the shared counters when the mapping is finished,
+ * so the metrics cost nothing per row apart from an increment. An instance must only be used by one thread at a time.
+ * @author catherine heyart
+ *
+ */
+final class MappingMetrics {
+
+	private static final MetricsRegistry REGISTRY = MetricsRegistry.getDefault();
+
+	/**
+	 * Number of files which have been mapped completely.
+	 */
+	static final Counter FILES = REGISTRY.counter("mapper.files");
+
+	/**
+	 * Number of files which were not mapped because of their extension or header.
+	 */
+	static final Counter INVALID_FILES = REGISTRY.counter("mapper.files.invalid");
+
+	static final Counter ROWS = REGISTRY.counter("mapper.rows.mapped");
+
+	/**
+	 * Number of rows which were skipped. The rows are counted per cause as well, in "mapper.rows.rejected.[name of the exception class]".
+	 */
+	static final Counter REJECTED_ROWS = REGISTRY.counter("mapper.rows.rejected");
+
+	static final Counter BYTES = REGISTRY.counter("mapper.bytes");
+
+	/**
+	 * Time from opening a file until its header has been read and validated.
+	 */
+	static final LatencyHistogram HEADER = REGISTRY.histogram("mapper.header");
+
+	/**
+	 * Time from the validation of the header until all rows have been mapped. For streams, this includes the time the consumer of the stream needs.
+	 */
+	static final LatencyHistogram PARSE = REGISTRY.histogram("mapper.parse");
+
+	static {
+		REGISTRY.gauge("mapper.rowsPerSecond", () -> {
+			long nanos = PARSE.getTotalNanos();
+			return nanos == 0 ? 0 : ROWS.get() * 1e9 / nanos;
+		});
+	}
+
+	/**
+	 * Start time of the current phase (header or parse).
+	 */
+	private long phaseStart;
+
+	private long rows;
+
+	private long rejectedRows;
+
+	private MappingMetrics(long phaseStart) {
+		this.phaseStart = phaseStart;
+	}
+
+	/**
+	 * Starts recording the mapping of a file, beginning with the header.
+	 * @return metrics of the mapping
+	 */
+	static MappingMetrics start() {
+		return new MappingMetrics(HEADER.start());
+	}
+
+	/**
+	 * Starts recording the mapping of rows whose header has already been validated (e.g. rows appended to a followed file).
+	 * @return metrics of the mapping
+	 */
+	static MappingMetrics startParsing() {
+		return new MappingMetrics(PARSE.start());
+	}
+
+	/**
+	 * Ends the header phase and starts the parse phase.
+	 */
+	void headerValidated() {
+		HEADER.recordSince(phaseStart);
+		phaseStart = PARSE.start();
+	}
+
+	void rowMapped() {
+		rows++;
+	}
+
+	void rowsMapped(long count) {
+		rows += count;
+	}
+
+	/**
+	 * Wraps an iterator so that every returned object is counted as a mapped row.
+	 * @param iterator iterator over the mapped objects
+	 * @return counting iterator
+	 */
+	<T> Iterator<T> counting(Iterator<T> iterator) {
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				T next = iterator.next();
+				rows++;
+				return next;
+			}
+		};
+	}
+
+	/**
+	 * Counts a skipped row, in total and per cause.
+	 * @param exception exception of the skipped row
+	 */
+	void rowRejected(CsvException exception) {
+		rejectedRows++;
+		if(REGISTRY.isEnabled()) {
+			REGISTRY.counter("mapper.rows.rejected." + exception.getClass().getSimpleName()).increment();
+		}
+	}
+
+	/**
+	 * Ends the recording of a file which has been mapped completely. The size of the file is counted as the number of bytes read.
+	 * @param filePath path of the mapped file
+	 */
+	void finished(Path filePath) {
+		finished(REGISTRY.isEnabled() ? sizeOf(filePath) : 0);
+	}
+
+	/**
+	 * Ends the recording of a file which has been mapped completely.
+	 * @param bytes number of bytes read
+	 */
+	void finished(long bytes) {
+		FILES.increment();
+		polled(bytes);
+	}
+
+	/**
+	 * Ends the recording of rows which have been mapped without mapping the whole file.
+	 * @param bytes number of bytes read
+	 */
+	void polled(long bytes) {
+		PARSE.recordSince(phaseStart);
+		ROWS.add(rows);
+		REJECTED_ROWS.add(rejectedRows);
+		BYTES.add(bytes);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private static long sizeOf(Path filePath) {
+		try {
+			return Files.size(filePath);
+		} catch (IOException e) {
+			//the file was deleted after it has been mapped
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.util.Compression;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * This class is responsible for mapping a csv file to an object list, using several threads.
+ * The file is memory-mapped and split into chunks which contain complete records. The chunks are mapped in parallel on a ForkJoinPool
+ * and the results are merged in the original row order. The rows are mapped the same way as in {@link FastCsvToObjectMapper}.
+ * <p>
+ * The chunk boundaries are determined by counting the quotes in parallel, so line breaks within quoted fields are respected.
+ * This requires that quotes only occur in quoted fields (which is the case for valid csv files).
+ * Since the file is mapped as a whole, {@link #mapFileToStream(Path)} does not reduce the memory usage compared to {@link #mapFileToObjectList(Path)}.
+ * Compressed files (see {@link Compression}) cannot be split into chunks; they are decoded and mapped sequentially as in {@link FastCsvToObjectMapper}.
+ * @author catherine heyart
+ *
+ * @param <T> Class of the object that the csv file will be mapped to.
+ */
+public class ParallelCsvToObjectMapper <T> extends FastCsvToObjectMapper<T>{
+
+	/**
+	 * Minimum size of a chunk in bytes. Smaller files are mapped as a single chunk.
+	 */
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+	/**
+	 * Maximum size of a chunk in bytes (a mapped buffer cannot exceed 2 GB).
+	 */
+	private static final int MAX_CHUNK_SIZE = 64 << 20;
+
+	/**
+	 * Number of bytes which are mapped at once while searching for the first record of a chunk.
+	 */
+	private static final int SCAN_WINDOW_SIZE = 1 << 16;
+
+	private static final byte QUOTE = '"';
+
+	private static final byte LINE_FEED = '\n';
+
+	/**
+	 * Pool on which the chunks are mapped.
+	 */
+	private ForkJoinPool pool;
+
+	public ParallelCsvToObjectMapper(Class<T> clazz) {
+		this(clazz, ',', ForkJoinPool.commonPool());
+	}
+
+	public ParallelCsvToObjectMapper(Class<T> clazz, char separator) {
+		this(clazz, separator, ForkJoinPool.commonPool());
+	}
+
+	public ParallelCsvToObjectMapper(Class<T> clazz, char separator, ForkJoinPool pool) {
+		super(clazz, separator);
+		setPool(pool);
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		if(pool == null) {
+			throw new IllegalArgumentException("The pool cannot be null.");
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Maps Csv File to object list. The same conditions as in {@link CsvToObjectMapper#mapFileToObjectList(Path)} apply.
+	 * The captured exceptions of all chunks get logged in the order of their line numbers.
+	 */
+	@Override
+	public List<T> mapFileToObjectList(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		checkFilePath(filePath);
+		if(Compression.detect(filePath) != Compression.NONE) {
+			try (Stream<T> stream = super.mapFileToStream(filePath, separator)) {
+				return stream.collect(Collectors.toList());
+			}
+		}
+
+		MappingMetrics metrics = MappingMetrics.start();
+		FileChannel channel = openChannel(filePath);
+		try (channel) {
+			long size = channel.size();
+
+			Header header = readHeader(channel, size, separator);
+			if(header == null || !headerIsValid(header.columns)) {
+				throw invalidHeaderException();
+			}
+			metrics.headerValidated();
+
+			List<Chunk> chunks = planChunks(channel, header, size);
+
+			List<ForkJoinTask<ChunkResult<T>>> tasks = new ArrayList<>(chunks.size());
+			BeanRowMapper<T> rowMapper = new BeanRowMapper<>(schema, header.columns);
+			List<T> result = new ArrayList<>();
+			RejectedRows rejectedRows = new RejectedRows(this, filePath, metrics);
+			try {
+				for(Chunk chunk : chunks) {
+					tasks.add(pool.submit(() -> mapChunk(channel, chunk, header.columns, rowMapper, separator)));
+				}
+
+				//merge the results in the order of the chunks
+				for(ForkJoinTask<ChunkResult<T>> task : tasks) {
+					ChunkResult<T> chunkResult = task.join();
+					result.addAll(chunkResult.beans);
+					rejectedRows.addAll(chunkResult.capturedExceptions);
+				}
+			} finally {
+				awaitAll(tasks);
+			}
+
+			metrics.rowsMapped(result.size());
+			metrics.finished(size);
+			rejectedRows.flush();
+			return result;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Maps Csv File to a stream of objects. The whole file is mapped before the stream is returned (see {@link #mapFileToObjectList(Path)}).
+	 * Compressed files are mapped lazily while the stream is consumed.
+	 */
+	@Override
+	public Stream<T> mapFileToStream(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		checkFilePath(filePath);
+		if(Compression.detect(filePath) != Compression.NONE) {
+			return super.mapFileToStream(filePath, separator);
+		}
+		return mapFileToObjectList(filePath, separator).stream();
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private static FileChannel openChannel(Path filePath) throws FileNotFoundException {
+		try {
+			return FileChannel.open(filePath, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("The file could not be found: " + filePath.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException("The file could not be opened: " + filePath.toString(), e);
+		}
+	}
+
+	/**
+	 * Helper method which reads the first record of the file.
+	 * @return header of the file. Null if the file is empty
+	 */
+	private static Header readHeader(FileChannel channel, long size, char separator) throws IOException {
+		if(size == 0) {
+			return null;
+		}
+		long end = findRecordStart(channel, 0, false, size);
+		MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+		CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+
+		CsvRecordReader reader = new CsvRecordReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), separator, 0);
+		if(!reader.next()) {
+			return null;
+		}
+		return new Header(reader.getFields(), end, reader.getLineNumber());
+	}
+
+	/**
+	 * Helper method which splits the data (the part of the file after the header) into chunks containing complete records.
+	 * First, the quotes and line feeds of equally sized parts are counted in parallel. With these counts, it is known for the beginning of
+	 * every part whether it is located within a quoted field and how many lines precede it. The chunks start at the first record
+	 * beginning after the start of each part.
+	 */
+	private List<Chunk> planChunks(FileChannel channel, Header header, long size) {
+		long dataSize = size - header.end;
+		int parallelism = pool.getParallelism();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, dataSize / (parallelism * 4L) + 1));
+		int partCount = (int) Math.max(1, (dataSize + chunkSize - 1) / chunkSize);
+
+		//count quotes and line feeds of the parts, the counts of the last part are not needed
+		List<ForkJoinTask<long[]>> countTasks = new ArrayList<>(partCount);
+		List<ForkJoinTask<long[]>> startTasks = new ArrayList<>(partCount);
+		try {
+			for(int i = 0; i < partCount - 1; i++) {
+				long start = header.end + i * chunkSize;
+				long end = Math.min(size, start + chunkSize);
+				countTasks.add(pool.submit(() -> countQuotesAndLineFeeds(channel, start, end)));
+			}
+
+			//find the first record of each part (the first part starts directly after the header)
+			boolean inQuotes = false;
+			long linesBefore = header.lines;
+			for(int i = 1; i < partCount; i++) {
+				long[] counts = countTasks.get(i - 1).join();
+				inQuotes ^= (counts[0] & 1) == 1;
+				linesBefore += counts[1];
+
+				long partStart = header.end + i * chunkSize;
+				boolean quoted = inQuotes;
+				long lines = linesBefore;
+				startTasks.add(pool.submit(() -> findChunkStart(channel, partStart, quoted, lines, size)));
+			}
+
+			List<Chunk> chunks = new ArrayList<>(partCount);
+			long[] start = {header.end, header.lines};
+			for(int i = 0; i < partCount; i++) {
+				long[] next = i + 1 < partCount ? startTasks.get(i).join() : new long[] {size, 0};
+				if(next[0] > start[0]) {
+					chunks.add(new Chunk(start[0], next[0], start[1]));
+				}
+				start = next;
+			}
+			return chunks;
+		} finally {
+			awaitAll(countTasks);
+			awaitAll(startTasks);
+		}
+	}
+
+	/**
+	 * Helper method which waits until all tasks are completed, without throwing their exceptions.
+	 * If a task fails, the tasks submitted with it may still be reading the file, so the channel must not be closed before they are completed.
+	 */
+	private static void awaitAll(List<? extends ForkJoinTask<?>> tasks) {
+		for(ForkJoinTask<?> task : tasks) {
+			task.quietlyJoin();
+		}
+	}
+
+	/**
+	 * Helper method which counts the quotes and line feeds within a part of the file.
+	 * @return array containing the number of quotes (index 0) and the number of line feeds (index 1)
+	 */
+	private static long[] countQuotesAndLineFeeds(FileChannel channel, long start, long end) throws IOException {
+		MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		long quotes = 0;
+		long lineFeeds = 0;
+		for(int i = 0, length = bytes.limit(); i < length; i++) {
+			byte b = bytes.get(i);
+			if(b == QUOTE) {
+				quotes++;
+			} else if(b == LINE_FEED) {
+				lineFeeds++;
+			}
+		}
+		return new long[] {quotes, lineFeeds};
+	}
+
+	/**
+	 * Helper method which determines the start of the first record after a position.
+	 * @return array containing the start of the record (index 0) and the number of lines preceding it (index 1)
+	 */
+	private static long[] findChunkStart(FileChannel channel, long position, boolean inQuotes, long linesBefore, long size) throws IOException {
+		long start = findRecordStart(channel, position, inQuotes, size);
+		long[] counts = start > position ? countQuotesAndLineFeeds(channel, position, start) : new long[2];
+		return new long[] {start, linesBefore + counts[1]};
+	}
+
+	/**
+	 * Helper method which searches for the first line feed outside of a quoted field.
+	 * @param position position where the search starts
+	 * @param inQuotes whether the position is located within a quoted field
+	 * @return position after the line feed. The size of the file if there is no such line feed
+	 */
+	private static long findRecordStart(FileChannel channel, long position, boolean inQuotes, long size) throws IOException {
+		while(position < size) {
+			int length = (int) Math.min(SCAN_WINDOW_SIZE, size - position);
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			for(int i = 0; i < length; i++) {
+				byte b = bytes.get(i);
+				if(b == QUOTE) {
+					inQuotes = !inQuotes;
+				} else if(b == LINE_FEED && !inQuotes) {
+					return position + i + 1;
+				}
+			}
+			position += length;
+		}
+		return size;
+	}
+
+	/**
+	 * Helper method which maps the records of a chunk to beans.
+	 */
+	private static <T> ChunkResult<T> mapChunk(FileChannel channel, Chunk chunk, String[] header, BeanRowMapper<T> rowMapper, char separator) throws IOException {
+		MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+		CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+		CsvRecordReader records = new CsvRecordReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(),
+				separator, chunk.linesBefore);
+		RecordRow row = new RecordRow(records, header);
+
+		ChunkResult<T> result = new ChunkResult<>();
+		while(records.next()) {
+			try {
+				T bean = rowMapper.mapRow(row);
+				if(bean != null) {
+					result.beans.add(bean);
+				}
+			} catch (CsvException e) {
+				result.capturedExceptions.add(e);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Header of the file.
+	 */
+	private static final class Header {
+
+		private final String[] columns;
+
+		/**
+		 * Position after the header.
+		 */
+		private final long end;
+
+		/**
+		 * Number of lines of the header.
+		 */
+		private final long lines;
+
+		private Header(String[] columns, long end, long lines) {
+			this.columns = columns;
+			this.end = end;
+			this.lines = lines;
+		}
+	}
+
+	/**
+	 * Part of the file containing complete records.
+	 */
+	private static final class Chunk {
+
+		private final long start;
+
+		private final long end;
+
+		/**
+		 * Number of lines preceding the chunk (used for the line numbers of the captured exceptions).
+		 */
+		private final long linesBefore;
+
+		private Chunk(long start, long end, long linesBefore) {
+			this.start = start;
+			this.end = end;
+			this.linesBefore = linesBefore;
+		}
+	}
+
+	/**
+	 * Beans and exceptions of a chunk.
+	 */
+	private static final class ChunkResult <T>{
+
+		private final List<T> beans = new ArrayList<>();
+
+		private final List<CsvException> capturedExceptions = new ArrayList<>();
+	}
+}
@@ -0,0 +1,138 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.ICSVParser;
+import com.opencsv.enums.CSVReaderNullFieldIndicator;
+
+/**
+ * OpenCSV parser which only creates Strings for the columns that are bound to a field (see {@link BeanSchema#projection(String[])}).
+ * The other fields of a row are returned as empty Strings, so the number of fields (and thus the validation of the column count) does not change.
+ * <p>
+ * Only lines without quote and escape characters are split by this parser. Lines containing one of them, and all lines of a record
+ * spanning several lines, are parsed by a regular {@link CSVParser} with the same separator, so the results are the same as without projection.
+ * A row with a single field is always returned completely, so it is not mistaken for an empty line.
+ * @author catherine heyart
+ *
+ */
+final class ProjectingCsvParser implements ICSVParser {
+
+	private static final String SKIPPED = "";
+
+	private final CSVParser parser;
+
+	private final char separator;
+
+	/**
+	 * Bitmask of the columns which are converted to Strings. Null until the header has been read, so the header is parsed completely.
+	 */
+	private long[] projection;
+
+	ProjectingCsvParser(char separator) {
+		this.parser = new CSVParserBuilder().withSeparator(separator).build();
+		this.separator = separator;
+	}
+
+	/**
+	 * Sets the columns which are converted to Strings.
+	 * @param projection bitmask with one bit per column index (bit i % 64 of word i / 64). Columns beyond the mask are not converted
+	 */
+	void setProjection(long[] projection) {
+		this.projection = projection;
+	}
+
+	@Override
+	public String[] parseLineMulti(String nextLine) throws IOException {
+		if(!canSplit(nextLine)) {
+			return parser.parseLineMulti(nextLine);
+		}
+		return split(nextLine);
+	}
+
+	@Override
+	public String[] parseLine(String nextLine) throws IOException {
+		if(!canSplit(nextLine)) {
+			return parser.parseLine(nextLine);
+		}
+		return split(nextLine);
+	}
+
+	@Override
+	public char getSeparator() {
+		return separator;
+	}
+
+	@Override
+	public char getQuotechar() {
+		return parser.getQuotechar();
+	}
+
+	@Override
+	public boolean isPending() {
+		return parser.isPending();
+	}
+
+	@Override
+	public String parseToLine(String[] values, boolean applyQuotesToAll) {
+		return parser.parseToLine(values, applyQuotesToAll);
+	}
+
+	@Override
+	public CSVReaderNullFieldIndicator nullFieldIndicator() {
+		return parser.nullFieldIndicator();
+	}
+
+	@Override
+	public String getPendingText() {
+		return parser.getPendingText();
+	}
+
+	@Override
+	public void setErrorLocale(Locale errorLocale) {
+		parser.setErrorLocale(errorLocale);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Checks if a line can be split at its separators, i.e. if a projection is set, no record is pending and the line contains no quote or escape character.
+	 */
+	private boolean canSplit(String line) {
+		if(projection == null || line == null || parser.isPending()) {
+			return false;
+		}
+		return line.indexOf(parser.getQuotechar()) < 0 && line.indexOf(parser.getEscape()) < 0;
+	}
+
+	/**
+	 * Helper method which splits a line at its separators. Only the projected fields are copied into Strings.
+	 */
+	private String[] split(String line) {
+		int fieldCount = 1;
+		for(int i = line.indexOf(separator); i >= 0; i = line.indexOf(separator, i + 1)) {
+			fieldCount++;
+		}
+		if(fieldCount == 1) {
+			return new String[] {line};
+		}
+
+		String[] fields = new String[fieldCount];
+		int start = 0;
+		for(int column = 0; column < fieldCount; column++) {
+			int end = column == fieldCount - 1 ? line.length() : line.indexOf(separator, start);
+			fields[column] = isProjected(column) ? line.substring(start, end) : SKIPPED;
+			start = end + 1;
+		}
+		return fields;
+	}
+
+	private boolean isProjected(int column) {
+		int word = column >>> 6;
+		return word < projection.length && (projection[word] & (1L << column)) != 0;
+	}
+}
@@ -0,0 +1,145 @@
+package de.bcxp.challenge.mapper;
+
+import java.util.Objects;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+
+/**
+ * {@link CsvRow} which reads the values of the current record of a {@link CsvRecordReader}. One instance is used for all records of the reader.
+ * It is also used by {@link BeanRowMapper}, so beans are mapped from the same view of a record as the one passed to a {@link RowVisitor}.
+ * @author catherine heyart
+ *
+ */
+final class RecordRow implements CsvRow {
+
+	private final CsvRecordReader records;
+
+	/**
+	 * Column names of the file.
+	 */
+	private final String[] header;
+
+	/**
+	 * @param records reader whose current record is exposed
+	 * @param header column names of the file
+	 */
+	RecordRow(CsvRecordReader records, String[] header) {
+		this.records = records;
+		this.header = header;
+	}
+
+	@Override
+	public int getFieldCount() {
+		return records.getFieldCount();
+	}
+
+	@Override
+	public long getLineNumber() {
+		return records.getLineNumber();
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		for(int i = 0; i < header.length; i++) {
+			if(header[i].equalsIgnoreCase(columnName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean isBlank(int column) {
+		checkColumn(column);
+		if(records.isEscaped(column)) {
+			return records.getField(column).isBlank();
+		}
+		return FieldBinder.isBlank(records.getBuffer(), records.getFieldStart(column), records.getFieldEnd(column));
+	}
+
+	@Override
+	public int getInt(int column) throws CsvDataTypeMismatchException {
+		return (int) parse(column, int.class);
+	}
+
+	@Override
+	public long getLong(int column) throws CsvDataTypeMismatchException {
+		return parse(column, long.class);
+	}
+
+	@Override
+	public double getDouble(int column) throws CsvDataTypeMismatchException {
+		checkColumn(column);
+		try {
+			if(records.isEscaped(column)) {
+				char[] chars = records.getField(column).toCharArray();
+				return FieldBinder.parseDouble(chars, 0, chars.length);
+			}
+			return FieldBinder.parseDouble(records.getBuffer(), records.getFieldStart(column), records.getFieldEnd(column));
+		} catch (NumberFormatException e) {
+			throw conversionFailed(column, double.class);
+		}
+	}
+
+	@Override
+	public String getString(int column) {
+		checkColumn(column);
+		return records.getField(column);
+	}
+
+	/**
+	 * @return true, if the current record is an empty line
+	 */
+	boolean isEmpty() {
+		return records.isEmptyRecord();
+	}
+
+	/**
+	 * Assigns the value of a column to the field of a bean.
+	 * @param column index of the column
+	 * @param binder binder of the field bound to the column
+	 * @param bean bean whose field will be set
+	 * @throws CsvDataTypeMismatchException if the value cannot be converted to the type of the field
+	 */
+	void bind(int column, FieldBinder binder, Object bean) throws CsvDataTypeMismatchException {
+		if(records.isEscaped(column)) {
+			binder.bind(bean, records.getField(column));
+		} else {
+			binder.bind(bean, records.getBuffer(), records.getFieldStart(column), records.getFieldEnd(column));
+		}
+	}
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which parses the value of a column as int or long.
+	 */
+	private long parse(int column, Class<?> type) throws CsvDataTypeMismatchException {
+		checkColumn(column);
+		try {
+			if(records.isEscaped(column)) {
+				char[] chars = records.getField(column).toCharArray();
+				return type == int.class ? FieldBinder.parseInt(chars, 0, chars.length) : FieldBinder.parseLong(chars, 0, chars.length);
+			}
+			char[] buffer = records.getBuffer();
+			int start = records.getFieldStart(column);
+			int end = records.getFieldEnd(column);
+			return type == int.class ? FieldBinder.parseInt(buffer, start, end) : FieldBinder.parseLong(buffer, start, end);
+		} catch (NumberFormatException e) {
+			throw conversionFailed(column, type);
+		}
+	}
+
+	private void checkColumn(int column) {
+		Objects.checkIndex(column, records.getFieldCount());
+	}
+
+	/**
+	 * Helper method which creates the exception thrown if a value cannot be converted. The message corresponds to the one of {@link FieldBinder}.
+	 */
+	private CsvDataTypeMismatchException conversionFailed(int column, Class<?> type) {
+		String value = records.getField(column);
+		return new CsvDataTypeMismatchException(value, type, "Conversion of " + value + " to " + type.getCanonicalName() + " failed.");
+	}
+}
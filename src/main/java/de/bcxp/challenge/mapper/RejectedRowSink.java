@@ -0,0 +1,23 @@
+package de.bcxp.challenge.mapper;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Receives the exceptions of the rows which are skipped while a csv file is mapped (see {@link CsvToObjectMapper#setRejectedRowSink(RejectedRowSink)}).
+ * @author catherine heyart
+ *
+ */
+@FunctionalInterface
+public interface RejectedRowSink {
+
+	/**
+	 * Receives the exceptions of skipped rows. The method is called by the thread which maps the file, possibly several times per file,
+	 * and by several mappers at the same time. It should return quickly, so the mapping of the file is not slowed down.
+	 * @param filePath path of the file containing the rows
+	 * @param rejectedRows exceptions of the skipped rows, in the order of the rows. The list must not be modified
+	 */
+	void accept(Path filePath, List<CsvException> rejectedRows);
+}
@@ -0,0 +1,80 @@
+package de.bcxp.challenge.mapper;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Collects the exceptions of the rows of a file which are skipped while the file is mapped. The exceptions are passed to
+ * {@link CsvToObjectMapper#logCapturedExceptions(List, Path)} (or {@link JsonToObjectMapper#logCapturedExceptions(List, Path)}) in batches of at most {@value #BATCH_SIZE} while the file is still read,
+ * so a file with many invalid rows never holds more than one batch in memory. An instance must only be used by one thread at a time.
+ * @author catherine heyart
+ *
+ */
+final class RejectedRows {
+
+	/**
+	 * Maximum number of exceptions which are collected before they are logged.
+	 */
+	static final int BATCH_SIZE = 1024;
+
+	/**
+	 * Receives the full batches.
+	 */
+	private final RejectedRowSink log;
+
+	private final Path filePath;
+
+	private final MappingMetrics metrics;
+
+	private List<CsvException> batch = new ArrayList<>();
+
+	RejectedRows(CsvToObjectMapper<?> mapper, Path filePath, MappingMetrics metrics) {
+		this((path, rows) -> mapper.logCapturedExceptions(rows, path), filePath, metrics);
+	}
+
+	RejectedRows(JsonToObjectMapper<?> mapper, Path filePath, MappingMetrics metrics) {
+		this((path, rows) -> mapper.logCapturedExceptions(rows, path), filePath, metrics);
+	}
+
+	private RejectedRows(RejectedRowSink log, Path filePath, MappingMetrics metrics) {
+		this.log = log;
+		this.filePath = filePath;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Adds the exception of a skipped row. The collected exceptions are logged if the batch is full.
+	 * @param exception exception of the skipped row
+	 */
+	void add(CsvException exception) {
+		metrics.rowRejected(exception);
+		batch.add(exception);
+		if(batch.size() >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Adds the exceptions of several skipped rows, in their order.
+	 * @param exceptions exceptions of the skipped rows
+	 */
+	void addAll(List<CsvException> exceptions) {
+		for(CsvException e : exceptions) {
+			add(e);
+		}
+	}
+
+	/**
+	 * Logs the collected exceptions. A new list is used for the next batch, so the logged list is not modified afterwards.
+	 */
+	void flush() {
+		if(!batch.isEmpty()) {
+			List<CsvException> full = batch;
+			batch = new ArrayList<>();
+			log.accept(filePath, full);
+		}
+	}
+}
@@ -0,0 +1,453 @@
+package de.bcxp.challenge.mapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Sink which writes the skipped rows of csv files to a log file on a background thread, so mapping a file with many invalid rows is not slowed down by writing them.
+ * Every skipped row is counted per error type (the simple name of its exception class), but details are only written for at most
+ * {@code maxDetailsPerSecond} rows per error type and second. The details are handed to the background thread through a bounded queue;
+ * if the queue is full, the details of further rows are dropped instead of blocking the mapper.
+ * <p>
+ * Each line of the log file is a JSON object. Skipped rows are written as
+ * {@code {"time":..,"event":"rejected","file":..,"line":..,"type":..,"message":..,"row":[..]}} (the row is only included if the mapper provides its fields), and when the sink is closed,
+ * the counts of each error type are written as {@code {"time":..,"event":"summary","type":..,"rejected":..,"suppressed":..}}.
+ * When the log file exceeds its maximum size, it is renamed to [name].1 (the older files to [name].2, [name].3, ...) and a new file is started.
+ * @author catherine heyart
+ *
+ */
+public final class RollingFileRejectedRowSink implements RejectedRowSink, Closeable {
+
+	public static final long DEFAULT_MAX_FILE_SIZE = 10L * 1024 * 1024;
+
+	public static final int DEFAULT_MAX_FILES = 5;
+
+	public static final int DEFAULT_MAX_DETAILS_PER_SECOND = 100;
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+	/**
+	 * Entry which tells the background thread to stop.
+	 */
+	private static final Entry END = new Entry(0, null, null);
+
+	private final Path logFile;
+
+	private final long maxFileSize;
+
+	/**
+	 * Number of rotated files which are kept besides the current log file.
+	 */
+	private final int maxFiles;
+
+	private final int maxDetailsPerSecond;
+
+	private final BlockingQueue<Entry> queue;
+
+	private final ConcurrentMap<String, TypeCounts> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of rows whose details were dropped because the queue was full or the sink was closed.
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	private final AtomicLong written = new AtomicLong();
+
+	private final Thread writer;
+
+	/**
+	 * Lock which makes the check whether the sink is closed and the queueing of an entry atomic (read lock), with respect to closing the sink (write lock).
+	 * Therefore, no entry is queued after the end entry, which would be neither written nor counted as dropped.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private boolean closed;
+
+	/**
+	 * Exception which stopped the background thread from writing. Null if no exception occurred.
+	 */
+	private volatile IOException failure;
+
+	//only used by the background thread
+	private OutputStream out;
+
+	private long fileSize;
+
+	/**
+	 * Creates a sink with the default limits: files of 10 MB, 5 rotated files, details of 100 rows per error type and second, and a queue of 10000 rows.
+	 * @param logFile path of the log file. The file is appended to if it exists
+	 */
+	public RollingFileRejectedRowSink(Path logFile) {
+		this(logFile, DEFAULT_MAX_FILE_SIZE, DEFAULT_MAX_FILES, DEFAULT_MAX_DETAILS_PER_SECOND, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Creates a sink and starts its background thread.
+	 * @param logFile path of the log file. The file (and its directory) is created if it does not exist, and appended to if it exists
+	 * @param maxFileSize size in bytes from which on the log file is rotated
+	 * @param maxFiles number of rotated files which are kept besides the current log file
+	 * @param maxDetailsPerSecond maximum number of rows per error type and second whose details are written
+	 * @param queueCapacity maximum number of rows whose details wait to be written
+	 */
+	public RollingFileRejectedRowSink(Path logFile, long maxFileSize, int maxFiles, int maxDetailsPerSecond, int queueCapacity) {
+		if(logFile == null) {
+			throw new IllegalArgumentException("The log file cannot be null.");
+		}
+		if(maxFileSize <= 0 || maxFiles < 0 || maxDetailsPerSecond < 0 || queueCapacity <= 0) {
+			throw new IllegalArgumentException("The maximum file size and the queue capacity need to be positive, the other limits cannot be negative.");
+		}
+		this.logFile = logFile.toAbsolutePath();
+		this.maxFileSize = maxFileSize;
+		this.maxFiles = maxFiles;
+		this.maxDetailsPerSecond = maxDetailsPerSecond;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		try {
+			Files.createDirectories(this.logFile.getParent());
+			openLogFile();
+		} catch (IOException e) {
+			throw new UncheckedIOException("The log file could not be opened: " + logFile.toString(), e);
+		}
+		writer = new Thread(this::writeEntries, "rejected-row-sink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Counts the skipped rows and queues the details of the rows which are within the rate limit of their error type. Never blocks.
+	 */
+	@Override
+	public void accept(Path filePath, List<CsvException> rejectedRows) {
+		long time = System.currentTimeMillis();
+		long second = time / 1000;
+		for(CsvException e : rejectedRows) {
+			TypeCounts typeCounts = countsOf(e.getClass().getSimpleName());
+			typeCounts.rejected.increment();
+			if(!typeCounts.tryAcquire(second, maxDetailsPerSecond)) {
+				typeCounts.suppressed.increment();
+			} else if(!offer(new Entry(time, filePath, e))) {
+				dropped.increment();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of skipped rows of an error type.
+	 * @param type simple name of the exception class (e.g. "CsvDataTypeMismatchException")
+	 * @return number of skipped rows
+	 */
+	public long getRejectedCount(String type) {
+		TypeCounts typeCounts = counts.get(type);
+		return typeCounts == null ? 0 : typeCounts.rejected.sum();
+	}
+
+	/**
+	 * Returns the number of skipped rows per error type.
+	 * @return number of skipped rows, ordered by the simple names of the exception classes
+	 */
+	public Map<String, Long> getRejectedCounts() {
+		Map<String, Long> result = new TreeMap<>();
+		counts.forEach((type, typeCounts) -> result.put(type, typeCounts.rejected.sum()));
+		return result;
+	}
+
+	/**
+	 * Returns the number of skipped rows whose details were not written because of the rate limit of their error type.
+	 * @return number of suppressed rows
+	 */
+	public long getSuppressedCount() {
+		long suppressed = 0;
+		for(TypeCounts typeCounts : counts.values()) {
+			suppressed += typeCounts.suppressed.sum();
+		}
+		return suppressed;
+	}
+
+	/**
+	 * Returns the number of skipped rows whose details were not written because the queue was full, the sink was closed or the log file could not be written.
+	 * @return number of dropped rows
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Returns the number of skipped rows whose details have been written to the log file.
+	 * @return number of written rows
+	 */
+	public long getWrittenCount() {
+		return written.get();
+	}
+
+	/**
+	 * Writes the queued details and the counts of all error types, and closes the log file. Rows which are passed to the sink afterwards are only counted.
+	 * @throws IOException if the log file could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		boolean closing;
+		closeLock.writeLock().lock();
+		try {
+			closing = !closed;
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		if(closing) {
+			try {
+				queue.put(END);
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which queues an entry, unless the sink is closed or the queue is full.
+	 * @return true, if the entry has been queued
+	 */
+	private boolean offer(Entry entry) {
+		closeLock.readLock().lock();
+		try {
+			return !closed && queue.offer(entry);
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	private TypeCounts countsOf(String type) {
+		TypeCounts typeCounts = counts.get(type);
+		return typeCounts != null ? typeCounts : counts.computeIfAbsent(type, t -> new TypeCounts());
+	}
+
+	/**
+	 * Loop of the background thread, which writes the queued entries until the end entry is taken.
+	 * The file is flushed whenever the queue is empty, so the log file is up to date while the mappers are idle.
+	 */
+	private void writeEntries() {
+		List<Entry> entries = new ArrayList<>();
+		boolean end = false;
+		while(!end) {
+			try {
+				entries.add(queue.take());
+			} catch (InterruptedException e) {
+				//the thread is only stopped by the end entry
+				continue;
+			}
+			queue.drainTo(entries, 255);
+			for(Entry entry : entries) {
+				if(entry == END) {
+					end = true;
+				} else if(writeSafely(toJson(entry))) {
+					written.incrementAndGet();
+				} else {
+					dropped.increment();
+				}
+			}
+			entries.clear();
+			if(queue.isEmpty() && failure == null) {
+				try {
+					out.flush();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+		for(Map.Entry<String, TypeCounts> typeCounts : new TreeMap<>(counts).entrySet()) {
+			writeSafely("{\"time\":\"" + Instant.ofEpochMilli(System.currentTimeMillis()) + "\",\"event\":\"summary\",\"type\":" + quote(typeCounts.getKey())
+					+ ",\"rejected\":" + typeCounts.getValue().rejected.sum() + ",\"suppressed\":" + typeCounts.getValue().suppressed.sum() + "}");
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			if(failure == null) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Helper method which writes a line to the log file, rotating the file first if the line would exceed its maximum size.
+	 * If the file cannot be written, the exception is kept and no further lines are written.
+	 * @return true, if the line was written
+	 */
+	private boolean writeSafely(String line) {
+		if(failure != null) {
+			return false;
+		}
+		byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+		try {
+			if(fileSize > 0 && fileSize + bytes.length > maxFileSize) {
+				rotate();
+			}
+			out.write(bytes);
+			fileSize += bytes.length;
+			return true;
+		} catch (IOException e) {
+			failure = e;
+			return false;
+		}
+	}
+
+	private void openLogFile() throws IOException {
+		out = new BufferedOutputStream(Files.newOutputStream(logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+		fileSize = Files.size(logFile);
+	}
+
+	/**
+	 * Helper method which renames the log file to [name].1 (after renaming the older files to [name].2, [name].3, ...) and opens a new log file.
+	 * The oldest file is deleted if there are more than maxFiles rotated files. If maxFiles is 0, the log file is simply started again.
+	 */
+	private void rotate() throws IOException {
+		out.close();
+		if(maxFiles == 0) {
+			Files.delete(logFile);
+		} else {
+			Files.deleteIfExists(rotatedFile(maxFiles));
+			for(int i = maxFiles - 1; i >= 1; i--) {
+				if(Files.exists(rotatedFile(i))) {
+					Files.move(rotatedFile(i), rotatedFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(logFile, rotatedFile(1), StandardCopyOption.REPLACE_EXISTING);
+		}
+		openLogFile();
+	}
+
+	private Path rotatedFile(int index) {
+		return logFile.resolveSibling(logFile.getFileName().toString() + "." + index);
+	}
+
+	private static String toJson(Entry entry) {
+		CsvException e = entry.exception;
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"time\":\"").append(Instant.ofEpochMilli(entry.time)).append('"')
+			.append(",\"event\":\"rejected\"")
+			.append(",\"file\":").append(quote(entry.filePath == null ? null : entry.filePath.toString()))
+			.append(",\"line\":").append(e.getLineNumber())
+			.append(",\"type\":").append(quote(e.getClass().getSimpleName()))
+			.append(",\"message\":").append(quote(e.getMessage()));
+		if(e.getLine() != null) {
+			json.append(",\"row\":[");
+			String[] fields = e.getLine();
+			for(int i = 0; i < fields.length; i++) {
+				json.append(i == 0 ? "" : ",").append(quote(fields[i]));
+			}
+			json.append(']');
+		}
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Helper method which writes a string as a JSON string literal.
+	 * @return quoted and escaped string. null if the string is null
+	 */
+	static String quote(String value) {
+		if(value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if(c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+
+	/**
+	 * Skipped row whose details wait to be written.
+	 */
+	private static final class Entry {
+
+		private final long time;
+
+		private final Path filePath;
+
+		private final CsvException exception;
+
+		private Entry(long time, Path filePath, CsvException exception) {
+			this.time = time;
+			this.filePath = filePath;
+			this.exception = exception;
+		}
+	}
+
+	/**
+	 * Counts of an error type, and the number of rows of the current second whose details have been queued.
+	 */
+	private static final class TypeCounts {
+
+		private final LongAdder rejected = new LongAdder();
+
+		private final LongAdder suppressed = new LongAdder();
+
+		private final AtomicLong second = new AtomicLong(-1);
+
+		private final AtomicInteger detailsInSecond = new AtomicInteger();
+
+		/**
+		 * Checks if the details of another row may be written in the given second. The count is reset when a new second begins.
+		 */
+		private boolean tryAcquire(long currentSecond, int maxDetailsPerSecond) {
+			long last = second.get();
+			if(last != currentSecond && second.compareAndSet(last, currentSecond)) {
+				detailsInSecond.set(0);
+			}
+			return detailsInSecond.incrementAndGet() <= maxDetailsPerSecond;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package de.bcxp.challenge.mapper;
+
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Receives the rows of a csv file one after the other (see {@link FastCsvToObjectMapper#visitFile(java.nio.file.Path, char, RowVisitor)}).
+ * Used to compute results directly from the values of the rows, without mapping each row to a bean.
+ * @author catherine heyart
+ *
+ */
+@FunctionalInterface
+public interface RowVisitor {
+
+	/**
+	 * Receives a row of the file. The row is reused for the next row, so it must not be stored.
+	 * @param row current row
+	 * @throws CsvException if the row cannot be used (e.g. a value does not have the expected type). The row is skipped and passed to the
+	 * {@link RejectedRowSink} of the mapper like an invalid row of a mapped file; the following rows are still visited
+	 */
+	void visit(CsvRow row) throws CsvException;
+}
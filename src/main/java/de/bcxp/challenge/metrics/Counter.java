@@ -0,0 +1,49 @@
+package de.bcxp.challenge.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter which can be incremented by several threads at the same time without locking.
+ * The value is striped over several cells (see {@link LongAdder}), so threads which increment the counter concurrently do not contend for the same memory location.
+ * Increments are ignored while the registry of the counter is disabled.
+ * @author catherine heyart
+ *
+ */
+public final class Counter {
+
+	private final MetricsRegistry registry;
+
+	private final LongAdder value = new LongAdder();
+
+	Counter(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	public void increment() {
+		if(registry.isEnabled()) {
+			value.increment();
+		}
+	}
+
+	/**
+	 * Adds a value to the counter.
+	 * @param amount value to be added
+	 */
+	public void add(long amount) {
+		if(registry.isEnabled()) {
+			value.add(amount);
+		}
+	}
+
+	/**
+	 * Returns the current value of the counter. Increments which happen at the same time may or may not be included.
+	 * @return value of the counter
+	 */
+	public long get() {
+		return value.sum();
+	}
+
+	void reset() {
+		value.reset();
+	}
+}
@@ -0,0 +1,144 @@
+package de.bcxp.challenge.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds which can be recorded by several threads at the same time without locking.
+ * The latencies are counted in fixed buckets whose bounds are powers of two: bucket i contains the latencies from 2^(i-1) to 2^i - 1 nanoseconds.
+ * Recording a latency therefore only increments two striped counters, and percentiles are accurate up to a factor of two.
+ * Latencies are ignored while the registry of the histogram is disabled.
+ * @author catherine heyart
+ *
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of buckets. The last bucket contains all latencies from 2^46 nanoseconds (about 20 hours) on.
+	 */
+	static final int BUCKETS = 48;
+
+	private final MetricsRegistry registry;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	LatencyHistogram(MetricsRegistry registry) {
+		this.registry = registry;
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the start time of a measurement which is ended by {@link #recordSince(long)}. The clock is only read if the registry is enabled.
+	 * @return current value of {@link System#nanoTime()}. 0 if the registry is disabled
+	 */
+	public long start() {
+		return registry.isEnabled() ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time which has passed since a measurement has been started with {@link #start()}.
+	 * @param startNanos start time returned by {@link #start()}. Nothing is recorded if it is 0
+	 */
+	public void recordSince(long startNanos) {
+		if(startNanos != 0) {
+			record(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Records a latency.
+	 * @param nanos latency in nanoseconds. Negative latencies are recorded as 0
+	 */
+	public void record(long nanos) {
+		if(!registry.isEnabled()) {
+			return;
+		}
+		long latency = Math.max(0, nanos);
+		buckets[bucketOf(latency)].increment();
+		totalNanos.add(latency);
+		maxNanos.accumulate(latency);
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 * @return number of recorded latencies
+	 */
+	public long getCount() {
+		long count = 0;
+		for(LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies.
+	 * @return mean latency in nanoseconds. 0 if no latency has been recorded
+	 */
+	public double getMeanNanos() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) getTotalNanos() / count;
+	}
+
+	/**
+	 * Returns an upper bound of a percentile of the recorded latencies: the upper bound of the bucket containing the percentile,
+	 * or the highest recorded latency if it is lower.
+	 * @param percentile percentile between 0 and 100
+	 * @return upper bound of the percentile in nanoseconds. 0 if no latency has been recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		if(!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("The percentile needs to be between 0 and 100.");
+		}
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		int bucket = 0;
+		while(bucket < BUCKETS - 1 && (seen += counts[bucket]) < rank) {
+			bucket++;
+		}
+		return Math.min(upperBoundOf(bucket), getMaxNanos());
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	void reset() {
+		for(LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+	static int bucketOf(long nanos) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	static long upperBoundOf(int bucket) {
+		return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+}
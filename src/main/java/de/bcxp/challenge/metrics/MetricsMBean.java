@@ -0,0 +1,112 @@
+package de.bcxp.challenge.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * MBean exposing the metrics of a registry. The attributes are determined whenever the MBean info is requested,
+ * so metrics which are created after the registration of the MBean are exposed as well. All attributes are read-only.
+ * @author catherine heyart
+ *
+ */
+final class MetricsMBean implements DynamicMBean {
+
+	private final MetricsRegistry registry;
+
+	MetricsMBean(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Supplier<Object> value = attributes().get(attribute);
+		if(value == null) {
+			throw new AttributeNotFoundException("No metric with the name " + attribute);
+		}
+		return value.get();
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("The metrics are read-only: " + attribute.getName());
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] names) {
+		Map<String, Supplier<Object>> attributes = attributes();
+		AttributeList list = new AttributeList();
+		for(String name : names) {
+			Supplier<Object> value = attributes.get(name);
+			if(value != null) {
+				list.add(new Attribute(name, value.get()));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		switch(actionName) {
+			case "dump":
+				return registry.dump();
+			case "reset":
+				registry.reset();
+				return null;
+			default:
+				throw new ReflectionException(new NoSuchMethodException(actionName), "Unknown operation " + actionName);
+		}
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributeInfos = new ArrayList<>();
+		attributes().forEach((name, value) -> {
+			String type = value.get() instanceof Double ? Double.class.getName() : Long.class.getName();
+			attributeInfos.add(new MBeanAttributeInfo(name, type, name, true, false, false));
+		});
+		MBeanOperationInfo[] operations = {
+				new MBeanOperationInfo("dump", "Current values of all metrics as text", null, String.class.getName(), MBeanOperationInfo.INFO),
+				new MBeanOperationInfo("reset", "Resets all counters and histograms", null, void.class.getName(), MBeanOperationInfo.ACTION)
+		};
+		return new MBeanInfo(getClass().getName(), "Metrics of the challenge application",
+				attributeInfos.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which collects the attributes of all metrics, ordered by name.
+	 */
+	private Map<String, Supplier<Object>> attributes() {
+		Map<String, Supplier<Object>> attributes = new TreeMap<>();
+		registry.counters().forEach((name, counter) -> attributes.put(name, counter::get));
+		registry.gauges().forEach((name, gauge) -> attributes.put(name, gauge::getAsDouble));
+		registry.histograms().forEach((name, histogram) -> {
+			attributes.put(name + ".count", histogram::getCount);
+			attributes.put(name + ".meanMicros", () -> histogram.getMeanNanos() / 1000);
+			attributes.put(name + ".p50Micros", () -> histogram.getPercentileNanos(50) / 1000.0);
+			attributes.put(name + ".p99Micros", () -> histogram.getPercentileNanos(99) / 1000.0);
+			attributes.put(name + ".maxMicros", () -> histogram.getMaxNanos() / 1000.0);
+		});
+		return attributes;
+	}
+}
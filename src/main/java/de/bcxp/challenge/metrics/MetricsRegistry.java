@@ -0,0 +1,194 @@
+package de.bcxp.challenge.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of named metrics: counters, latency histograms and gauges.
+ * The metrics are created when their name is requested for the first time and are shared by everyone requesting the same name,
+ * so instrumented classes usually look them up once and keep them in static fields.
+ * The metrics can be read through a JMX MBean (see {@link #registerMBean()}) or as text (see {@link #dump()}).
+ * @author catherine heyart
+ *
+ */
+public final class MetricsRegistry {
+
+	/**
+	 * Name under which the MBean of the default registry is registered by {@link #registerMBean()}.
+	 */
+	public static final String DEFAULT_OBJECT_NAME = "de.bcxp.challenge:type=Metrics";
+
+	/**
+	 * Registry used by the mappers, repositories and services of this application.
+	 */
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+	/**
+	 * If false, the counters and histograms of this registry ignore all updates. Enabled by default.
+	 */
+	private volatile boolean enabled = true;
+
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the counter with the given name. The counter is created if it does not exist yet.
+	 * @param name name of the counter
+	 * @return counter
+	 */
+	public Counter counter(String name) {
+		checkName(name);
+		Counter counter = counters.get(name);
+		return counter != null ? counter : counters.computeIfAbsent(name, n -> new Counter(this));
+	}
+
+	/**
+	 * Returns the latency histogram with the given name. The histogram is created if it does not exist yet.
+	 * @param name name of the histogram
+	 * @return histogram
+	 */
+	public LatencyHistogram histogram(String name) {
+		checkName(name);
+		LatencyHistogram histogram = histograms.get(name);
+		return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram(this));
+	}
+
+	/**
+	 * Registers a gauge, a value which is computed whenever the metrics are read. A gauge which was registered under the same name before is replaced.
+	 * @param name name of the gauge
+	 * @param value function computing the value
+	 */
+	public void gauge(String name, DoubleSupplier value) {
+		checkName(name);
+		if(value == null) {
+			throw new IllegalArgumentException("The value of the gauge cannot be null.");
+		}
+		gauges.put(name, value);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the counters and histograms of this registry. While disabled, updates are ignored and the clock is not read by {@link LatencyHistogram#start()}.
+	 * @param enabled true, if the metrics should be recorded
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Resets all counters and histograms to 0.
+	 */
+	public void reset() {
+		counters.values().forEach(Counter::reset);
+		histograms.values().forEach(LatencyHistogram::reset);
+	}
+
+	/**
+	 * Returns the current values of all metrics, ordered by name. Counters are written as "name value", gauges as "name value" with two decimals
+	 * and histograms as "name count=.. mean=.. p50=.. p99=.. max=.." with latencies in microseconds.
+	 * @return one line per metric
+	 */
+	public String dump() {
+		SortedMap<String, String> lines = new TreeMap<>();
+		counters.forEach((name, counter) -> lines.put(name, Long.toString(counter.get())));
+		gauges.forEach((name, gauge) -> lines.put(name, String.format(Locale.ROOT, "%.2f", gauge.getAsDouble())));
+		histograms.forEach((name, histogram) -> lines.put(name, String.format(Locale.ROOT, "count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+				histogram.getCount(), histogram.getMeanNanos() / 1000, histogram.getPercentileNanos(50) / 1000.0,
+				histogram.getPercentileNanos(99) / 1000.0, histogram.getMaxNanos() / 1000.0)));
+
+		StringBuilder dump = new StringBuilder();
+		for(Map.Entry<String, String> line : lines.entrySet()) {
+			dump.append(line.getKey()).append(' ').append(line.getValue()).append(System.lineSeparator());
+		}
+		return dump.toString();
+	}
+
+	/**
+	 * Registers an MBean exposing the metrics of this registry at the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+	 * @return name of the registered MBean
+	 */
+	public ObjectName registerMBean() {
+		return registerMBean(DEFAULT_OBJECT_NAME);
+	}
+
+	/**
+	 * Registers an MBean exposing the metrics of this registry at the platform MBean server. The MBean has one attribute per counter and gauge,
+	 * and the attributes "name.count", "name.meanMicros", "name.p50Micros", "name.p99Micros" and "name.maxMicros" per histogram.
+	 * Its operations are "dump" (see {@link #dump()}) and "reset" (see {@link #reset()}).
+	 * @param objectName name of the MBean
+	 * @return name of the registered MBean
+	 * @throws IllegalStateException if the name is malformed or an MBean with this name is already registered
+	 */
+	public ObjectName registerMBean(String objectName) {
+		try {
+			ObjectName name = new ObjectName(objectName);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(this), name);
+			return name;
+		} catch (MalformedObjectNameException | InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+			throw new IllegalStateException("The metrics MBean could not be registered as " + objectName, e);
+		}
+	}
+
+	/**
+	 * Removes an MBean registered by {@link #registerMBean(String)} from the platform MBean server. Nothing happens if it is not registered.
+	 * @param name name of the MBean
+	 */
+	public static void unregisterMBean(ObjectName name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if(server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (InstanceNotFoundException e) {
+			//unregistered concurrently
+		} catch (MBeanRegistrationException e) {
+			throw new IllegalStateException("The metrics MBean could not be unregistered: " + name, e);
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	Map<String, Counter> counters() {
+		return counters;
+	}
+
+	Map<String, LatencyHistogram> histograms() {
+		return histograms;
+	}
+
+	Map<String, DoubleSupplier> gauges() {
+		return gauges;
+	}
+
+	private static void checkName(String name) {
+		if(name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("The name of the metric cannot be null or empty.");
+		}
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the metrics of the application: lock-free counters and latency histograms which are recorded by the mappers, repositories and services,
+ * and the registry which exposes them through JMX and as text.
+ */
+package de.bcxp.challenge.metrics;
\ No newline at end of file
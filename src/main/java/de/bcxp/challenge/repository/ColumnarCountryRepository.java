@@ -0,0 +1,124 @@
+package de.bcxp.challenge.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.Country;
+
+/**
+ * Repository for Country data which stores every numeric field in a primitive column instead of keeping Country objects.
+ * This avoids an object header and a reference per row and allows cache-friendly scans over single fields (see {@link CountryTable}).
+ * @author catherine heyart
+ *
+ */
+public class ColumnarCountryRepository extends Repository<Country> implements CountryTable{
+	
+	private final List<String> name = new ArrayList<>();
+	
+	private final IntColumn population = new IntColumn();
+	
+	private final IntColumn area = new IntColumn();
+	
+	private final IntColumn populationDensity = new IntColumn();
+	
+	/**
+	 * Read-only view of the rows as Country objects.
+	 */
+	private final List<Country> view = new RowView();
+	
+	@Override
+	public void addData(List<Country> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		int firstIndex = size();
+		newData.forEach(this::addRow);
+		notifyViews(newData, firstIndex);
+	}
+	
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data is collected into batches of up to {@value Repository#STREAM_BATCH_SIZE} objects,
+	 * and each batch is appended as in {@link #addData(List)}, so the views are notified once per batch.
+	 */
+	@Override
+	public void addData(Stream<Country> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		List<Country> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		newData.forEachOrdered(object -> {
+			batch.add(object);
+			if(batch.size() == STREAM_BATCH_SIZE) {
+				addData(batch);
+				batch.clear();
+			}
+		});
+		addData(batch);
+	}
+	
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new Country object holding the values of the row.
+	 */
+	@Override
+	public List<Country> getData() {
+		return view;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	@Override
+	public int size() {
+		return population.size();
+	}
+
+	@Override
+	public String getName(int row) {
+		return name.get(row);
+	}
+
+	@Override
+	public int getPopulation(int row) {
+		return population.get(row);
+	}
+
+	@Override
+	public int getArea(int row) {
+		return area.get(row);
+	}
+
+	@Override
+	public int getPopulationDensity(int row) {
+		return populationDensity.get(row);
+	}
+	
+	private void addRow(Country country) {
+		name.add(country.getName());
+		population.add(country.getPopulation());
+		area.add(country.getArea());
+		populationDensity.add(country.getPopulationDensity());
+	}
+	
+	
+	/**
+	 * List view which creates Country objects from the columns.
+	 */
+	private class RowView extends AbstractList<Country> implements RandomAccess {
+
+		@Override
+		public Country get(int index) {
+			return new Country(getName(index), getPopulation(index), getArea(index));
+		}
+
+		@Override
+		public int size() {
+			return ColumnarCountryRepository.this.size();
+		}
+	}
+
+}
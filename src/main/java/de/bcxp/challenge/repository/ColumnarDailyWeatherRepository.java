@@ -0,0 +1,131 @@
+package de.bcxp.challenge.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Repository for DailyWeather data which stores every field in a primitive column instead of keeping DailyWeather objects.
+ * This avoids an object header and a reference per row and allows cache-friendly scans over single fields (see {@link DailyWeatherTable}).
+ * @author catherine heyart
+ *
+ */
+public class ColumnarDailyWeatherRepository extends Repository<DailyWeather> implements DailyWeatherTable{
+	
+	private final IntColumn dayOfTheMonth = new IntColumn();
+	
+	private final IntColumn minTempInF = new IntColumn();
+	
+	private final IntColumn maxTempInF = new IntColumn();
+	
+	private final IntColumn tempDiffInF = new IntColumn();
+	
+	/**
+	 * Read-only view of the rows as DailyWeather objects.
+	 */
+	private final List<DailyWeather> view = new RowView();
+	
+	@Override
+	public void addData(List<DailyWeather> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		int firstIndex = size();
+		newData.forEach(this::addRow);
+		notifyViews(newData, firstIndex);
+	}
+	
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data is collected into batches of up to {@value Repository#STREAM_BATCH_SIZE} objects,
+	 * and each batch is appended as in {@link #addData(List)}, so the views are notified once per batch.
+	 */
+	@Override
+	public void addData(Stream<DailyWeather> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		List<DailyWeather> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		newData.forEachOrdered(object -> {
+			batch.add(object);
+			if(batch.size() == STREAM_BATCH_SIZE) {
+				addData(batch);
+				batch.clear();
+			}
+		});
+		addData(batch);
+	}
+	
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new DailyWeather object holding the values of the row.
+	 */
+	@Override
+	public List<DailyWeather> getData() {
+		return view;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	@Override
+	public int size() {
+		return dayOfTheMonth.size();
+	}
+
+	@Override
+	public int getDayOfTheMonth(int row) {
+		return dayOfTheMonth.get(row);
+	}
+
+	@Override
+	public int getMinTempInF(int row) {
+		return minTempInF.get(row);
+	}
+
+	@Override
+	public int getMaxTempInF(int row) {
+		return maxTempInF.get(row);
+	}
+
+	@Override
+	public int getTempDiffInF(int row) {
+		return tempDiffInF.get(row);
+	}
+	
+	/**
+	 * @return number of bytes allocated for the columns
+	 */
+	public long allocatedBytes() {
+		return dayOfTheMonth.allocatedBytes() + minTempInF.allocatedBytes() + maxTempInF.allocatedBytes() + tempDiffInF.allocatedBytes();
+	}
+	
+	private void addRow(DailyWeather weather) {
+		dayOfTheMonth.add(weather.getDayOfTheMonth());
+		minTempInF.add(weather.getMinTempInF());
+		maxTempInF.add(weather.getMaxTempInF());
+		tempDiffInF.add(weather.getTempDiffInF());
+	}
+	
+	
+	/**
+	 * List view which creates DailyWeather objects from the columns.
+	 */
+	private class RowView extends AbstractList<DailyWeather> implements RandomAccess {
+
+		@Override
+		public DailyWeather get(int index) {
+			return new DailyWeather(getDayOfTheMonth(index), getMinTempInF(index), getMaxTempInF(index));
+		}
+
+		@Override
+		public int size() {
+			return ColumnarDailyWeatherRepository.this.size();
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package de.bcxp.challenge.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Repository for objects of type T which can be filled and queried by several threads at the same time.
+ * <p>
+ * The objects are stored in fixed-size segments which never move once they are allocated. Writers append whole batches under a lock
+ * (only the copying of the references is done while holding it) and afterwards publish the new size through a volatile field.
+ * Readers never take a lock: {@link #getData()} returns an immutable snapshot containing exactly the batches which were published
+ * when the snapshot was taken. Later appends are not visible in an existing snapshot, and a batch is either completely visible or not at all.
+ * @author catherine heyart
+ *
+ * @param <T> object type saved in the repository
+ */
+public class ConcurrentRepository <T> extends Repository<T>{
+
+	/**
+	 * Each segment holds 2^SEGMENT_SHIFT objects.
+	 */
+	private static final int SEGMENT_SHIFT = 12;
+
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * Lock held by writers while appending a batch. Readers do not use it.
+	 */
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/**
+	 * Latest published state. Only written while holding the write lock.
+	 */
+	private volatile Snapshot<T> current = new Snapshot<>(new Object[0][], 0);
+
+	/**
+	 * Adds new data to the repository. The data is appended as one batch: readers see either all or none of it.
+	 */
+	@Override
+	public void addData(List<T> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		append(newData.toArray());
+	}
+
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data is collected into batches of up to {@value Repository#STREAM_BATCH_SIZE} objects
+	 * outside of the lock, and each batch is appended as in {@link #addData(List)}. Batches of other writers may be appended between two batches of the stream.
+	 */
+	@Override
+	public void addData(Stream<T> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		List<T> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		newData.forEachOrdered(object -> {
+			batch.add(object);
+			if(batch.size() == STREAM_BATCH_SIZE) {
+				append(batch.toArray());
+				batch.clear();
+			}
+		});
+		append(batch.toArray());
+	}
+
+	/**
+	 * Returns an immutable snapshot of the data. The snapshot does not change when data is added afterwards, so it can be iterated
+	 * and streamed while other threads are adding data.
+	 */
+	@Override
+	public List<T> getData() {
+		return current;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return current.size == 0;
+	}
+
+	/**
+	 * Registers a view which is updated whenever data is added. Appends are blocked while the existing data is passed to the view,
+	 * so the view receives every object exactly once. Views are updated by the appending thread after the batch has been published,
+	 * while it still holds the lock (so views should be cheap to update).
+	 */
+	@Override
+	public <V extends RepositoryView<? super T>> V registerView(V view) {
+		writeLock.lock();
+		try {
+			return super.registerView(view);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which copies a batch into the segments and publishes the new size.
+	 * @param batch objects to be appended
+	 */
+	private void append(Object[] batch) {
+		if(batch.length == 0) {
+			return;
+		}
+		writeLock.lock();
+		try {
+			Snapshot<T> snapshot = current;
+			Object[][] segments = snapshot.segments;
+			int size = snapshot.size;
+			if((long) size + batch.length > Integer.MAX_VALUE) {
+				throw new IllegalStateException("The repository cannot hold more than " + Integer.MAX_VALUE + " objects.");
+			}
+
+			int copied = 0;
+			while(copied < batch.length) {
+				int segmentIndex = size >>> SEGMENT_SHIFT;
+				if(segmentIndex == segments.length) {
+					//the published snapshots keep the old array, which still references the same segments
+					segments = Arrays.copyOf(segments, Math.max(8, segments.length * 2));
+				}
+				if(segments[segmentIndex] == null) {
+					segments[segmentIndex] = new Object[SEGMENT_SIZE];
+				}
+				int offset = size & SEGMENT_MASK;
+				int length = Math.min(SEGMENT_SIZE - offset, batch.length - copied);
+				System.arraycopy(batch, copied, segments[segmentIndex], offset, length);
+				copied += length;
+				size += length;
+			}
+			//the volatile write publishes the copied references to all readers of the new snapshot
+			Snapshot<T> published = new Snapshot<>(segments, size);
+			current = published;
+			notifyViews(published.subList(snapshot.size, size), snapshot.size);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Immutable view of the objects published up to a certain size.
+	 * Slots beyond the size may be filled by later appends, but they are never read through this snapshot.
+	 */
+	private static final class Snapshot <T> extends AbstractList<T> implements RandomAccess {
+
+		private final Object[][] segments;
+
+		private final int size;
+
+		private Snapshot(Object[][] segments, int size) {
+			this.segments = segments;
+			this.size = size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			if(index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+			}
+			return (T) segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
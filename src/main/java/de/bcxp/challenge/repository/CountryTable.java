@@ -0,0 +1,24 @@
+package de.bcxp.challenge.repository;
+
+/**
+ * Provides access to country data as primitive values, addressed by row index, without materializing Country objects.
+ * Repositories implementing this interface can be queried with plain loops over the rows.
+ * @author catherine heyart
+ *
+ */
+public interface CountryTable {
+
+	/**
+	 * @return number of rows
+	 */
+	public int size();
+
+	public String getName(int row);
+
+	public int getPopulation(int row);
+
+	public int getArea(int row);
+
+	public int getPopulationDensity(int row);
+
+}
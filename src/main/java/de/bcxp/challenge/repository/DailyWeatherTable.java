@@ -0,0 +1,24 @@
+package de.bcxp.challenge.repository;
+
+/**
+ * Provides access to daily weather data as primitive values, addressed by row index, without materializing DailyWeather objects.
+ * Repositories implementing this interface can be queried with plain loops over the rows.
+ * @author catherine heyart
+ *
+ */
+public interface DailyWeatherTable {
+
+	/**
+	 * @return number of rows
+	 */
+	public int size();
+
+	public int getDayOfTheMonth(int row);
+
+	public int getMinTempInF(int row);
+
+	public int getMaxTempInF(int row);
+
+	public int getTempDiffInF(int row);
+
+}
@@ -0,0 +1,135 @@
+package de.bcxp.challenge.repository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Repository view which maintains the object with the lowest or highest value according to a comparator, so that it can be retrieved in constant time.
+ * Objects with equal values are selected like in {@link de.bcxp.challenge.service.SelectionEngine}: the first one for the lowest value,
+ * the last one for the highest value. The position of the objects in the repository decides, not the order in which the updates arrive,
+ * so the view stays correct if several threads append data at the same time.
+ * @author catherine heyart
+ *
+ * @param <T> object type saved in the repository
+ */
+public final class ExtremumView <T> implements RepositoryView<T>{
+
+	private final Comparator<? super T> comparator;
+
+	private final Predicate<? super T> filter;
+
+	/**
+	 * True if the view maintains the highest value, false if it maintains the lowest value.
+	 */
+	private final boolean highest;
+
+	/**
+	 * Current result. Null as long as no object matching the filter has been appended.
+	 */
+	private final AtomicReference<Candidate<T>> result = new AtomicReference<>();
+
+	private ExtremumView(Comparator<? super T> comparator, Predicate<? super T> filter, boolean highest) {
+		if(comparator == null) {
+			throw new IllegalArgumentException("Comparator cannot be null.");
+		}
+		this.comparator = comparator;
+		this.filter = filter;
+		this.highest = highest;
+	}
+
+	/**
+	 * Creates a view which maintains the object with the lowest value.
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter objects NOT matching the filter are ignored (can be null)
+	 * @return new view
+	 */
+	public static <T> ExtremumView<T> lowest(Comparator<? super T> comparator, Predicate<? super T> filter) {
+		return new ExtremumView<>(comparator, filter, false);
+	}
+
+	/**
+	 * Creates a view which maintains the object with the highest value.
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter objects NOT matching the filter are ignored (can be null)
+	 * @return new view
+	 */
+	public static <T> ExtremumView<T> highest(Comparator<? super T> comparator, Predicate<? super T> filter) {
+		return new ExtremumView<>(comparator, filter, true);
+	}
+
+	@Override
+	public void onAppend(List<? extends T> batch, int firstIndex) {
+		//the best object of the batch is determined first, so the shared result is updated at most once per batch
+		Candidate<T> best = null;
+		int index = firstIndex;
+		for(T object : batch) {
+			if(filter == null || filter.test(object)) {
+				Candidate<T> candidate = new Candidate<>(object, index);
+				if(best == null || isBetter(candidate, best)) {
+					best = candidate;
+				}
+			}
+			index++;
+		}
+		if(best == null) {
+			return;
+		}
+
+		Candidate<T> current;
+		do {
+			current = result.get();
+			if(current != null && !isBetter(best, current)) {
+				return;
+			}
+		} while(!result.compareAndSet(current, best));
+	}
+
+	/**
+	 * @return object with the lowest (or highest) value. Null if no object matching the filter has been appended
+	 */
+	public T get() {
+		Candidate<T> current = result.get();
+		return current == null ? null : current.object;
+	}
+
+	/**
+	 * @return index of the object with the lowest (or highest) value within the repository. -1 if no object matching the filter has been appended
+	 */
+	public int getIndex() {
+		Candidate<T> current = result.get();
+		return current == null ? -1 : current.index;
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which checks if a candidate replaces another candidate.
+	 */
+	private boolean isBetter(Candidate<T> candidate, Candidate<T> other) {
+		int comparison = comparator.compare(candidate.object, other.object);
+		if(highest) {
+			return comparison > 0 || (comparison == 0 && candidate.index > other.index);
+		}
+		return comparison < 0 || (comparison == 0 && candidate.index < other.index);
+	}
+
+
+	/**
+	 * Object together with its index in the repository.
+	 */
+	private static final class Candidate <T>{
+
+		private final T object;
+
+		private final int index;
+
+		private Candidate(T object, int index) {
+			this.object = object;
+			this.index = index;
+		}
+	}
+}
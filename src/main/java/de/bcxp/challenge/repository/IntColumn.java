@@ -0,0 +1,65 @@
+package de.bcxp.challenge.repository;
+
+import java.util.Arrays;
+
+/**
+ * Growable column of primitive int values. The values are stored in fixed-size chunks, so existing values never have to be copied when the column grows.
+ * @author catherine heyart
+ *
+ */
+public final class IntColumn {
+
+	/**
+	 * Each chunk holds 2^CHUNK_SHIFT values.
+	 */
+	private static final int CHUNK_SHIFT = 14;
+
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private int[][] chunks = new int[8][];
+
+	private int size;
+
+	/**
+	 * Appends a value to the column.
+	 * @param value value to be appended
+	 */
+	public void add(int value) {
+		int chunkIndex = size >>> CHUNK_SHIFT;
+		if(chunkIndex == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		if(chunks[chunkIndex] == null) {
+			chunks[chunkIndex] = new int[CHUNK_SIZE];
+		}
+		chunks[chunkIndex][size & CHUNK_MASK] = value;
+		size++;
+	}
+
+	/**
+	 * @param index index of the value (cannot be negative or larger than or equal to the size)
+	 * @return value at the index
+	 */
+	public int get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+		}
+		return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 * @return number of values in the column
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bytes allocated for the values (including the unused part of the last chunk)
+	 */
+	public long allocatedBytes() {
+		return (long) ((size + CHUNK_MASK) >>> CHUNK_SHIFT) * CHUNK_SIZE * Integer.BYTES;
+	}
+}
@@ -0,0 +1,136 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.Country;
+
+/**
+ * Read-only repository for Country data which reads the columns directly from a memory-mapped snapshot file (see {@link RepositorySnapshot#loadCountries}).
+ * Only the pages which are accessed are read from the file, so loading the repository does not depend on the number of rows.
+ * This only holds as long as no view is registered: a view is passed all the rows, which creates an object per row. The services therefore do not 
+ * register their views on a snapshot (see {@link #isReadOnly()}).
+ * The names are decoded from UTF-8 whenever they are accessed.
+ * @author catherine heyart
+ *
+ */
+public class MappedCountryRepository extends Repository<Country> implements CountryTable{
+
+	private final IntBuffer population;
+
+	private final IntBuffer area;
+
+	private final IntBuffer populationDensity;
+
+	/**
+	 * Position of the name of each row within the names.
+	 */
+	private final IntBuffer namePosition;
+
+	/**
+	 * Names of all rows, each prefixed by its length in bytes.
+	 */
+	private final ByteBuffer names;
+
+	/**
+	 * Read-only view of the rows as Country objects.
+	 */
+	private final List<Country> view = new RowView();
+
+	MappedCountryRepository(IntBuffer population, IntBuffer area, IntBuffer populationDensity, IntBuffer namePosition, ByteBuffer names) {
+		this.population = population;
+		this.area = area;
+		this.populationDensity = populationDensity;
+		this.namePosition = namePosition;
+		this.names = names;
+	}
+
+	/**
+	 * @return always true, the data of a snapshot cannot be changed
+	 */
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	/**
+	 * Not supported, the data of a snapshot cannot be changed.
+	 */
+	@Override
+	public void addData(List<Country> newData) {
+		throw new UnsupportedOperationException("Data cannot be added to a snapshot.");
+	}
+
+	/**
+	 * Not supported, the data of a snapshot cannot be changed.
+	 */
+	@Override
+	public void addData(Stream<Country> newData) {
+		throw new UnsupportedOperationException("Data cannot be added to a snapshot.");
+	}
+
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new Country object holding the values of the row.
+	 */
+	@Override
+	public List<Country> getData() {
+		return view;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int size() {
+		return population.limit();
+	}
+
+	@Override
+	public String getName(int row) {
+		int position = namePosition.get(row);
+		byte[] name = new byte[names.getInt(position)];
+		//the buffer is shared by all threads, so it is read through a duplicate with its own position
+		names.duplicate().position(position + Integer.BYTES).get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int getPopulation(int row) {
+		return population.get(row);
+	}
+
+	@Override
+	public int getArea(int row) {
+		return area.get(row);
+	}
+
+	@Override
+	public int getPopulationDensity(int row) {
+		return populationDensity.get(row);
+	}
+
+
+	/**
+	 * List view which creates Country objects from the columns.
+	 */
+	private class RowView extends AbstractList<Country> implements RandomAccess {
+
+		@Override
+		public Country get(int index) {
+			return new Country(getName(index), getPopulation(index), getArea(index));
+		}
+
+		@Override
+		public int size() {
+			return MappedCountryRepository.this.size();
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Read-only repository for DailyWeather data which reads the columns directly from a memory-mapped snapshot file (see {@link RepositorySnapshot#loadWeather}).
+ * Only the pages which are accessed are read from the file, so loading the repository does not depend on the number of rows.
+ * This only holds as long as no view is registered: a view is passed all the rows, which creates an object per row. The services therefore do not 
+ * register their views on a snapshot (see {@link #isReadOnly()}).
+ * @author catherine heyart
+ *
+ */
+public class MappedDailyWeatherRepository extends Repository<DailyWeather> implements DailyWeatherTable{
+
+	private final IntBuffer dayOfTheMonth;
+
+	private final IntBuffer minTempInF;
+
+	private final IntBuffer maxTempInF;
+
+	private final IntBuffer tempDiffInF;
+
+	/**
+	 * Read-only view of the rows as DailyWeather objects.
+	 */
+	private final List<DailyWeather> view = new RowView();
+
+	MappedDailyWeatherRepository(IntBuffer dayOfTheMonth, IntBuffer minTempInF, IntBuffer maxTempInF, IntBuffer tempDiffInF) {
+		this.dayOfTheMonth = dayOfTheMonth;
+		this.minTempInF = minTempInF;
+		this.maxTempInF = maxTempInF;
+		this.tempDiffInF = tempDiffInF;
+	}
+
+	/**
+	 * @return always true, the data of a snapshot cannot be changed
+	 */
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	/**
+	 * Not supported, the data of a snapshot cannot be changed.
+	 */
+	@Override
+	public void addData(List<DailyWeather> newData) {
+		throw new UnsupportedOperationException("Data cannot be added to a snapshot.");
+	}
+
+	/**
+	 * Not supported, the data of a snapshot cannot be changed.
+	 */
+	@Override
+	public void addData(Stream<DailyWeather> newData) {
+		throw new UnsupportedOperationException("Data cannot be added to a snapshot.");
+	}
+
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new DailyWeather object holding the values of the row.
+	 */
+	@Override
+	public List<DailyWeather> getData() {
+		return view;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int size() {
+		return dayOfTheMonth.limit();
+	}
+
+	@Override
+	public int getDayOfTheMonth(int row) {
+		return dayOfTheMonth.get(row);
+	}
+
+	@Override
+	public int getMinTempInF(int row) {
+		return minTempInF.get(row);
+	}
+
+	@Override
+	public int getMaxTempInF(int row) {
+		return maxTempInF.get(row);
+	}
+
+	@Override
+	public int getTempDiffInF(int row) {
+		return tempDiffInF.get(row);
+	}
+
+
+	/**
+	 * List view which creates DailyWeather objects from the columns.
+	 */
+	private class RowView extends AbstractList<DailyWeather> implements RandomAccess {
+
+		@Override
+		public DailyWeather get(int index) {
+			return new DailyWeather(getDayOfTheMonth(index), getMinTempInF(index), getMaxTempInF(index));
+		}
+
+		@Override
+		public int size() {
+			return MappedDailyWeatherRepository.this.size();
+		}
+	}
+
+}
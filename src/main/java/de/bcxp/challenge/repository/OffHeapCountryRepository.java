@@ -0,0 +1,201 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.Country;
+
+/**
+ * Repository for Country data which stores the rows outside of the Java heap, as fixed-size records in direct ByteBuffers (see {@link StructBuffer}).
+ * The names are stored as UTF-8 in separate direct buffers (see {@link StringArena}) and are only decoded when they are accessed.
+ * <p>
+ * The rows can be queried through {@link CountryTable} or through a reusable {@link Record}, without creating Country objects.
+ * Record layout (24 bytes): int population, int area, int population density, int length of the name, long reference to the name.
+ <p>
+ * Registered views live on the heap (e.g. a {@link SortedIntIndex} keeps 8 bytes per row), so the services only register theirs on request.
+ * @author catherine heyart
+ *
+ */
+public class OffHeapCountryRepository extends Repository<Country> implements CountryTable{
+
+	private static final int POPULATION = 0;
+
+	private static final int AREA = 4;
+
+	private static final int POPULATION_DENSITY = 8;
+
+	private static final int NAME_LENGTH = 12;
+
+	private static final int NAME_REFERENCE = 16;
+
+	private static final int RECORD_SIZE = 24;
+
+	private final StructBuffer records = new StructBuffer(RECORD_SIZE);
+
+	private final StringArena names = new StringArena();
+
+	/**
+	 * Read-only view of the rows as Country objects.
+	 */
+	private final List<Country> view = new RowView();
+
+	@Override
+	public void addData(List<Country> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		int firstIndex = size();
+		newData.forEach(this::addRow);
+		notifyViews(newData, firstIndex);
+	}
+
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data is collected into batches of up to {@value Repository#STREAM_BATCH_SIZE} objects,
+	 * and each batch is appended as in {@link #addData(List)}, so the views are notified once per batch.
+	 */
+	@Override
+	public void addData(Stream<Country> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		List<Country> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		newData.forEachOrdered(object -> {
+			batch.add(object);
+			if(batch.size() == STREAM_BATCH_SIZE) {
+				addData(batch);
+				batch.clear();
+			}
+		});
+		addData(batch);
+	}
+
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new Country object holding the values of the row.
+	 */
+	@Override
+	public List<Country> getData() {
+		return view;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int size() {
+		return records.size();
+	}
+
+	@Override
+	public String getName(int row) {
+		return names.get(records.getLong(row, NAME_REFERENCE), records.getInt(row, NAME_LENGTH));
+	}
+
+	@Override
+	public int getPopulation(int row) {
+		return records.getInt(row, POPULATION);
+	}
+
+	@Override
+	public int getArea(int row) {
+		return records.getInt(row, AREA);
+	}
+
+	@Override
+	public int getPopulationDensity(int row) {
+		return records.getInt(row, POPULATION_DENSITY);
+	}
+
+	/**
+	 * Creates a flyweight which can be moved over the rows. The flyweight is not thread-safe, each thread needs its own.
+	 * @return flyweight, not positioned on a row yet
+	 */
+	public Record record() {
+		return new Record();
+	}
+
+	/**
+	 * @return number of bytes allocated outside of the heap
+	 */
+	public long allocatedBytes() {
+		return records.allocatedBytes() + names.allocatedBytes();
+	}
+
+	private void addRow(Country country) {
+		byte[] name = country.getName() == null ? new byte[0] : country.getName().getBytes(StandardCharsets.UTF_8);
+		int row = records.append();
+		records.putInt(row, POPULATION, country.getPopulation());
+		records.putInt(row, AREA, country.getArea());
+		records.putInt(row, POPULATION_DENSITY, country.getPopulationDensity());
+		records.putInt(row, NAME_LENGTH, name.length);
+		records.putLong(row, NAME_REFERENCE, names.add(name));
+	}
+
+
+	/**
+	 * Flyweight which reads the fields of the row it is moved to directly from the buffer. The segment and position of the row are
+	 * resolved once per move, so reading a numeric field is a single buffer access.
+	 */
+	public final class Record {
+
+		private ByteBuffer segment;
+
+		private int offset;
+
+		private Record() {
+		}
+
+		/**
+		 * Moves the flyweight to a row.
+		 * @param row index of the row
+		 * @return this flyweight
+		 */
+		public Record moveTo(int row) {
+			segment = records.segmentOf(row);
+			offset = records.offsetOf(row);
+			return this;
+		}
+
+		/**
+		 * @return name of the country (decoded on every call)
+		 */
+		public String getName() {
+			return names.get(segment.getLong(offset + NAME_REFERENCE), segment.getInt(offset + NAME_LENGTH));
+		}
+
+		public int getPopulation() {
+			return segment.getInt(offset + POPULATION);
+		}
+
+		public int getArea() {
+			return segment.getInt(offset + AREA);
+		}
+
+		public int getPopulationDensity() {
+			return segment.getInt(offset + POPULATION_DENSITY);
+		}
+	}
+
+	/**
+	 * List view which creates Country objects from the records.
+	 */
+	private class RowView extends AbstractList<Country> implements RandomAccess {
+
+		@Override
+		public Country get(int index) {
+			return new Country(getName(index), getPopulation(index), getArea(index));
+		}
+
+		@Override
+		public int size() {
+			return OffHeapCountryRepository.this.size();
+		}
+	}
+
+}
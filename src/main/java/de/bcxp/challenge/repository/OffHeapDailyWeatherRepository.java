@@ -0,0 +1,191 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Repository for DailyWeather data which stores the rows outside of the Java heap, as fixed-size records in direct ByteBuffers (see {@link StructBuffer}).
+ * The heap only holds the references to the buffers, so the garbage collector does not need to trace or copy the rows, no matter how many rows are stored.
+ * <p>
+ * The rows can be queried through {@link DailyWeatherTable} or through a reusable {@link Record}, without creating DailyWeather objects.
+ * Record layout (16 bytes): int day, int minimum temperature, int maximum temperature, int temperature difference.
+ <p>
+ * Registered views live on the heap (e.g. a {@link SortedIntIndex} keeps 8 bytes per row), so the services only register theirs on request.
+ * @author catherine heyart
+ *
+ */
+public class OffHeapDailyWeatherRepository extends Repository<DailyWeather> implements DailyWeatherTable{
+
+	private static final int DAY = 0;
+
+	private static final int MIN_TEMP = 4;
+
+	private static final int MAX_TEMP = 8;
+
+	private static final int TEMP_DIFF = 12;
+
+	private static final int RECORD_SIZE = 16;
+
+	private final StructBuffer records = new StructBuffer(RECORD_SIZE);
+
+	/**
+	 * Read-only view of the rows as DailyWeather objects.
+	 */
+	private final List<DailyWeather> view = new RowView();
+
+	@Override
+	public void addData(List<DailyWeather> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		int firstIndex = size();
+		newData.forEach(this::addRow);
+		notifyViews(newData, firstIndex);
+	}
+
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data is collected into batches of up to {@value Repository#STREAM_BATCH_SIZE} objects,
+	 * and each batch is appended as in {@link #addData(List)}, so the views are notified once per batch.
+	 */
+	@Override
+	public void addData(Stream<DailyWeather> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		List<DailyWeather> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		newData.forEachOrdered(object -> {
+			batch.add(object);
+			if(batch.size() == STREAM_BATCH_SIZE) {
+				addData(batch);
+				batch.clear();
+			}
+		});
+		addData(batch);
+	}
+
+	/**
+	 * Returns a read-only view of the data. Every access to an element creates a new DailyWeather object holding the values of the row.
+	 */
+	@Override
+	public List<DailyWeather> getData() {
+		return view;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int size() {
+		return records.size();
+	}
+
+	@Override
+	public int getDayOfTheMonth(int row) {
+		return records.getInt(row, DAY);
+	}
+
+	@Override
+	public int getMinTempInF(int row) {
+		return records.getInt(row, MIN_TEMP);
+	}
+
+	@Override
+	public int getMaxTempInF(int row) {
+		return records.getInt(row, MAX_TEMP);
+	}
+
+	@Override
+	public int getTempDiffInF(int row) {
+		return records.getInt(row, TEMP_DIFF);
+	}
+
+	/**
+	 * Creates a flyweight which can be moved over the rows. The flyweight is not thread-safe, each thread needs its own.
+	 * @return flyweight, not positioned on a row yet
+	 */
+	public Record record() {
+		return new Record();
+	}
+
+	/**
+	 * @return number of bytes allocated outside of the heap
+	 */
+	public long allocatedBytes() {
+		return records.allocatedBytes();
+	}
+
+	private void addRow(DailyWeather weather) {
+		int row = records.append();
+		records.putInt(row, DAY, weather.getDayOfTheMonth());
+		records.putInt(row, MIN_TEMP, weather.getMinTempInF());
+		records.putInt(row, MAX_TEMP, weather.getMaxTempInF());
+		records.putInt(row, TEMP_DIFF, weather.getTempDiffInF());
+	}
+
+
+	/**
+	 * Flyweight which reads the fields of the row it is moved to directly from the buffer. The segment and position of the row are
+	 * resolved once per move, so reading a field is a single buffer access.
+	 */
+	public final class Record {
+
+		private ByteBuffer segment;
+
+		private int offset;
+
+		private Record() {
+		}
+
+		/**
+		 * Moves the flyweight to a row.
+		 * @param row index of the row
+		 * @return this flyweight
+		 */
+		public Record moveTo(int row) {
+			segment = records.segmentOf(row);
+			offset = records.offsetOf(row);
+			return this;
+		}
+
+		public int getDayOfTheMonth() {
+			return segment.getInt(offset + DAY);
+		}
+
+		public int getMinTempInF() {
+			return segment.getInt(offset + MIN_TEMP);
+		}
+
+		public int getMaxTempInF() {
+			return segment.getInt(offset + MAX_TEMP);
+		}
+
+		public int getTempDiffInF() {
+			return segment.getInt(offset + TEMP_DIFF);
+		}
+	}
+
+	/**
+	 * List view which creates DailyWeather objects from the records.
+	 */
+	private class RowView extends AbstractList<DailyWeather> implements RandomAccess {
+
+		@Override
+		public DailyWeather get(int index) {
+			return new DailyWeather(getDayOfTheMonth(index), getMinTempInF(index), getMaxTempInF(index));
+		}
+
+		@Override
+		public int size() {
+			return OffHeapDailyWeatherRepository.this.size();
+		}
+	}
+
+}
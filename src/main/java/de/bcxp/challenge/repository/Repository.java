@@ -2,6 +2,11 @@ package de.bcxp.challenge.repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.MetricsRegistry;
 
 /**
  * Repository for objects of type T. Contains methods to manage data input and retrieval.
@@ -11,11 +16,31 @@ import java.util.List;
  */
 public class Repository <T>{
 	
+	/**
+	 * Number of objects which have been added to any repository. The objects are counted when they are passed to the views.
+	 */
+	private static final Counter ROWS_ADDED = MetricsRegistry.getDefault().counter("repository.rows.added");
+	
+	/**
+	 * Number of objects which subclasses collect from a stream before they are appended (and passed to the views) as one batch.
+	 */
+	static final int STREAM_BATCH_SIZE = 8192;
+	
 	/**
 	 * List containing all the data of the repository
 	 */
 	private List <T> data;
 	
+	/**
+	 * Views which are updated whenever data is added.
+	 */
+	private final List<RepositoryView<? super T>> views = new ArrayList<>();
+	
+	/**
+	 * Number of appends which have changed the data (see {@link #getVersion()}).
+	 */
+	private final AtomicLong version = new AtomicLong();
+	
 	public Repository() {
 		data = new ArrayList<>();
 	}
@@ -28,13 +53,45 @@ public class Repository <T>{
 		if(newData == null) {
 			throw new IllegalArgumentException("The data can not be null.");
 		}
+		int firstIndex = data.size();
 		data.addAll(newData);
+		notifyViews(newData, firstIndex);
+	}
+	
+	/**
+	 * Adds new data to the repository while the stream is consumed. The data gets appended to the already existing data.
+	 * In contrast to {@link #addData(List)}, the data does not need to be collected into an intermediate list first.
+	 * If the stream fails, the data consumed until then remains in the repository.
+	 * @param newData Data to be added.
+	 */
+	public void addData(Stream<T> newData) {
+		if(newData == null) {
+			throw new IllegalArgumentException("The data can not be null.");
+		}
+		int firstIndex = data.size();
+		try {
+			newData.forEachOrdered(data::add);
+		} finally {
+			//rows consumed before the stream failed stay in the repository, so the views and the version have to include them
+			notifyViews(data.subList(firstIndex, data.size()), firstIndex);
+		}
 	}
 	
 	public List<T> getData() {
 		return data;
 	}
 	
+	/**
+	 * Returns the modification version of the repository. The version starts at 0 and increases whenever data is added, 
+	 * after the added data is visible through {@link #getData()} and the views have been updated. 
+	 * A result computed from the data after reading the version is therefore at least as recent as the version, 
+	 * and results can be cached until the version changes. Changes made directly to the list returned by {@link #getData()} do not change the version.
+	 * @return modification version, which never decreases
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+	
 	/**
 	 * Checks if the repository is empty.
 	 * @return true, if the repository is empty
@@ -42,5 +99,52 @@ public class Repository <T>{
 	public boolean isEmpty() {
 		return data.isEmpty();
 	}
+	
+	/**
+	 * Checks if data can be added to the repository. The data of a read-only repository (e.g. a snapshot, see {@link RepositorySnapshot}) never changes, 
+	 * so registering a view on it only passes all the rows to the view once.
+	 * @return true, if the repository does not support adding data
+	 */
+	public boolean isReadOnly() {
+		return false;
+	}
+	
+	/**
+	 * Registers a view which is updated whenever data is added to the repository. The data which is already present is passed to the view immediately.
+	 * @param view view to be registered
+	 * @return the registered view
+	 */
+	public <V extends RepositoryView<? super T>> V registerView(V view) {
+		if(view == null) {
+			throw new IllegalArgumentException("The view can not be null.");
+		}
+		List<T> existingData = getData();
+		if(!existingData.isEmpty()) {
+			view.onAppend(existingData, 0);
+		}
+		views.add(view);
+		return view;
+	}
+	
+	
+	
+	///////////HELPER METHODS//////////////////////////////////////////////////
+	
+	/**
+	 * Passes appended data to all registered views, counts it in the metrics of the repositories and increases the version of the repository. 
+	 * Needs to be called by subclasses which append data without calling the methods of this class, after the data has become visible.
+	 * @param batch appended objects
+	 * @param firstIndex index of the first appended object
+	 */
+	protected void notifyViews(List<? extends T> batch, int firstIndex) {
+		if(batch.isEmpty()) {
+			return;
+		}
+		ROWS_ADDED.add(batch.size());
+		for(RepositoryView<? super T> view : views) {
+			view.onAppend(batch, firstIndex);
+		}
+		version.incrementAndGet();
+	}
 
 }
@@ -0,0 +1,366 @@
+package de.bcxp.challenge.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Writes the data of a repository into a binary snapshot file and loads it again, so that a warm start does not need to parse the csv file.
+ * A loaded snapshot is memory-mapped: the rows are read directly from the file (see {@link MappedDailyWeatherRepository} and {@link MappedCountryRepository}).
+ * <p>
+ * The snapshot remembers the size and the last modification time of the csv file it was created from. If either of them has changed,
+ * the snapshot is considered stale and is not loaded.
+ * <p>
+ * Format (version {@value #VERSION}, little-endian):
+ * <pre>
+ * header (40 bytes): magic "BCXPSNAP", int version, int kind (1 = DailyWeather, 2 = Country),
+ *                    long size of the csv file, long modification time of the csv file (in ms), int number of rows, int (reserved)
+ * DailyWeather:      int columns day, minimum temperature, maximum temperature, temperature difference
+ * Country:           int columns population, area, population density, position of the name (within the names),
+ *                    followed by the names (int length, UTF-8 bytes)
+ * </pre>
+ * Every column holds one int per row. A column cannot be larger than 2 GB, so a snapshot holds at most {@value #MAX_ROWS} rows.
+ * @author catherine heyart
+ *
+ */
+public final class RepositorySnapshot {
+
+	public static final int VERSION = 1;
+
+	/**
+	 * Maximum number of rows, so that a column fits into a single mapped buffer.
+	 */
+	public static final int MAX_ROWS = Integer.MAX_VALUE / Integer.BYTES;
+
+	private static final byte[] MAGIC = "BCXPSNAP".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int HEADER_SIZE = 40;
+
+	private static final int KIND_DAILY_WEATHER = 1;
+
+	private static final int KIND_COUNTRY = 2;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private RepositorySnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot of weather data. An existing snapshot is replaced only after the new snapshot has been written completely. Missing directories of the snapshot path are created.
+	 * @param repository repository holding the data which was mapped from the csv file
+	 * @param sourcePath path of the csv file the data was mapped from
+	 * @param snapshotPath path of the snapshot file
+	 */
+	public static void writeWeather(Repository<DailyWeather> repository, Path sourcePath, Path snapshotPath) {
+		checkArguments(repository, sourcePath, snapshotPath);
+		DailyWeatherTable table = repository instanceof DailyWeatherTable ? (DailyWeatherTable) repository : null;
+		List<DailyWeather> data = repository.getData();
+		int rows = table != null ? table.size() : data.size();
+
+		write(sourcePath, snapshotPath, KIND_DAILY_WEATHER, rows, writer -> {
+			if(table != null) {
+				writer.putColumn(rows, table::getDayOfTheMonth);
+				writer.putColumn(rows, table::getMinTempInF);
+				writer.putColumn(rows, table::getMaxTempInF);
+				writer.putColumn(rows, table::getTempDiffInF);
+			} else {
+				writer.putColumn(rows, row -> data.get(row).getDayOfTheMonth());
+				writer.putColumn(rows, row -> data.get(row).getMinTempInF());
+				writer.putColumn(rows, row -> data.get(row).getMaxTempInF());
+				writer.putColumn(rows, row -> data.get(row).getTempDiffInF());
+			}
+		});
+	}
+
+	/**
+	 * Writes a snapshot of country data. An existing snapshot is replaced only after the new snapshot has been written completely. Missing directories of the snapshot path are created.
+	 * @param repository repository holding the data which was mapped from the csv file
+	 * @param sourcePath path of the csv file the data was mapped from
+	 * @param snapshotPath path of the snapshot file
+	 */
+	public static void writeCountries(Repository<Country> repository, Path sourcePath, Path snapshotPath) {
+		checkArguments(repository, sourcePath, snapshotPath);
+		CountryTable table = repository instanceof CountryTable ? (CountryTable) repository : null;
+		List<Country> data = repository.getData();
+		int rows = table != null ? table.size() : data.size();
+
+		write(sourcePath, snapshotPath, KIND_COUNTRY, rows, writer -> {
+			byte[][] names = new byte[rows][];
+			for(int row = 0; row < rows; row++) {
+				String name = table != null ? table.getName(row) : data.get(row).getName();
+				names[row] = name.getBytes(StandardCharsets.UTF_8);
+			}
+			if(table != null) {
+				writer.putColumn(rows, table::getPopulation);
+				writer.putColumn(rows, table::getArea);
+				writer.putColumn(rows, table::getPopulationDensity);
+			} else {
+				writer.putColumn(rows, row -> data.get(row).getPopulation());
+				writer.putColumn(rows, row -> data.get(row).getArea());
+				writer.putColumn(rows, row -> data.get(row).getPopulationDensity());
+			}
+			long namePosition = 0;
+			for(byte[] name : names) {
+				if(namePosition > Integer.MAX_VALUE - Integer.BYTES - name.length) {
+					throw new IllegalStateException("The names of the countries are too large for a snapshot.");
+				}
+				writer.putInt((int) namePosition);
+				namePosition += Integer.BYTES + name.length;
+			}
+			for(byte[] name : names) {
+				writer.putInt(name.length);
+				writer.put(name);
+			}
+		});
+	}
+
+	/**
+	 * Loads a snapshot of weather data.
+	 * @param snapshotPath path of the snapshot file
+	 * @param sourcePath path of the csv file the snapshot was created from
+	 * @return read-only repository backed by the snapshot file. Null if the snapshot does not exist, has a different version or is stale
+	 */
+	public static MappedDailyWeatherRepository loadWeather(Path snapshotPath, Path sourcePath) {
+		checkArguments(snapshotPath, sourcePath);
+		try (FileChannel channel = openCurrent(snapshotPath, sourcePath, KIND_DAILY_WEATHER)) {
+			if(channel == null) {
+				return null;
+			}
+			int rows = readHeader(channel).getInt(32);
+			long columnSize = (long) rows * Integer.BYTES;
+			return new MappedDailyWeatherRepository(
+					mapColumn(channel, HEADER_SIZE, columnSize),
+					mapColumn(channel, HEADER_SIZE + columnSize, columnSize),
+					mapColumn(channel, HEADER_SIZE + 2 * columnSize, columnSize),
+					mapColumn(channel, HEADER_SIZE + 3 * columnSize, columnSize));
+		} catch (IOException e) {
+			throw new UncheckedIOException("The snapshot could not be loaded: " + snapshotPath.toString(), e);
+		}
+	}
+
+	/**
+	 * Loads a snapshot of country data.
+	 * @param snapshotPath path of the snapshot file
+	 * @param sourcePath path of the csv file the snapshot was created from
+	 * @return read-only repository backed by the snapshot file. Null if the snapshot does not exist, has a different version or is stale
+	 */
+	public static MappedCountryRepository loadCountries(Path snapshotPath, Path sourcePath) {
+		checkArguments(snapshotPath, sourcePath);
+		try (FileChannel channel = openCurrent(snapshotPath, sourcePath, KIND_COUNTRY)) {
+			if(channel == null) {
+				return null;
+			}
+			int rows = readHeader(channel).getInt(32);
+			long columnSize = (long) rows * Integer.BYTES;
+			long namesStart = HEADER_SIZE + 4 * columnSize;
+			return new MappedCountryRepository(
+					mapColumn(channel, HEADER_SIZE, columnSize),
+					mapColumn(channel, HEADER_SIZE + columnSize, columnSize),
+					mapColumn(channel, HEADER_SIZE + 2 * columnSize, columnSize),
+					mapColumn(channel, HEADER_SIZE + 3 * columnSize, columnSize),
+					map(channel, namesStart, channel.size() - namesStart));
+		} catch (IOException e) {
+			throw new UncheckedIOException("The snapshot could not be loaded: " + snapshotPath.toString(), e);
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private static void checkArguments(Object... arguments) {
+		for(Object argument : arguments) {
+			if(argument == null) {
+				throw new IllegalArgumentException("The repository and the paths cannot be null.");
+			}
+		}
+	}
+
+	/**
+	 * Helper method which writes the header and the columns into a temporary file and moves it to the snapshot path afterwards.
+	 */
+	private static void write(Path sourcePath, Path snapshotPath, int kind, int rows, ColumnWriter columns) {
+		if(rows > MAX_ROWS) {
+			throw new IllegalStateException("A snapshot cannot hold more than " + MAX_ROWS + " rows.");
+		}
+		Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+		try {
+			BasicFileAttributes source = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+			Path directory = snapshotPath.toAbsolutePath().getParent();
+			if(directory != null) {
+				Files.createDirectories(directory);
+			}
+			try (SnapshotWriter writer = new SnapshotWriter(FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+				writer.put(MAGIC);
+				writer.putInt(VERSION);
+				writer.putInt(kind);
+				writer.putLong(source.size());
+				writer.putLong(source.lastModifiedTime().toMillis());
+				writer.putInt(rows);
+				writer.putInt(0);
+				columns.write(writer);
+			}
+			Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw new UncheckedIOException("The snapshot could not be written: " + snapshotPath.toString(), e);
+		}
+	}
+
+	/**
+	 * Helper method which opens a snapshot if it exists, has the current version and the expected kind and matches the csv file.
+	 * @return channel of the snapshot. Null if the snapshot cannot be used
+	 */
+	private static FileChannel openCurrent(Path snapshotPath, Path sourcePath, int kind) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(snapshotPath, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		try {
+			if(channel.size() < HEADER_SIZE) {
+				channel.close();
+				return null;
+			}
+			ByteBuffer header = readHeader(channel);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			BasicFileAttributes source;
+			try {
+				source = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				source = null;
+			}
+			int rows = header.getInt(32);
+			boolean current = Arrays.equals(magic, MAGIC)
+					&& header.getInt(8) == VERSION
+					&& header.getInt(12) == kind
+					&& source != null
+					&& header.getLong(16) == source.size()
+					&& header.getLong(24) == source.lastModifiedTime().toMillis()
+					&& rows >= 0 && rows <= MAX_ROWS
+					&& channel.size() >= HEADER_SIZE + 4L * rows * Integer.BYTES;
+			if(!current) {
+				channel.close();
+				return null;
+			}
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while(header.hasRemaining() && channel.read(header, header.position()) != -1) {
+			//read until the header is complete
+		}
+		return header.flip();
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		//the mapping stays valid after the channel has been closed
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static IntBuffer mapColumn(FileChannel channel, long position, long size) throws IOException {
+		return map(channel, position, size).asIntBuffer();
+	}
+
+
+	/**
+	 * Writes the columns of a snapshot.
+	 */
+	@FunctionalInterface
+	private interface ColumnWriter {
+		void write(SnapshotWriter writer) throws IOException;
+	}
+
+	/**
+	 * Buffered writer for the little-endian values of a snapshot.
+	 */
+	private static final class SnapshotWriter implements AutoCloseable {
+
+		private final FileChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		private SnapshotWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		private void putInt(int value) throws IOException {
+			ensureSpace(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		/**
+		 * Writes the values of a column for all rows.
+		 */
+		private void putColumn(int rows, IntUnaryOperator column) throws IOException {
+			for(int row = 0; row < rows; row++) {
+				putInt(column.applyAsInt(row));
+			}
+		}
+
+		private void putLong(long value) throws IOException {
+			ensureSpace(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		private void put(byte[] bytes) throws IOException {
+			int written = 0;
+			while(written < bytes.length) {
+				ensureSpace(1);
+				int length = Math.min(buffer.remaining(), bytes.length - written);
+				buffer.put(bytes, written, length);
+				written += length;
+			}
+		}
+
+		private void ensureSpace(int bytes) throws IOException {
+			if(buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package de.bcxp.challenge.repository;
+
+import java.util.List;
+
+/**
+ * View on the data of a repository which is updated whenever data is added to the repository (see {@link Repository#registerView(RepositoryView)}).
+ * A view can for example maintain an aggregate of the data, so that the aggregate does not have to be computed by a scan over all the data.
+ * @author catherine heyart
+ *
+ * @param <T> object type saved in the repository
+ */
+public interface RepositoryView <T>{
+
+	/**
+	 * Is called after objects have been appended to the repository.
+	 * @param batch appended objects, in the order they were appended
+	 * @param firstIndex index of the first object of the batch within the data of the repository
+	 */
+	public void onAppend(List<? extends T> batch, int firstIndex);
+
+}
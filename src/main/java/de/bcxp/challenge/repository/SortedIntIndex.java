@@ -0,0 +1,291 @@
+package de.bcxp.challenge.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Secondary index of a repository which keeps the rows sorted by an int key derived from the objects (for example the temperature spread).
+ * The index answers range, rank and k-nearest queries in O(log n + k) and is kept up to date as a view of the repository (see {@link Repository#registerView(RepositoryView)}).
+ * <p>
+ * Every entry is stored as a single long which holds the key in the upper and the row index in the lower 32 bits, so sorting the entries
+ * orders them by key and rows with equal keys by their position in the repository. Appended entries are collected in a pending buffer and
+ * merged into the sorted entries before the next query (or when the buffer gets as large as the sorted entries), so appending stays cheap
+ * and a query only pays for the merge if data has been added since the last query.
+ * @author catherine heyart
+ *
+ * @param <T> object type saved in the repository
+ */
+public final class SortedIntIndex <T> implements RepositoryView<T>{
+
+	/**
+	 * Minimum number of pending entries which triggers a merge while appending.
+	 */
+	private static final int MIN_MERGE_SIZE = 1024;
+
+	private static final long ROW_MASK = 0xFFFFFFFFL;
+
+	private final ToIntFunction<? super T> key;
+
+	private final Predicate<? super T> filter;
+
+	/**
+	 * Sorted entries. The array is replaced (never modified) when pending entries are merged, so queries can read it without locking.
+	 */
+	private volatile long[] sorted = new long[0];
+
+	/**
+	 * Entries appended since the last merge (guarded by this index).
+	 */
+	private long[] pending = new long[16];
+
+	private volatile int pendingCount;
+
+	/**
+	 * Creates an index.
+	 * @param key derives the key of an object (cannot be null)
+	 * @param filter objects NOT matching the filter are not indexed, e.g. objects holding default values (can be null)
+	 */
+	public SortedIntIndex(ToIntFunction<? super T> key, Predicate<? super T> filter) {
+		if(key == null) {
+			throw new IllegalArgumentException("The key function cannot be null.");
+		}
+		this.key = key;
+		this.filter = filter;
+	}
+
+	@Override
+	public synchronized void onAppend(List<? extends T> batch, int firstIndex) {
+		int count = pendingCount;
+		int row = firstIndex;
+		for(T object : batch) {
+			if(filter == null || filter.test(object)) {
+				if(count == pending.length) {
+					pending = Arrays.copyOf(pending, count * 2);
+				}
+				pending[count++] = entry(key.applyAsInt(object), row);
+			}
+			row++;
+		}
+		pendingCount = count;
+		if(count >= Math.max(MIN_MERGE_SIZE, sorted.length)) {
+			merge();
+		}
+	}
+
+	/**
+	 * @return number of indexed rows
+	 */
+	public int size() {
+		return entries().length;
+	}
+
+	/**
+	 * Returns the rows whose keys lie within a range.
+	 * @param fromKey lowest key (inclusive)
+	 * @param toKey highest key (inclusive)
+	 * @return indexes of the rows, ordered by key. Rows with equal keys are ordered by their index
+	 */
+	public int[] range(int fromKey, int toKey) {
+		long[] entries = entries();
+		if(fromKey > toKey) {
+			return new int[0];
+		}
+		return rows(entries, lowerBound(entries, fromKey), upperBound(entries, toKey));
+	}
+
+	/**
+	 * Returns the rows whose keys are larger than or equal to a threshold.
+	 * @param fromKey lowest key (inclusive)
+	 * @return indexes of the rows, ordered by key. Rows with equal keys are ordered by their index
+	 */
+	public int[] atLeast(int fromKey) {
+		return range(fromKey, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the rows whose keys are smaller than or equal to a threshold.
+	 * @param toKey highest key (inclusive)
+	 * @return indexes of the rows, ordered by key. Rows with equal keys are ordered by their index
+	 */
+	public int[] atMost(int toKey) {
+		return range(Integer.MIN_VALUE, toKey);
+	}
+
+	/**
+	 * Returns the rank of a key, i.e. the number of indexed rows whose keys are smaller than the key.
+	 * @param key key whose rank is determined (does not need to be present in the index)
+	 * @return number of rows with a smaller key
+	 */
+	public int rank(int key) {
+		return lowerBound(entries(), key);
+	}
+
+	/**
+	 * Returns the index of the row at a rank.
+	 * @param rank position of the row in the order of the keys (0 for the row with the smallest key)
+	 * @return index of the row within the repository
+	 */
+	public int rowAt(int rank) {
+		long[] entries = entries();
+		checkRank(entries, rank);
+		return rowOf(entries[rank]);
+	}
+
+	/**
+	 * Returns the key of the row at a rank.
+	 * @param rank position of the row in the order of the keys (0 for the row with the smallest key)
+	 * @return key of the row
+	 */
+	public int keyAt(int rank) {
+		long[] entries = entries();
+		checkRank(entries, rank);
+		return keyOf(entries[rank]);
+	}
+
+	/**
+	 * Returns the k rows whose keys are closest to a key. If two rows have the same distance, the row with the smaller key
+	 * (or with the smaller index, if the keys are equal) is selected first.
+	 * @param key key to which the distance is measured
+	 * @param k maximum number of rows (cannot be negative)
+	 * @return indexes of the rows, ordered by their distance to the key. Contains less than k rows if the index contains less rows
+	 */
+	public int[] kNearest(int key, int k) {
+		if(k < 0) {
+			throw new IllegalArgumentException("k cannot be negative.");
+		}
+		long[] entries = entries();
+		int[] result = new int[Math.min(k, entries.length)];
+
+		//the rows above the key are taken from the position of the key upwards. The rows below the key are taken from the position
+		//before the key downwards, one run of equal keys at a time, so rows with equal keys are taken in the order of their index
+		int above = lowerBound(entries, key);
+		int below = above - 1;
+		int runNext = 0;
+		int runEnd = -1;
+		for(int i = 0; i < result.length; i++) {
+			if(runNext > runEnd && below >= 0) {
+				runNext = lowerBound(entries, keyOf(entries[below]));
+				runEnd = below;
+				below = runNext - 1;
+			}
+			boolean takeBelow;
+			if(runNext > runEnd) {
+				takeBelow = false;
+			} else if(above >= entries.length) {
+				takeBelow = true;
+			} else {
+				long distanceBelow = (long) key - keyOf(entries[runNext]);
+				long distanceAbove = (long) keyOf(entries[above]) - key;
+				takeBelow = distanceBelow <= distanceAbove;
+			}
+			result[i] = takeBelow ? rowOf(entries[runNext++]) : rowOf(entries[above++]);
+		}
+		return result;
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which returns the sorted entries after merging the pending entries.
+	 */
+	private long[] entries() {
+		if(pendingCount > 0) {
+			synchronized(this) {
+				if(pendingCount > 0) {
+					merge();
+				}
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * Helper method which sorts the pending entries and merges them with the sorted entries. Must be called while holding the lock of this index.
+	 */
+	private void merge() {
+		long[] delta = Arrays.copyOf(pending, pendingCount);
+		Arrays.sort(delta);
+		long[] current = sorted;
+		long[] merged = new long[current.length + delta.length];
+		int i = 0;
+		int j = 0;
+		int m = 0;
+		while(i < current.length && j < delta.length) {
+			merged[m++] = current[i] <= delta[j] ? current[i++] : delta[j++];
+		}
+		System.arraycopy(current, i, merged, m, current.length - i);
+		System.arraycopy(delta, j, merged, m + current.length - i, delta.length - j);
+
+		sorted = merged;
+		pendingCount = 0;
+		if(pending.length > MIN_MERGE_SIZE) {
+			pending = new long[16];
+		}
+	}
+
+	private static long entry(int key, int row) {
+		return ((long) key << 32) | (row & ROW_MASK);
+	}
+
+	private static int keyOf(long entry) {
+		return (int) (entry >> 32);
+	}
+
+	private static int rowOf(long entry) {
+		return (int) (entry & ROW_MASK);
+	}
+
+	/**
+	 * Helper method which finds the position of the first entry with a key larger than or equal to a key.
+	 */
+	private static int lowerBound(long[] entries, int key) {
+		long target = entry(key, 0);
+		int low = 0;
+		int high = entries.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(entries[middle] < target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Helper method which finds the position of the first entry with a key larger than a key.
+	 */
+	private static int upperBound(long[] entries, int key) {
+		long target = ((long) key << 32) | ROW_MASK;
+		int low = 0;
+		int high = entries.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(entries[middle] <= target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static int[] rows(long[] entries, int from, int to) {
+		int[] rows = new int[Math.max(0, to - from)];
+		for(int i = 0; i < rows.length; i++) {
+			rows[i] = rowOf(entries[from + i]);
+		}
+		return rows;
+	}
+
+	private static void checkRank(long[] entries, int rank) {
+		if(rank < 0 || rank >= entries.length) {
+			throw new IndexOutOfBoundsException("Rank " + rank + " is out of bounds for size " + entries.length);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only storage for Strings outside of the Java heap. The Strings are encoded as UTF-8 and stored in direct ByteBuffers.
+ * A String is addressed by a reference to its first byte and by its length in bytes.
+ * @author catherine heyart
+ *
+ */
+final class StringArena {
+
+	private static final int SEGMENT_SIZE = 1 << 20;
+
+	private final List<ByteBuffer> segments = new ArrayList<>();
+
+	private ByteBuffer current;
+
+	private long allocatedBytes;
+
+	/**
+	 * Adds a String. A String is never split between two segments, so a String which does not fit into the rest of the current segment starts a new one.
+	 * @param bytes UTF-8 bytes of the String
+	 * @return reference to the String, holding the segment in the upper and the position within the segment in the lower 32 bits
+	 */
+	long add(byte[] bytes) {
+		if(current == null || current.remaining() < bytes.length) {
+			current = ByteBuffer.allocateDirect(Math.max(SEGMENT_SIZE, bytes.length));
+			segments.add(current);
+			allocatedBytes += current.capacity();
+		}
+		long reference = ((long) (segments.size() - 1) << 32) | current.position();
+		current.put(bytes);
+		return reference;
+	}
+
+	/**
+	 * Returns a String.
+	 * @param reference reference returned when the String was added
+	 * @param length length of the String in bytes
+	 * @return decoded String
+	 */
+	String get(long reference, int length) {
+		byte[] bytes = new byte[length];
+		//the segment is shared, so it is read through a duplicate with its own position
+		segments.get((int) (reference >>> 32)).duplicate().position((int) reference).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return number of bytes allocated outside of the heap
+	 */
+	long allocatedBytes() {
+		return allocatedBytes;
+	}
+}
@@ -0,0 +1,101 @@
+package de.bcxp.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Growable sequence of fixed-size records which are stored outside of the Java heap, in direct ByteBuffers.
+ * The records are stored in segments of 2^SEGMENT_SHIFT records, so existing records never have to be copied when the buffer grows.
+ * A record consists of int and long fields, addressed by their byte offset within the record.
+ * @author catherine heyart
+ *
+ */
+final class StructBuffer {
+
+	/**
+	 * Each segment holds 2^SEGMENT_SHIFT records.
+	 */
+	private static final int SEGMENT_SHIFT = 16;
+
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private final int recordSize;
+
+	private ByteBuffer[] segments = new ByteBuffer[8];
+
+	private int size;
+
+	/**
+	 * @param recordSize size of a record in bytes
+	 */
+	StructBuffer(int recordSize) {
+		this.recordSize = recordSize;
+	}
+
+	/**
+	 * Appends a record whose fields are all 0.
+	 * @return index of the appended record
+	 */
+	int append() {
+		if(size == Integer.MAX_VALUE) {
+			throw new IllegalStateException("The buffer cannot hold more than " + Integer.MAX_VALUE + " records.");
+		}
+		int segmentIndex = size >>> SEGMENT_SHIFT;
+		if(segmentIndex == segments.length) {
+			segments = Arrays.copyOf(segments, segments.length * 2);
+		}
+		if(segments[segmentIndex] == null) {
+			segments[segmentIndex] = ByteBuffer.allocateDirect(SEGMENT_SIZE * recordSize).order(ByteOrder.nativeOrder());
+		}
+		return size++;
+	}
+
+	/**
+	 * @param row index of the record (cannot be negative or larger than or equal to the size)
+	 * @return segment holding the record
+	 */
+	ByteBuffer segmentOf(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Index " + row + " is out of bounds for size " + size);
+		}
+		return segments[row >>> SEGMENT_SHIFT];
+	}
+
+	/**
+	 * @param row index of the record
+	 * @return position of the record within its segment
+	 */
+	int offsetOf(int row) {
+		return (row & SEGMENT_MASK) * recordSize;
+	}
+
+	int getInt(int row, int field) {
+		return segmentOf(row).getInt(offsetOf(row) + field);
+	}
+
+	void putInt(int row, int field, int value) {
+		segmentOf(row).putInt(offsetOf(row) + field, value);
+	}
+
+	long getLong(int row, int field) {
+		return segmentOf(row).getLong(offsetOf(row) + field);
+	}
+
+	void putLong(int row, int field, long value) {
+		segmentOf(row).putLong(offsetOf(row) + field, value);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bytes allocated outside of the heap (including the unused part of the last segment)
+	 */
+	long allocatedBytes() {
+		return (long) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT) * SEGMENT_SIZE * recordSize;
+	}
+}
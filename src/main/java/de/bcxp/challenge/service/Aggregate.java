@@ -0,0 +1,173 @@
+package de.bcxp.challenge.service;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Base class of the results of the aggregations of {@link DataHandlerService} (see {@link IntAggregate}, {@link LongAggregate} and {@link DoubleAggregate}).
+ * Holds the statistics which do not depend on the type of the values. Mean and variance are computed with Welford's online algorithm,
+ * and the partial results of two ranges are merged with the formula of Chan et al., so they stay accurate for large numbers of values.
+ * <p>
+ * The values themselves are only kept if percentiles are requested when aggregating (e.g. {@link DataHandlerService#aggregateInt(java.util.function.ToIntFunction, java.util.function.Predicate, boolean)}),
+ * since they need memory proportional to the number of values, while all other statistics need constant memory.
+ * <p>
+ * The tie-breaking corresponds to {@link SelectionEngine}: the argmin is the first and the argmax is the last row with the lowest or highest value.
+ * @author catherine heyart
+ *
+ */
+public abstract class Aggregate {
+
+	protected long count;
+
+	private double mean;
+
+	/**
+	 * Sum of the squared differences from the mean.
+	 */
+	private double squaredDifferences;
+
+	protected int argMin = -1;
+
+	protected int argMax = -1;
+
+	/**
+	 * True if the values are kept, so percentiles can be computed.
+	 */
+	private final boolean percentiles;
+
+	Aggregate(boolean percentiles) {
+		this.percentiles = percentiles;
+	}
+
+	/**
+	 * @return number of aggregated values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * @return index of the first row with the lowest value. -1 if no value has been aggregated
+	 */
+	public int getArgMin() {
+		return argMin;
+	}
+
+	/**
+	 * @return index of the last row with the highest value. -1 if no value has been aggregated
+	 */
+	public int getArgMax() {
+		return argMax;
+	}
+
+	/**
+	 * @return true, if the values have been kept when aggregating, so percentiles (including the median) can be computed
+	 */
+	public boolean hasPercentiles() {
+		return percentiles;
+	}
+
+	/**
+	 * @return arithmetic mean of the values. NaN if no value has been aggregated
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return population variance of the values. NaN if no value has been aggregated
+	 */
+	public double getVariance() {
+		return count == 0 ? Double.NaN : squaredDifferences / count;
+	}
+
+	/**
+	 * @return sample variance of the values. NaN if less than two values have been aggregated
+	 */
+	public double getSampleVariance() {
+		return count < 2 ? Double.NaN : squaredDifferences / (count - 1);
+	}
+
+	/**
+	 * @return population standard deviation of the values. NaN if no value has been aggregated
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns the median of the values (see {@link #getPercentile(double)}).
+	 * @return median
+	 * @throws NoSuchElementException if no value has been aggregated
+	 * @throws IllegalStateException if percentiles were not requested when aggregating
+	 */
+	public double getMedian() {
+		return getPercentile(50);
+	}
+
+	/**
+	 * Returns an exact percentile of the values. If the percentile lies between two values, it is interpolated linearly between them.
+	 * The values are sorted on the first call.
+	 * @param percentile percentile between 0 (lowest value) and 100 (highest value)
+	 * @return value of the percentile
+	 * @throws NoSuchElementException if no value has been aggregated
+	 * @throws IllegalStateException if percentiles were not requested when aggregating
+	 */
+	public double getPercentile(double percentile) {
+		if(!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+		}
+		if(!percentiles) {
+			throw new IllegalStateException("The values have not been kept, percentiles need to be requested when aggregating.");
+		}
+		checkNotEmpty();
+		double rank = percentile / 100 * (count - 1);
+		int lower = (int) Math.floor(rank);
+		int upper = (int) Math.ceil(rank);
+		double lowerValue = sortedValue(lower);
+		return lower == upper ? lowerValue : lowerValue + (sortedValue(upper) - lowerValue) * (rank - lower);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Adds a value to the mean and the variance.
+	 */
+	protected void addMoments(double value) {
+		count++;
+		double difference = value - mean;
+		mean += difference / count;
+		squaredDifferences += difference * (value - mean);
+	}
+
+	/**
+	 * Merges the mean and the variance of the values of a later range.
+	 */
+	protected void mergeMoments(Aggregate later) {
+		if(later.count == 0) {
+			return;
+		}
+		long total = count + later.count;
+		double difference = later.mean - mean;
+		mean += difference * later.count / total;
+		squaredDifferences += later.squaredDifferences + difference * difference * ((double) count * later.count / total);
+		count = total;
+	}
+
+	protected void checkNotEmpty() {
+		if(count == 0) {
+			throw new NoSuchElementException("No value has been aggregated.");
+		}
+	}
+
+	/**
+	 * @param index position within the sorted values
+	 * @return value at the position
+	 */
+	protected abstract double sortedValue(int index);
+}
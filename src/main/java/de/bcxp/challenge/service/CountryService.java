@@ -1,11 +1,22 @@
 package de.bcxp.challenge.service;
 
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.JsonToObjectMapper;
+import de.bcxp.challenge.metrics.LatencyHistogram;
 import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.repository.CountryTable;
+import de.bcxp.challenge.repository.ExtremumView;
 import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.repository.SortedIntIndex;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
 /**
  * This service class provides methods to retrieve Country data.
@@ -14,30 +25,215 @@ import de.bcxp.challenge.repository.Repository;
  */
 public class CountryService extends DataHandlerService<Country>{
 	
+	private static final String HIGHEST_DENSITY_QUERY = "countryWithHighestPopulationDensity";
+	
+	private static final String MEDIAN_DENSITY_QUERY = "medianPopulationDensity";
+	
+	private static final String DENSITY_ABOVE_QUERY = "countriesWithPopulationDensityAbove";
+	
+	private static final LatencyHistogram HIGHEST_DENSITY_LATENCY = queryLatency(HIGHEST_DENSITY_QUERY);
+	
+	private static final LatencyHistogram MEDIAN_DENSITY_LATENCY = queryLatency(MEDIAN_DENSITY_QUERY);
+	
+	private static final LatencyHistogram DENSITY_ABOVE_LATENCY = queryLatency(DENSITY_ABOVE_QUERY);
+	
 	/**
 	 * Country object which holds default values.
 	 */
 	private Country defaultObject;
 	
+	/**
+	 * Compares the population density of two objects
+	 */
+	private Comparator<Country> populationDensityComparator = Comparator.comparingInt(Country::getPopulationDensity);
+	
+	/**
+	 * Filters out all instances where the population density is the default value
+	 */
+	private Predicate<Country> validPopulationDensityFilter = c -> (c.getPopulationDensity() != defaultObject.getPopulationDensity());
+	
+	/**
+	 * View of the repository which maintains the country with the highest population density while data is added. 
+	 * Null until the views are enabled (see {@link #enableViews()}).
+	 */
+	private volatile ExtremumView<Country> highestPopulationDensityView;
+	
+	/**
+	 * Index of the repository which keeps the countries sorted by their population density. 
+	 * Null until the views are enabled (see {@link #enableViews()}).
+	 */
+	private volatile SortedIntIndex<Country> populationDensityIndex;
+	
+	/**
+	 * Creates the service with a json mapper for Country.
+	 */
 	public CountryService(Repository<Country> repository, CsvToObjectMapper<Country> csvMapper) {
-		super(repository, csvMapper);
+		this(repository, csvMapper, new JsonToObjectMapper<>(Country.class));
+	}
+	
+	public CountryService(Repository<Country> repository, CsvToObjectMapper<Country> csvMapper, JsonToObjectMapper<Country> jsonMapper) {
+		super(repository, csvMapper, jsonMapper);
 		defaultObject = new Country();
 	}
 	
+	/**
+	 * Registers views on the repository which maintain the country with the highest population density and an index of the countries by their population density
+	 * while data is added. Afterwards, {@link #getCountryNameWithHighestPopulationDensity()} is a constant-time read and {@link #getCountryNamesWithPopulationDensityAbove(int)} 
+	 * a lookup in the index, instead of scans over all the data. The data which is already present is passed to the views immediately, 
+	 * and every append has to update them, so the views only pay off for repositories which are queried repeatedly. Calling the method again has no effect.
+	 * <p>
+	 * Views are not registered on a read-only repository (e.g. a snapshot, see {@link Repository#isReadOnly()}): its data never changes, 
+	 * so registering them would only pass all the rows through the views on every start, while the results of the scans stay cached.
+	 */
+	public synchronized void enableViews() {
+		if(repo.isReadOnly() || highestPopulationDensityView != null) {
+			return;
+		}
+		populationDensityIndex = repo.registerView(new SortedIntIndex<>(Country::getPopulationDensity, validPopulationDensityFilter));
+		highestPopulationDensityView = repo.registerView(ExtremumView.highest(populationDensityComparator, validPopulationDensityFilter));
+	}
+	
+	/**
+	 * @return true, if the views have been registered (see {@link #enableViews()})
+	 */
+	public boolean isViewsEnabled() {
+		return highestPopulationDensityView != null;
+	}
+	
 	
 	/**
 	 * Returns the name of the country with the highest population density (among all the Country instances currently saved in the repository).
+	 * If the views are enabled (see {@link #enableViews()}), the result is maintained by a view of the repository while data is added, and read from it without caching.
+	 * Otherwise, it is computed by a scan and cached until data is added (see {@link #cachedQuery(Object, java.util.function.Supplier)}).
 	 * @return name of the country with the highest population density. Returns empty string if no such country exists (because repository is empty or because no valid population density data is present).
 	 */
 	public String getCountryNameWithHighestPopulationDensity() {
-		//Compares the population density of two objects
-		Comparator<Country> comparator = (c1, c2) -> c1.getPopulationDensity() - c2.getPopulationDensity();
-		//Filters out all instances where the population density is the default value
-		Predicate<Country> filter = c -> (c.getPopulationDensity() != defaultObject.getPopulationDensity());
+		long start = HIGHEST_DENSITY_LATENCY.start();
+		try {
+			ExtremumView<Country> view = highestPopulationDensityView;
+			if(view != null) {
+				Country result = view.get();
+				return result == null ? "" : result.getName();
+			}
+			return cachedQuery(HIGHEST_DENSITY_QUERY, () -> {
+				if(repo instanceof CountryTable) {
+					return getCountryNameWithHighestPopulationDensity((CountryTable) repo);
+				}
+			
+				Country result = getObjectByHighestValue(populationDensityComparator, validPopulationDensityFilter); 
+		
+				return result == null ? "" : result.getName();
+			});
+		} finally {
+			HIGHEST_DENSITY_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Helper method which determines the country with the highest population density with a loop over the primitive values of a table.
+	 * Like {@link #getObjectByHighestValue(Comparator, Predicate)}, the last of several countries with the highest density is selected.
+	 * Large tables are searched in parallel ranges (see {@link #reduceRanges(int, RangeReducer, java.util.function.BinaryOperator)}).
+	 * @param table table containing the country data
+	 * @return name of the country with the highest population density. Empty string if no such country exists
+	 */
+	private String getCountryNameWithHighestPopulationDensity(CountryTable table) {
+		int resultRow = reduceRanges(table.size(), 
+				(from, to) -> rowWithHighestPopulationDensity(table, from, to), 
+				(earlier, later) -> earlier == -1 || (later != -1 && table.getPopulationDensity(later) >= table.getPopulationDensity(earlier)) ? later : earlier);
+		return resultRow == -1 ? "" : table.getName(resultRow);
+	}
+	
+	/**
+	 * Helper method which searches the last row with the highest population density within a range of a table.
+	 * @return index of the row. -1 if no row of the range has a valid population density
+	 */
+	private int rowWithHighestPopulationDensity(CountryTable table, int from, int to) {
+		int defaultDensity = defaultObject.getPopulationDensity();
+		int resultRow = -1;
+		int highestDensity = Integer.MIN_VALUE;
 		
-		Country result = getObjectByHighestValue(comparator, filter); 
+		for(int row = from; row < to; row++) {
+			int density = table.getPopulationDensity(row);
+			if(density != defaultDensity && density >= highestDensity) {
+				highestDensity = density;
+				resultRow = row;
+			}
+		}
+		return resultRow;
+	}
 	
+	/**
+	 * Returns the median population density of all countries (among all the Country instances currently saved in the repository). 
+	 * Countries without valid population density data are not included. For an even number of countries, the mean of the two middle densities is returned.
+	 * The result is cached until data is added.
+	 * @return median population density. -1 if no such country exists (because repository is empty or because no valid population density data is present)
+	 */
+	public double getMedianPopulationDensity() {
+		long start = MEDIAN_DENSITY_LATENCY.start();
+		try {
+			return cachedQuery(MEDIAN_DENSITY_QUERY, () -> {
+				IntAggregate densities;
+				if(repo instanceof CountryTable) {
+					CountryTable table = (CountryTable) repo;
+					int defaultDensity = defaultObject.getPopulationDensity();
+					densities = aggregateRows(table.size(), table::getPopulationDensity, row -> table.getPopulationDensity(row) != defaultDensity, true);
+				} else {
+					densities = aggregateInt(Country::getPopulationDensity, validPopulationDensityFilter, true);
+				}
+				return densities.isEmpty() ? -1 : densities.getMedian();
+			});
+		} finally {
+			MEDIAN_DENSITY_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns the name of the country with the highest population density in a Csv file. The file is streamed and its data is NOT added to the repository.
+	 * @param filePath path of .csv file which contains the data
+	 * @param separator Separator used in the csv file
+	 * @return name of the country with the highest population density. Returns empty string if no such country exists (because the file contains no valid population density data).
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid. 
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public String getCountryNameWithHighestPopulationDensity(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		Country result = getObjectByHighestValueFromCsvFile(filePath, separator, populationDensityComparator, validPopulationDensityFilter); 
+		
 		return result == null ? "" : result.getName();
 	}
+	
+	/**
+	 * Returns the names of all countries whose population density is higher than a threshold (among all the Country instances currently saved in the repository).
+	 * Countries without valid population density data are not included. If the views are enabled (see {@link #enableViews()}), the countries are looked up in an index without caching.
+	 * Otherwise, the result of the scan is cached per threshold until data is added.
+	 * @param threshold population density which needs to be exceeded
+	 * @return names of the countries, ordered by population density. Empty list if no such country exists
+	 */
+	public List<String> getCountryNamesWithPopulationDensityAbove(int threshold) {
+		long start = DENSITY_ABOVE_LATENCY.start();
+		try {
+			if(threshold == Integer.MAX_VALUE) {
+				return new ArrayList<>();
+			}
+			SortedIntIndex<Country> index = populationDensityIndex;
+			if(index != null) {
+				//the lookup costs about as much as copying a cached result
+				return toNames(getObjectsInRange(index, threshold + 1, Integer.MAX_VALUE));
+			}
+			//the cached list is copied, so callers cannot modify it
+			return new ArrayList<>(cachedQuery(List.of(DENSITY_ABOVE_QUERY, threshold), 
+					() -> toNames(getObjectsInRange(Country::getPopulationDensity, validPopulationDensityFilter, threshold + 1, Integer.MAX_VALUE))));
+		} finally {
+			DENSITY_ABOVE_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Helper method which collects the names of countries.
+	 */
+	private static List<String> toNames(List<Country> countries) {
+		return countries.stream()
+				.map(Country::getName)
+				.collect(Collectors.toList());
+	}
 
 }
@@ -0,0 +1,284 @@
+package de.bcxp.challenge.service;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import de.bcxp.challenge.mapper.CsvFileTail;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.MetricsRegistry;
+import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Follows csv files which are appended to over time and adds the appended rows to a repository.
+ * The directories of the followed files are watched with a {@link WatchService}. When a followed file changes, only the complete rows
+ * appended since the last change are mapped (see {@link CsvFileTail}), so the effort depends on the amount of new data, not on the size of the file.
+ * <p>
+ * The changes are processed by {@link #pollChanges()}, {@link #awaitChanges(long, TimeUnit)}, or by {@link #run()}, which processes changes until the follower is closed
+ * (e.g. on a separate thread). The rows are added by one thread at a time, so the repository does not need to be thread safe as long as it is only filled by the follower.
+ * If other threads add data to the repository at the same time, it needs to be a {@link de.bcxp.challenge.repository.ConcurrentRepository}.
+ * @author catherine heyart
+ *
+ * @param <T> object type saved in the repository
+ */
+public class CsvFileFollower <T> implements Runnable, Closeable{
+
+	/**
+	 * Time (in milliseconds) for which {@link #run()} waits for changes before it checks whether the follower has been closed.
+	 */
+	private static final long RUN_POLL_INTERVAL = 1000;
+
+	/**
+	 * Number of times a followed file could not be read. The file stays followed and is read again on its next change.
+	 */
+	private static final Counter READ_FAILURES = MetricsRegistry.getDefault().counter("follower.read.failures");
+
+	private final Repository<T> repo;
+
+	private final FastCsvToObjectMapper<T> mapper;
+
+	private final WatchService watchService;
+
+	/**
+	 * Tails of the followed files, by absolute path.
+	 */
+	private final Map<Path, CsvFileTail<T>> tails = new ConcurrentHashMap<>();
+
+	/**
+	 * Watched directories, by the key of their registration.
+	 */
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+	/**
+	 * Lock which is held while rows are added to the repository and while tails are closed, so the follower never adds rows concurrently
+	 * (e.g. in {@link #follow(Path, char)} and in {@link #run()}) and never polls a closed tail.
+	 */
+	private final Object ingestLock = new Object();
+
+	private volatile boolean closed;
+
+	public CsvFileFollower(Repository<T> repository, FastCsvToObjectMapper<T> mapper) {
+		if(repository == null) {
+			throw new IllegalArgumentException("Repository cannot be null.");
+		}
+		if(mapper == null) {
+			throw new IllegalArgumentException("CSV Mapper cannot be null.");
+		}
+		this.repo = repository;
+		this.mapper = mapper;
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) {
+			throw new UncheckedIOException("The file system cannot be watched.", e);
+		}
+	}
+
+	/**
+	 * Starts following a csv file. The rows which are already present in the file are added to the repository immediately.
+	 * @param filePath path of .csv file which will be followed
+	 * @param separator Separator used in the csv file
+	 * @return number of rows which were added to the repository
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public int follow(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		if(filePath == null) {
+			throw new IllegalArgumentException("The file path cannot be null.");
+		}
+		Path absolutePath = filePath.toAbsolutePath().normalize();
+		if(tails.containsKey(absolutePath)) {
+			throw new IllegalArgumentException("The file is already followed: " + filePath.toString());
+		}
+		CsvFileTail<T> tail = mapper.openTail(absolutePath, separator);
+		try {
+			Path directory = absolutePath.getParent();
+			if(!directories.containsValue(directory)) {
+				WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				directories.put(key, directory);
+			}
+		} catch (IOException e) {
+			closeQuietly(tail, e);
+			throw new UncheckedIOException("The directory of the file cannot be watched: " + filePath.toString(), e);
+		}
+		//the file may have been followed by another thread in the meantime
+		if(tails.putIfAbsent(absolutePath, tail) != null) {
+			IllegalArgumentException e = new IllegalArgumentException("The file is already followed: " + filePath.toString());
+			closeQuietly(tail, e);
+			throw e;
+		}
+		return ingest(tail);
+	}
+
+	/**
+	 * Stops following a csv file. The rows which were already added remain in the repository.
+	 * @param filePath path of the followed file
+	 * @throws UncheckedIOException if the file could not be closed
+	 */
+	public void unfollow(Path filePath) {
+		synchronized(ingestLock) {
+			CsvFileTail<T> tail = tails.remove(filePath.toAbsolutePath().normalize());
+			if(tail != null) {
+				try {
+					tail.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException("The file could not be closed: " + filePath.toString(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the rows which were appended to the followed files since the last call, without waiting for changes.
+	 * @return number of rows which were added to the repository
+	 */
+	public int pollChanges() {
+		int count = 0;
+		WatchKey key;
+		while((key = watchService.poll()) != null) {
+			count += processChanges(key);
+		}
+		return count;
+	}
+
+	/**
+	 * Waits until at least one watched directory changes and adds the rows which were appended to the followed files.
+	 * @param timeout maximum time to wait
+	 * @param unit unit of the timeout
+	 * @return number of rows which were added to the repository (0 if nothing changed within the timeout)
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public int awaitChanges(long timeout, TimeUnit unit) throws InterruptedException {
+		WatchKey key = watchService.poll(timeout, unit);
+		if(key == null) {
+			return 0;
+		}
+		return processChanges(key) + pollChanges();
+	}
+
+	/**
+	 * Processes changes until the follower is closed or the thread is interrupted.
+	 */
+	@Override
+	public void run() {
+		try {
+			while(!closed) {
+				awaitChanges(RUN_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			//the follower has been closed while waiting
+		}
+	}
+
+	/**
+	 * Stops following all files. The rows which were already added remain in the repository.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		watchService.close();
+		IOException failure = null;
+		synchronized(ingestLock) {
+			for(CsvFileTail<T> tail : tails.values()) {
+				try {
+					tail.close();
+				} catch (IOException e) {
+					if(failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			tails.clear();
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which adds the appended rows of all followed files affected by the events of a key.
+	 */
+	private int processChanges(WatchKey key) {
+		int count = 0;
+		Path directory = directories.get(key);
+		if(directory != null) {
+			for(WatchEvent<?> event : key.pollEvents()) {
+				if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					//events got lost, so all followed files of the directory are checked
+					for(CsvFileTail<T> tail : tails.values()) {
+						if(directory.equals(tail.getFilePath().getParent())) {
+							count += ingest(tail);
+						}
+					}
+				} else {
+					CsvFileTail<T> tail = tails.get(directory.resolve((Path) event.context()));
+					if(tail != null) {
+						count += ingest(tail);
+					}
+				}
+			}
+		}
+		key.reset();
+		return count;
+	}
+
+	/**
+	 * Helper method which adds the rows appended to a file to the repository.
+	 * If the file was truncated or replaced by a file with an invalid header, the file is not followed anymore
+	 * (the tail logs this like a skipped row, i.e. to the rejected row sink of the mapper, if it has one).
+	 * If the file could not be read, this is logged the same way and the file is read again on its next change, so the other files are still followed.
+	 */
+	private int ingest(CsvFileTail<T> tail) {
+		synchronized(ingestLock) {
+			if(tails.get(tail.getFilePath()) != tail) {
+				//the file has been unfollowed in the meantime
+				return 0;
+			}
+			try {
+				List<T> rows = tail.poll();
+				if(!rows.isEmpty()) {
+					repo.addData(rows);
+				}
+				return rows.size();
+			} catch (InvalidFileFormatException e) {
+				unfollow(tail.getFilePath());
+				return 0;
+			} catch (UncheckedIOException e) {
+				READ_FAILURES.increment();
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Helper method which closes a tail that is not followed, adding a failure to the exception which is thrown instead.
+	 */
+	private static void closeQuietly(CsvFileTail<?> tail, Exception e) {
+		try {
+			tail.close();
+		} catch (IOException closeException) {
+			e.addSuppressed(closeException);
+		}
+	}
+}
@@ -1,11 +1,22 @@
 package de.bcxp.challenge.service;
 
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.JsonToObjectMapper;
+import de.bcxp.challenge.metrics.LatencyHistogram;
 import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.DailyWeatherTable;
+import de.bcxp.challenge.repository.ExtremumView;
 import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.repository.SortedIntIndex;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
 /**
  * This service class provides methods to retrieve DailyWeather data.
@@ -14,30 +25,212 @@ import de.bcxp.challenge.repository.Repository;
  */
 public class DailyWeatherService extends DataHandlerService <DailyWeather>{
 	
+	private static final String SMALLEST_TEMP_SPREAD_QUERY = "dayWithSmallestTempSpread";
+	
+	private static final String AVERAGE_TEMP_SPREAD_QUERY = "averageTempSpread";
+	
+	private static final String TEMP_SPREAD_RANGE_QUERY = "daysWithTempSpreadBetween";
+	
+	private static final LatencyHistogram SMALLEST_TEMP_SPREAD_LATENCY = queryLatency(SMALLEST_TEMP_SPREAD_QUERY);
+	
+	private static final LatencyHistogram AVERAGE_TEMP_SPREAD_LATENCY = queryLatency(AVERAGE_TEMP_SPREAD_QUERY);
+	
+	private static final LatencyHistogram TEMP_SPREAD_RANGE_LATENCY = queryLatency(TEMP_SPREAD_RANGE_QUERY);
+	
 	/**
 	 * DailyWeather object which holds default values.
 	 */
 	private DailyWeather defaultObject;
 	
+	/**
+	 * Compares the temperature spread of two objects
+	 */
+	private Comparator<DailyWeather> tempSpreadComparator = Comparator.comparingInt(DailyWeather::getTempDiffInF);
+	
+	/**
+	 * Filters out all instances where the temperature spread value has the default value
+	 */
+	private Predicate<DailyWeather> validTempSpreadFilter = w -> (w.getTempDiffInF() != defaultObject.getTempDiffInF());
+	
+	/**
+	 * View of the repository which maintains the day with the smallest temperature spread while data is added. 
+	 * Null until the views are enabled (see {@link #enableViews()}).
+	 */
+	private volatile ExtremumView<DailyWeather> smallestTempSpreadView;
+	
+	/**
+	 * Index of the repository which keeps the days sorted by their temperature spread. 
+	 * Null until the views are enabled (see {@link #enableViews()}).
+	 */
+	private volatile SortedIntIndex<DailyWeather> tempSpreadIndex;
+	
+	/**
+	 * Creates the service with a json mapper for DailyWeather.
+	 */
 	public DailyWeatherService(Repository<DailyWeather> repository, CsvToObjectMapper<DailyWeather> csvMapper) {
-		super(repository, csvMapper);
+		this(repository, csvMapper, new JsonToObjectMapper<>(DailyWeather.class));
+	}
+	
+	public DailyWeatherService(Repository<DailyWeather> repository, CsvToObjectMapper<DailyWeather> csvMapper, JsonToObjectMapper<DailyWeather> jsonMapper) {
+		super(repository, csvMapper, jsonMapper);
 		defaultObject = new DailyWeather();
 	}
 	
+	/**
+	 * Registers views on the repository which maintain the day with the smallest temperature spread and an index of the days by their temperature spread
+	 * while data is added. Afterwards, {@link #getDayWithSmallestTempSpread()} is a constant-time read and {@link #getDaysWithTempSpreadBetween(int, int)} 
+	 * a lookup in the index, instead of scans over all the data. The data which is already present is passed to the views immediately, 
+	 * and every append has to update them, so the views only pay off for repositories which are queried repeatedly. Calling the method again has no effect.
+	 * <p>
+	 * Views are not registered on a read-only repository (e.g. a snapshot, see {@link Repository#isReadOnly()}): its data never changes, 
+	 * so registering them would only pass all the rows through the views on every start, while the results of the scans stay cached.
+	 */
+	public synchronized void enableViews() {
+		if(repo.isReadOnly() || smallestTempSpreadView != null) {
+			return;
+		}
+		tempSpreadIndex = repo.registerView(new SortedIntIndex<>(DailyWeather::getTempDiffInF, validTempSpreadFilter));
+		smallestTempSpreadView = repo.registerView(ExtremumView.lowest(tempSpreadComparator, validTempSpreadFilter));
+	}
+	
+	/**
+	 * @return true, if the views have been registered (see {@link #enableViews()})
+	 */
+	public boolean isViewsEnabled() {
+		return smallestTempSpreadView != null;
+	}
+	
 	
 	/**
 	 * Returns day number of the day with the smallest temperature spread (among all the data currenlty saved in the repository).
+	 * If the views are enabled (see {@link #enableViews()}), the result is maintained by a view of the repository while data is added, and read from it without caching.
+	 * Otherwise, it is computed by a scan and cached until data is added (see {@link #cachedQuery(Object, java.util.function.Supplier)}).
 	 * @return day number of the day with the smallest temperature spread. -1 if no such day exists (because repository is empty or because no valid temperature data is present)
 	 */
 	public int getDayWithSmallestTempSpread() {
-		//Compares the temperature spread of two objects
-		Comparator<DailyWeather> comparator = (w1, w2) -> w1.getTempDiffInF() - w2.getTempDiffInF();
-		//Filters out all instances where the temperature spread value has the default value
-		Predicate<DailyWeather> filter = w -> (w.getTempDiffInF() != defaultObject.getTempDiffInF());
+		long start = SMALLEST_TEMP_SPREAD_LATENCY.start();
+		try {
+			ExtremumView<DailyWeather> view = smallestTempSpreadView;
+			if(view != null) {
+				DailyWeather result = view.get();
+				return result == null ? -1 : result.getDayOfTheMonth();
+			}
+			return cachedQuery(SMALLEST_TEMP_SPREAD_QUERY, () -> {
+				if(repo instanceof DailyWeatherTable) {
+					return getDayWithSmallestTempSpread((DailyWeatherTable) repo);
+				}
+			
+				DailyWeather result = getObjectByLowestValue(tempSpreadComparator, validTempSpreadFilter); 
+		
+				return result == null ? -1 : result.getDayOfTheMonth();
+			});
+		} finally {
+			SMALLEST_TEMP_SPREAD_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Helper method which determines the day with the smallest temperature spread with a loop over the primitive values of a table.
+	 * Like {@link #getObjectByLowestValue(Comparator, Predicate)}, the first of several days with the smallest spread is selected.
+	 * Large tables are searched in parallel ranges (see {@link #reduceRanges(int, RangeReducer, java.util.function.BinaryOperator)}).
+	 * @param table table containing the weather data
+	 * @return day number of the day with the smallest temperature spread. -1 if no such day exists
+	 */
+	private int getDayWithSmallestTempSpread(DailyWeatherTable table) {
+		int resultRow = reduceRanges(table.size(), 
+				(from, to) -> rowWithSmallestTempSpread(table, from, to), 
+				(earlier, later) -> earlier == -1 || (later != -1 && table.getTempDiffInF(later) < table.getTempDiffInF(earlier)) ? later : earlier);
+		return resultRow == -1 ? -1 : table.getDayOfTheMonth(resultRow);
+	}
+	
+	/**
+	 * Helper method which searches the first row with the smallest temperature spread within a range of a table.
+	 * @return index of the row. -1 if no row of the range has a valid temperature spread
+	 */
+	private int rowWithSmallestTempSpread(DailyWeatherTable table, int from, int to) {
+		int defaultTempDiff = defaultObject.getTempDiffInF();
+		int resultRow = -1;
+		int smallestTempDiff = Integer.MAX_VALUE;
 		
-		DailyWeather result = getObjectByLowestValue(comparator, filter); 
+		for(int row = from; row < to; row++) {
+			int tempDiff = table.getTempDiffInF(row);
+			if(tempDiff != defaultTempDiff && (resultRow == -1 || tempDiff < smallestTempDiff)) {
+				smallestTempDiff = tempDiff;
+				resultRow = row;
+			}
+		}
+		return resultRow;
+	}
 	
+	/**
+	 * Returns the average temperature spread of all days (among all the data currently saved in the repository). Days without valid temperature data are not included.
+	 * The result is cached until data is added.
+	 * @return average temperature spread. -1 if no such day exists (because repository is empty or because no valid temperature data is present)
+	 */
+	public double getAverageTempSpread() {
+		long start = AVERAGE_TEMP_SPREAD_LATENCY.start();
+		try {
+			return cachedQuery(AVERAGE_TEMP_SPREAD_QUERY, () -> {
+				IntAggregate tempSpreads;
+				if(repo instanceof DailyWeatherTable) {
+					DailyWeatherTable table = (DailyWeatherTable) repo;
+					int defaultTempDiff = defaultObject.getTempDiffInF();
+					tempSpreads = aggregateRows(table.size(), table::getTempDiffInF, row -> table.getTempDiffInF(row) != defaultTempDiff, false);
+				} else {
+					tempSpreads = aggregateInt(DailyWeather::getTempDiffInF, validTempSpreadFilter);
+				}
+				return tempSpreads.isEmpty() ? -1 : tempSpreads.getMean();
+			});
+		} finally {
+			AVERAGE_TEMP_SPREAD_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns day number of the day with the smallest temperature spread in a Csv file. The file is streamed and its data is NOT added to the repository.
+	 * @param filePath path of .csv file which contains the data
+	 * @param separator Separator used in the csv file
+	 * @return day number of the day with the smallest temperature spread. -1 if no such day exists (because the file contains no valid temperature data)
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid. 
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public int getDayWithSmallestTempSpread(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
+		DailyWeather result = getObjectByLowestValueFromCsvFile(filePath, separator, tempSpreadComparator, validTempSpreadFilter); 
+		
 		return result == null ? -1 : result.getDayOfTheMonth();
 	}
+	
+	/**
+	 * Returns the day numbers of all days whose temperature spread lies within a range (among all the data currently saved in the repository).
+	 * Days without valid temperature data are not included. If the views are enabled (see {@link #enableViews()}), the days are looked up in an index without caching.
+	 * Otherwise, the result of the scan is cached per range until data is added.
+	 * @param minTempSpread lowest temperature spread (inclusive)
+	 * @param maxTempSpread highest temperature spread (inclusive)
+	 * @return day numbers, ordered by temperature spread. Empty list if no such day exists
+	 */
+	public List<Integer> getDaysWithTempSpreadBetween(int minTempSpread, int maxTempSpread) {
+		long start = TEMP_SPREAD_RANGE_LATENCY.start();
+		try {
+			SortedIntIndex<DailyWeather> index = tempSpreadIndex;
+			if(index != null) {
+				//the lookup costs about as much as copying a cached result
+				return toDayNumbers(getObjectsInRange(index, minTempSpread, maxTempSpread));
+			}
+			//the cached list is copied, so callers cannot modify it
+			return new ArrayList<>(cachedQuery(List.of(TEMP_SPREAD_RANGE_QUERY, minTempSpread, maxTempSpread), 
+					() -> toDayNumbers(getObjectsInRange(DailyWeather::getTempDiffInF, validTempSpreadFilter, minTempSpread, maxTempSpread))));
+		} finally {
+			TEMP_SPREAD_RANGE_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Helper method which collects the day numbers of days.
+	 */
+	private static List<Integer> toDayNumbers(List<DailyWeather> days) {
+		return days.stream()
+				.map(DailyWeather::getDayOfTheMonth)
+				.collect(Collectors.toList());
+	}
 
 }
@@ -1,15 +1,42 @@
 package de.bcxp.challenge.service;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.JsonToObjectMapper;
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.LatencyHistogram;
+import de.bcxp.challenge.metrics.MetricsRegistry;
 import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.repository.SortedIntIndex;
 import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
 /**
@@ -18,6 +45,24 @@ import de.bcxp.challengeExceptions.InvalidFileFormatException;
  *
  */
 public abstract class DataHandlerService <T>{
+	
+	/**
+	 * Time needed to ingest a file: from opening the file until the last row has been added by {@link #addDataFromCsvFile(Path, char)} or {@link #addDataFromJsonFile(Path)},
+	 * and until the file has been mapped by {@link #addDataFromCsvFiles(Collection, char)}.
+	 */
+	private static final LatencyHistogram FILE_INGESTION_LATENCY = MetricsRegistry.getDefault().histogram("service.ingestion.file");
+	
+	/**
+	 * Number of files which could not be added by {@link #addDataFromCsvFiles(Collection, char)}.
+	 */
+	private static final Counter FAILED_INGESTIONS = MetricsRegistry.getDefault().counter("service.ingestion.failures");
+	
+	/**
+	 * Number of queries answered from the query cache of a service.
+	 */
+	private static final Counter CACHE_HITS = MetricsRegistry.getDefault().counter("service.cache.hits");
+	
+	private static final Counter CACHE_MISSES = MetricsRegistry.getDefault().counter("service.cache.misses");
 			
 	/**
 	 * Repository containing the data used by this class
@@ -29,6 +74,46 @@ public abstract class DataHandlerService <T>{
 	 */
 	protected CsvToObjectMapper<T> csvMapper;
 	
+	/**
+	 * Mapper which maps json files to objects of type T. Null if the service does not read json files
+	 */
+	protected JsonToObjectMapper<T> jsonMapper;
+	
+	/**
+	 * Maximum number of files which are mapped at the same time by {@link #addDataFromCsvFiles(Collection, char)}. Default is the number of available processors
+	 */
+	private int ingestionParallelism = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Default number of rows from which on queries are executed in parallel.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+	
+	/**
+	 * Minimum number of rows which are reduced by a single task of a parallel query.
+	 */
+	private static final int MIN_RANGE_SIZE = 1 << 12;
+	
+	/**
+	 * Number of rows from which on queries are executed in parallel (see {@link #reduceRanges(int, RangeReducer, BinaryOperator)}).
+	 */
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	
+	/**
+	 * Pool on which parallel queries are executed.
+	 */
+	private ForkJoinPool queryPool = ForkJoinPool.commonPool();
+	
+	/**
+	 * Default number of queries whose results are cached.
+	 */
+	public static final int DEFAULT_QUERY_CACHE_SIZE = 128;
+	
+	/**
+	 * Cache for the results of the queries of this service (see {@link #cachedQuery(Object, Supplier)}). Null if caching is disabled.
+	 */
+	private volatile QueryCache queryCache = new QueryCache(DEFAULT_QUERY_CACHE_SIZE);
+	
 	public DataHandlerService(Repository<T> repository, CsvToObjectMapper<T> csvMapper) {
 		if(repository == null) {
 			throw new IllegalArgumentException("Repository cannot be null.");
@@ -40,6 +125,14 @@ public abstract class DataHandlerService <T>{
 		this.csvMapper = csvMapper;
 	}
 	
+	public DataHandlerService(Repository<T> repository, CsvToObjectMapper<T> csvMapper, JsonToObjectMapper<T> jsonMapper) {
+		this(repository, csvMapper);
+		if(jsonMapper == null) {
+			throw new IllegalArgumentException("JSON Mapper cannot be null.");
+		}
+		this.jsonMapper = jsonMapper;
+	}
+	
 	/**
 	 * Adds data to the repository from a Csv file. Rows that are not formatted correctly or have the wrong value type get skipped. 
 	 * @param filePath path of .csv file which contains the data
@@ -50,8 +143,301 @@ public abstract class DataHandlerService <T>{
 	 * @throws FileNotFoundException if the file could not be found
 	 */
 	public void addDataFromCsvFile(Path filePath, char separator) throws FileNotFoundException, InvalidFileFormatException {
-		csvMapper.setSeparator(separator);
-		repo.addData(csvMapper.mapFileToObjectList(filePath));
+		long start = FILE_INGESTION_LATENCY.start();
+		//rows are appended while the file is read, so the file content is never held in an intermediate list
+		try (Stream<T> stream = csvMapper.mapFileToStream(filePath, separator)) {
+			repo.addData(stream);
+		}
+		FILE_INGESTION_LATENCY.recordSince(start);
+	}
+	
+	/**
+	 * Adds data to the repository from a Json file containing an array of objects. Objects that have a value of the wrong type get skipped. 
+	 * The objects are added while the file is read, so only one object of the file is held in memory at a time.
+	 * @param filePath path of .json file which contains the data
+	 * @throws InvalidFileFormatException if the file does not have a .json extension or does not contain an array
+	 * @throws FileNotFoundException if the file could not be found
+	 * @throws IllegalStateException if this service has no json mapper
+	 */
+	public void addDataFromJsonFile(Path filePath) throws FileNotFoundException, InvalidFileFormatException {
+		if(jsonMapper == null) {
+			throw new IllegalStateException("This service cannot read json files.");
+		}
+		long start = FILE_INGESTION_LATENCY.start();
+		try (Stream<T> stream = jsonMapper.mapFileToStream(filePath)) {
+			repo.addData(stream);
+		}
+		FILE_INGESTION_LATENCY.recordSince(start);
+	}
+	
+	/**
+	 * Adds data to the repository from several Csv files. The files are mapped concurrently (at most {@link #getIngestionParallelism()} files at a time),
+	 * on virtual threads if the runtime supports them, otherwise on a fixed thread pool. The mapped rows are added to the repository file by file, 
+	 * in the order of the given paths, so the content of the repository does not depend on which file is mapped first.
+	 * Rows that are not formatted correctly or have the wrong value type get skipped, like in {@link #addDataFromCsvFile(Path, char)}. 
+	 * A file which cannot be mapped does not prevent the other files from being added; the reason is recorded in its report.
+	 * @param filePaths paths of .csv files which contain the data
+	 * @param separator Separator used in the csv files
+	 * @return one report per file, in the order of the given paths
+	 */
+	public List<IngestionReport> addDataFromCsvFiles(Collection<Path> filePaths, char separator) {
+		if(filePaths == null) {
+			throw new IllegalArgumentException("The file paths cannot be null.");
+		}
+		List<Path> paths = new ArrayList<>(filePaths);
+		List<IngestionReport> reports = new ArrayList<>(paths.size());
+		if(paths.isEmpty()) {
+			return reports;
+		}
+		
+		int parallelism = Math.min(ingestionParallelism, paths.size());
+		Semaphore permits = new Semaphore(parallelism);
+		ExecutorService executor = newIngestionExecutor(parallelism);
+		try {
+			List<Future<List<T>>> futures = new ArrayList<>(paths.size());
+			for(Path path : paths) {
+				futures.add(executor.submit(() -> {
+					//the permits bound the number of files mapped at once, also on virtual threads
+					permits.acquire();
+					long start = FILE_INGESTION_LATENCY.start();
+					try {
+						List<T> rows = csvMapper.mapFileToObjectList(path, separator);
+						FILE_INGESTION_LATENCY.recordSince(start);
+						return rows;
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+			
+			for(int i = 0; i < paths.size(); i++) {
+				try {
+					List<T> rows = futures.get(i).get();
+					repo.addData(rows);
+					reports.add(IngestionReport.success(paths.get(i), rows.size()));
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof Error) {
+						throw (Error) e.getCause();
+					}
+					FAILED_INGESTIONS.increment();
+					reports.add(IngestionReport.failure(paths.get(i), (Exception) e.getCause()));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					futures.forEach(f -> f.cancel(true));
+					for(int j = i; j < paths.size(); j++) {
+						reports.add(IngestionReport.failure(paths.get(j), e));
+					}
+					break;
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return reports;
+	}
+	
+	/**
+	 * Adds data to the repository from all Csv files of a directory whose names match a glob pattern (e.g. "*.csv"). 
+	 * The files are added in the order of their names, as described in {@link #addDataFromCsvFiles(Collection, char)}. Subdirectories are not searched.
+	 * @param directory directory containing the files
+	 * @param glob pattern which the file names need to match (see {@link java.nio.file.FileSystem#getPathMatcher(String)})
+	 * @param separator Separator used in the csv files
+	 * @return one report per matching file, in the order of the file names
+	 * @throws FileNotFoundException if the directory could not be found
+	 */
+	public List<IngestionReport> addDataFromCsvFiles(Path directory, String glob, char separator) throws FileNotFoundException {
+		if(directory == null || glob == null) {
+			throw new IllegalArgumentException("The directory and the glob pattern cannot be null.");
+		}
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+			for(Path file : files) {
+				if(Files.isRegularFile(file)) {
+					paths.add(file);
+				}
+			}
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("The directory could not be found: " + directory.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException("The directory could not be read: " + directory.toString(), e);
+		}
+		paths.sort(Comparator.comparing(Path::getFileName));
+		return addDataFromCsvFiles(paths, separator);
+	}
+	
+	public int getIngestionParallelism() {
+		return ingestionParallelism;
+	}
+	
+	public void setIngestionParallelism(int ingestionParallelism) {
+		if(ingestionParallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1.");
+		}
+		this.ingestionParallelism = ingestionParallelism;
+	}
+	
+	/**
+	 * Aggregates an int value of the objects in the repository (count, min, max, argmin, argmax, sum, mean and variance) in a single pass,
+	 * without boxing the values and without keeping them, like {@link #aggregateInt(ToIntFunction, Predicate, boolean)} without percentiles.
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public IntAggregate aggregateInt(ToIntFunction<? super T> projection, Predicate<? super T> filter) {
+		return aggregateInt(projection, filter, false);
+	}
+	
+	/**
+	 * Aggregates an int value of the objects in the repository (count, min, max, argmin, argmax, sum, mean, variance and optionally percentiles) in a single pass,
+	 * without boxing the values. The entries NOT matching the conditions defined by the filter will be filtered out.
+	 * Large repositories are aggregated in parallel ranges (see {@link #setParallelThreshold(int)}).
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @param percentiles true to keep all the values, so percentiles (including the median) can be computed
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public IntAggregate aggregateInt(ToIntFunction<? super T> projection, Predicate<? super T> filter, boolean percentiles) {
+		if(projection == null) {
+			throw new IllegalArgumentException("Projection cannot be null.");
+		}
+		List<T> data = randomAccessData();
+		return reduceRanges(data.size(), (from, to) -> {
+			IntAggregate aggregate = new IntAggregate(percentiles);
+			for(int row = from; row < to; row++) {
+				T object = data.get(row);
+				if(filter == null || filter.test(object)) {
+					aggregate.add(projection.applyAsInt(object), row);
+				}
+			}
+			return aggregate;
+		}, IntAggregate::merge);
+	}
+	
+	/**
+	 * Aggregates a long value of the objects in the repository without percentiles, like {@link #aggregateInt(ToIntFunction, Predicate)}.
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public LongAggregate aggregateLong(ToLongFunction<? super T> projection, Predicate<? super T> filter) {
+		return aggregateLong(projection, filter, false);
+	}
+	
+	/**
+	 * Aggregates a long value of the objects in the repository, like {@link #aggregateInt(ToIntFunction, Predicate, boolean)}.
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @param percentiles true to keep all the values, so percentiles (including the median) can be computed
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public LongAggregate aggregateLong(ToLongFunction<? super T> projection, Predicate<? super T> filter, boolean percentiles) {
+		if(projection == null) {
+			throw new IllegalArgumentException("Projection cannot be null.");
+		}
+		List<T> data = randomAccessData();
+		return reduceRanges(data.size(), (from, to) -> {
+			LongAggregate aggregate = new LongAggregate(percentiles);
+			for(int row = from; row < to; row++) {
+				T object = data.get(row);
+				if(filter == null || filter.test(object)) {
+					aggregate.add(projection.applyAsLong(object), row);
+				}
+			}
+			return aggregate;
+		}, LongAggregate::merge);
+	}
+	
+	/**
+	 * Aggregates a double value of the objects in the repository without percentiles, like {@link #aggregateInt(ToIntFunction, Predicate)}. NaN values are skipped.
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public DoubleAggregate aggregateDouble(ToDoubleFunction<? super T> projection, Predicate<? super T> filter) {
+		return aggregateDouble(projection, filter, false);
+	}
+	
+	/**
+	 * Aggregates a double value of the objects in the repository, like {@link #aggregateInt(ToIntFunction, Predicate, boolean)}. NaN values are skipped.
+	 * @param projection derives the value of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @param percentiles true to keep all the values, so percentiles (including the median) can be computed
+	 * @return statistics of the values. The argmin and argmax are indexes of the objects within the repository
+	 */
+	public DoubleAggregate aggregateDouble(ToDoubleFunction<? super T> projection, Predicate<? super T> filter, boolean percentiles) {
+		if(projection == null) {
+			throw new IllegalArgumentException("Projection cannot be null.");
+		}
+		List<T> data = randomAccessData();
+		return reduceRanges(data.size(), (from, to) -> {
+			DoubleAggregate aggregate = new DoubleAggregate(percentiles);
+			for(int row = from; row < to; row++) {
+				T object = data.get(row);
+				if(filter == null || filter.test(object)) {
+					aggregate.add(projection.applyAsDouble(object), row);
+				}
+			}
+			return aggregate;
+		}, DoubleAggregate::merge);
+	}
+	
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * Sets the number of rows from which on queries are executed in parallel. Smaller repositories are queried sequentially,
+	 * since splitting them costs more than it gains. Default is {@value #DEFAULT_PARALLEL_THRESHOLD}.
+	 * @param parallelThreshold number of rows (Integer.MAX_VALUE to always query sequentially)
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		if(parallelThreshold < 0) {
+			throw new IllegalArgumentException("The threshold cannot be negative.");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	public ForkJoinPool getQueryPool() {
+		return queryPool;
+	}
+	
+	/**
+	 * Sets the pool on which parallel queries are executed. Default is the common pool.
+	 * @param queryPool pool (cannot be null)
+	 */
+	public void setQueryPool(ForkJoinPool queryPool) {
+		if(queryPool == null) {
+			throw new IllegalArgumentException("The pool cannot be null.");
+		}
+		this.queryPool = queryPool;
+	}
+	
+	public int getQueryCacheSize() {
+		QueryCache cache = queryCache;
+		return cache == null ? 0 : cache.getCapacity();
+	}
+	
+	/**
+	 * Sets the number of queries whose results are cached. The least recently used results are evicted when the cache is full.
+	 * The cached results are discarded. Default is {@value #DEFAULT_QUERY_CACHE_SIZE}.
+	 * @param queryCacheSize maximum number of cached results (0 to disable the cache)
+	 */
+	public void setQueryCacheSize(int queryCacheSize) {
+		if(queryCacheSize < 0) {
+			throw new IllegalArgumentException("The cache size cannot be negative.");
+		}
+		this.queryCache = queryCacheSize == 0 ? null : new QueryCache(queryCacheSize);
+	}
+	
+	/**
+	 * Discards the cached query results. This is only needed if the data of the repository has been changed without adding it through the repository
+	 * (e.g. by modifying the objects), since adding data invalidates the results automatically.
+	 */
+	public void clearQueryCache() {
+		QueryCache cache = queryCache;
+		if(cache != null) {
+			cache.clear();
+		}
 	}
 	
 	/**
@@ -69,57 +455,354 @@ public abstract class DataHandlerService <T>{
 	/**
 	 * Retrieves the object that has the lowest value according to the comparator. The entries NOT matching the conditions defined by the filter will be filtered out. 
 	 * (The filter can for example be used to filter out default values.)
+	 * If several objects have the lowest value, the first one is returned.
 	 * @param comparator defines the values which will be compared (cannot be null)
 	 * @param filter defines the condition by which entries will be filtered (can be null)
 	 * @return the object with the lowest value. Null if no such object exists (if the repository is empty or if all objects have been filtered out)
 	 */
 	protected T getObjectByLowestValue(Comparator<T> comparator, Predicate<T> filter) {
+		if(comparator == null) {
+			throw new IllegalArgumentException("Comparator cannot be null.");
+		}
 		if(repo.isEmpty()) {
 			return null;
 		}
-				
-		List<T> sortedList = sortAndFilterData(comparator, filter);
 		
-		return sortedList.isEmpty() ? null : sortedList.get(0);
+		List<T> data = repo.getData();
+		if(!(data instanceof RandomAccess)) {
+			return SelectionEngine.min(data, comparator, filter);
+		}
+		//on equal values, the result of the earlier range is kept
+		return reduceRanges(data.size(), 
+				(from, to) -> SelectionEngine.min(data.subList(from, to), comparator, filter), 
+				(earlier, later) -> earlier == null || (later != null && comparator.compare(later, earlier) < 0) ? later : earlier);
 	}
 	
 	/**
 	 * Retrieves the object that has the highest value according to the comparator. The Entries NOT matching the conditions defined by the filter will be filtered out. 
 	 * The filter can for example be used to filter out default values.
+	 * If several objects have the highest value, the last one is returned.
 	 * @param comparator defines the values which will be compared (cannot be null)
 	 * @param filter defines to condition by which entries will be filtered (can be null)
 	 * @return the object with the highest value. Null if no such object exists (if the repository is empty or if all objects have been filtered out)
 	 */
 	protected T getObjectByHighestValue(Comparator<T> comparator, Predicate<T> filter) {
+		if(comparator == null) {
+			throw new IllegalArgumentException("Comparator cannot be null.");
+		}
 		if(repo.isEmpty()) {
 			return null;
 		}
-				
-		List<T> sortedList = sortAndFilterData(comparator, filter);
-		int size = sortedList.size();
 		
-		return sortedList.isEmpty() ? null : sortedList.get(size-1);
+		List<T> data = repo.getData();
+		if(!(data instanceof RandomAccess)) {
+			return SelectionEngine.max(data, comparator, filter);
+		}
+		//on equal values, the result of the later range is kept
+		return reduceRanges(data.size(), 
+				(from, to) -> SelectionEngine.max(data.subList(from, to), comparator, filter), 
+				(earlier, later) -> earlier == null || (later != null && comparator.compare(later, earlier) >= 0) ? later : earlier);
 	}
 	
 	/**
-	 * Helper method which sorts and filters data and returns the results as a list
-	 * @param comparator defines the values by which the list will be sorted by (cannot be null)
-	 * @param filter defines the condition by which the data will be filtered by (all entries NOT meeting the condition will be filtered out)
-	 * @return list of sorted and filtered data
+	 * Retrieves the object that has the lowest value according to the comparator directly from a Csv file, without adding the data to the repository. 
+	 * The rows are compared while the file is read, so the memory usage does not depend on the file size.
+	 * @param filePath path of .csv file which contains the data
+	 * @param separator Separator used in the csv file
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return the object with the lowest value. Null if no such object exists
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid. 
+	 * @throws FileNotFoundException if the file could not be found
 	 */
-	private List<T> sortAndFilterData(Comparator<T> comparator, Predicate<T> filter){
+	protected T getObjectByLowestValueFromCsvFile(Path filePath, char separator, Comparator<T> comparator, Predicate<T> filter) throws FileNotFoundException, InvalidFileFormatException {
+		try (Stream<T> stream = csvMapper.mapFileToStream(filePath, separator)) {
+			return SelectionEngine.min(stream::iterator, comparator, filter);
+		}
+	}
+	
+	/**
+	 * Retrieves the object that has the highest value according to the comparator directly from a Csv file, without adding the data to the repository. 
+	 * The rows are compared while the file is read, so the memory usage does not depend on the file size.
+	 * @param filePath path of .csv file which contains the data
+	 * @param separator Separator used in the csv file
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return the object with the highest value. Null if no such object exists
+	 * @throws InvalidFileFormatException if the file does not have a .csv extension or if the header is invalid. 
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	protected T getObjectByHighestValueFromCsvFile(Path filePath, char separator, Comparator<T> comparator, Predicate<T> filter) throws FileNotFoundException, InvalidFileFormatException {
+		try (Stream<T> stream = csvMapper.mapFileToStream(filePath, separator)) {
+			return SelectionEngine.max(stream::iterator, comparator, filter);
+		}
+	}
+	
+	/**
+	 * Retrieves the k objects that have the highest values according to the comparator. The Entries NOT matching the conditions defined by the filter will be filtered out. 
+	 * Objects with equal values are ranked the same way as in {@link #getObjectByHighestValue(Comparator, Predicate)}.
+	 * @param k maximum number of objects that will be returned (cannot be negative)
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines to condition by which entries will be filtered (can be null)
+	 * @return list of the k objects with the highest values, ordered from the highest to the lowest value. 
+	 * Contains less than k objects if the repository does not contain enough objects matching the filter.
+	 */
+	protected List<T> getTopK(int k, Comparator<T> comparator, Predicate<T> filter) {
 		if(comparator == null) {
 			throw new IllegalArgumentException("Comparator cannot be null.");
 		}
+		if(repo.isEmpty()) {
+			return new ArrayList<>();
+		}
 		
-		if(filter == null) {
-			filter = (x) -> (true);  //condition is always met -> no entries will be filtered out
+		List<T> data = repo.getData();
+		if(!(data instanceof RandomAccess)) {
+			return SelectionEngine.topK(data, k, comparator, filter);
+		}
+		return reduceRanges(data.size(), 
+				(from, to) -> SelectionEngine.topK(data.subList(from, to), k, comparator, filter), 
+				(earlier, later) -> mergeTopK(earlier, later, k, comparator));
+	}
+	
+	/**
+	 * Retrieves all objects whose key lies within a range from a sorted index of the repository. 
+	 * The key and the filter of the index decide which objects are contained in the result.
+	 * @param index sorted index of the repository (cannot be null)
+	 * @param fromKey lowest key (inclusive)
+	 * @param toKey highest key (inclusive)
+	 * @return list of the objects, ordered by key. Objects with equal keys are ordered by their position in the repository
+	 */
+	protected List<T> getObjectsInRange(SortedIntIndex<T> index, int fromKey, int toKey) {
+		if(index == null) {
+			throw new IllegalArgumentException("Index cannot be null.");
+		}
+		//the index is read before the data: an appended batch is visible in the data before it is passed to the views, 
+		//so the data read afterwards contains every row of the index, even while other threads are adding data
+		int[] rows = index.range(fromKey, toKey);
+		List<T> data = repo.getData();
+		List<T> result = new ArrayList<>(rows.length);
+		for(int row : rows) {
+			result.add(data.get(row));
+		}
+		return result;
+	}
+	
+	/**
+	 * Retrieves all objects whose key lies within a range by a scan over all objects of the repository. The entries NOT matching the conditions defined by the filter will be filtered out.
+	 * @param key derives the key of an object (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @param fromKey lowest key (inclusive)
+	 * @param toKey highest key (inclusive)
+	 * @return list of the objects, ordered by key. Objects with equal keys are ordered by their position in the repository
+	 */
+	protected List<T> getObjectsInRange(ToIntFunction<T> key, Predicate<T> filter, int fromKey, int toKey) {
+		if(key == null) {
+			throw new IllegalArgumentException("Key function cannot be null.");
+		}
+		List<T> result = new ArrayList<>();
+		if(repo.isEmpty()) {
+			return result;
 		}
 		
-		return repo.getData().stream()
-				.sorted(comparator)
-				.filter(filter)
-				.collect(Collectors.toList());
+		List<T> data = repo.getData();
+		if(data instanceof RandomAccess) {
+			result = reduceRanges(data.size(), 
+					(from, to) -> objectsInRange(data.subList(from, to), key, filter, fromKey, toKey), 
+					(earlier, later) -> {
+						earlier.addAll(later);
+						return earlier;
+					});
+		} else {
+			result = objectsInRange(data, key, filter, fromKey, toKey);
+		}
+		//the sort is stable, so objects with equal keys keep their order
+		result.sort(Comparator.comparingInt(key));
+		return result;
+	}
+	
+	
+	
+	///////////HELPER METHODS//////////////////////////////////////////////////
+	
+	/**
+	 * Returns the histogram in the default {@link MetricsRegistry} which records the latency of a query of the services. 
+	 * Subclasses look up the histograms of their queries once and record every call of the query in them.
+	 * @param query name of the query
+	 * @return histogram named "service.query.[query]"
+	 */
+	protected static LatencyHistogram queryLatency(String query) {
+		return MetricsRegistry.getDefault().histogram("service.query." + query);
+	}
+	
+	/**
+	 * Returns the result of a query from the query cache, or computes and caches it if the cache holds no result for the current version of the repository
+	 * (see {@link Repository#getVersion()}). The version is read before the query is computed, so a cached result is never older than its version.
+	 * Results which can be modified (e.g. lists) should be cached in an unmodifiable form and copied for the caller.
+	 * @param query identity of the query, e.g. its name or a list of its name and arguments. Needs to implement equals and hashCode
+	 * @param computation computes the result of the query from the current data
+	 * @return result of the query
+	 */
+	@SuppressWarnings("unchecked")
+	protected <R> R cachedQuery(Object query, Supplier<R> computation) {
+		QueryCache cache = queryCache;
+		if(cache == null) {
+			return computation.get();
+		}
+		long version = repo.getVersion();
+		Object cached = cache.get(query, version);
+		if(cached != QueryCache.MISS) {
+			CACHE_HITS.increment();
+			return (R) cached;
+		}
+		CACHE_MISSES.increment();
+		R result = computation.get();
+		cache.put(query, version, result);
+		return result;
+	}
+	
+	/**
+	 * Reduces the rows of the repository range by range. If there are fewer rows than the threshold (see {@link #setParallelThreshold(int)}), 
+	 * all rows are reduced as one range on the calling thread. Otherwise, the rows are split into ranges which are reduced in parallel on the query pool.
+	 * The partial results are always combined in the order of the ranges, so the result does not depend on the number of threads.
+	 * @param size number of rows
+	 * @param reducer reduces the rows of a range
+	 * @param combine combines the results of two adjacent ranges (the result of the earlier range is passed first)
+	 * @return result for all rows
+	 */
+	protected <R> R reduceRanges(int size, RangeReducer<R> reducer, BinaryOperator<R> combine) {
+		if(size < parallelThreshold || size < 2 * MIN_RANGE_SIZE) {
+			return reducer.reduce(0, size);
+		}
+		//a few ranges per thread, so threads which finish early can take over work of others
+		int rangeSize = Math.max(MIN_RANGE_SIZE, size / (4 * queryPool.getParallelism()));
+		return queryPool.invoke(new RangeTask<>(0, size, rangeSize, reducer, combine));
+	}
+	
+	/**
+	 * Aggregates an int value of the rows of a table without creating objects, like {@link #aggregateInt(ToIntFunction, Predicate, boolean)}.
+	 * @param size number of rows
+	 * @param value derives the value of a row (cannot be null)
+	 * @param filter rows NOT matching the filter will be filtered out (can be null)
+	 * @param percentiles true to keep all the values, so percentiles (including the median) can be computed
+	 * @return statistics of the values
+	 */
+	protected IntAggregate aggregateRows(int size, IntUnaryOperator value, IntPredicate filter, boolean percentiles) {
+		return reduceRanges(size, (from, to) -> {
+			IntAggregate aggregate = new IntAggregate(percentiles);
+			for(int row = from; row < to; row++) {
+				if(filter == null || filter.test(row)) {
+					aggregate.add(value.applyAsInt(row), row);
+				}
+			}
+			return aggregate;
+		}, IntAggregate::merge);
+	}
+	
+	/**
+	 * Helper method which returns the data of the repository as a list with fast access by index (copying the references if necessary).
+	 */
+	private List<T> randomAccessData() {
+		List<T> data = repo.getData();
+		return data instanceof RandomAccess ? data : new ArrayList<>(data);
+	}
+	
+	/**
+	 * Helper method which collects the objects whose key lies within a range, in the order of the data.
+	 */
+	private static <T> List<T> objectsInRange(List<T> data, ToIntFunction<T> key, Predicate<T> filter, int fromKey, int toKey) {
+		List<T> result = new ArrayList<>();
+		for(T object : data) {
+			int value = key.applyAsInt(object);
+			if(value >= fromKey && value <= toKey && (filter == null || filter.test(object))) {
+				result.add(object);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Helper method which merges the k highest objects of two adjacent ranges. Both lists are ordered from the highest to the lowest value.
+	 * Objects of the later range rank higher than equal objects of the earlier range, like in {@link SelectionEngine#topK(Iterable, int, Comparator, Predicate)}.
+	 */
+	private static <T> List<T> mergeTopK(List<T> earlier, List<T> later, int k, Comparator<T> comparator) {
+		List<T> result = new ArrayList<>(Math.min(k, earlier.size() + later.size()));
+		int i = 0;
+		int j = 0;
+		while(result.size() < k && (i < earlier.size() || j < later.size())) {
+			if(j < later.size() && (i == earlier.size() || comparator.compare(later.get(j), earlier.get(i)) >= 0)) {
+				result.add(later.get(j++));
+			} else {
+				result.add(earlier.get(i++));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Helper method which creates the executor on which files are mapped. Virtual threads are used if the runtime supports them (Java 21 or later);
+	 * they are looked up by reflection, since the application is compiled for Java 11.
+	 * @param parallelism number of threads of the fixed thread pool which is used otherwise
+	 * @return new executor, which needs to be shut down after use
+	 */
+	private static ExecutorService newIngestionExecutor(int parallelism) {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return Executors.newFixedThreadPool(parallelism);
+		}
+	}
+	
+	
+	/**
+	 * Reduces the rows of a range to a partial result.
+	 */
+	@FunctionalInterface
+	protected interface RangeReducer<R> {
+		/**
+		 * @param from first row of the range (inclusive)
+		 * @param to last row of the range (exclusive)
+		 * @return partial result for the range
+		 */
+		R reduce(int from, int to);
+	}
+	
+	/**
+	 * Task which splits a range in halves until it is small enough, and combines the results of the halves in order.
+	 */
+	private static final class RangeTask<R> extends RecursiveTask<R> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int from;
+		
+		private final int to;
+		
+		private final int rangeSize;
+		
+		private final transient RangeReducer<R> reducer;
+		
+		private final transient BinaryOperator<R> combine;
+		
+		private RangeTask(int from, int to, int rangeSize, RangeReducer<R> reducer, BinaryOperator<R> combine) {
+			this.from = from;
+			this.to = to;
+			this.rangeSize = rangeSize;
+			this.reducer = reducer;
+			this.combine = combine;
+		}
+		
+		@Override
+		protected R compute() {
+			if(to - from <= rangeSize) {
+				return reducer.reduce(from, to);
+			}
+			int middle = (from + to) >>> 1;
+			RangeTask<R> earlier = new RangeTask<>(from, middle, rangeSize, reducer, combine);
+			earlier.fork();
+			R later = new RangeTask<>(middle, to, rangeSize, reducer, combine).compute();
+			return combine.apply(earlier.join(), later);
+		}
 	}
 
 }
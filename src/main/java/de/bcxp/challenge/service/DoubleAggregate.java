@@ -0,0 +1,123 @@
+package de.bcxp.challenge.service;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of double values (see {@link DataHandlerService#aggregateDouble(java.util.function.ToDoubleFunction, java.util.function.Predicate)}).
+ * The values are kept in a primitive array, so the exact percentiles can be computed. NaN values are not aggregated.
+ * @author catherine heyart
+ *
+ */
+public final class DoubleAggregate extends Aggregate {
+
+	private double min;
+
+	private double max;
+
+	private double sum;
+
+	/**
+	 * Aggregated values, only kept if percentiles were requested (null otherwise).
+	 */
+	private double[] values;
+
+	private boolean sorted;
+
+	DoubleAggregate(boolean percentiles) {
+		super(percentiles);
+		if(percentiles) {
+			values = new double[16];
+		}
+	}
+
+	/**
+	 * @return lowest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public double getMin() {
+		checkNotEmpty();
+		return min;
+	}
+
+	/**
+	 * @return highest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public double getMax() {
+		checkNotEmpty();
+		return max;
+	}
+
+	/**
+	 * @return sum of the values (0 if no value has been aggregated)
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Adds the value of a row. The rows need to be added in ascending order.
+	 */
+	void add(double value, int row) {
+		if(Double.isNaN(value)) {
+			return;
+		}
+		if(count == 0 || value < min) {
+			min = value;
+			argMin = row;
+		}
+		if(count == 0 || value >= max) {
+			max = value;
+			argMax = row;
+		}
+		if(values != null) {
+			if(count == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[(int) count] = value;
+		}
+		sum += value;
+		addMoments(value);
+	}
+
+	/**
+	 * Merges the values of a later range into this aggregate.
+	 * @return this aggregate
+	 */
+	DoubleAggregate merge(DoubleAggregate later) {
+		if(later.count == 0) {
+			return this;
+		}
+		if(count == 0 || later.min < min) {
+			min = later.min;
+			argMin = later.argMin;
+		}
+		if(count == 0 || later.max >= max) {
+			max = later.max;
+			argMax = later.argMax;
+		}
+		if(values != null) {
+			int total = Math.toIntExact(count + later.count);
+			if(total > values.length) {
+				values = Arrays.copyOf(values, total);
+			}
+			System.arraycopy(later.values, 0, values, (int) count, (int) later.count);
+		}
+		sum += later.sum;
+		mergeMoments(later);
+		return this;
+	}
+
+	@Override
+	protected synchronized double sortedValue(int index) {
+		if(!sorted) {
+			Arrays.sort(values, 0, (int) count);
+			sorted = true;
+		}
+		return values[index];
+	}
+}
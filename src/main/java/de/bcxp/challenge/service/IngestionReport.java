@@ -0,0 +1,61 @@
+package de.bcxp.challenge.service;
+
+import java.nio.file.Path;
+
+/**
+ * Result of adding the data of a single file to a repository (see {@link DataHandlerService#addDataFromCsvFiles(java.util.Collection, char)}).
+ * @author catherine heyart
+ *
+ */
+public final class IngestionReport {
+
+	private final Path filePath;
+
+	private final int rowCount;
+
+	private final Exception error;
+
+	private IngestionReport(Path filePath, int rowCount, Exception error) {
+		this.filePath = filePath;
+		this.rowCount = rowCount;
+		this.error = error;
+	}
+
+	static IngestionReport success(Path filePath, int rowCount) {
+		return new IngestionReport(filePath, rowCount, null);
+	}
+
+	static IngestionReport failure(Path filePath, Exception error) {
+		return new IngestionReport(filePath, 0, error);
+	}
+
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * @return number of objects which were added to the repository
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return exception which prevented the file from being added (e.g. FileNotFoundException or InvalidFileFormatException). Null if the file was added
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return true, if the file was added to the repository
+	 */
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return filePath + (isSuccessful() ? ": " + rowCount + " rows added" : ": failed (" + error + ")");
+	}
+}
@@ -0,0 +1,120 @@
+package de.bcxp.challenge.service;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of int values (see {@link DataHandlerService#aggregateInt(java.util.function.ToIntFunction, java.util.function.Predicate)}).
+ * The values are kept in a primitive array, so the exact percentiles can be computed.
+ * @author catherine heyart
+ *
+ */
+public final class IntAggregate extends Aggregate {
+
+	private int min;
+
+	private int max;
+
+	private long sum;
+
+	/**
+	 * Aggregated values, only kept if percentiles were requested (null otherwise).
+	 */
+	private int[] values;
+
+	private boolean sorted;
+
+	IntAggregate(boolean percentiles) {
+		super(percentiles);
+		if(percentiles) {
+			values = new int[16];
+		}
+	}
+
+	/**
+	 * @return lowest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public int getMin() {
+		checkNotEmpty();
+		return min;
+	}
+
+	/**
+	 * @return highest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public int getMax() {
+		checkNotEmpty();
+		return max;
+	}
+
+	/**
+	 * @return sum of the values (0 if no value has been aggregated)
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Adds the value of a row. The rows need to be added in ascending order.
+	 */
+	void add(int value, int row) {
+		if(count == 0 || value < min) {
+			min = value;
+			argMin = row;
+		}
+		if(count == 0 || value >= max) {
+			max = value;
+			argMax = row;
+		}
+		if(values != null) {
+			if(count == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[(int) count] = value;
+		}
+		sum += value;
+		addMoments(value);
+	}
+
+	/**
+	 * Merges the values of a later range into this aggregate.
+	 * @return this aggregate
+	 */
+	IntAggregate merge(IntAggregate later) {
+		if(later.count == 0) {
+			return this;
+		}
+		if(count == 0 || later.min < min) {
+			min = later.min;
+			argMin = later.argMin;
+		}
+		if(count == 0 || later.max >= max) {
+			max = later.max;
+			argMax = later.argMax;
+		}
+		if(values != null) {
+			int total = Math.toIntExact(count + later.count);
+			if(total > values.length) {
+				values = Arrays.copyOf(values, total);
+			}
+			System.arraycopy(later.values, 0, values, (int) count, (int) later.count);
+		}
+		sum += later.sum;
+		mergeMoments(later);
+		return this;
+	}
+
+	@Override
+	protected synchronized double sortedValue(int index) {
+		if(!sorted) {
+			Arrays.sort(values, 0, (int) count);
+			sorted = true;
+		}
+		return values[index];
+	}
+}
@@ -0,0 +1,144 @@
+package de.bcxp.challenge.service;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of long values (see {@link DataHandlerService#aggregateLong(java.util.function.ToLongFunction, java.util.function.Predicate)}).
+ * The values are kept in a primitive array, so the exact percentiles can be computed (as double values, so values beyond 2^53 are rounded).
+ * @author catherine heyart
+ *
+ */
+public final class LongAggregate extends Aggregate {
+
+	private long min;
+
+	private long max;
+
+	/**
+	 * Lower 64 bits of the sum.
+	 */
+	private long sum;
+
+	/**
+	 * Upper 64 bits of the sum, so intermediate sums which do not fit into a long are still exact.
+	 */
+	private long sumHigh;
+
+	/**
+	 * Aggregated values, only kept if percentiles were requested (null otherwise).
+	 */
+	private long[] values;
+
+	private boolean sorted;
+
+	LongAggregate(boolean percentiles) {
+		super(percentiles);
+		if(percentiles) {
+			values = new long[16];
+		}
+	}
+
+	/**
+	 * @return lowest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public long getMin() {
+		checkNotEmpty();
+		return min;
+	}
+
+	/**
+	 * @return highest value
+	 * @throws java.util.NoSuchElementException if no value has been aggregated
+	 */
+	public long getMax() {
+		checkNotEmpty();
+		return max;
+	}
+
+	/**
+	 * @return sum of the values (0 if no value has been aggregated)
+	 * @throws ArithmeticException if the sum does not fit into a long
+	 */
+	public long getSum() {
+		//the sum fits if the upper bits are only the sign extension of the lower bits
+		if(sumHigh != (sum >> 63)) {
+			throw new ArithmeticException("The sum of the values does not fit into a long.");
+		}
+		return sum;
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Adds the value of a row. The rows need to be added in ascending order.
+	 */
+	void add(long value, int row) {
+		if(count == 0 || value < min) {
+			min = value;
+			argMin = row;
+		}
+		if(count == 0 || value >= max) {
+			max = value;
+			argMax = row;
+		}
+		if(values != null) {
+			if(count == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[(int) count] = value;
+		}
+		addToSum(value, value >> 63);
+		addMoments(value);
+	}
+
+	/**
+	 * Merges the values of a later range into this aggregate.
+	 * @return this aggregate
+	 */
+	LongAggregate merge(LongAggregate later) {
+		if(later.count == 0) {
+			return this;
+		}
+		if(count == 0 || later.min < min) {
+			min = later.min;
+			argMin = later.argMin;
+		}
+		if(count == 0 || later.max >= max) {
+			max = later.max;
+			argMax = later.argMax;
+		}
+		if(values != null) {
+			int total = Math.toIntExact(count + later.count);
+			if(total > values.length) {
+				values = Arrays.copyOf(values, total);
+			}
+			System.arraycopy(later.values, 0, values, (int) count, (int) later.count);
+		}
+		addToSum(later.sum, later.sumHigh);
+		mergeMoments(later);
+		return this;
+	}
+
+	/**
+	 * Adds a 128-bit value (given by its lower and upper 64 bits) to the sum.
+	 */
+	private void addToSum(long low, long high) {
+		long result = sum + low;
+		//carry if the unsigned addition of the lower bits wraps around
+		long carry = Long.compareUnsigned(result, sum) < 0 ? 1 : 0;
+		sum = result;
+		sumHigh += high + carry;
+	}
+
+	@Override
+	protected synchronized double sortedValue(int index) {
+		if(!sorted) {
+			Arrays.sort(values, 0, (int) count);
+			sorted = true;
+		}
+		return values[index];
+	}
+}
@@ -0,0 +1,95 @@
+package de.bcxp.challenge.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for the results of queries of a service, keyed by the identity of the query (its name and arguments) and the version of the repository
+ * (see {@link de.bcxp.challenge.repository.Repository#getVersion()}). A result is only returned for the version it was computed for,
+ * so all results are invalidated as soon as data is added. Each query keeps only its latest result, and the least recently used queries
+ * are evicted when the cache is full. The cache is thread-safe.
+ * @author catherine heyart
+ *
+ */
+final class QueryCache {
+
+	/**
+	 * Returned by {@link #get(Object, long)} if no valid result is cached. Null is a valid result of a query.
+	 */
+	static final Object MISS = new Object();
+
+	private final int capacity;
+
+	/**
+	 * Cached results by query, in the order of their last access.
+	 */
+	private final LinkedHashMap<Object, Result> results;
+
+	/**
+	 * @param capacity maximum number of queries whose results are cached
+	 */
+	QueryCache(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be at least 1.");
+		}
+		this.capacity = capacity;
+		this.results = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Result> eldest) {
+				return size() > QueryCache.this.capacity;
+			}
+		};
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the cached result of a query.
+	 * @param query identity of the query. Needs to implement equals and hashCode
+	 * @param version current version of the repository
+	 * @return result computed for this version. {@link #MISS} if no result is cached or if it was computed for another version
+	 */
+	synchronized Object get(Object query, long version) {
+		Result result = results.get(query);
+		return result != null && result.version == version ? result.value : MISS;
+	}
+
+	/**
+	 * Caches the result of a query, replacing the result of a previous version.
+	 * @param query identity of the query. Needs to implement equals and hashCode
+	 * @param version version of the repository which was read before the result was computed
+	 * @param value result of the query (can be null)
+	 */
+	synchronized void put(Object query, long version, Object value) {
+		Result previous = results.get(query);
+		//a slower computation of an older version must not replace a newer result
+		if(previous == null || previous.version <= version) {
+			results.put(query, new Result(version, value));
+		}
+	}
+
+	synchronized int size() {
+		return results.size();
+	}
+
+	synchronized void clear() {
+		results.clear();
+	}
+
+
+	private static final class Result {
+
+		private final long version;
+
+		private final Object value;
+
+		private Result(long version, Object value) {
+			this.version = version;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package de.bcxp.challenge.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * This class provides methods to select the lowest, the highest or the k highest elements of a data set in a single pass,
+ * without sorting the whole data set. Entries NOT matching the filter are skipped before they get compared.
+ * <p>
+ * The tie-breaking corresponds to a stable sort of the data in ascending order: if several elements have the lowest value,
+ * the first one is selected, if several elements have the highest value, the last one is selected.
+ * @author catherine heyart
+ *
+ */
+public final class SelectionEngine {
+
+	private SelectionEngine() {
+	}
+
+	/**
+	 * Retrieves the element that has the lowest value according to the comparator.
+	 * @param data data that will be searched (cannot be null)
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return the first element with the lowest value. Null if no such element exists
+	 */
+	public static <T> T min(Iterable<T> data, Comparator<? super T> comparator, Predicate<? super T> filter) {
+		checkArguments(data, comparator);
+
+		T result = null;
+		for(T element : data) {
+			if(filter != null && !filter.test(element)) {
+				continue;
+			}
+			//strictly lower -> the first of several equal elements is kept
+			if(result == null || comparator.compare(element, result) < 0) {
+				result = element;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves the element that has the highest value according to the comparator.
+	 * @param data data that will be searched (cannot be null)
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return the last element with the highest value. Null if no such element exists
+	 */
+	public static <T> T max(Iterable<T> data, Comparator<? super T> comparator, Predicate<? super T> filter) {
+		checkArguments(data, comparator);
+
+		T result = null;
+		for(T element : data) {
+			if(filter != null && !filter.test(element)) {
+				continue;
+			}
+			//higher or equal -> the last of several equal elements is kept
+			if(result == null || comparator.compare(element, result) >= 0) {
+				result = element;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves the k elements with the highest values according to the comparator, using a heap which never holds more than k elements.
+	 * @param data data that will be searched (cannot be null)
+	 * @param k maximum number of elements that will be returned (cannot be negative)
+	 * @param comparator defines the values which will be compared (cannot be null)
+	 * @param filter defines the condition by which entries will be filtered (can be null)
+	 * @return list of the k highest elements, ordered from the highest to the lowest value.
+	 * Contains less than k elements if less than k elements match the filter.
+	 */
+	public static <T> List<T> topK(Iterable<T> data, int k, Comparator<? super T> comparator, Predicate<? super T> filter) {
+		checkArguments(data, comparator);
+		if(k < 0) {
+			throw new IllegalArgumentException("k cannot be negative.");
+		}
+		if(k == 0) {
+			return new ArrayList<>();
+		}
+
+		//the root of the heap is the lowest of the k elements selected so far
+		PriorityQueue<RankedElement<T>> heap = new PriorityQueue<>(Math.min(k, 1024), rankComparator(comparator));
+		long position = 0;
+		for(T element : data) {
+			position++;
+			if(filter != null && !filter.test(element)) {
+				continue;
+			}
+			if(heap.size() < k) {
+				heap.add(new RankedElement<>(element, position));
+			} else if(comparator.compare(element, heap.peek().element) >= 0) {
+				//equal elements seen later rank higher, so they replace the current root
+				heap.poll();
+				heap.add(new RankedElement<>(element, position));
+			}
+		}
+
+		List<RankedElement<T>> ranked = new ArrayList<>(heap);
+		ranked.sort(Collections.reverseOrder(rankComparator(comparator)));
+
+		List<T> result = new ArrayList<>(ranked.size());
+		ranked.forEach(r -> result.add(r.element));
+		return result;
+	}
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private static void checkArguments(Iterable<?> data, Comparator<?> comparator) {
+		if(data == null) {
+			throw new IllegalArgumentException("Data cannot be null.");
+		}
+		if(comparator == null) {
+			throw new IllegalArgumentException("Comparator cannot be null.");
+		}
+	}
+
+	/**
+	 * Helper method which orders ranked elements by their value and, if their values are equal, by their position.
+	 * @param comparator defines the values which will be compared
+	 * @return comparator ordering the elements from the lowest to the highest rank
+	 */
+	private static <T> Comparator<RankedElement<T>> rankComparator(Comparator<? super T> comparator) {
+		return (r1, r2) -> {
+			int result = comparator.compare(r1.element, r2.element);
+			return result != 0 ? result : Long.compare(r1.position, r2.position);
+		};
+	}
+
+	/**
+	 * Element together with its position in the data set.
+	 */
+	private static final class RankedElement<T> {
+
+		private final T element;
+
+		private final long position;
+
+		private RankedElement(T element, long position) {
+			this.element = element;
+			this.position = position;
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+package de.bcxp.challenge.util;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression formats of input files which are decoded while the file is read, so compressed files never need to be decompressed to a temporary file.
+ * The format is detected by the first bytes of a file: gzip files start with 0x1f 0x8b, and zlib-wrapped deflate streams with a zlib header (0x78 followed by 0x01, 0x9c or 0xda).
+ * A raw deflate stream has no header; it is only recognized by the extension ".deflate".
+ * @author catherine heyart
+ *
+ */
+public enum Compression {
+
+	NONE,
+
+	GZIP,
+
+	/**
+	 * Deflate stream with zlib header, as written by {@link java.util.zip.DeflaterOutputStream}.
+	 */
+	DEFLATE,
+
+	/**
+	 * Deflate stream without header.
+	 */
+	RAW_DEFLATE;
+
+	/**
+	 * Size of the buffers used to read and decode compressed files.
+	 */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Number of bytes needed to detect the compression of a file.
+	 */
+	private static final int MAGIC_LENGTH = 2;
+
+	/**
+	 * Detects the compression of a file by its first bytes (and for raw deflate streams by its extension).
+	 * @param filePath path to the file
+	 * @return compression of the file. NONE if the file is not compressed
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public static Compression detect(Path filePath) throws FileNotFoundException {
+		if(filePath == null) {
+			throw new IllegalArgumentException("filePath cannot be null.");
+		}
+		try (InputStream in = Files.newInputStream(filePath)) {
+			return detect(in.readNBytes(MAGIC_LENGTH), filePath);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("The file could not be found: " + filePath.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException("The file could not be opened: " + filePath.toString(), e);
+		}
+	}
+
+	/**
+	 * Opens a file and decodes its content according to its compression (see {@link #detect(Path)}).
+	 * The file is read with a buffer of {@value #BUFFER_SIZE} bytes, so the returned stream does not need to be buffered again.
+	 * @param filePath path to the file
+	 * @return stream of the decoded content of the file
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public static InputStream openDecoded(Path filePath) throws FileNotFoundException {
+		if(filePath == null) {
+			throw new IllegalArgumentException("filePath cannot be null.");
+		}
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(Files.newInputStream(filePath), BUFFER_SIZE);
+			in.mark(MAGIC_LENGTH);
+			byte[] magic = in.readNBytes(MAGIC_LENGTH);
+			in.reset();
+			return detect(magic, filePath).decode(in);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("The file could not be found: " + filePath.toString());
+		} catch (IOException e) {
+			if(in != null) {
+				try {
+					in.close();
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw new UncheckedIOException("The file could not be opened: " + filePath.toString(), e);
+		}
+	}
+
+	/**
+	 * Wraps a stream of compressed data in a stream which decodes it.
+	 * @param in stream of data in this compression format
+	 * @return stream of the decoded data. The given stream if the compression is NONE
+	 * @throws IOException if the header of a gzip stream could not be read
+	 */
+	public InputStream decode(InputStream in) throws IOException {
+		switch(this) {
+			case GZIP:
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case DEFLATE:
+				return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						//an inflater passed to the stream is not ended by the stream itself
+						super.close();
+						inf.end();
+					}
+				};
+			case RAW_DEFLATE:
+				return new InflaterInputStream(in, new Inflater(true), BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						super.close();
+						inf.end();
+					}
+				};
+			default:
+				return in;
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which detects the compression from the first bytes of a file.
+	 * @param magic first bytes of the file (fewer if the file is shorter)
+	 * @param filePath path of the file, used to recognize raw deflate streams
+	 */
+	static Compression detect(byte[] magic, Path filePath) {
+		if(magic.length >= 2) {
+			int first = magic[0] & 0xff;
+			int second = magic[1] & 0xff;
+			if(first == 0x1f && second == 0x8b) {
+				return GZIP;
+			}
+			//the compression levels 0x5e ('^') and others are not accepted, since "x^" could also be the start of a plain text file
+			if(first == 0x78 && (second == 0x01 || second == 0x9c || second == 0xda)) {
+				return DEFLATE;
+			}
+		}
+		Path fileName = filePath.getFileName();
+		if(fileName != null && fileName.toString().toLowerCase().endsWith(".deflate")) {
+			return RAW_DEFLATE;
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,460 @@
+package de.bcxp.challenge.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generates large csv files with the columns of weather.csv and countries.csv, e.g. for scale tests and benchmarks.
+ * The generated data is random, but determined by the seed: the same seed and number of rows always result in the same file.
+ * <p>
+ * A share of the rows can be made malformed, like the rows of the test files (see {@link RowError}).
+ * The rows are generated as bytes without creating any Strings, in chunks on several threads, so that writing is limited by the disk rather than by the generator.
+ * @author catherine heyart
+ *
+ */
+public final class CsvDataGenerator {
+
+	/**
+	 * Kinds of malformed rows which can be generated.
+	 */
+	public enum RowError {
+		/**
+		 * A value of a bound number column is not a number. The row is skipped by the mappers.
+		 */
+		WRONG_TYPE,
+		/**
+		 * A value holds the default value of the models (-1). The row is mapped, but filtered out by the services.
+		 */
+		WRONG_VALUE,
+		/**
+		 * The last field of the row is missing. The row is skipped by the mappers.
+		 */
+		MISSING_FIELD,
+		/**
+		 * The fields of the row are separated by a different separator. The row is skipped by the mappers.
+		 */
+		WRONG_SEPARATOR,
+		/**
+		 * The row is empty. The row is ignored by the mappers.
+		 */
+		EMPTY_ROW;
+
+		/**
+		 * @return true, if a row with this error is mapped to an object
+		 */
+		public boolean isMapped() {
+			return this == WRONG_VALUE;
+		}
+	}
+
+	private static final String WEATHER_HEADER = "Day,MxT,MnT,AvT,AvDP,1HrP TPcpn,PDir,AvSp,Dir,MxS,SkyC,MxR,Mn,R AvSLP\n";
+
+	private static final String COUNTRY_HEADER = "Name;Capital;Accession;Population;Area (km²);GDP (US$ M);HDI;MEPs\n";
+
+	private static final byte[] WRONG_TYPE_VALUE = "n/a".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] FOUNDER = "Founder".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] COUNTRY = "Country ".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] CAPITAL = "Capital ".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Number of rows which are generated as one chunk.
+	 */
+	private static final int CHUNK_ROWS = 1 << 16;
+
+	/**
+	 * Expected size of a row in bytes, used for the initial size of the buffer of a chunk.
+	 */
+	private static final int ESTIMATED_ROW_SIZE = 64;
+
+	/**
+	 * Odd constant which spreads the positions of the chunks over the seeds of their random generators.
+	 */
+	private static final long CHUNK_SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+	/**
+	 * Space which is kept free at the end of the buffer before a row is written, so the row can be written without checking the remaining space.
+	 */
+	private static final int MAX_ROW_SIZE = 512;
+
+	private final long seed;
+
+	private double errorRate;
+
+	private Set<RowError> rowErrors = EnumSet.allOf(RowError.class);
+
+	public CsvDataGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * Sets the share of the rows which are malformed. Default is 0.
+	 * @param errorRate value between 0 (no malformed rows) and 1 (only malformed rows)
+	 */
+	public void setErrorRate(double errorRate) {
+		if(!(errorRate >= 0 && errorRate <= 1)) {
+			throw new IllegalArgumentException("The error rate must be between 0 and 1.");
+		}
+		this.errorRate = errorRate;
+	}
+
+	public Set<RowError> getRowErrors() {
+		return Collections.unmodifiableSet(rowErrors);
+	}
+
+	/**
+	 * Sets the kinds of malformed rows which are generated. Each malformed row gets one of these errors, chosen at random. Default is all kinds.
+	 * @param rowErrors kinds of errors (cannot be empty)
+	 */
+	public void setRowErrors(Set<RowError> rowErrors) {
+		if(rowErrors == null || rowErrors.isEmpty()) {
+			throw new IllegalArgumentException("At least one kind of row error is needed.");
+		}
+		this.rowErrors = EnumSet.copyOf(rowErrors);
+	}
+
+	/**
+	 * Writes a weather file with the header of weather.csv and ',' as separator. An existing file is overwritten.
+	 * @param filePath path of the file
+	 * @param rows number of rows (without the header)
+	 * @return summary of the written rows
+	 */
+	public Summary writeWeatherFile(Path filePath, long rows) {
+		return write(filePath, rows, WEATHER_HEADER, CsvDataGenerator::writeWeatherRow);
+	}
+
+	/**
+	 * Writes a country file with the header of countries.csv and ';' as separator. An existing file is overwritten.
+	 * @param filePath path of the file
+	 * @param rows number of rows (without the header)
+	 * @return summary of the written rows
+	 */
+	public Summary writeCountryFile(Path filePath, long rows) {
+		return write(filePath, rows, COUNTRY_HEADER, CsvDataGenerator::writeCountryRow);
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Helper method which writes the header and the rows of a file. The rows are generated in chunks of {@value #CHUNK_ROWS} rows on the common pool,
+	 * and the chunks are written in order by the calling thread. Every chunk has its own random generator derived from the seed and the
+	 * position of the chunk, so the file does not depend on the number of threads.
+	 */
+	private Summary write(Path filePath, long rows, String header, RowWriter rowWriter) {
+		if(filePath == null) {
+			throw new IllegalArgumentException("The file path cannot be null.");
+		}
+		if(rows < 0) {
+			throw new IllegalArgumentException("The number of rows cannot be negative.");
+		}
+		RowError[] errors = rowErrors.toArray(new RowError[0]);
+		double rate = errorRate;
+		long chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+		int maxInFlight = 2 * ForkJoinPool.getCommonPoolParallelism();
+		Summary summary = new Summary(rows);
+
+		Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+			for(long chunk = 0; chunk < chunks; chunk++) {
+				long firstRow = chunk * CHUNK_ROWS;
+				int chunkRows = (int) Math.min(CHUNK_ROWS, rows - firstRow);
+				SplittableRandom random = new SplittableRandom(seed ^ (chunk * CHUNK_SEED_MULTIPLIER));
+				inFlight.add(ForkJoinPool.commonPool().submit(() -> generate(random, firstRow, chunkRows, rate, errors, rowWriter)));
+				if(inFlight.size() >= maxInFlight) {
+					writeChunk(channel, inFlight.poll().join(), summary);
+				}
+			}
+			while(!inFlight.isEmpty()) {
+				writeChunk(channel, inFlight.poll().join(), summary);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("The file could not be written: " + filePath.toString(), e);
+		} finally {
+			inFlight.forEach(task -> task.cancel(false));
+		}
+		return summary;
+	}
+
+	/**
+	 * Helper method which generates the rows of a chunk.
+	 */
+	private static Chunk generate(SplittableRandom random, long firstRow, int rows, double errorRate, RowError[] errors, RowWriter rowWriter) {
+		ByteSink sink = new ByteSink(rows * ESTIMATED_ROW_SIZE);
+		long[] errorCounts = new long[RowError.values().length];
+		for(int i = 0; i < rows; i++) {
+			RowError error = null;
+			if(errorRate > 0 && random.nextDouble() < errorRate) {
+				error = errors[random.nextInt(errors.length)];
+				errorCounts[error.ordinal()]++;
+			}
+			sink.ensureRowSpace();
+			if(error == RowError.EMPTY_ROW) {
+				sink.put((byte) '\n');
+			} else {
+				rowWriter.write(sink, random, firstRow + i, error);
+			}
+		}
+		return new Chunk(sink, errorCounts);
+	}
+
+	private static void writeChunk(FileChannel channel, Chunk chunk, Summary summary) throws IOException {
+		writeFully(channel, ByteBuffer.wrap(chunk.sink.buffer, 0, chunk.sink.position));
+		for(RowError error : RowError.values()) {
+			if(chunk.errorCounts[error.ordinal()] > 0) {
+				summary.errorCounts.merge(error, chunk.errorCounts[error.ordinal()], Long::sum);
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	/**
+	 * Helper method which writes a weather row. The values are in the ranges of weather.csv.
+	 */
+	private static void writeWeatherRow(ByteSink sink, SplittableRandom random, long row, RowError error) {
+		byte separator = error == RowError.WRONG_SEPARATOR ? (byte) ';' : (byte) ',';
+		int minTemp = 40 + nextInt(random, 35);
+		int maxTemp = minTemp + nextInt(random, 30);
+
+		sink.putInt((int) (row % 30) + 1).put(separator);
+		sink.putInt(maxTemp).put(separator);
+		if(error == RowError.WRONG_TYPE) {
+			sink.put(WRONG_TYPE_VALUE);
+		} else {
+			sink.putInt(error == RowError.WRONG_VALUE ? -1 : minTemp);
+		}
+		sink.put(separator);
+		sink.putInt((minTemp + maxTemp) / 2).put(separator);
+		sink.putDecimal(300 + nextInt(random, 400)).put(separator);
+		sink.putInt(nextInt(random, 2)).put(separator);
+		sink.putInt(nextInt(random, 360)).put(separator);
+		sink.putDecimal(nextInt(random, 200)).put(separator);
+		sink.putInt(nextInt(random, 360)).put(separator);
+		sink.putInt(5 + nextInt(random, 30)).put(separator);
+		sink.putDecimal(nextInt(random, 100)).put(separator);
+		sink.putInt(50 + nextInt(random, 50)).put(separator);
+		sink.putInt(10 + nextInt(random, 40));
+		if(error != RowError.MISSING_FIELD) {
+			sink.put(separator).putDecimal(9950 + nextInt(random, 300));
+		}
+		sink.put((byte) '\n');
+	}
+
+	/**
+	 * Helper method which writes a country row. The values are in the ranges of countries.csv.
+	 */
+	private static void writeCountryRow(ByteSink sink, SplittableRandom random, long row, RowError error) {
+		byte separator = error == RowError.WRONG_SEPARATOR ? (byte) ',' : (byte) ';';
+
+		sink.put(COUNTRY).putLong(row).put(separator);
+		sink.put(CAPITAL).putLong(row).put(separator);
+		if(nextInt(random, 5) == 0) {
+			sink.put(FOUNDER);
+		} else {
+			sink.putInt(1958 + nextInt(random, 56));
+		}
+		sink.put(separator);
+		if(error == RowError.WRONG_TYPE) {
+			sink.put(WRONG_TYPE_VALUE);
+		} else {
+			sink.putInt(error == RowError.WRONG_VALUE ? -1 : 100_000 + nextInt(random, 90_000_000));
+		}
+		sink.put(separator);
+		sink.putInt(300 + nextInt(random, 600_000)).put(separator);
+		sink.putInt(10_000 + nextInt(random, 4_000_000)).put(separator);
+		sink.put((byte) '0').put((byte) '.').putInt(700 + nextInt(random, 300));
+		if(error != RowError.MISSING_FIELD) {
+			sink.put(separator).putInt(6 + nextInt(random, 91));
+		}
+		sink.put((byte) '\n');
+	}
+
+
+	/**
+	 * Helper method which returns a random number between 0 (inclusive) and the bound (exclusive). Faster than {@link SplittableRandom#nextInt(int)}
+	 * (a multiplication instead of a division), at the price of a negligible bias towards some numbers.
+	 */
+	private static int nextInt(SplittableRandom random, int bound) {
+		return (int) (((random.nextLong() >>> 32) * bound) >>> 32);
+	}
+
+
+	/**
+	 * Writes a single row.
+	 */
+	@FunctionalInterface
+	private interface RowWriter {
+		void write(ByteSink sink, SplittableRandom random, long row, RowError error);
+	}
+
+	/**
+	 * Generated rows of a chunk.
+	 */
+	private static final class Chunk {
+
+		private final ByteSink sink;
+
+		/**
+		 * Number of rows per kind of error, by the ordinal of the error.
+		 */
+		private final long[] errorCounts;
+
+		private Chunk(ByteSink sink, long[] errorCounts) {
+			this.sink = sink;
+			this.errorCounts = errorCounts;
+		}
+	}
+
+	/**
+	 * Growing buffer which collects the bytes of the rows.
+	 */
+	private static final class ByteSink {
+
+		private byte[] buffer;
+
+		private int position;
+
+		private ByteSink(int capacity) {
+			buffer = new byte[Math.max(MAX_ROW_SIZE, capacity)];
+		}
+
+		private ByteSink put(byte b) {
+			buffer[position++] = b;
+			return this;
+		}
+
+		private ByteSink put(byte[] bytes) {
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+			return this;
+		}
+
+		private ByteSink putInt(int value) {
+			if(value < 0) {
+				buffer[position++] = '-';
+				value = -value;
+			}
+			//the digits are written backwards, directly into the buffer
+			int end = position + digitCount(value);
+			int i = end;
+			do {
+				buffer[--i] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while(value != 0);
+			position = end;
+			return this;
+		}
+
+		private ByteSink putLong(long value) {
+			if(value >= Integer.MIN_VALUE + 1 && value <= Integer.MAX_VALUE) {
+				return putInt((int) value);
+			}
+			return put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+		}
+
+		/**
+		 * Writes a number with one decimal place, e.g. 537 as "53.7".
+		 */
+		private ByteSink putDecimal(int tenths) {
+			putInt(tenths / 10);
+			buffer[position++] = '.';
+			buffer[position++] = (byte) ('0' + tenths % 10);
+			return this;
+		}
+
+		/**
+		 * Grows the buffer if there might not be enough space for the next row.
+		 */
+		private void ensureRowSpace() {
+			if(position > buffer.length - MAX_ROW_SIZE) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+		}
+
+		private static int digitCount(int value) {
+			int count = 1;
+			while(count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+				count++;
+			}
+			return count;
+		}
+	}
+
+
+	/**
+	 * Summary of a generated file.
+	 */
+	public static final class Summary {
+
+		private final long rowCount;
+
+		private final Map<RowError, Long> errorCounts = new EnumMap<>(RowError.class);
+
+		private Summary(long rowCount) {
+			this.rowCount = rowCount;
+		}
+
+		/**
+		 * @return number of rows (without the header), including the malformed rows
+		 */
+		public long getRowCount() {
+			return rowCount;
+		}
+
+		/**
+		 * @param error kind of error
+		 * @return number of rows with the error
+		 */
+		public long getErrorCount(RowError error) {
+			return errorCounts.getOrDefault(error, 0L);
+		}
+
+		/**
+		 * @return number of rows which are mapped to objects by the mappers (valid rows and rows with {@link RowError#WRONG_VALUE})
+		 */
+		public long getMappedRowCount() {
+			long mapped = rowCount;
+			for(Map.Entry<RowError, Long> entry : errorCounts.entrySet()) {
+				if(!entry.getKey().isMapped()) {
+					mapped -= entry.getValue();
+				}
+			}
+			return mapped;
+		}
+	}
+}
@@ -3,7 +3,9 @@ package de.bcxp.challenge.util;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 
@@ -15,14 +17,14 @@ import java.nio.file.Path;
 public class FileReaderHelper {
 	
 	/**
-	 * Reads the first line in a file and returns it
+	 * Reads the first line in a file and returns it. Compressed files are decoded (see {@link Compression}).
 	 * @param filePath path to the file of which the first line will be read
 	 * @return first line of the file as a String
 	 * @throws FileNotFoundException if the file could not be found
 	 */
 	public static String readFirstLineOfFile(Path filePath) throws FileNotFoundException {
 		String result = null;
-	    try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+	    try (BufferedReader reader = new BufferedReader(openReader(filePath))) {
 	            result = reader.readLine();
 	    } catch (IOException e) {
 	    	if(e instanceof FileNotFoundException || e instanceof NoSuchFileException) {
@@ -32,4 +34,15 @@ public class FileReaderHelper {
 		}
 	    return result;	
 	}
+	
+	/**
+	 * Opens a file for reading. The content of the file is decoded as UTF-8.
+	 * Gzip and deflate compressed files are detected by their first bytes and decompressed while they are read (see {@link Compression}).
+	 * @param filePath path to the file which will be opened
+	 * @return reader for the decoded content of the file
+	 * @throws FileNotFoundException if the file could not be found
+	 */
+	public static Reader openReader(Path filePath) throws FileNotFoundException {
+		return new InputStreamReader(Compression.openDecoded(filePath), StandardCharsets.UTF_8);
+	}
 }
@@ -2,6 +2,7 @@ package de.bcxp.challenge.util;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * This class provides methods to check file types.
@@ -11,7 +12,12 @@ import java.nio.file.Path;
 public class FileTypeChecker {
 
 	/**
-	 * Checks if a given file has a "csv" extension.
+	 * Extensions of compressed files, which are decoded while the file is read (see {@link Compression}).
+	 */
+	private static final Set<String> COMPRESSION_EXTENSIONS = Set.of("gz", "gzip", "deflate", "zz");
+
+	/**
+	 * Checks if a given file has a "csv" extension. The extension may be followed by the extension of a compressed file, e.g. "csv.gz".
 	 * @param filePath path to the file which will be checked
 	 * @return true, if the file has a "csv" extension
 	 */
@@ -19,7 +25,32 @@ public class FileTypeChecker {
 		if(filePath == null) {
 			throw new IllegalArgumentException("filePath cannot be null.");
 		}
-		return getFileExtension(filePath.toString()).equals("csv");
+		return getDataExtension(filePath.toString()).equals("csv");
+	}
+
+	/**
+	 * Checks if a given file has a "json" extension. The extension may be followed by the extension of a compressed file, e.g. "json.gz".
+	 * @param filePath path to the file which will be checked
+	 * @return true, if the file has a "json" extension
+	 */
+	public static boolean isJsonFile(Path filePath) {
+		if(filePath == null) {
+			throw new IllegalArgumentException("filePath cannot be null.");
+		}
+		return getDataExtension(filePath.toString()).equals("json");
+	}
+	
+	/**
+	 * Helper method which retrieves the extension of a given file, ignoring the extension of a compressed file.
+	 * @param filePath path of the file of which the extension is retrieved
+	 * @return extension preceding the compression extension (e.g. "csv" for "data.csv.gz"), or the extension of the file if it has no compression extension
+	 */
+	private static String getDataExtension(String filePath) {
+		String extension = getFileExtension(filePath);
+		if(COMPRESSION_EXTENSIONS.contains(extension.toLowerCase())) {
+			extension = getFileExtension(filePath.substring(0, filePath.length() - extension.length() - 1));
+		}
+		return extension;
 	}
 	
 	/**
@@ -0,0 +1,110 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.mapper.ParallelCsvToObjectMapper;
+import de.bcxp.challenge.util.Compression;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for mapping gzip and deflate compressed csv files.
+ * @author catherine heyart
+ *
+ */
+public class CompressedCsvTest {
+
+	private static final Path NORMAL_CASE = Path.of("src/test/resources/de/bcxp/challenge/weather_normalCase.csv");
+
+	private static final Path WRONG_TYPE = Path.of("src/test/resources/de/bcxp/challenge/weather_entryWithWrongType.csv");
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	//compressed files are detected by their first bytes and mapped like the uncompressed file by all mappers
+	void allMappersDecodeCompressedFiles() throws IOException, InvalidFileFormatException {
+		Path gzip = compress(NORMAL_CASE, "weather.csv.gz", Compression.GZIP);
+		Path deflate = compress(NORMAL_CASE, "weather.csv.deflate", Compression.DEFLATE);
+		Path rawDeflate = compress(NORMAL_CASE, "weather_raw.csv.deflate", Compression.RAW_DEFLATE);
+		//detection does not depend on the extension
+		Path gzipWithoutExtension = compress(NORMAL_CASE, "weather.csv", Compression.GZIP);
+
+		assertEquals(Compression.GZIP, Compression.detect(gzip));
+		assertEquals(Compression.DEFLATE, Compression.detect(deflate));
+		assertEquals(Compression.RAW_DEFLATE, Compression.detect(rawDeflate));
+		assertEquals(Compression.GZIP, Compression.detect(gzipWithoutExtension));
+		assertEquals(Compression.NONE, Compression.detect(NORMAL_CASE));
+
+		for(CsvToObjectMapper<MockBean> mapper : List.of(new CsvToObjectMapper<>(MockBean.class), new FastCsvToObjectMapper<>(MockBean.class), new ParallelCsvToObjectMapper<>(MockBean.class))) {
+			List<MockBean> expected = mapper.mapFileToObjectList(NORMAL_CASE);
+			for(Path path : List.of(gzip, deflate, rawDeflate, gzipWithoutExtension)) {
+				assertEquals(expected, mapper.mapFileToObjectList(path));
+				try (Stream<MockBean> stream = mapper.mapFileToStream(path)) {
+					assertEquals(expected, stream.collect(Collectors.toList()));
+				}
+			}
+		}
+	}
+
+	@Test
+	//invalid rows of a compressed file are skipped like in the uncompressed file
+	void skipsInvalidRows() throws IOException, InvalidFileFormatException {
+		Path gzip = compress(WRONG_TYPE, "wrongType.csv.gz", Compression.GZIP);
+		for(CsvToObjectMapper<MockBean> mapper : List.of(new CsvToObjectMapper<>(MockBean.class), new FastCsvToObjectMapper<>(MockBean.class), new ParallelCsvToObjectMapper<>(MockBean.class))) {
+			assertEquals(mapper.mapFileToObjectList(WRONG_TYPE), mapper.mapFileToObjectList(gzip));
+		}
+	}
+
+	@Test
+	void invalidFiles() throws IOException {
+		CsvToObjectMapper<MockBean> mapper = new FastCsvToObjectMapper<>(MockBean.class);
+		//only csv files may be compressed
+		Path notCsv = compress(NORMAL_CASE, "weather.txt.gz", Compression.GZIP);
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(notCsv));
+		//compressed files cannot be followed
+		Path gzip = compress(NORMAL_CASE, "weather.csv.gz", Compression.GZIP);
+		assertThrows(InvalidFileFormatException.class, () -> new FastCsvToObjectMapper<>(MockBean.class).openTail(gzip, ','));
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private Path compress(Path source, String fileName, Compression compression) throws IOException {
+		Path target = tempDir.resolve(fileName);
+		try (OutputStream out = compressingStream(Files.newOutputStream(target), compression)) {
+			out.write(Files.readAllBytes(source));
+		}
+		return target;
+	}
+
+	private static OutputStream compressingStream(OutputStream out, Compression compression) throws IOException {
+		switch(compression) {
+			case GZIP:
+				return new GZIPOutputStream(out);
+			case DEFLATE:
+				return new DeflaterOutputStream(out);
+			case RAW_DEFLATE:
+				return new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+			default:
+				return out;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.CsvRow;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for the row visitor of FastCsvToObjectMapper
+ * @author catherine heyart
+ *
+ */
+public class CsvRowVisitorTest {
+
+	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
+
+	private FastCsvToObjectMapper<MockBean> mapper;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		mapper = new FastCsvToObjectMapper<>(MockBean.class);
+	}
+
+	@Test
+	//all rows are passed as the same instance, the values can be aggregated without mapping the rows to beans
+	void aggregateRows() throws FileNotFoundException, InvalidFileFormatException {
+		List<CsvRow> rows = new ArrayList<>();
+		double[] sum = new double[1];
+		long visited = mapper.visitFile(Path.of(FILE_PATH + "weather_normalCase.csv"), row -> {
+			rows.add(row);
+			sum[0] += row.getDouble(row.getColumnIndex("temp"));
+		});
+
+		assertEquals(4, visited);
+		assertEquals(59.1 + 63.5 + 55.0 + 59, sum[0], 1e-9);
+		assertSame(rows.get(0), rows.get(3));
+	}
+
+	@Test
+	//rows with a wrong number of fields and rows for which the visitor throws an exception are skipped and passed to the sink with their line numbers
+	void invalidRowsAreSkipped() throws IOException, InvalidFileFormatException {
+		List<CsvException> rejected = Collections.synchronizedList(new ArrayList<>());
+		mapper.setRejectedRowSink((file, rows) -> rejected.addAll(rows));
+		List<Integer> days = new ArrayList<>();
+
+		long visited = mapper.visitFile(Path.of(FILE_PATH + "weather_entryWithWrongType.csv"), row -> days.add(row.getInt(row.getColumnIndex("Day"))));
+		assertEquals(3, visited);
+		assertEquals(List.of(1, 3, 4), days);
+		assertEquals(1, rejected.size());
+		assertTrue(rejected.get(0) instanceof CsvDataTypeMismatchException);
+		assertEquals(3, rejected.get(0).getLineNumber());
+
+		rejected.clear();
+		Path path = write("fields.csv", "Month,Day,Temp\nJanuary,1,1\n\nJanuary,2\nJanuary,3,3,3\nJanuary,4,4\n");
+		assertEquals(2, mapper.visitFile(path, row -> {}));
+		assertEquals(2, rejected.size());
+		assertEquals(4, rejected.get(0).getLineNumber());
+		assertEquals(5, rejected.get(1).getLineNumber());
+	}
+
+	@Test
+	//quoted and escaped values, whitespace, exponents and blank values
+	void accessors() throws IOException, InvalidFileFormatException {
+		Path path = write("accessors.csv", "Month;Day;Temp;Station\n\"Jan \"\"a\"\"\"; 7 ;1.5e1;\"x;y\"\n\" \";\"8\";-0.25;\n");
+		List<String> values = new ArrayList<>();
+		long visited = mapper.visitFile(path, ';', row -> {
+			assertEquals(4, row.getFieldCount());
+			assertEquals(-1, row.getColumnIndex("Unknown"));
+			assertEquals(3, row.getColumnIndex("STATION"));
+			assertThrows(IndexOutOfBoundsException.class, () -> row.getString(4));
+			values.add(row.getString(0) + "|" + row.getInt(1) + "|" + row.getLong(1) + "|" + row.getDouble(2) + "|" + row.getString(3)
+					+ "|" + row.isBlank(0) + "|" + row.isBlank(3) + "|" + row.getLineNumber());
+		});
+		assertEquals(2, visited);
+		assertEquals(List.of("Jan \"a\"|7|7|15.0|x;y|false|false|2", " |8|8|-0.25||true|true|3"), values);
+	}
+
+	@Test
+	//doubles are parsed exactly like by Double.parseDouble, also the ones computed from their digits
+	void doublesAreParsedExactly() throws IOException, InvalidFileFormatException {
+		Random random = new Random(25);
+		List<String> numbers = new ArrayList<>(List.of("0", "-0", "-0.0", "1.", ".5", "+3.25", "0.000000000000000000001", "123456789012345",
+				"1234567890123456789", "0.1234567890123456789", "1e-300", "-2.5E10", "NaN", "-Infinity", "0x1p3"));
+		for(int i = 0; i < 10000; i++) {
+			String digits = Long.toString(Math.abs(random.nextLong()) % (long) Math.pow(10, 1 + random.nextInt(18)));
+			int point = random.nextInt(digits.length() + 1);
+			numbers.add((random.nextBoolean() ? "-" : "") + digits.substring(0, point) + "." + digits.substring(point) + "0".repeat(random.nextInt(3)));
+		}
+		StringBuilder content = new StringBuilder("Month,Day,Temp\n");
+		numbers.forEach(number -> content.append("January,1,").append(number).append('\n'));
+		Path path = write("doubles.csv", content.toString());
+
+		List<Double> parsed = new ArrayList<>();
+		mapper.visitFile(path, row -> parsed.add(row.getDouble(2)));
+		assertEquals(numbers.size(), parsed.size());
+		for(int i = 0; i < numbers.size(); i++) {
+			assertEquals(Double.parseDouble(numbers.get(i)), parsed.get(i), numbers.get(i));
+		}
+	}
+
+	@Test
+	void invalidFiles() throws IOException {
+		assertThrows(InvalidFileFormatException.class, () -> mapper.visitFile(Path.of(FILE_PATH + "weather_noColumnHeader.csv"), row -> {}));
+		assertThrows(InvalidFileFormatException.class, () -> mapper.visitFile(Path.of(FILE_PATH + "weather.json"), row -> {}));
+		assertThrows(InvalidFileFormatException.class, () -> mapper.visitFile(write("empty.csv", ""), row -> {}));
+		assertThrows(FileNotFoundException.class, () -> mapper.visitFile(Path.of("/wrong/weather.csv"), row -> {}));
+		assertThrows(IllegalArgumentException.class, () -> mapper.visitFile(null, row -> {}));
+		assertThrows(IllegalArgumentException.class, () -> mapper.visitFile(Path.of(FILE_PATH + "weather_normalCase.csv"), null));
+		//exceptions which are not CsvExceptions stop the visit
+		assertThrows(IllegalStateException.class, () -> mapper.visitFile(Path.of(FILE_PATH + "weather_normalCase.csv"), row -> {
+			throw new IllegalStateException();
+		}));
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private Path write(String fileName, String content) throws IOException {
+		Path path = tempDir.resolve(fileName);
+		Files.writeString(path, content, StandardCharsets.UTF_8);
+		return path;
+	}
+}
@@ -4,14 +4,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.opencsv.bean.CsvBindByName;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
 import de.bcxp.challenge.mapper.FileToObjectMapper;
 import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
@@ -26,6 +36,9 @@ public class CsvToObjectMapperTest {
 	private FileToObjectMapper<MockBean> mapper;
 	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
 	
+	@TempDir
+	Path tempDir;
+	
 	@BeforeEach
 	void setUp() throws Exception {
 		mapper = new CsvToObjectMapper<>(MockBean.class);  
@@ -44,6 +57,15 @@ public class CsvToObjectMapperTest {
 		assertEquals(result, correctBeanList);
 	}
 	
+	@Test
+	//the bound columns do not depend on the separator which was set when the mapper was created
+	void separatorChangedAfterConstruction() throws FileNotFoundException, InvalidFileFormatException{
+		CsvToObjectMapper<MockBean> otherMapper = new CsvToObjectMapper<>(MockBean.class, ';');
+		otherMapper.setSeparator(',');
+		List<MockBean> result = otherMapper.mapFileToObjectList(Path.of(FILE_PATH + "weather_normalCase.csv"));
+		assertEquals(result, correctBeanList);
+	}
+
 	@Test
 	void emptyFile() throws FileNotFoundException, InvalidFileFormatException {
 		assertThrows(InvalidFileFormatException.class, () -> {
@@ -145,20 +167,89 @@ public class CsvToObjectMapperTest {
 		assertEquals(result, new ArrayList<MockBean>());
 	}
 	
+	@Test
+	void streamNormalCase() throws FileNotFoundException, InvalidFileFormatException{
+		try (Stream<MockBean> stream = mapper.mapFileToStream(Path.of(FILE_PATH + "weather_normalCase.csv"))) {
+			assertEquals(stream.collect(Collectors.toList()), correctBeanList);
+		}
+	}
 	
+	@Test
+	//rows with wrong type get skipped while streaming as well
+	void streamEntryWithWrongType() throws FileNotFoundException, InvalidFileFormatException{
+		correctBeanList.remove(1);
+		try (Stream<MockBean> stream = mapper.mapFileToStream(Path.of(FILE_PATH + "weather_entryWithWrongType.csv"))) {
+			assertEquals(stream.collect(Collectors.toList()), correctBeanList);
+		}
+	}
 	
+	@Test
+	//header is validated before the stream is returned
+	void streamInvalidHeader() {
+		assertThrows(InvalidFileFormatException.class, () -> {
+			mapper.mapFileToStream(Path.of(FILE_PATH + "weather_noColumnHeader.csv"));
+	    });
+	}
 	
+	@Test
+	void mapFileWithConsumer() throws FileNotFoundException, InvalidFileFormatException{
+		List<MockBean> result = new ArrayList<>();
+		mapper.mapFile(Path.of(FILE_PATH + "weather_emptyRow.csv"), result::add);
+		correctBeanList.remove(1);
+		assertEquals(result, correctBeanList);
+	}
 	
-
-
-	
-	
-
-	
-	
-	
+	@Test
+	//columns which are not bound are skipped, also if they are quoted, escaped or span several lines; the column count is still validated
+	void wideFileWithUnboundColumns() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("wide.csv");
+		Files.writeString(path, "Month,Note,Day,Extra,Temp,Comment\n"
+				+ "January,plain,1,x,59.1,y\n"
+				+ "February,\"quoted, with separator\",2,\"say \"\"hi\"\"\",63.5,\n"
+				+ "January,\"multi\nline\",3,,55.0,z\n"
+				+ "\n"
+				+ "March,too,few,fields\n"
+				+ "January,a,4,b,59,c\n"
+				+ "single\n", StandardCharsets.UTF_8);
+		
+		List<MockBean> result = mapper.mapFileToObjectList(path);
+		assertEquals(correctBeanList, result);
+		assertEquals(new FastCsvToObjectMapper<>(MockBean.class).mapFileToObjectList(path), result);
+		
+		List<Long> rejectedLines = new ArrayList<>();
+		CsvToObjectMapper<MockBean> sinkMapper = new CsvToObjectMapper<>(MockBean.class);
+		sinkMapper.setRejectedRowSink((filePath, rows) -> rows.forEach(e -> rejectedLines.add(e.getLineNumber())));
+		sinkMapper.mapFileToObjectList(path);
+		assertEquals(List.of(7L, 9L), rejectedLines);
+	}
 	
+	@Test
+	//columns bound to fields which only OpenCSV can convert are not skipped
+	void fieldTypesWithoutFastBinding() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("codes.csv");
+		Files.writeString(path, "Day,Code,Amount\n1,7,2.50\n", StandardCharsets.UTF_8);
+		
+		List<CodeBean> result = new CsvToObjectMapper<>(CodeBean.class).mapFileToObjectList(path);
+		assertEquals(1, result.size());
+		assertEquals(1, result.get(0).day);
+		assertEquals(7, result.get(0).code);
+		assertEquals(new BigDecimal("2.50"), result.get(0).amount);
+	}
 	
 	
+	/**
+	 * Bean with fields whose types are not supported by FastCsvToObjectMapper.
+	 */
+	public static class CodeBean {
+		
+		@CsvBindByName(column = "Day")
+		private int day;
+		
+		@CsvBindByName(column = "Code")
+		private short code;
+		
+		@CsvBindByName(column = "Amount")
+		private BigDecimal amount;
+	}
 
 }
@@ -0,0 +1,162 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.bcxp.challenge.mapper.CsvFileTail;
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.mapper.FileToObjectMapper;
+import de.bcxp.challenge.metrics.MetricsRegistry;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for FastCsvToObjectMapper. The results are compared to the results of CsvToObjectMapper (which uses OpenCSV for the mapping).
+ * @author catherine heyart
+ *
+ */
+public class FastCsvToObjectMapperTest {
+
+	private FileToObjectMapper<MockBean> openCsvMapper;
+	private FileToObjectMapper<MockBean> fastMapper;
+	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		openCsvMapper = new CsvToObjectMapper<>(MockBean.class);
+		fastMapper = new FastCsvToObjectMapper<>(MockBean.class);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"weather_normalCase.csv", "weather_columnMissing.csv", "weather_columnTooMuch.csv", "weather_emptyRow.csv",
+			"weather_entryHasWrongValue.csv", "weather_entryWithWrongSeparator.csv", "weather_entryWithWrongType.csv",
+			"weather_allEntriesWithWrongType.csv", "weather_wrongNumberOfDataFields.csv"})
+	//both mappers map the same rows to the same beans
+	void sameResultAsOpenCsv(String fileName) throws FileNotFoundException, InvalidFileFormatException {
+		Path path = Path.of(FILE_PATH + fileName);
+		assertEquals(openCsvMapper.mapFileToObjectList(path), fastMapper.mapFileToObjectList(path));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"empty.csv", "weather_noColumnHeader.csv", "weather_wrongSeparator.csv", "test.csv", "weather.json"})
+	//both mappers reject the same files
+	void sameInvalidFilesAsOpenCsv(String fileName) {
+		Path path = Path.of(FILE_PATH + fileName);
+		assertThrows(InvalidFileFormatException.class, () -> openCsvMapper.mapFileToObjectList(path));
+		assertThrows(InvalidFileFormatException.class, () -> fastMapper.mapFileToObjectList(path));
+	}
+
+	@Test
+	void wrongFilePath() {
+		assertThrows(FileNotFoundException.class, () -> {
+			fastMapper.mapFileToObjectList(Path.of("/wrong/weather_normalCase.csv"));
+	    });
+	}
+
+	@Test
+	void filePathIsNull() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			fastMapper.mapFileToObjectList(null);
+	    });
+	}
+
+	@Test
+	//weather file with 14 columns, of which 3 are bound to DailyWeather
+	void dailyWeather() throws FileNotFoundException, InvalidFileFormatException {
+		Path path = Path.of("src/main/resources/de/bcxp/challenge/weather.csv");
+		List<DailyWeather> expected = new CsvToObjectMapper<>(DailyWeather.class).mapFileToObjectList(path);
+		List<DailyWeather> result = new FastCsvToObjectMapper<>(DailyWeather.class).mapFileToObjectList(path);
+		assertEquals(30, result.size());
+		assertEquals(expected, result);
+	}
+
+	@Test
+	//country file with ';' as separator and a non-ASCII column name ("Area (km²)")
+	void country() throws FileNotFoundException, InvalidFileFormatException {
+		Path path = Path.of("src/main/resources/de/bcxp/challenge/countries.csv");
+		List<Country> expected = new CsvToObjectMapper<>(Country.class, ';').mapFileToObjectList(path);
+		List<Country> result = new FastCsvToObjectMapper<>(Country.class, ';').mapFileToObjectList(path);
+		assertEquals(26, result.size());
+		assertEquals(1633, result.stream().filter(c -> c.getName().equals("Malta")).findFirst().get().getPopulationDensity());
+		assertEquals(expected, result);
+	}
+
+	@Test
+	//quoted fields may contain separators, escaped quotes and line breaks; lines may end with \r\n
+	void quotedFields() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("quoted.csv");
+		Files.writeString(path, "\"Month\",Day,Temp\r\n"
+				+ "\"Jan,uary\",1,59.1\r\n"
+				+ "\"Feb \"\"2\"\"\",\"2\",63.5\r\n"
+				+ "\"Ma\r\nrch\",3,55.0", StandardCharsets.UTF_8);
+
+		List<MockBean> expected = List.of(new MockBean("Jan,uary", 1, 59.1f), new MockBean("Feb \"2\"", 2, 63.5f),
+				new MockBean("Ma\r\nrch", 3, 55.0f));
+		assertEquals(expected, fastMapper.mapFileToObjectList(path));
+	}
+
+	@Test
+	//only complete rows appended since the last poll are mapped; a truncated file is read again from the beginning
+	void tail() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("growing.csv");
+		Files.writeString(path, "Month,Day,Temp\nJanuary,1,59.1\n\"Feb\nruary\",2,63.5\nMar", StandardCharsets.UTF_8);
+
+		try (CsvFileTail<MockBean> tail = ((FastCsvToObjectMapper<MockBean>) fastMapper).openTail(path, ',')) {
+			assertEquals(List.of(new MockBean("January", 1, 59.1f), new MockBean("Feb\nruary", 2, 63.5f)), tail.poll());
+			assertEquals(List.of(), tail.poll());
+
+			Files.writeString(path, "ch,3,55.0\nApril,4,60.0\nMay", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			assertEquals(List.of(new MockBean("March", 3, 55.0f), new MockBean("April", 4, 60.0f)), tail.poll());
+			assertEquals(Files.size(path) - 3, tail.getOffset());
+
+			Files.writeString(path, "Month,Day,Temp\nJune,6,70.2\n", StandardCharsets.UTF_8);
+			assertEquals(List.of(new MockBean("June", 6, 70.2f)), tail.poll());
+		}
+		assertThrows(InvalidFileFormatException.class, () -> ((FastCsvToObjectMapper<MockBean>) fastMapper).openTail(Path.of(FILE_PATH + "weather_noColumnHeader.csv"), ','));
+	}
+
+	@Test
+	//mapped rows, skipped rows (per cause), bytes and invalid files are counted in the default registry
+	void recordsMetrics() throws IOException, InvalidFileFormatException {
+		MetricsRegistry metrics = MetricsRegistry.getDefault();
+		Path path = Path.of(FILE_PATH + "weather_entryWithWrongType.csv");
+		long files = metrics.counter("mapper.files").get();
+		long rows = metrics.counter("mapper.rows.mapped").get();
+		long rejected = metrics.counter("mapper.rows.rejected").get();
+		long typeMismatches = metrics.counter("mapper.rows.rejected.CsvDataTypeMismatchException").get();
+		long bytes = metrics.counter("mapper.bytes").get();
+		long invalidFiles = metrics.counter("mapper.files.invalid").get();
+		long parsed = metrics.histogram("mapper.parse").getCount();
+
+		List<MockBean> beans = fastMapper.mapFileToObjectList(path);
+		assertThrows(InvalidFileFormatException.class, () -> fastMapper.mapFileToObjectList(Path.of(FILE_PATH + "weather_noColumnHeader.csv")));
+
+		assertEquals(files + 1, metrics.counter("mapper.files").get());
+		assertEquals(rows + beans.size(), metrics.counter("mapper.rows.mapped").get());
+		assertEquals(rejected + 1, metrics.counter("mapper.rows.rejected").get());
+		assertEquals(typeMismatches + 1, metrics.counter("mapper.rows.rejected.CsvDataTypeMismatchException").get());
+		assertEquals(bytes + Files.size(path), metrics.counter("mapper.bytes").get());
+		assertEquals(invalidFiles + 1, metrics.counter("mapper.files.invalid").get());
+		assertEquals(parsed + 1, metrics.histogram("mapper.parse").getCount());
+	}
+
+}
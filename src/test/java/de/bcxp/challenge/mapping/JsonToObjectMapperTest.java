@@ -0,0 +1,136 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.JsonToObjectMapper;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for JsonToObjectMapper
+ * @author catherine heyart
+ *
+ */
+public class JsonToObjectMapperTest {
+
+	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
+
+	private JsonToObjectMapper<MockBean> mapper;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		mapper = new JsonToObjectMapper<>(MockBean.class);
+	}
+
+	@Test
+	//the fixture ends with a trailing comma, which is tolerated
+	void normalCase() throws FileNotFoundException, InvalidFileFormatException {
+		List<MockBean> expected = List.of(new MockBean("January", 1, 59.1f), new MockBean("February", 2, 63.5f),
+				new MockBean("January", 3, 55.0f), new MockBean("January", 4, 59f));
+		assertEquals(expected, mapper.mapFileToObjectList(Path.of(FILE_PATH + "weather.json")));
+	}
+
+	@Test
+	//unknown members (also nested ones) are skipped, names are not case sensitive, null values keep the default, escape sequences are resolved
+	void membersAndValues() throws IOException, InvalidFileFormatException {
+		Path path = write("members.json", "\uFEFF[{\"station\": {\"id\": [1, 2], \"name\": \"a\"}, \"month\": \"Jan\\u00e4\\\"\\n\", \"DAY\": 7, \"Temp\": null},\n"
+				+ "{\"Temp\": -1.5e1, \"Day\": 8, \"Month\": \"\", \"flags\": [true, false, null]}]");
+		MockBean expected = new MockBean("Janä\"\n", 7, -1);
+		assertEquals(List.of(expected, new MockBean("", 8, -15f)), mapper.mapFileToObjectList(path));
+	}
+
+	@Test
+	//objects with values of the wrong type and elements which are not objects are skipped and passed to the sink with their line numbers
+	void invalidObjectsAreSkipped() throws IOException, InvalidFileFormatException {
+		Path path = write("invalid.json", "[\n"
+				+ "{\"Month\": \"January\", \"Day\": 1, \"Temp\": 1},\n"
+				+ "{\"Month\": \"January\", \"Day\": \"Second\", \"Temp\": 2},\n"
+				+ "{\"Month\": \"January\", \"Day\": [3], \"Temp\": 3},\n"
+				+ "42,\n"
+				+ "{\"Month\": \"January\", \"Day\": 5, \"Temp\": 5}\n"
+				+ "]\n");
+		List<CsvException> rejected = Collections.synchronizedList(new ArrayList<>());
+		mapper.setRejectedRowSink((file, rows) -> rejected.addAll(rows));
+
+		List<MockBean> result = mapper.mapFileToObjectList(path);
+		assertEquals(List.of(new MockBean("January", 1, 1), new MockBean("January", 5, 5)), result);
+		assertEquals(3, rejected.size());
+		assertEquals(3, rejected.get(0).getLineNumber());
+		assertEquals(4, rejected.get(1).getLineNumber());
+		assertEquals(5, rejected.get(2).getLineNumber());
+	}
+
+	@Test
+	//the objects are mapped while the stream is consumed, also from a compressed file
+	void largeCompressedFile() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("large.json.gz");
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(path)), StandardCharsets.UTF_8))) {
+			writer.write("[");
+			for(int i = 0; i < 100000; i++) {
+				writer.write((i == 0 ? "" : ",") + "{\"Month\":\"M" + i + "\",\"Day\":" + i + ",\"Temp\":" + i + ".5}\n");
+			}
+			writer.write("]");
+		}
+		try (Stream<MockBean> stream = mapper.mapFileToStream(path)) {
+			Iterator<MockBean> iterator = stream.iterator();
+			for(int i = 0; i < 100000; i++) {
+				assertEquals(new MockBean("M" + i, i, i + 0.5f), iterator.next());
+			}
+			assertTrue(!iterator.hasNext());
+		}
+	}
+
+	@Test
+	void invalidFiles() throws IOException {
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(Path.of(FILE_PATH + "weather_normalCase.csv")));
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(write("empty.json", "")));
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(write("object.json", "{\"Day\": 1}")));
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(write("text.json", "Day,Month")));
+		assertThrows(FileNotFoundException.class, () -> mapper.mapFileToObjectList(Path.of("/wrong/weather.json")));
+		assertThrows(IllegalArgumentException.class, () -> mapper.mapFileToObjectList(null));
+		assertThrows(IllegalArgumentException.class, () -> new JsonToObjectMapper<>(null));
+		//the structure is validated while the file is read
+		Path truncated = write("truncated.json", "[{\"Month\": \"January\", \"Day\": 1}, {\"Month\": ");
+		assertThrows(UncheckedIOException.class, () -> mapper.mapFileToObjectList(truncated));
+		Path missingComma = write("missingComma.json", "[{\"Day\": 1} {\"Day\": 2}]");
+		assertThrows(UncheckedIOException.class, () -> mapper.mapFileToObjectList(missingComma));
+		Path trailingContent = write("trailing.json", "[{\"Day\": 1}] x");
+		assertThrows(UncheckedIOException.class, () -> mapper.mapFileToObjectList(trailingContent));
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private Path write(String fileName, String content) throws IOException {
+		Path path = tempDir.resolve(fileName);
+		Files.writeString(path, content, StandardCharsets.UTF_8);
+		return path;
+	}
+}
@@ -0,0 +1,126 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.mapper.ParallelCsvToObjectMapper;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for ParallelCsvToObjectMapper
+ * @author catherine heyart
+ *
+ */
+public class ParallelCsvToObjectMapperTest {
+
+	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
+
+	private ForkJoinPool pool;
+	private ParallelCsvToObjectMapper<MockBean> mapper;
+	private List<CsvException> capturedExceptions;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		pool = new ForkJoinPool(4);
+		capturedExceptions = new ArrayList<>();
+		mapper = new ParallelCsvToObjectMapper<>(MockBean.class, ',', pool) {
+			@Override
+			protected void logCapturedExceptions(List<CsvException> exceptions, Path filePath) {
+				capturedExceptions.addAll(exceptions);
+			}
+		};
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdown();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"weather_normalCase.csv", "weather_columnMissing.csv", "weather_columnTooMuch.csv", "weather_emptyRow.csv",
+			"weather_entryHasWrongValue.csv", "weather_entryWithWrongSeparator.csv", "weather_entryWithWrongType.csv",
+			"weather_allEntriesWithWrongType.csv", "weather_wrongNumberOfDataFields.csv"})
+	void sameResultAsOpenCsv(String fileName) throws FileNotFoundException, InvalidFileFormatException {
+		Path path = Path.of(FILE_PATH + fileName);
+		assertEquals(new CsvToObjectMapper<>(MockBean.class).mapFileToObjectList(path), mapper.mapFileToObjectList(path));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"empty.csv", "weather_noColumnHeader.csv", "weather_wrongSeparator.csv", "weather.json"})
+	void invalidFiles(String fileName) {
+		assertThrows(InvalidFileFormatException.class, () -> mapper.mapFileToObjectList(Path.of(FILE_PATH + fileName)));
+	}
+
+	@Test
+	void wrongFilePath() {
+		assertThrows(FileNotFoundException.class, () -> {
+			mapper.mapFileToObjectList(Path.of("/wrong/weather_normalCase.csv"));
+	    });
+	}
+
+	@Test
+	//file consisting of several chunks: row order, quoted line breaks and line numbers of invalid rows are preserved
+	void largeFile() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("large.csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write("Month,Day,Temp\n");
+			for(int i = 0; i < 300_000; i++) {
+				if(i % 1000 == 7) {
+					writer.write("\"Multi\nline \"\"month\"\"\"," + i + ",1.5\n");
+				} else if(i % 1000 == 500) {
+					writer.write("January,wrong," + i + "\n");
+				} else if(i % 1000 == 900) {
+					writer.write("\n");
+				} else {
+					writer.write("Month " + i + "," + i + "," + (i % 100) + ".5\n");
+				}
+			}
+		}
+
+		List<CsvException> expectedExceptions = new ArrayList<>();
+		FastCsvToObjectMapper<MockBean> sequentialMapper = new FastCsvToObjectMapper<>(MockBean.class) {
+			@Override
+			protected void logCapturedExceptions(List<CsvException> exceptions, Path filePath) {
+				expectedExceptions.addAll(exceptions);
+			}
+		};
+
+		List<MockBean> expected = sequentialMapper.mapFileToObjectList(path);
+		List<MockBean> result = mapper.mapFileToObjectList(path);
+
+		assertEquals(300_000 - 600, result.size());
+		assertEquals(expected, result);
+		assertEquals(lineNumbers(expectedExceptions), lineNumbers(capturedExceptions));
+		assertEquals(300, capturedExceptions.size());
+	}
+
+	private static List<Long> lineNumbers(List<CsvException> exceptions) {
+		return exceptions.stream().map(CsvException::getLineNumber).collect(Collectors.toList());
+	}
+
+}
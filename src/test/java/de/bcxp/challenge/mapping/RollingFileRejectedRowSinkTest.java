@@ -0,0 +1,190 @@
+package de.bcxp.challenge.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.mapper.RollingFileRejectedRowSink;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for RollingFileRejectedRowSink and for passing the skipped rows of the mappers to a sink.
+ * @author catherine heyart
+ *
+ */
+public class RollingFileRejectedRowSinkTest {
+
+	private static final String FILE_PATH = "src/test/resources/de/bcxp/challenge/";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	//skipped rows are written as JSON lines, followed by the counts per error type when the sink is closed
+	void writesRejectedRows() throws IOException, InvalidFileFormatException {
+		Path logFile = tempDir.resolve("logs/rejected.log");
+		Path csvFile = Path.of(FILE_PATH + "weather_entryWithWrongType.csv");
+		CsvToObjectMapper<MockBean> mapper = new FastCsvToObjectMapper<>(MockBean.class);
+		try (RollingFileRejectedRowSink sink = new RollingFileRejectedRowSink(logFile)) {
+			mapper.setRejectedRowSink(sink);
+			mapper.mapFileToObjectList(csvFile);
+			mapper.mapFileToObjectList(csvFile);
+		}
+
+		List<String> lines = Files.readAllLines(logFile);
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(0).contains("\"event\":\"rejected\""));
+		assertTrue(lines.get(0).contains("\"line\":3"));
+		assertTrue(lines.get(0).contains("\"type\":\"CsvDataTypeMismatchException\""));
+		assertTrue(lines.get(0).contains("\"file\":" + quoted(csvFile.toString())));
+		assertTrue(lines.get(2).contains("\"event\":\"summary\",\"type\":\"CsvDataTypeMismatchException\",\"rejected\":2,\"suppressed\":0"));
+	}
+
+	@Test
+	//all rows are counted, but details are only written for a limited number of rows per error type and second
+	void rateLimit() throws IOException {
+		Path logFile = tempDir.resolve("rejected.log");
+		RollingFileRejectedRowSink sink = new RollingFileRejectedRowSink(logFile, 1 << 20, 1, 5, 100);
+		sink.accept(tempDir.resolve("data.csv"), exceptions(1000));
+		sink.close();
+
+		assertEquals(1000, sink.getRejectedCount("CsvDataTypeMismatchException"));
+		assertTrue(sink.getWrittenCount() >= 5 && sink.getWrittenCount() <= 10);
+		assertEquals(1000, sink.getWrittenCount() + sink.getSuppressedCount() + sink.getDroppedCount());
+		assertEquals(sink.getWrittenCount() + 1, Files.readAllLines(logFile).size());
+
+		//rows passed after closing are only counted
+		sink.accept(tempDir.resolve("data.csv"), exceptions(1));
+		assertEquals(1001, sink.getRejectedCounts().get("CsvDataTypeMismatchException"));
+		assertEquals(sink.getWrittenCount() + 1, Files.readAllLines(logFile).size());
+	}
+
+	@Test
+	//the log file is rotated when it exceeds its maximum size, and only the given number of rotated files is kept
+	void rotation() throws IOException {
+		Path logFile = tempDir.resolve("rejected.log");
+		try (RollingFileRejectedRowSink sink = new RollingFileRejectedRowSink(logFile, 1000, 2, 1000, 1000)) {
+			for(int i = 0; i < 50; i++) {
+				sink.accept(tempDir.resolve("data.csv"), exceptions(1));
+			}
+		}
+
+		assertTrue(Files.exists(tempDir.resolve("rejected.log.1")));
+		assertTrue(Files.exists(tempDir.resolve("rejected.log.2")));
+		assertFalse(Files.exists(tempDir.resolve("rejected.log.3")));
+		for(String name : new String[] {"rejected.log", "rejected.log.1", "rejected.log.2"}) {
+			assertTrue(Files.size(tempDir.resolve(name)) <= 1000);
+		}
+		List<String> lines = Files.readAllLines(logFile);
+		assertTrue(lines.get(lines.size() - 1).contains("\"rejected\":50"));
+	}
+
+	@Test
+	//a file with many invalid rows is passed to the sink in bounded batches while it is read
+	void bufferedInBatches() throws IOException, InvalidFileFormatException {
+		Path csvFile = tempDir.resolve("dirty.csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+			writer.write("Month,Day,Temp\n");
+			for(int i = 0; i < 3000; i++) {
+				writer.write("January,wrong," + i + "\n");
+			}
+		}
+
+		for(CsvToObjectMapper<MockBean> mapper : List.of(new CsvToObjectMapper<>(MockBean.class), new FastCsvToObjectMapper<>(MockBean.class))) {
+			List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+			mapper.setRejectedRowSink((path, rows) -> batchSizes.add(rows.size()));
+			assertEquals(0, mapper.mapFileToObjectList(csvFile).size());
+			assertEquals(3000, batchSizes.stream().mapToInt(Integer::intValue).sum());
+			assertTrue(batchSizes.stream().allMatch(size -> size <= 1024));
+		}
+	}
+
+	@Test
+	//rows passed to the sink while it is closed are either written or counted as dropped
+	void acceptWhileClosing() throws Exception {
+		List<CsvException> rows = Collections.nCopies(100, new CsvDataTypeMismatchException("invalid"));
+		for(int run = 0; run < 20; run++) {
+			RollingFileRejectedRowSink sink = new RollingFileRejectedRowSink(tempDir.resolve("rejected" + run + ".log"), 1L << 30, 0, Integer.MAX_VALUE, 10_000);
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for(int i = 0; i < 4; i++) {
+					futures.add(executor.submit(() -> {
+						for(int j = 0; j < 50; j++) {
+							sink.accept(null, rows);
+						}
+					}));
+				}
+				sink.close();
+				for(Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+			assertEquals(sink.getRejectedCount("CsvDataTypeMismatchException"), sink.getWrittenCount() + sink.getDroppedCount());
+		}
+	}
+
+	@Test
+	//a row whose details could not be written is counted as dropped, not as written
+	void writeFails() throws IOException {
+		Path logFile = tempDir.resolve("rejected.log");
+		//the rotated file can not be replaced by the log file, because it is a directory which is not empty
+		Files.createDirectories(tempDir.resolve("rejected.log.1"));
+		Files.createFile(tempDir.resolve("rejected.log.1").resolve("blocking"));
+		RollingFileRejectedRowSink sink = new RollingFileRejectedRowSink(logFile, 200, 1, 1000, 1000);
+		sink.accept(tempDir.resolve("data.csv"), exceptions(10));
+		assertThrows(IOException.class, sink::close);
+
+		assertEquals(Files.readAllLines(logFile).size(), sink.getWrittenCount());
+		assertEquals(10, sink.getWrittenCount() + sink.getDroppedCount());
+		assertTrue(sink.getDroppedCount() > 0);
+	}
+
+	@Test
+	void invalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new RollingFileRejectedRowSink(null));
+		assertThrows(IllegalArgumentException.class, () -> new RollingFileRejectedRowSink(tempDir.resolve("a.log"), 0, 1, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new RollingFileRejectedRowSink(tempDir.resolve("a.log"), 1, -1, 1, 1));
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	private static List<CsvException> exceptions(int count) {
+		List<CsvException> exceptions = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			CsvException e = new CsvDataTypeMismatchException("x", Integer.class, "Conversion of \"x\" to int failed.");
+			e.setLineNumber(i + 2);
+			exceptions.add(e);
+		}
+		return exceptions;
+	}
+
+	private static String quoted(String value) {
+		return "\"" + value.replace("\\", "\\\\") + "\"";
+	}
+}
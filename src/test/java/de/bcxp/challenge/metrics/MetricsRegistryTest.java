@@ -0,0 +1,156 @@
+package de.bcxp.challenge.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for MetricsRegistry, Counter and LatencyHistogram.
+ * @author catherine heyart
+ *
+ */
+public class MetricsRegistryTest {
+
+	private MetricsRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		registry = new MetricsRegistry();
+	}
+
+	@Test
+	//the same name always returns the same metric
+	void sameNameSameMetric() {
+		assertSame(registry.counter("rows"), registry.counter("rows"));
+		assertSame(registry.histogram("parse"), registry.histogram("parse"));
+		assertThrows(IllegalArgumentException.class, () -> registry.counter(null));
+		assertThrows(IllegalArgumentException.class, () -> registry.histogram(""));
+	}
+
+	@Test
+	//no increment is lost when several threads increment the same counter
+	void concurrentIncrements() throws InterruptedException {
+		Counter counter = registry.counter("rows");
+		List<Thread> threads = new ArrayList<>();
+		for(int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for(int i = 0; i < 10_000; i++) {
+					counter.increment();
+				}
+				counter.add(5);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4 * 10_005, counter.get());
+	}
+
+	@Test
+	//updates are ignored while the registry is disabled
+	void disabled() {
+		Counter counter = registry.counter("rows");
+		LatencyHistogram histogram = registry.histogram("parse");
+		registry.setEnabled(false);
+
+		counter.increment();
+		histogram.record(100);
+		long start = histogram.start();
+		histogram.recordSince(start);
+
+		assertEquals(0, start);
+		assertEquals(0, counter.get());
+		assertEquals(0, histogram.getCount());
+
+		registry.setEnabled(true);
+		counter.increment();
+		assertEquals(1, counter.get());
+	}
+
+	@Test
+	//latencies are counted in buckets whose bounds are powers of two
+	void histogram() {
+		LatencyHistogram histogram = registry.histogram("parse");
+		assertEquals(0, histogram.getPercentileNanos(50));
+		for(int i = 1; i <= 98; i++) {
+			histogram.record(100);
+		}
+		histogram.record(5000);
+		histogram.record(1_000_000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(98 * 100 + 5000 + 1_000_000, histogram.getTotalNanos());
+		assertEquals(1_000_000, histogram.getMaxNanos());
+		assertEquals(10_148.0, histogram.getMeanNanos(), 0.001);
+		assertEquals(127, histogram.getPercentileNanos(50));
+		assertEquals(127, histogram.getPercentileNanos(98));
+		assertEquals(8191, histogram.getPercentileNanos(99));
+		assertEquals(1_000_000, histogram.getPercentileNanos(100));
+		assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(101));
+
+		registry.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxNanos());
+	}
+
+	@Test
+	void bucketBounds() {
+		assertEquals(0, LatencyHistogram.bucketOf(0));
+		assertEquals(1, LatencyHistogram.bucketOf(1));
+		assertEquals(2, LatencyHistogram.bucketOf(3));
+		assertEquals(3, LatencyHistogram.bucketOf(4));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+		assertEquals(7, LatencyHistogram.upperBoundOf(3));
+	}
+
+	@Test
+	//the dump contains one line per metric, ordered by name
+	void dump() {
+		registry.counter("b.rows").add(3);
+		registry.gauge("c.rate", () -> 1.5);
+		registry.histogram("a.parse").record(2000);
+
+		String[] lines = registry.dump().split(System.lineSeparator());
+		assertEquals(3, lines.length);
+		assertEquals("a.parse count=1 mean=2.0us p50=2.0us p99=2.0us max=2.0us", lines[0]);
+		assertEquals("b.rows 3", lines[1]);
+		assertEquals("c.rate 1.50", lines[2]);
+	}
+
+	@Test
+	//the metrics can be read and reset through the platform MBean server, including metrics created after the registration
+	void mBean() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = registry.registerMBean("de.bcxp.challenge.test:type=Metrics");
+		try {
+			registry.counter("rows").add(7);
+			registry.histogram("parse").record(3000);
+
+			assertEquals(7L, server.getAttribute(name, "rows"));
+			assertEquals(1L, server.getAttribute(name, "parse.count"));
+			assertEquals(3.0, (Double) server.getAttribute(name, "parse.maxMicros"), 0.001);
+			assertEquals(6, server.getMBeanInfo(name).getAttributes().length);
+			assertTrue(((String) server.invoke(name, "dump", null, null)).contains("rows 7"));
+
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "rows"));
+			assertThrows(IllegalStateException.class, () -> registry.registerMBean("de.bcxp.challenge.test:type=Metrics"));
+		} finally {
+			MetricsRegistry.unregisterMBean(name);
+		}
+		assertTrue(!server.isRegistered(name));
+	}
+}
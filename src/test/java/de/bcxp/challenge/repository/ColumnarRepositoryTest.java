@@ -0,0 +1,71 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Test class for the columnar repositories
+ * @author catherine heyart
+ *
+ */
+class ColumnarRepositoryTest {
+
+	@Test
+	//values are kept across several chunks of the column
+	void intColumn() {
+		IntColumn column = new IntColumn();
+		for(int i = 0; i < 100_000; i++) {
+			column.add(i * 3);
+		}
+		assertEquals(100_000, column.size());
+		assertEquals(0, column.get(0));
+		assertEquals(99_999 * 3, column.get(99_999));
+		assertEquals(16_384 * 3, column.get(16_384));
+		assertThrows(IndexOutOfBoundsException.class, () -> column.get(100_000));
+	}
+
+	@Test
+	//the data view contains objects equal to the added objects
+	void dailyWeather() {
+		List<DailyWeather> data = new ArrayList<>();
+		data.add(new DailyWeather(1, 59, 88));
+		data.add(new DailyWeather(2, -1, 79));
+		data.add(new DailyWeather());
+
+		ColumnarDailyWeatherRepository repo = new ColumnarDailyWeatherRepository();
+		assertTrue(repo.isEmpty());
+		repo.addData(data);
+		repo.addData(data.stream());
+
+		assertEquals(6, repo.size());
+		assertEquals(29, repo.getTempDiffInF(0));
+		assertEquals(-1, repo.getTempDiffInF(1));
+		assertEquals(data, repo.getData().subList(0, 3));
+		assertEquals(data, repo.getData().subList(3, 6));
+	}
+
+	@Test
+	void country() {
+		List<Country> data = new ArrayList<>();
+		data.add(new Country("Malta", 516100, 316));
+		data.add(new Country("Netherlands", 17614840, 0));
+		data.add(new Country());
+
+		ColumnarCountryRepository repo = new ColumnarCountryRepository();
+		repo.addData(data);
+
+		assertEquals(3, repo.size());
+		assertEquals("Malta", repo.getName(0));
+		assertEquals(1633, repo.getPopulationDensity(0));
+		assertEquals(-1, repo.getPopulationDensity(1));
+		assertEquals(data, repo.getData());
+	}
+
+}
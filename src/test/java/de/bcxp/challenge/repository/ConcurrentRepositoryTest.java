@@ -0,0 +1,123 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for ConcurrentRepository
+ * @author catherine heyart
+ *
+ */
+class ConcurrentRepositoryTest {
+
+	private static final int WRITERS = 8;
+	private static final int READERS = 4;
+	private static final int BATCHES_PER_WRITER = 500;
+	private static final int BATCH_SIZE = 10;
+
+	@Test
+	void addAndGetData() {
+		ConcurrentRepository<Integer> repo = new ConcurrentRepository<>();
+		assertTrue(repo.isEmpty());
+
+		repo.addData(List.of(1, 2, 3));
+		List<Integer> snapshot = repo.getData();
+		repo.addData(IntStream.range(4, 20_000).boxed());
+
+		assertFalse(repo.isEmpty());
+		assertEquals(List.of(1, 2, 3), snapshot);
+		assertEquals(IntStream.range(1, 20_000).boxed().collect(Collectors.toList()), repo.getData());
+		assertThrows(UnsupportedOperationException.class, () -> repo.getData().add(1));
+		assertThrows(IllegalArgumentException.class, () -> repo.addData((List<Integer>) null));
+	}
+
+	@Test
+	//writers append batches while readers stream over snapshots: every snapshot contains complete batches in the order of each writer
+	void concurrentWritersAndReaders() throws Exception {
+		ConcurrentRepository<Integer> repo = new ConcurrentRepository<>();
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch writersDone = new CountDownLatch(WRITERS);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for(int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for(int b = 0; b < BATCHES_PER_WRITER; b++) {
+					int first = (writer * BATCHES_PER_WRITER + b) * BATCH_SIZE;
+					List<Integer> batch = IntStream.range(first, first + BATCH_SIZE).boxed().collect(Collectors.toList());
+					if(b % 2 == 0) {
+						repo.addData(batch);
+					} else {
+						repo.addData(batch.stream());
+					}
+				}
+				writersDone.countDown();
+				return null;
+			}));
+		}
+		for(int r = 0; r < READERS; r++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				do {
+					checkSnapshot(repo.getData());
+				} while(writersDone.getCount() > 0);
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for(Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		List<Integer> data = repo.getData();
+		assertEquals(WRITERS * BATCHES_PER_WRITER * BATCH_SIZE, data.size());
+		checkSnapshot(data);
+		assertEquals(IntStream.range(0, data.size()).boxed().collect(Collectors.toList()), data.stream().sorted().collect(Collectors.toList()));
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Checks that a snapshot consists of complete batches and that the batches of each writer are in the order they were added.
+	 */
+	private static void checkSnapshot(List<Integer> snapshot) {
+		int size = snapshot.size();
+		assertEquals(0, size % BATCH_SIZE);
+
+		int[] lastBatchOfWriter = new int[WRITERS];
+		Arrays.fill(lastBatchOfWriter, -1);
+		int index = 0;
+		for(Integer value : snapshot) {
+			assertNotNull(value);
+			if(index % BATCH_SIZE == 0) {
+				assertEquals(0, value % BATCH_SIZE);
+				int batch = value / BATCH_SIZE;
+				int writer = batch / BATCHES_PER_WRITER;
+				assertEquals(lastBatchOfWriter[writer] + 1, batch % BATCHES_PER_WRITER);
+				lastBatchOfWriter[writer] = batch % BATCHES_PER_WRITER;
+			} else {
+				assertEquals(snapshot.get(index - 1) + 1, value);
+			}
+			index++;
+		}
+		assertEquals(size, index);
+	}
+}
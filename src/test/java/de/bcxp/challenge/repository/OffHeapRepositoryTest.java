@@ -0,0 +1,97 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.service.CountryService;
+import de.bcxp.challenge.service.DailyWeatherService;
+
+/**
+ * Test class for the off-heap repositories
+ * @author catherine heyart
+ *
+ */
+class OffHeapRepositoryTest {
+
+	@Test
+	//values are kept across several segments of the buffer
+	void dailyWeather() {
+		List<DailyWeather> data = new ArrayList<>();
+		for(int i = 0; i < 100_000; i++) {
+			data.add(new DailyWeather(i % 30 + 1, 40 + i % 20, 60 + i % 50));
+		}
+		data.add(new DailyWeather());
+
+		OffHeapDailyWeatherRepository repo = new OffHeapDailyWeatherRepository();
+		assertTrue(repo.isEmpty());
+		repo.addData(data.subList(0, 70_000));
+		repo.addData(data.subList(70_000, data.size()).stream());
+
+		assertEquals(data.size(), repo.size());
+		assertEquals(data, repo.getData());
+		assertEquals(-1, repo.getTempDiffInF(100_000));
+		assertThrows(IndexOutOfBoundsException.class, () -> repo.getDayOfTheMonth(100_001));
+
+		OffHeapDailyWeatherRepository.Record record = repo.record();
+		assertEquals(data.get(65_537).getTempDiffInF(), record.moveTo(65_537).getTempDiffInF());
+		assertEquals(data.get(65_537).getDayOfTheMonth(), record.getDayOfTheMonth());
+	}
+
+	@Test
+	//the rows of a stream are passed to the views in batches, not one by one
+	void streamNotifiesViewsInBatches() {
+		List<DailyWeather> data = new ArrayList<>();
+		for(int i = 0; i < 20_000; i++) {
+			data.add(new DailyWeather(i % 30 + 1, 40, 60 + i % 50));
+		}
+		OffHeapDailyWeatherRepository repo = new OffHeapDailyWeatherRepository();
+		List<Integer> firstIndices = new ArrayList<>();
+		repo.registerView((batch, firstIndex) -> firstIndices.add(firstIndex));
+		repo.addData(data.stream());
+
+		assertEquals(List.of(0, 8192, 16384), firstIndices);
+		assertEquals(3, repo.getVersion());
+		assertEquals(data, repo.getData());
+	}
+
+	@Test
+	void country() {
+		List<Country> data = new ArrayList<>();
+		data.add(new Country("Malta", 516100, 316));
+		data.add(new Country("Österreich", 8926000, 83871));
+		data.add(new Country());
+
+		OffHeapCountryRepository repo = new OffHeapCountryRepository();
+		repo.addData(data);
+
+		assertEquals(data, repo.getData());
+		assertEquals("Österreich", repo.getName(1));
+		assertEquals("", repo.getName(2));
+		OffHeapCountryRepository.Record record = repo.record().moveTo(0);
+		assertEquals("Malta", record.getName());
+		assertEquals(1633, record.getPopulationDensity());
+	}
+
+	@Test
+	//the services query the repositories without creating objects
+	void services() {
+		OffHeapDailyWeatherRepository weatherRepo = new OffHeapDailyWeatherRepository();
+		weatherRepo.addData(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79), new DailyWeather(3, 55, 77)));
+		DailyWeatherService weatherService = new DailyWeatherService(weatherRepo, new CsvToObjectMapper<>(DailyWeather.class));
+		assertEquals(2, weatherService.getDayWithSmallestTempSpread());
+		//no view (which would be kept on the heap) is registered unless requested
+		assertFalse(weatherService.isViewsEnabled());
+
+		OffHeapCountryRepository countryRepo = new OffHeapCountryRepository();
+		countryRepo.addData(List.of(new Country("Malta", 516100, 316), new Country("Austria", 8926000, 83871)));
+		CountryService countryService = new CountryService(countryRepo, new CsvToObjectMapper<>(Country.class));
+		assertEquals("Malta", countryService.getCountryNameWithHighestPopulationDensity());
+	}
+}
@@ -0,0 +1,120 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Test class for RepositorySnapshot and the memory-mapped repositories
+ * @author catherine heyart
+ *
+ */
+class RepositorySnapshotTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path source;
+
+	private Path snapshot;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		source = Files.writeString(tempDir.resolve("data.csv"), "Day,MxT,MnT\n1,88,59\n");
+		snapshot = tempDir.resolve("data.snapshot");
+	}
+
+	@Test
+	//the loaded repository contains the same rows as the written repository
+	void dailyWeather() {
+		List<DailyWeather> data = List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, -1, 79), new DailyWeather());
+		ColumnarDailyWeatherRepository repo = new ColumnarDailyWeatherRepository();
+		repo.addData(data);
+		RepositorySnapshot.writeWeather(repo, source, snapshot);
+
+		MappedDailyWeatherRepository loaded = RepositorySnapshot.loadWeather(snapshot, source);
+		assertEquals(3, loaded.size());
+		assertEquals(29, loaded.getTempDiffInF(0));
+		assertEquals(-1, loaded.getTempDiffInF(1));
+		assertEquals(data, loaded.getData());
+		assertThrows(UnsupportedOperationException.class, () -> loaded.addData(data));
+	}
+
+	@Test
+	//names are stored as UTF-8, also from a repository which keeps the objects
+	void country() {
+		List<Country> data = List.of(new Country("Malta", 516100, 316), new Country("Österreich", 8926000, 83871), new Country());
+		Repository<Country> repo = new Repository<>();
+		repo.addData(data);
+		RepositorySnapshot.writeCountries(repo, source, snapshot);
+
+		MappedCountryRepository loaded = RepositorySnapshot.loadCountries(snapshot, source);
+		assertEquals(3, loaded.size());
+		assertEquals("Österreich", loaded.getName(1));
+		assertEquals("", loaded.getName(2));
+		assertEquals(1633, loaded.getPopulationDensity(0));
+		assertEquals(data, loaded.getData());
+	}
+
+	@Test
+	void emptyRepository() {
+		RepositorySnapshot.writeWeather(new Repository<>(), source, snapshot);
+		assertTrue(RepositorySnapshot.loadWeather(snapshot, source).isEmpty());
+	}
+
+	@Test
+	//the directories of the snapshot path are created if they do not exist
+	void missingDirectory() {
+		Path nested = tempDir.resolve("missing").resolve("dir").resolve("data.snapshot");
+		Repository<DailyWeather> repository = new Repository<>();
+		repository.addData(List.of(new DailyWeather(1, 59, 88)));
+		RepositorySnapshot.writeWeather(repository, source, nested);
+
+		Repository<DailyWeather> loaded = RepositorySnapshot.loadWeather(nested, source);
+		assertNotNull(loaded);
+		assertEquals(1, loaded.getData().size());
+		assertEquals(59, loaded.getData().get(0).getMinTempInF());
+	}
+
+	@Test
+	//a snapshot is not loaded if the csv file was changed afterwards
+	void sourceChanged() throws IOException {
+		RepositorySnapshot.writeWeather(new Repository<>(), source, snapshot);
+		Files.writeString(source, "2,79,63\n", StandardOpenOption.APPEND);
+		assertNull(RepositorySnapshot.loadWeather(snapshot, source));
+
+		Files.delete(source);
+		assertNull(RepositorySnapshot.loadWeather(snapshot, source));
+	}
+
+	@Test
+	void snapshotNotUsable() throws IOException {
+		assertNull(RepositorySnapshot.loadWeather(snapshot, source));
+
+		//snapshot of a different kind
+		RepositorySnapshot.writeCountries(new Repository<>(), source, snapshot);
+		assertNull(RepositorySnapshot.loadWeather(snapshot, source));
+
+		//not a snapshot
+		Files.writeString(snapshot, "this is not a snapshot, but long enough for a header", StandardCharsets.UTF_8);
+		assertNull(RepositorySnapshot.loadCountries(snapshot, source));
+	}
+
+	@Test
+	void argumentIsNull() {
+		assertThrows(IllegalArgumentException.class, () -> RepositorySnapshot.writeWeather(null, source, snapshot));
+		assertThrows(IllegalArgumentException.class, () -> RepositorySnapshot.loadCountries(snapshot, null));
+	}
+}
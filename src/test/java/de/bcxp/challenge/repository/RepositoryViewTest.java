@@ -0,0 +1,152 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Test class for the repository views
+ * @author catherine heyart
+ *
+ */
+class RepositoryViewTest {
+
+	private final Comparator<DailyWeather> tempSpreadComparator = Comparator.comparingInt(DailyWeather::getTempDiffInF);
+
+	@Test
+	//data present before the registration and data added afterwards (as list and as stream) is passed to the view
+	void registerView() {
+		Repository<DailyWeather> repo = new Repository<>();
+		repo.addData(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79)));
+		ExtremumView<DailyWeather> lowest = repo.registerView(ExtremumView.lowest(tempSpreadComparator, w -> w.getTempDiffInF() != -1));
+		assertEquals(2, lowest.get().getDayOfTheMonth());
+		assertEquals(1, lowest.getIndex());
+
+		repo.addData(List.of(new DailyWeather(3, 70, 75)));
+		assertEquals(3, lowest.get().getDayOfTheMonth());
+		repo.addData(List.of(new DailyWeather(4, -1, 88), new DailyWeather(5, 80, 82)).stream());
+		assertEquals(5, lowest.get().getDayOfTheMonth());
+		assertEquals(4, lowest.getIndex());
+	}
+
+	@Test
+	//the version increases with every append which adds data, after the views have been updated
+	void version() {
+		for(Repository<DailyWeather> repo : List.of(new Repository<DailyWeather>(), new ColumnarDailyWeatherRepository(), new ConcurrentRepository<DailyWeather>())) {
+			assertEquals(0, repo.getVersion());
+			repo.addData(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79)));
+			assertEquals(1, repo.getVersion());
+			repo.addData(new ArrayList<>());
+			assertEquals(1, repo.getVersion());
+			long[] versionSeenByView = new long[1];
+			repo.registerView((batch, firstIndex) -> versionSeenByView[0] = repo.getVersion());
+			repo.addData(List.of(new DailyWeather(3, 70, 75)).stream());
+			assertEquals(2, repo.getVersion());
+			assertEquals(1, versionSeenByView[0]);
+		}
+	}
+
+	@Test
+	//if the stream fails midway, the views and the version still match the data which was added before the failure
+	void streamFails() {
+		for(Repository<DailyWeather> repo : List.of(new Repository<DailyWeather>(), new ColumnarDailyWeatherRepository(), new ConcurrentRepository<DailyWeather>())) {
+			int[] rowsSeenByView = new int[1];
+			repo.registerView((batch, firstIndex) -> rowsSeenByView[0] += batch.size());
+			ExtremumView<DailyWeather> lowest = repo.registerView(ExtremumView.lowest(tempSpreadComparator, null));
+			Stream<DailyWeather> failing = IntStream.rangeClosed(1, 3).mapToObj(day -> {
+				if(day == 3) {
+					throw new IllegalStateException("The stream failed.");
+				}
+				return new DailyWeather(day, 60, 60 + day);
+			});
+
+			assertThrows(IllegalStateException.class, () -> repo.addData(failing));
+			int rows = repo.getData().size();
+			assertEquals(rows, rowsSeenByView[0]);
+			assertEquals(rows == 0 ? 0 : 1, repo.getVersion());
+			assertEquals(rows == 0 ? -1 : 0, lowest.getIndex());
+		}
+
+		//the plain repository keeps the rows consumed before the failure
+		Repository<DailyWeather> repo = new Repository<>();
+		ExtremumView<DailyWeather> lowest = repo.registerView(ExtremumView.lowest(tempSpreadComparator, null));
+		assertThrows(IllegalStateException.class, () -> repo.addData(IntStream.rangeClosed(1, 3).mapToObj(day -> {
+			if(day == 3) {
+				throw new IllegalStateException("The stream failed.");
+			}
+			return new DailyWeather(day, 60, 60 + day);
+		})));
+		assertEquals(2, repo.getData().size());
+		assertEquals(1, repo.getVersion());
+		assertEquals(1, lowest.get().getDayOfTheMonth());
+	}
+
+	@Test
+	//the first object with the lowest and the last object with the highest value are selected, like in SelectionEngine
+	void equalValues() {
+		Repository<DailyWeather> repo = new ColumnarDailyWeatherRepository();
+		ExtremumView<DailyWeather> lowest = repo.registerView(ExtremumView.lowest(tempSpreadComparator, null));
+		ExtremumView<DailyWeather> highest = repo.registerView(ExtremumView.highest(tempSpreadComparator, null));
+		assertNull(lowest.get());
+		assertEquals(-1, highest.getIndex());
+
+		repo.addData(List.of(new DailyWeather(1, 60, 70), new DailyWeather(2, 50, 60)));
+		repo.addData(List.of(new DailyWeather(3, 70, 80)).stream());
+		assertEquals(1, lowest.get().getDayOfTheMonth());
+		assertEquals(3, highest.get().getDayOfTheMonth());
+	}
+
+	@Test
+	//the result does not depend on the order in which concurrent appends reach the view
+	void concurrentAppends() throws Exception {
+		ConcurrentRepository<DailyWeather> repo = new ConcurrentRepository<>();
+		ExtremumView<DailyWeather> lowest = repo.registerView(ExtremumView.lowest(tempSpreadComparator, w -> w.getTempDiffInF() != -1));
+		ExtremumView<DailyWeather> highest = repo.registerView(ExtremumView.highest(tempSpreadComparator, null));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for(int t = 0; t < 8; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				for(int b = 0; b < 200; b++) {
+					List<DailyWeather> batch = IntStream.range(0, 20)
+							.mapToObj(i -> new DailyWeather(thread * 10_000 + i, 0, (thread * 7 + i * 13) % 50 + 1))
+							.collect(Collectors.toList());
+					repo.addData(batch);
+				}
+			}));
+		}
+		for(Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		List<DailyWeather> data = repo.getData();
+		DailyWeather expectedLowest = null;
+		DailyWeather expectedHighest = null;
+		for(DailyWeather w : data) {
+			if(expectedLowest == null || w.getTempDiffInF() < expectedLowest.getTempDiffInF()) {
+				expectedLowest = w;
+			}
+			if(expectedHighest == null || w.getTempDiffInF() >= expectedHighest.getTempDiffInF()) {
+				expectedHighest = w;
+			}
+		}
+		assertSame(expectedLowest, lowest.get());
+		assertSame(expectedHighest, highest.get());
+		assertSame(data.get(highest.getIndex()), highest.get());
+	}
+}
@@ -0,0 +1,92 @@
+package de.bcxp.challenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Test class for SortedIntIndex. The results are compared to the results of a scan over all rows.
+ * @author catherine heyart
+ *
+ */
+class SortedIntIndexTest {
+
+	@Test
+	void rangeRankAndNearest() {
+		Repository<DailyWeather> repo = new Repository<>();
+		repo.addData(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79), new DailyWeather(3, 55, 77)));
+		SortedIntIndex<DailyWeather> index = repo.registerView(new SortedIntIndex<>(DailyWeather::getTempDiffInF, w -> w.getTempDiffInF() != -1));
+		repo.addData(List.of(new DailyWeather(4, -1, 77), new DailyWeather(5, 66, 90), new DailyWeather(6, 70, 86)).stream());
+
+		//spreads: 29, 16, 22, (filtered), 24, 16
+		assertEquals(5, index.size());
+		assertArrayEquals(new int[] {1, 5, 2}, index.range(16, 22));
+		assertArrayEquals(new int[] {4, 0}, index.atLeast(23));
+		assertArrayEquals(new int[] {}, index.atMost(15));
+		assertArrayEquals(new int[] {}, index.range(22, 16));
+		assertEquals(2, index.rank(22));
+		assertEquals(0, index.rank(Integer.MIN_VALUE));
+		assertEquals(5, index.rank(Integer.MAX_VALUE));
+		assertEquals(2, index.rowAt(2));
+		assertEquals(29, index.keyAt(4));
+		assertThrows(IndexOutOfBoundsException.class, () -> index.rowAt(5));
+		//23 is as close to 22 as to 24: the smaller key comes first
+		assertArrayEquals(new int[] {2, 4, 0}, index.kNearest(23, 3));
+		assertArrayEquals(new int[] {1, 5, 2, 4, 0}, index.kNearest(0, 10));
+	}
+
+	@Test
+	//random keys (including extreme values) appended in batches of different sizes, with queries in between
+	void sameResultAsScan() {
+		Random random = new Random(42);
+		List<Integer> keys = new ArrayList<>();
+		SortedIntIndex<Integer> index = new SortedIntIndex<>(Integer::intValue, k -> k % 7 != 0);
+
+		for(int batch = 0; batch < 50; batch++) {
+			List<Integer> newKeys = IntStream.range(0, random.nextInt(3000))
+					.mapToObj(i -> random.nextInt(10) == 0 ? (random.nextBoolean() ? Integer.MAX_VALUE : Integer.MIN_VALUE) : random.nextInt(2000) - 1000)
+					.collect(Collectors.toList());
+			index.onAppend(newKeys, keys.size());
+			keys.addAll(newKeys);
+
+			int from = random.nextInt(2000) - 1000;
+			int to = from + random.nextInt(500);
+			assertArrayEquals(scan(keys, from, to), index.range(from, to));
+			assertArrayEquals(scan(keys, Integer.MIN_VALUE, Integer.MAX_VALUE), index.range(Integer.MIN_VALUE, Integer.MAX_VALUE));
+			assertEquals(scan(keys, Integer.MIN_VALUE, from - 1).length, index.rank(from));
+
+			int[] nearest = index.kNearest(from, 20);
+			int[] all = scan(keys, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			List<Integer> expected = IntStream.of(all).boxed()
+					.sorted(Comparator.comparingLong((Integer row) -> Math.abs((long) keys.get(row) - from)).thenComparing(keys::get).thenComparing(row -> row))
+					.limit(20)
+					.collect(Collectors.toList());
+			assertEquals(expected, IntStream.of(nearest).boxed().collect(Collectors.toList()));
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Returns the rows with a key within the range which are not filtered out, ordered by key and row.
+	 */
+	private static int[] scan(List<Integer> keys, int from, int to) {
+		return IntStream.range(0, keys.size())
+				.filter(row -> keys.get(row) >= from && keys.get(row) <= to && keys.get(row) % 7 != 0)
+				.boxed()
+				.sorted(Comparator.comparing(keys::get))
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+}
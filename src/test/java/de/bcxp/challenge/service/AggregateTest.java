@@ -0,0 +1,142 @@
+package de.bcxp.challenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.Repository;
+
+/**
+ * Test class for the aggregations of DataHandlerService
+ * @author catherine heyart
+ *
+ */
+class AggregateTest {
+
+	private Repository<DailyWeather> mockRepo;
+	private DailyWeatherService service;
+
+	@SuppressWarnings("unchecked")
+	@BeforeEach
+	void setUp() {
+		mockRepo = Mockito.mock(Repository.class);
+		service = new DailyWeatherService(mockRepo, Mockito.mock(CsvToObjectMapper.class));
+		List<DailyWeather> data = new ArrayList<>();
+		data.add(new DailyWeather(1, 50, 60));
+		data.add(new DailyWeather(2, 50, 52));
+		data.add(new DailyWeather(3, 50, 70));
+		data.add(new DailyWeather(4, 50, 52));
+		data.add(new DailyWeather(5, 50, 70));
+		data.add(new DailyWeather());
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+	}
+
+	@Test
+	void intStatistics() {
+		IntAggregate aggregate = service.aggregateInt(DailyWeather::getTempDiffInF, w -> w.getTempDiffInF() != -1, true);
+		assertTrue(aggregate.hasPercentiles());
+		assertEquals(5, aggregate.getCount());
+		assertEquals(2, aggregate.getMin());
+		assertEquals(20, aggregate.getMax());
+		assertEquals(1, aggregate.getArgMin());
+		assertEquals(4, aggregate.getArgMax());
+		assertEquals(54, aggregate.getSum());
+		assertEquals(10.8, aggregate.getMean(), 1e-9);
+		assertEquals(64.96, aggregate.getVariance(), 1e-9);
+		assertEquals(81.2, aggregate.getSampleVariance(), 1e-9);
+		assertEquals(10, aggregate.getMedian());
+		assertEquals(2, aggregate.getPercentile(0));
+		assertEquals(20, aggregate.getPercentile(100));
+		assertEquals(2 + 0.2 * 8, aggregate.getPercentile(30), 1e-9);
+		assertThrows(IllegalArgumentException.class, () -> aggregate.getPercentile(101));
+	}
+
+	@Test
+	void noValues() {
+		IntAggregate aggregate = service.aggregateInt(DailyWeather::getTempDiffInF, w -> false, true);
+		assertTrue(aggregate.isEmpty());
+		assertEquals(-1, aggregate.getArgMin());
+		assertTrue(Double.isNaN(aggregate.getMean()));
+		assertThrows(NoSuchElementException.class, aggregate::getMin);
+		assertThrows(NoSuchElementException.class, aggregate::getMedian);
+		assertThrows(IllegalArgumentException.class, () -> service.aggregateInt(null, null));
+	}
+
+	@Test
+	//without percentiles, the values are not kept, but all other statistics are available
+	void withoutPercentiles() {
+		IntAggregate aggregate = service.aggregateInt(DailyWeather::getTempDiffInF, w -> w.getTempDiffInF() != -1);
+		assertFalse(aggregate.hasPercentiles());
+		assertEquals(5, aggregate.getCount());
+		assertEquals(54, aggregate.getSum());
+		assertEquals(10.8, aggregate.getMean(), 1e-9);
+		assertThrows(IllegalStateException.class, aggregate::getMedian);
+		assertThrows(IllegalStateException.class, () -> aggregate.getPercentile(99));
+	}
+
+	@Test
+	//the sum of a long aggregate reports an overflow instead of wrapping around; NaN values are skipped by double aggregates
+	void longAndDouble() {
+		LongAggregate longAggregate = service.aggregateLong(w -> Long.MAX_VALUE / 2, null);
+		assertEquals(6, longAggregate.getCount());
+		assertThrows(ArithmeticException.class, longAggregate::getSum);
+		assertEquals(Long.MAX_VALUE / 2, longAggregate.getMean(), 1e3);
+
+		DoubleAggregate doubleAggregate = service.aggregateDouble(w -> w.getTempDiffInF() == -1 ? Double.NaN : w.getTempDiffInF() / 2.0, null);
+		assertEquals(5, doubleAggregate.getCount());
+		assertEquals(1.0, doubleAggregate.getMin());
+		assertEquals(27.0, doubleAggregate.getSum());
+
+		//only the final sum needs to fit, intermediate sums may overflow
+		List<Long> values = List.of(Long.MAX_VALUE, 1L, -2L, Long.MIN_VALUE, -1L, 1L);
+		Mockito.when(mockRepo.getData()).thenReturn(new ArrayList<>(List.of(new DailyWeather(0, 0, 0), new DailyWeather(1, 0, 0), new DailyWeather(2, 0, 0))));
+		assertEquals(Long.MAX_VALUE - 1, service.aggregateLong(w -> values.get(w.getDayOfTheMonth()), null).getSum());
+		Mockito.when(mockRepo.getData()).thenReturn(new ArrayList<>(List.of(new DailyWeather(3, 0, 0), new DailyWeather(4, 0, 0), new DailyWeather(5, 0, 0))));
+		assertEquals(Long.MIN_VALUE, service.aggregateLong(w -> values.get(w.getDayOfTheMonth()), null).getSum());
+		Mockito.when(mockRepo.getData()).thenReturn(new ArrayList<>(List.of(new DailyWeather(3, 0, 0), new DailyWeather(4, 0, 0))));
+		assertThrows(ArithmeticException.class, service.aggregateLong(w -> values.get(w.getDayOfTheMonth()), null)::getSum);
+	}
+
+	@Test
+	//partial aggregates of parallel ranges are merged to the same statistics
+	void parallelAggregation() {
+		SplittableRandom random = new SplittableRandom(42);
+		List<DailyWeather> data = new ArrayList<>();
+		for(int i = 0; i < 100_000; i++) {
+			data.add(new DailyWeather(i % 30 + 1, 50, 50 + random.nextInt(40)));
+		}
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		IntAggregate sequential = service.aggregateInt(DailyWeather::getTempDiffInF, null, true);
+		//as many even as odd days, so the sum is 0
+		LongAggregate sequentialLong = service.aggregateLong(w -> w.getDayOfTheMonth() % 2 == 0 ? Long.MAX_VALUE : -Long.MAX_VALUE, null);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			service.setQueryPool(pool);
+			service.setParallelThreshold(0);
+			IntAggregate parallel = service.aggregateInt(DailyWeather::getTempDiffInF, null, true);
+			assertEquals(sequential.getCount(), parallel.getCount());
+			assertEquals(sequential.getSum(), parallel.getSum());
+			assertEquals(sequential.getArgMin(), parallel.getArgMin());
+			assertEquals(sequential.getArgMax(), parallel.getArgMax());
+			assertEquals(sequential.getMean(), parallel.getMean(), 1e-9);
+			assertEquals(sequential.getVariance(), parallel.getVariance(), 1e-6);
+			assertEquals(sequential.getPercentile(99), parallel.getPercentile(99));
+			//the partial sums of the ranges overflow, but their carries are merged as well
+			LongAggregate parallelLong = service.aggregateLong(w -> w.getDayOfTheMonth() % 2 == 0 ? Long.MAX_VALUE : -Long.MAX_VALUE, null);
+			assertEquals(sequentialLong.getSum(), parallelLong.getSum());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
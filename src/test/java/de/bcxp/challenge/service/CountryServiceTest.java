@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,7 @@ import org.mockito.Mockito;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
 import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.repository.ColumnarCountryRepository;
 import de.bcxp.challenge.repository.Repository;
 
 /**
@@ -85,5 +87,97 @@ class CountryServiceTest {
 		String result = countryService.getCountryNameWithHighestPopulationDensity();
 		assertTrue(result.equals("Malta") || result.equals("Double Malta"));
 	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//columnar repository is queried with a loop over the primitive values and yields the same result (including the tie-breaking)
+	void columnarRepository() {
+		data.add(new Country("Double Malta", 516100, 316));
+		ColumnarCountryRepository columnarRepo = Mockito.spy(new ColumnarCountryRepository());
+		columnarRepo.addData(data);
+		CountryService columnarService = new CountryService(columnarRepo, Mockito.mock(CsvToObjectMapper.class));
+		columnarService.setQueryCacheSize(0);
+		Mockito.clearInvocations(columnarRepo);
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		assertEquals("Double Malta", columnarService.getCountryNameWithHighestPopulationDensity());
+		assertEquals(countryService.getCountryNameWithHighestPopulationDensity(), columnarService.getCountryNameWithHighestPopulationDensity());
+		assertEquals(countryService.getMedianPopulationDensity(), columnarService.getMedianPopulationDensity());
+		//the loop reads the columns, no objects are materialized
+		Mockito.verify(columnarRepo, Mockito.never()).getData();
+		Mockito.verify(columnarRepo, Mockito.atLeastOnce()).getPopulationDensity(Mockito.anyInt());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//threshold query answered by a scan (mock repository) and by an index yield the same countries, ordered by population density
+	void countryNamesWithPopulationDensityAbove() {
+		data.add(new Country("Hungary", 59, -1));
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		Repository<Country> repo = new Repository<>();
+		repo.addData(data);
+		CountryService indexedService = new CountryService(repo, Mockito.mock(CsvToObjectMapper.class));
+		indexedService.enableViews();
+		
+		List<String> expected = List.of("Netherlands", "Malta");
+		assertEquals(expected, countryService.getCountryNamesWithPopulationDensityAbove(300));
+		assertEquals(expected, indexedService.getCountryNamesWithPopulationDensityAbove(300));
+		assertEquals(List.of(), indexedService.getCountryNamesWithPopulationDensityAbove(Integer.MAX_VALUE));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//countries with invalid population density are not included in the median; a table yields the same median
+	void medianPopulationDensity() {
+		data.add(new Country("Hungary", 59, -1));
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		ColumnarCountryRepository columnarRepo = new ColumnarCountryRepository();
+		columnarRepo.addData(data);
+		CountryService columnarService = new CountryService(columnarRepo, Mockito.mock(CsvToObjectMapper.class));
+		
+		assertEquals(244, countryService.getMedianPopulationDensity());
+		assertEquals(244, columnarService.getMedianPopulationDensity());
+		//the cached result is only replaced when the version of the repository changes
+		data.add(new Country("Belgium", 11566041, 30689));
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		Mockito.when(mockRepo.getVersion()).thenReturn(1L);
+		assertEquals((244 + 376) / 2.0, countryService.getMedianPopulationDensity());
+		Mockito.when(mockRepo.getData()).thenReturn(new ArrayList<>());
+		Mockito.when(mockRepo.getVersion()).thenReturn(2L);
+		assertEquals(-1, countryService.getMedianPopulationDensity());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//parallel queries over ranges yield the same results as sequential queries (including the tie-breaking)
+	void parallelQuery() {
+		List<Country> largeData = new ArrayList<>();
+		for(int i = 0; i < 100_000; i++) {
+			largeData.add(new Country("Country " + i, 1000 + i % 500, 10));
+		}
+		largeData.set(10_000, new Country("First", 1_000_000, 10));
+		largeData.set(90_000, new Country("Last", 1_000_000, 10));
+		//without views, the queries scan the objects of a list repository and loop over the columns of a columnar repository
+		Repository<Country> listRepo = new Repository<>();
+		listRepo.addData(largeData);
+		CountryService listService = new CountryService(listRepo, Mockito.mock(CsvToObjectMapper.class));
+		ColumnarCountryRepository tableRepo = new ColumnarCountryRepository();
+		tableRepo.addData(largeData);
+		CountryService tableService = new CountryService(tableRepo, Mockito.mock(CsvToObjectMapper.class));
+		assertFalse(listService.isViewsEnabled());
+		assertFalse(tableService.isViewsEnabled());
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			listService.setQueryPool(pool);
+			listService.setParallelThreshold(0);
+			tableService.setQueryPool(pool);
+			tableService.setParallelThreshold(0);
+			assertEquals("Last", listService.getCountryNameWithHighestPopulationDensity());
+			assertEquals("Last", tableService.getCountryNameWithHighestPopulationDensity());
+			assertEquals(List.of("First", "Last"), listService.getCountryNamesWithPopulationDensityAbove(50_000));
+		} finally {
+			pool.shutdown();
+		}
+	}
 
 }
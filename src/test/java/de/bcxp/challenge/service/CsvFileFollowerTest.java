@@ -0,0 +1,211 @@
+package de.bcxp.challenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.opencsv.exceptions.CsvException;
+
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.MetricsRegistry;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.ConcurrentRepository;
+import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for CsvFileFollower
+ * @author catherine heyart
+ *
+ */
+class CsvFileFollowerTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	//the rows present when the file is followed are added immediately, appended rows after the change has been noticed
+	void appendedRowsAreAdded() throws Exception {
+		Path path = tempDir.resolve("weather.csv");
+		Files.writeString(path, "Day,MxT,MnT\n1,88,59\n2,79,63\n", StandardCharsets.UTF_8);
+
+		Repository<DailyWeather> repo = new Repository<>();
+		DailyWeatherService service = new DailyWeatherService(repo, new FastCsvToObjectMapper<>(DailyWeather.class));
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(repo, new FastCsvToObjectMapper<>(DailyWeather.class))) {
+			assertEquals(2, follower.follow(path, ','));
+			assertEquals(2, service.getDayWithSmallestTempSpread());
+			assertThrows(IllegalArgumentException.class, () -> follower.follow(path, ','));
+
+			Files.writeString(path, "3,70,65\n4,80,7", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			awaitRows(follower, repo, 3);
+			assertEquals(3, repo.getData().size());
+			assertEquals(3, service.getDayWithSmallestTempSpread());
+
+			Files.writeString(path, "0\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			awaitRows(follower, repo, 4);
+			assertEquals(new DailyWeather(4, 70, 80), repo.getData().get(3));
+		}
+	}
+
+	@Test
+	//a rotated file (renamed and created again) is noticed: the rows appended to the old file are added, then the new file is read from the beginning
+	void rotatedFileIsReadAgain() throws Exception {
+		Path path = tempDir.resolve("weather.csv");
+		Files.writeString(path, "Day,MxT,MnT\n1,88,59\n", StandardCharsets.UTF_8);
+
+		Repository<DailyWeather> repo = new Repository<>();
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(repo, new FastCsvToObjectMapper<>(DailyWeather.class))) {
+			assertEquals(1, follower.follow(path, ','));
+
+			Files.writeString(path, "2,79,63\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			Files.move(path, tempDir.resolve("weather.csv.1"), StandardCopyOption.ATOMIC_MOVE);
+			//the new file is longer than the old one, so it is not mistaken for a truncation
+			Files.writeString(path, "Day,MnT,MxT\n3,65,70\n4,70,80\n5,60,90\n", StandardCharsets.UTF_8);
+			awaitRows(follower, repo, 5);
+			assertEquals(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79), new DailyWeather(3, 65, 70), new DailyWeather(4, 70, 80),
+					new DailyWeather(5, 60, 90)), repo.getData());
+
+			Files.writeString(path, "6,50,55\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			awaitRows(follower, repo, 6);
+			assertEquals(new DailyWeather(6, 50, 55), repo.getData().get(5));
+		}
+	}
+
+	@Test
+	//a file replaced by a file with an invalid header is not followed anymore, which is passed to the rejected row sink
+	void replacedFileWithoutValidHeader() throws Exception {
+		Path path = tempDir.resolve("weather.csv");
+		Files.writeString(path, "Day,MxT,MnT\n1,88,59\n", StandardCharsets.UTF_8);
+
+		List<CsvException> rejected = new CopyOnWriteArrayList<>();
+		FastCsvToObjectMapper<DailyWeather> mapper = new FastCsvToObjectMapper<>(DailyWeather.class);
+		mapper.setRejectedRowSink((filePath, rows) -> rejected.addAll(rows));
+		Repository<DailyWeather> repo = new Repository<>();
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(repo, mapper)) {
+			assertEquals(1, follower.follow(path, ','));
+
+			Files.delete(path);
+			Files.writeString(path, "Month,Temp\n1,2\n3,4\n", StandardCharsets.UTF_8);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+			while(rejected.isEmpty() && System.nanoTime() < deadline) {
+				follower.awaitChanges(100, TimeUnit.MILLISECONDS);
+			}
+			assertEquals(1, rejected.size());
+
+			//the file is not followed anymore, so it can be followed again once it is valid
+			Files.writeString(path, "Day,MxT,MnT\n2,79,63\n", StandardCharsets.UTF_8);
+			assertEquals(1, follower.follow(path, ','));
+			assertEquals(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79)), repo.getData());
+		}
+	}
+
+	@Test
+	//a file which can not be read (here because of a row which is too large) is passed to the rejected row sink, and the other files are still followed
+	void unreadableFileDoesNotStopOtherFiles() throws Exception {
+		Path large = tempDir.resolve("large.csv");
+		Path small = tempDir.resolve("small.csv");
+		Files.writeString(large, "Day,MxT,MnT\n1,88,59\n", StandardCharsets.UTF_8);
+		Files.writeString(small, "Day,MxT,MnT\n2,79,63\n", StandardCharsets.UTF_8);
+
+		List<String> rejected = new CopyOnWriteArrayList<>();
+		FastCsvToObjectMapper<DailyWeather> mapper = new FastCsvToObjectMapper<>(DailyWeather.class);
+		mapper.setRejectedRowSink((filePath, rows) -> rows.forEach(row -> rejected.add(filePath.getFileName() + ": " + row.getMessage())));
+		Counter readFailures = MetricsRegistry.getDefault().counter("follower.read.failures");
+		long readFailuresBefore = readFailures.get();
+		Repository<DailyWeather> repo = new Repository<>();
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(repo, mapper)) {
+			assertEquals(1, follower.follow(large, ','));
+			assertEquals(1, follower.follow(small, ','));
+
+			byte[] row = new byte[8 * 1024 * 1024 + 1];
+			Arrays.fill(row, (byte) '1');
+			Files.write(large, row, StandardOpenOption.APPEND);
+			Files.writeString(small, "3,70,65\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+			while((rejected.isEmpty() || repo.getData().size() < 3) && System.nanoTime() < deadline) {
+				follower.awaitChanges(100, TimeUnit.MILLISECONDS);
+			}
+			assertEquals(List.of(new DailyWeather(1, 59, 88), new DailyWeather(2, 63, 79), new DailyWeather(3, 65, 70)), repo.getData());
+			assertTrue(rejected.get(0).startsWith("large.csv: The file could not be read"));
+			assertTrue(readFailures.get() > readFailuresBefore);
+
+			//the file is still followed
+			assertThrows(IllegalArgumentException.class, () -> follower.follow(large, ','));
+		}
+	}
+
+	@Test
+	//if the same file is followed by several threads at once, it is followed only once
+	void concurrentFollow() throws Exception {
+		Path path = tempDir.resolve("weather.csv");
+		Files.writeString(path, "Day,MxT,MnT\n1,88,59\n", StandardCharsets.UTF_8);
+		Repository<DailyWeather> repo = new ConcurrentRepository<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(repo, new FastCsvToObjectMapper<>(DailyWeather.class))) {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Integer>> futures = new ArrayList<>();
+			for(int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return follower.follow(path, ',');
+				}));
+			}
+			start.countDown();
+			int followed = 0;
+			for(Future<Integer> future : futures) {
+				try {
+					assertEquals(1, future.get());
+					followed++;
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof IllegalArgumentException);
+				}
+			}
+			assertEquals(1, followed);
+			assertEquals(1, repo.getData().size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void fileWithoutValidHeader() throws IOException {
+		Path path = tempDir.resolve("invalid.csv");
+		Files.writeString(path, "Month,Temp\n1,2\n", StandardCharsets.UTF_8);
+		try (CsvFileFollower<DailyWeather> follower = new CsvFileFollower<>(new Repository<>(), new FastCsvToObjectMapper<>(DailyWeather.class))) {
+			assertThrows(InvalidFileFormatException.class, () -> follower.follow(path, ','));
+		}
+	}
+
+
+
+	///////////HELPER METHODS//////////////////////////////////////////////////
+
+	/**
+	 * Processes changes until the repository contains the expected number of rows (or a timeout is reached).
+	 */
+	private static void awaitRows(CsvFileFollower<DailyWeather> follower, Repository<DailyWeather> repo, int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while(repo.getData().size() < expected && System.nanoTime() < deadline) {
+			follower.awaitChanges(100, TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -2,16 +2,34 @@ package de.bcxp.challenge.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
 import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.metrics.Counter;
+import de.bcxp.challenge.metrics.MetricsRegistry;
 import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.repository.ColumnarDailyWeatherRepository;
+import de.bcxp.challenge.repository.ConcurrentRepository;
+import de.bcxp.challenge.repository.MappedDailyWeatherRepository;
 import de.bcxp.challenge.repository.Repository;
+import de.bcxp.challenge.repository.RepositorySnapshot;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
 
 /**
  * Test class for DailyWeatherService
@@ -24,6 +42,9 @@ class DailyWeatherServiceTest {
 	private DailyWeatherService weatherService;
 	private List<DailyWeather> data;
 	
+	@TempDir
+	Path tempDir;
+	
 	@SuppressWarnings("unchecked")
 	@BeforeEach
 	void setUp() {
@@ -87,5 +108,280 @@ class DailyWeatherServiceTest {
 		int result = weatherService.getDayWithSmallestTempSpread();
 		assertEquals(2, result);
 	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//columnar repository is queried with a loop over the primitive values and yields the same result (including the tie-breaking)
+	void columnarRepository() {
+		data.add(new DailyWeather(7, 63, 79));
+		ColumnarDailyWeatherRepository columnarRepo = Mockito.spy(new ColumnarDailyWeatherRepository());
+		columnarRepo.addData(data);
+		DailyWeatherService columnarService = new DailyWeatherService(columnarRepo, Mockito.mock(CsvToObjectMapper.class));
+		columnarService.setQueryCacheSize(0);
+		Mockito.clearInvocations(columnarRepo);
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		assertEquals(2, columnarService.getDayWithSmallestTempSpread());
+		assertEquals(weatherService.getDayWithSmallestTempSpread(), columnarService.getDayWithSmallestTempSpread());
+		assertEquals(weatherService.getAverageTempSpread(), columnarService.getAverageTempSpread(), 1e-9);
+		//the loop reads the columns, no objects are materialized
+		Mockito.verify(columnarRepo, Mockito.never()).getData();
+		Mockito.verify(columnarRepo, Mockito.atLeastOnce()).getTempDiffInF(Mockito.anyInt());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//no views are registered on a snapshot, so its rows are only read by the queries (as primitive values)
+	void snapshotRepository() throws IOException {
+		Path source = Files.writeString(tempDir.resolve("weather.csv"), "Day,MxT,MnT\n");
+		Repository<DailyWeather> repo = new Repository<>();
+		repo.addData(data);
+		RepositorySnapshot.writeWeather(repo, source, tempDir.resolve("weather.snapshot"));
+		MappedDailyWeatherRepository snapshotRepo = Mockito.spy(RepositorySnapshot.loadWeather(tempDir.resolve("weather.snapshot"), source));
+		DailyWeatherService snapshotService = new DailyWeatherService(snapshotRepo, Mockito.mock(CsvToObjectMapper.class));
+		snapshotService.enableViews();
+		assertFalse(snapshotService.isViewsEnabled());
+		assertEquals(2, snapshotService.getDayWithSmallestTempSpread());
+		Mockito.verify(snapshotRepo, Mockito.never()).getData();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//once enabled, the result is maintained by a view while data is added after the service has been created
+	void dataAddedAfterCreation() {
+		Repository<DailyWeather> repo = new Repository<>();
+		DailyWeatherService service = new DailyWeatherService(repo, Mockito.mock(CsvToObjectMapper.class));
+		assertFalse(service.isViewsEnabled());
+		service.enableViews();
+		service.enableViews();
+		assertTrue(service.isViewsEnabled());
+		assertEquals(-1, service.getDayWithSmallestTempSpread());
+		repo.addData(data);
+		assertEquals(2, service.getDayWithSmallestTempSpread());
+		repo.addData(List.of(new DailyWeather(6, 59, -1), new DailyWeather(7, 70, 72)).stream());
+		assertEquals(7, service.getDayWithSmallestTempSpread());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//range query answered by a scan (mock repository) and by an index yield the same days, ordered by temperature spread
+	void daysWithTempSpreadBetween() {
+		data.add(new DailyWeather(6, 59, -1));
+		data.add(new DailyWeather(7, 70, 86));
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		Repository<DailyWeather> repo = new Repository<>();
+		repo.addData(data);
+		DailyWeatherService indexedService = new DailyWeatherService(repo, Mockito.mock(CsvToObjectMapper.class));
+		indexedService.enableViews();
+		
+		assertEquals(List.of(2, 7, 4, 3), weatherService.getDaysWithTempSpreadBetween(16, 22));
+		assertEquals(List.of(2, 7, 4, 3), indexedService.getDaysWithTempSpreadBetween(16, 22));
+		assertEquals(List.of(), indexedService.getDaysWithTempSpreadBetween(-5, 10));
+		assertEquals(weatherService.getDaysWithTempSpreadBetween(Integer.MIN_VALUE, Integer.MAX_VALUE), 
+				indexedService.getDaysWithTempSpreadBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//range queries answered by the index while other threads append data only return rows which are contained in the data
+	void daysWithTempSpreadBetweenWhileAdding() throws Exception {
+		ConcurrentRepository<DailyWeather> repo = new ConcurrentRepository<>();
+		DailyWeatherService service = new DailyWeatherService(repo, Mockito.mock(CsvToObjectMapper.class));
+		service.enableViews();
+		service.setQueryCacheSize(0);
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for(int batch = 0; batch < 2000; batch++) {
+					List<DailyWeather> days = new ArrayList<>();
+					for(int i = 0; i < 10; i++) {
+						days.add(new DailyWeather(batch % 30 + 1, 50, 50 + i));
+					}
+					repo.addData(days);
+				}
+			});
+			int previousSize = 0;
+			while(!writer.isDone()) {
+				List<Integer> days = service.getDaysWithTempSpreadBetween(0, 9);
+				assertTrue(days.size() >= previousSize);
+				previousSize = days.size();
+			}
+			writer.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(20_000, service.getDaysWithTempSpreadBetween(0, 9).size());
+		assertEquals(2000, service.getDaysWithTempSpreadBetween(4, 4).size());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//days with invalid temperature data are not included in the average; a table yields the same average
+	void averageTempSpread() {
+		data.add(new DailyWeather(6, 59, -1));
+		Mockito.when(mockRepo.getData()).thenReturn(data);
+		ColumnarDailyWeatherRepository columnarRepo = new ColumnarDailyWeatherRepository();
+		columnarRepo.addData(data);
+		DailyWeatherService columnarService = new DailyWeatherService(columnarRepo, Mockito.mock(CsvToObjectMapper.class));
+		
+		assertEquals(21.8, weatherService.getAverageTempSpread(), 1e-9);
+		assertEquals(21.8, columnarService.getAverageTempSpread(), 1e-9);
+		Mockito.when(mockRepo.getData()).thenReturn(List.of(new DailyWeather()));
+		Mockito.when(mockRepo.getVersion()).thenReturn(1L);
+		assertEquals(-1, weatherService.getAverageTempSpread());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//parallel queries over ranges yield the same results as sequential queries (including the tie-breaking)
+	void parallelQuery() {
+		List<DailyWeather> largeData = new ArrayList<>();
+		for(int i = 0; i < 200_000; i++) {
+			largeData.add(new DailyWeather(i % 30 + 1, 50, 60 + i % 40));
+		}
+		largeData.set(70_001, new DailyWeather(31, 50, 52));
+		largeData.set(150_001, new DailyWeather(32, 50, 52));
+		//without views, the queries scan the objects of a list repository and loop over the columns of a columnar repository
+		Repository<DailyWeather> listRepo = new Repository<>();
+		listRepo.addData(largeData);
+		DailyWeatherService listService = new DailyWeatherService(listRepo, Mockito.mock(CsvToObjectMapper.class));
+		ColumnarDailyWeatherRepository tableRepo = new ColumnarDailyWeatherRepository();
+		tableRepo.addData(largeData);
+		DailyWeatherService tableService = new DailyWeatherService(tableRepo, Mockito.mock(CsvToObjectMapper.class));
+		assertFalse(listService.isViewsEnabled());
+		assertFalse(tableService.isViewsEnabled());
+		
+		//the queries are computed on every call
+		listService.setQueryCacheSize(0);
+		tableService.setQueryCacheSize(0);
+		listService.setParallelThreshold(Integer.MAX_VALUE);
+		int sequentialDay = listService.getDayWithSmallestTempSpread();
+		List<Integer> sequentialRange = listService.getDaysWithTempSpreadBetween(2, 15);
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			listService.setQueryPool(pool);
+			listService.setParallelThreshold(0);
+			tableService.setQueryPool(pool);
+			tableService.setParallelThreshold(0);
+			assertEquals(31, sequentialDay);
+			assertEquals(sequentialDay, listService.getDayWithSmallestTempSpread());
+			assertEquals(sequentialDay, tableService.getDayWithSmallestTempSpread());
+			assertEquals(sequentialRange, listService.getDaysWithTempSpreadBetween(2, 15));
+		} finally {
+			pool.shutdown();
+		}
+		assertThrows(IllegalArgumentException.class, () -> weatherService.setParallelThreshold(-1));
+		assertThrows(IllegalArgumentException.class, () -> weatherService.setQueryPool(null));
+	}
+	
+	@Test
+	//files are mapped concurrently, but added in the order of the paths; files which cannot be mapped are reported
+	void addDataFromCsvFiles() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		for(int station = 0; station < 12; station++) {
+			StringBuilder content = new StringBuilder("Day;MxT;MnT\n");
+			for(int day = 1; day <= 30; day++) {
+				content.append(day).append(';').append(60 + station + day).append(';').append(50).append('\n');
+			}
+			Path path = tempDir.resolve("station" + (char) ('a' + station) + ".csv");
+			Files.writeString(path, content.toString(), StandardCharsets.UTF_8);
+			paths.add(path);
+		}
+		Files.writeString(tempDir.resolve("invalid.csv"), "Month;Temp\n1;2\n", StandardCharsets.UTF_8);
+		paths.add(1, tempDir.resolve("invalid.csv"));
+		paths.add(tempDir.resolve("missing.csv"));
+		
+		Repository<DailyWeather> repo = new Repository<>();
+		DailyWeatherService service = new DailyWeatherService(repo, new FastCsvToObjectMapper<>(DailyWeather.class));
+		service.setIngestionParallelism(3);
+		List<IngestionReport> reports = service.addDataFromCsvFiles(paths, ';');
+		
+		assertEquals(paths.size(), reports.size());
+		assertEquals(paths.get(0), reports.get(0).getFilePath());
+		assertEquals(30, reports.get(0).getRowCount());
+		assertTrue(reports.get(1).getError() instanceof InvalidFileFormatException);
+		assertTrue(reports.get(13).getError() instanceof FileNotFoundException);
+		assertEquals(12, reports.stream().filter(IngestionReport::isSuccessful).count());
+		assertEquals(360, repo.getData().size());
+		//the first file contains the smallest spreads
+		assertEquals(1, service.getDayWithSmallestTempSpread());
+		assertEquals(61, repo.getData().get(0).getMaxTempInF());
+		assertEquals(62, repo.getData().get(30).getMaxTempInF());
+		
+		//the same files found by a glob pattern, ordered by name
+		Repository<DailyWeather> globRepo = new Repository<>();
+		DailyWeatherService globService = new DailyWeatherService(globRepo, new FastCsvToObjectMapper<>(DailyWeather.class));
+		List<IngestionReport> globReports = globService.addDataFromCsvFiles(tempDir, "station*.csv", ';');
+		assertEquals(12, globReports.size());
+		assertEquals(repo.getData(), globRepo.getData());
+		assertThrows(FileNotFoundException.class, () -> globService.addDataFromCsvFiles(tempDir.resolve("missing"), "*.csv", ';'));
+	}
+	
+	@Test
+	//json files are mapped by the json mapper of the service and added like csv files
+	void addDataFromJsonFile() throws IOException, InvalidFileFormatException {
+		Path path = tempDir.resolve("weather.json");
+		Files.writeString(path, "[{\"Day\": 1, \"MxT\": 88, \"MnT\": 59}, {\"Day\": 2, \"MxT\": 79, \"MnT\": 63}, {\"Day\": 3, \"MxT\": \"x\", \"MnT\": 1}]", 
+				StandardCharsets.UTF_8);
+		Repository<DailyWeather> repo = new Repository<>();
+		DailyWeatherService service = new DailyWeatherService(repo, new FastCsvToObjectMapper<>(DailyWeather.class));
+		service.addDataFromJsonFile(path);
+		assertEquals(2, repo.getData().size());
+		assertEquals(2, service.getDayWithSmallestTempSpread());
+		assertThrows(InvalidFileFormatException.class, () -> service.addDataFromJsonFile(tempDir.resolve("weather.csv")));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//repeated queries are answered from the cache until data is added; the least recently used results are evicted
+	void queryCache() {
+		Repository<DailyWeather> repo = Mockito.spy(new Repository<DailyWeather>());
+		repo.addData(data);
+		DailyWeatherService service = new DailyWeatherService(repo, Mockito.mock(CsvToObjectMapper.class));
+		Mockito.clearInvocations(repo);
+		
+		assertEquals(21.8, service.getAverageTempSpread(), 1e-9);
+		assertEquals(21.8, service.getAverageTempSpread(), 1e-9);
+		Mockito.verify(repo, Mockito.times(1)).getData();
+		
+		//a returned list can be modified without changing the cached result
+		List<Integer> days = service.getDaysWithTempSpreadBetween(0, 20);
+		days.clear();
+		assertEquals(List.of(2, 4), service.getDaysWithTempSpreadBetween(0, 20));
+		
+		repo.addData(List.of(new DailyWeather(6, 60, 61)));
+		assertEquals(110 / 6.0, service.getAverageTempSpread(), 1e-9);
+		assertEquals(List.of(6, 2, 4), service.getDaysWithTempSpreadBetween(0, 20));
+		assertEquals(6, service.getDayWithSmallestTempSpread());
+		
+		service.setQueryCacheSize(2);
+		service.getAverageTempSpread();
+		service.getDaysWithTempSpreadBetween(0, 20);
+		service.getDaysWithTempSpreadBetween(0, 10);
+		Mockito.clearInvocations(repo);
+		service.getAverageTempSpread();
+		Mockito.verify(repo, Mockito.times(1)).getData();
+		assertEquals(2, service.getQueryCacheSize());
+		assertThrows(IllegalArgumentException.class, () -> service.setQueryCacheSize(-1));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	//the results maintained by views are read without the cache
+	void viewsAreNotCached() {
+		Repository<DailyWeather> repo = new Repository<>();
+		repo.addData(data);
+		DailyWeatherService service = new DailyWeatherService(repo, Mockito.mock(CsvToObjectMapper.class));
+		service.enableViews();
+		Counter hits = MetricsRegistry.getDefault().counter("service.cache.hits");
+		Counter misses = MetricsRegistry.getDefault().counter("service.cache.misses");
+		long queries = hits.get() + misses.get();
+		
+		assertEquals(2, service.getDayWithSmallestTempSpread());
+		assertEquals(List.of(2, 4), service.getDaysWithTempSpreadBetween(0, 20));
+		assertEquals(2, service.getDayWithSmallestTempSpread());
+		assertEquals(queries, hits.get() + misses.get());
+	}
 
 }
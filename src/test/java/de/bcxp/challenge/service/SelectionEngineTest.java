@@ -0,0 +1,105 @@
+package de.bcxp.challenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.bcxp.challenge.model.DailyWeather;
+
+/**
+ * Test class for SelectionEngine
+ * @author catherine heyart
+ *
+ */
+class SelectionEngineTest {
+
+	private List<DailyWeather> data;
+	private Comparator<DailyWeather> comparator;
+	private Predicate<DailyWeather> filter;
+
+	@BeforeEach
+	void setUp() {
+		comparator = Comparator.comparingInt(DailyWeather::getTempDiffInF);
+		filter = w -> w.getTempDiffInF() != -1;
+
+		data = new ArrayList<>();
+		data.add(new DailyWeather(1, 59, 88));
+		data.add(new DailyWeather(2, 63, 79));
+		data.add(new DailyWeather(3, 55, 77));
+		data.add(new DailyWeather(4, 59, 77));
+		data.add(new DailyWeather(5, 66, 90));
+		data.add(new DailyWeather(6, 59, -1));
+	}
+
+	@Test
+	void min() {
+		assertEquals(2, SelectionEngine.min(data, comparator, filter).getDayOfTheMonth());
+	}
+
+	@Test
+	void max() {
+		assertEquals(1, SelectionEngine.max(data, comparator, filter).getDayOfTheMonth());
+	}
+
+	@Test
+	//without a filter, all entries are compared -> the invalid entry (tempDiff -1) is the minimum
+	void minWithoutFilter() {
+		assertEquals(6, SelectionEngine.min(data, comparator, null).getDayOfTheMonth());
+	}
+
+	@Test
+	void emptyData() {
+		assertNull(SelectionEngine.min(new ArrayList<DailyWeather>(), comparator, filter));
+		assertNull(SelectionEngine.max(new ArrayList<DailyWeather>(), comparator, filter));
+		assertTrue(SelectionEngine.topK(new ArrayList<DailyWeather>(), 3, comparator, filter).isEmpty());
+	}
+
+	@Test
+	//same tie-breaking as a stable sort: first of the lowest, last of the highest
+	void tieBreaking() {
+		data.add(new DailyWeather(7, 63, 79));
+		data.add(new DailyWeather(8, 60, 89));
+		assertEquals(2, SelectionEngine.min(data, comparator, filter).getDayOfTheMonth());
+		assertEquals(8, SelectionEngine.max(data, comparator, filter).getDayOfTheMonth());
+	}
+
+	@Test
+	void topK() {
+		List<Integer> result = SelectionEngine.topK(data, 3, comparator, filter).stream()
+				.map(DailyWeather::getDayOfTheMonth)
+				.collect(Collectors.toList());
+		assertEquals(List.of(1, 5, 3), result);
+	}
+
+	@Test
+	//result of topK corresponds to the last k elements of the stable sorted list in reverse order
+	void topKMatchesSortedData() {
+		data.add(new DailyWeather(7, 63, 79));
+		data.add(new DailyWeather(8, 60, 89));
+		data.add(new DailyWeather(9, 55, 77));
+
+		List<DailyWeather> sorted = data.stream().filter(filter).sorted(comparator).collect(Collectors.toList());
+		for(int k = 0; k <= sorted.size() + 1; k++) {
+			List<DailyWeather> expected = new ArrayList<>();
+			for(int i = sorted.size() - 1; i >= Math.max(0, sorted.size() - k); i--) {
+				expected.add(sorted.get(i));
+			}
+			assertEquals(expected, SelectionEngine.topK(data, k, comparator, filter));
+		}
+	}
+
+	@Test
+	void invalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> SelectionEngine.min(data, null, filter));
+		assertThrows(IllegalArgumentException.class, () -> SelectionEngine.max(null, comparator, filter));
+		assertThrows(IllegalArgumentException.class, () -> SelectionEngine.topK(data, -1, comparator, filter));
+	}
+
+}
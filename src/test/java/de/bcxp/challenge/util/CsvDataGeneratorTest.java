@@ -0,0 +1,107 @@
+package de.bcxp.challenge.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.bcxp.challenge.mapper.CsvToObjectMapper;
+import de.bcxp.challenge.mapper.FastCsvToObjectMapper;
+import de.bcxp.challenge.model.Country;
+import de.bcxp.challenge.model.DailyWeather;
+import de.bcxp.challenge.util.CsvDataGenerator.RowError;
+import de.bcxp.challenge.util.CsvDataGenerator.Summary;
+import de.bcxp.challengeExceptions.InvalidFileFormatException;
+
+/**
+ * Test class for CsvDataGenerator.
+ * @author catherine heyart
+ *
+ */
+public class CsvDataGeneratorTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void sameSeedSameFile() throws IOException {
+		Path first = tempDir.resolve("first.csv");
+		Path second = tempDir.resolve("second.csv");
+		Path otherSeed = tempDir.resolve("otherSeed.csv");
+		CsvDataGenerator generator = new CsvDataGenerator(7);
+		generator.setErrorRate(0.1);
+		generator.writeWeatherFile(first, 1000);
+		generator.writeWeatherFile(second, 1000);
+		CsvDataGenerator otherGenerator = new CsvDataGenerator(8);
+		otherGenerator.setErrorRate(0.1);
+		otherGenerator.writeWeatherFile(otherSeed, 1000);
+
+		assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+		assertFalse(Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(otherSeed)));
+	}
+
+	@Test
+	//the mappers map exactly the rows which are reported as mapped
+	void weatherFileIsMapped() throws FileNotFoundException, InvalidFileFormatException {
+		Path path = tempDir.resolve("weather.csv");
+		CsvDataGenerator generator = new CsvDataGenerator(42);
+		generator.setErrorRate(0.2);
+		Summary summary = generator.writeWeatherFile(path, 5000);
+
+		List<DailyWeather> fast = new FastCsvToObjectMapper<>(DailyWeather.class).mapFileToObjectList(path, ',');
+		List<DailyWeather> openCsv = new CsvToObjectMapper<>(DailyWeather.class).mapFileToObjectList(path, ',');
+		assertEquals(summary.getMappedRowCount(), fast.size());
+		assertEquals(openCsv, fast);
+		for(RowError error : RowError.values()) {
+			assertTrue(summary.getErrorCount(error) > 0);
+		}
+	}
+
+	@Test
+	void countryFileIsMapped() throws FileNotFoundException, InvalidFileFormatException {
+		Path path = tempDir.resolve("countries.csv");
+		CsvDataGenerator generator = new CsvDataGenerator(42);
+		generator.setErrorRate(0.2);
+		Summary summary = generator.writeCountryFile(path, 5000);
+
+		List<Country> fast = new FastCsvToObjectMapper<>(Country.class).mapFileToObjectList(path, ';');
+		List<Country> openCsv = new CsvToObjectMapper<>(Country.class).mapFileToObjectList(path, ';');
+		assertEquals(summary.getMappedRowCount(), fast.size());
+		assertEquals(openCsv, fast);
+	}
+
+	@Test
+	void onlySelectedErrors() throws FileNotFoundException, InvalidFileFormatException {
+		Path path = tempDir.resolve("weather.csv");
+		CsvDataGenerator generator = new CsvDataGenerator(42);
+		generator.setErrorRate(1);
+		generator.setRowErrors(EnumSet.of(RowError.WRONG_VALUE));
+		Summary summary = generator.writeWeatherFile(path, 100);
+
+		assertEquals(100, summary.getErrorCount(RowError.WRONG_VALUE));
+		assertEquals(100, summary.getMappedRowCount());
+		assertEquals(100, new FastCsvToObjectMapper<>(DailyWeather.class).mapFileToObjectList(path, ',').size());
+	}
+
+	@Test
+	void invalidSettings() {
+		CsvDataGenerator generator = new CsvDataGenerator(42);
+		assertThrows(IllegalArgumentException.class, () -> generator.setErrorRate(1.5));
+		assertThrows(IllegalArgumentException.class, () -> generator.setErrorRate(Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> generator.setRowErrors(EnumSet.noneOf(RowError.class)));
+		assertThrows(IllegalArgumentException.class, () -> generator.writeWeatherFile(null, 10));
+		assertThrows(IllegalArgumentException.class, () -> generator.writeWeatherFile(tempDir.resolve("weather.csv"), -1));
+	}
+}